@@ -0,0 +1,16 @@
+package ru.elseff.socialmedia.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.elseff.socialmedia.web.api.modules.feed.timeline.FeedEngine;
+
+@Configuration
+public class FeedConfig {
+
+    @Bean
+    public FeedEngine feedEngine(@Value("${feed.timeline.capacity}") int capacity,
+                                 @Value("${feed.celebrity-threshold}") int celebrityThreshold) {
+        return new FeedEngine(capacity, celebrityThreshold);
+    }
+}
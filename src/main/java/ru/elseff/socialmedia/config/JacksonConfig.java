@@ -0,0 +1,19 @@
+package ru.elseff.socialmedia.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Заменяет рефлексивные геттеры и сеттеры DTO сгенерированными через LambdaMetafactory
+     * аксессорами. Spring Boot сам регистрирует бины Module в общем ObjectMapper.
+     */
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
@@ -0,0 +1,20 @@
+package ru.elseff.socialmedia.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.elseff.socialmedia.persistense.partition.PartitionMaintenance;
+
+@Configuration
+public class PartitioningConfig {
+
+    @Bean
+    public PartitionMaintenance partitionMaintenance(JdbcTemplate jdbcTemplate,
+                                                     ApplicationEventPublisher eventPublisher,
+                                                     @Value("${partitioning.months-ahead}") int monthsAhead,
+                                                     @Value("${partitioning.retention-months}") int retentionMonths) {
+        return new PartitionMaintenance(jdbcTemplate, eventPublisher, monthsAhead, retentionMonths);
+    }
+}
@@ -0,0 +1,39 @@
+package ru.elseff.socialmedia.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.elseff.socialmedia.web.api.modules.post.cache.PostCache;
+
+import java.time.Duration;
+
+@Configuration
+public class PostCacheConfig {
+
+    @Bean
+    public PostCache postCache(@Value("${post.cache.max-size}") int maxSize,
+                               @Value("${post.cache.ttl}") Duration ttl) {
+        return new PostCache(maxSize, ttl);
+    }
+
+    @Bean
+    public MeterBinder postCacheMetrics(PostCache postCache) {
+        return registry -> {
+            FunctionCounter.builder("cache.gets", postCache, PostCache::getHits)
+                    .tags("cache", "posts", "result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("cache.gets", postCache, PostCache::getMisses)
+                    .tags("cache", "posts", "result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("cache.evictions", postCache, PostCache::getEvictions)
+                    .tags("cache", "posts")
+                    .register(registry);
+            Gauge.builder("cache.size", postCache, PostCache::size)
+                    .tags("cache", "posts")
+                    .register(registry);
+        };
+    }
+}
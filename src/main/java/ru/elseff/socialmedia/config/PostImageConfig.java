@@ -0,0 +1,261 @@
+package ru.elseff.socialmedia.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.unit.DataSize;
+import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.postimage.admission.UploadAdmission;
+import ru.elseff.socialmedia.web.api.modules.postimage.admission.UploadAdmissionFilter;
+import ru.elseff.socialmedia.web.api.modules.postimage.cleanup.ImageBlobCollector;
+import ru.elseff.socialmedia.web.api.modules.postimage.cleanup.ImageFileCleaner;
+import ru.elseff.socialmedia.web.api.modules.postimage.service.PostImageService;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.BlobStore;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ImageLayoutMigration;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.InMemoryBlobStore;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.LocalBlobStore;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ShardedLayout;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.pack.PackBlobStore;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.pack.PackCompactor;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.s3.S3BlobStore;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.s3.SigV4Signer;
+import ru.elseff.socialmedia.web.api.modules.postimage.upload.BatchImageUpload;
+import ru.elseff.socialmedia.web.api.modules.postimage.upload.StreamingImageUpload;
+import ru.elseff.socialmedia.web.api.modules.postimage.variant.ImageResizer;
+import ru.elseff.socialmedia.web.api.modules.postimage.variant.ImageVariantService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@Configuration
+public class PostImageConfig {
+
+    @Bean
+    public BlobStore legacyImageStore(@Value("${post.images.legacy-root}") Path root) {
+        return new LocalBlobStore(ShardedLayout.forNames(root));
+    }
+
+    /**
+     * Хранилище блобов выбирается свойством post.images.blobs.store: local, memory, s3
+     * или pack.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "post.images.blobs.store", havingValue = "local", matchIfMissing = true)
+    public BlobStore imageBlobStore(@Value("${post.images.blobs.root}") Path root) {
+        return new LocalBlobStore(ShardedLayout.forHashes(root));
+    }
+
+    @Bean("imageBlobStore")
+    @ConditionalOnProperty(name = "post.images.blobs.store", havingValue = "memory")
+    public BlobStore inMemoryImageBlobStore() {
+        return new InMemoryBlobStore();
+    }
+
+    @Bean("imageBlobStore")
+    @ConditionalOnProperty(name = "post.images.blobs.store", havingValue = "s3")
+    public BlobStore s3ImageBlobStore(@Value("${post.images.blobs.s3.endpoint}") URI endpoint,
+                                      @Value("${post.images.blobs.s3.region}") String region,
+                                      @Value("${post.images.blobs.s3.bucket}") String bucket,
+                                      @Value("${post.images.blobs.s3.access-key}") String accessKey,
+                                      @Value("${post.images.blobs.s3.secret-key}") String secretKey,
+                                      @Value("${post.images.blobs.s3.timeout}") Duration timeout) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+        return new S3BlobStore(httpClient, endpoint, bucket, new SigV4Signer(accessKey, secretKey, region, "s3"), timeout);
+    }
+
+    /**
+     * Мелкие блобы в общих файлах-сегментах: без отдельного файла на изображение.
+     */
+    @Bean(name = "imageBlobStore", destroyMethod = "close")
+    @ConditionalOnProperty(name = "post.images.blobs.store", havingValue = "pack")
+    public PackBlobStore packImageBlobStore(@Value("${post.images.blobs.pack.root}") Path root,
+                                            @Value("${post.images.blobs.pack.segment-size}") DataSize segmentSize)
+            throws IOException {
+        return PackBlobStore.open(root, segmentSize.toBytes());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "post.images.blobs.store", havingValue = "pack")
+    public PackCompactor imagePackCompactor(PackBlobStore imageBlobStore,
+                                            @Value("${post.images.blobs.pack.compaction-ratio}") double garbageRatio) {
+        return new PackCompactor(imageBlobStore, garbageRatio);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "post.images.blobs.store", havingValue = "pack")
+    public MeterBinder imagePackMetrics(PackBlobStore imageBlobStore) {
+        return registry -> Gauge.builder("images.pack.garbage", imageBlobStore, PackBlobStore::garbage)
+                .register(registry);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ImageFileCleaner imageFileCleaner(BlobStore legacyImageStore,
+                                             @Value("${post.images.cleanup.capacity}") int capacity,
+                                             @Value("${post.images.cleanup.batch-size}") int batchSize,
+                                             @Value("${post.images.cleanup.max-attempts}") int maxAttempts,
+                                             @Value("${post.images.cleanup.retry-delay}") Duration retryDelay) {
+        return new ImageFileCleaner(legacyImageStore, capacity, batchSize, maxAttempts, retryDelay);
+    }
+
+    @Bean
+    public ContentAddressedStorage imageBlobStorage(BlobStore imageBlobStore,
+                                                    @Value("${post.images.blobs.staging}") Path staging) {
+        return new ContentAddressedStorage(imageBlobStore, staging);
+    }
+
+    @Bean
+    public ImageBlobCollector imageBlobCollector(JdbcTemplate jdbcTemplate,
+                                                 ContentAddressedStorage imageBlobStorage,
+                                                 @Value("${post.images.blobs.gc-grace}") Duration grace) {
+        return new ImageBlobCollector(jdbcTemplate, imageBlobStorage, grace);
+    }
+
+    /**
+     * Переносит в ShardedLayout только то, что лежит на локальном диске.
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ImageLayoutMigration imageLayoutMigration(BlobStore legacyImageStore,
+                                                     ContentAddressedStorage imageBlobStorage,
+                                                     @Value("${post.images.layout-migration.batch-size}") int batchSize,
+                                                     @Value("${post.images.layout-migration.pause}") Duration pause) {
+        return new ImageLayoutMigration(Stream.of(imageBlobStorage.getStore(), legacyImageStore)
+                .filter(LocalBlobStore.class::isInstance)
+                .map(store -> ((LocalBlobStore) store).getLayout())
+                .toList(), batchSize, pause);
+    }
+
+    @Bean
+    public MeterBinder imageLayoutMigrationMetrics(ImageLayoutMigration imageLayoutMigration) {
+        return registry -> Gauge.builder("images.layout.migrated", imageLayoutMigration, ImageLayoutMigration::migrated)
+                .register(registry);
+    }
+
+    @Bean
+    public ImageResizer imageResizer(@Value("${post.images.variants.max-pixels}") long maxPixels) {
+        return new ImageResizer(maxPixels);
+    }
+
+    /**
+     * Переполненный пул отклоняет задачу: такой вариант будет построен при первом запросе.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor imageVariantExecutor(@Value("${post.images.variants.threads}") int threads,
+                                                   @Value("${post.images.variants.queue-capacity}") int queueCapacity) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("image-variant-");
+        threadFactory.setDaemon(true);
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Когда очередь заполнена, файл пишет сам поток запроса: пакетная загрузка замедляется,
+     * но не получает отказ.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor imageUploadExecutor(@Value("${post.images.upload.threads}") int threads,
+                                                  @Value("${post.images.upload.queue-capacity}") int queueCapacity) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("image-upload-");
+        threadFactory.setDaemon(true);
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Multipart-запросы разбираются лениво (spring.servlet.multipart.resolve-lazily), иначе
+     * DispatcherServlet сохранил бы тело потоковой загрузки во временные файлы до контроллера.
+     */
+    @Bean
+    public StreamingImageUpload streamingImageUpload(PostService postService,
+                                                     ContentAddressedStorage imageBlobStorage,
+                                                     PostImageService postImageService,
+                                                     @Value("${post.images.upload.max-size}") DataSize maxSize) {
+        return new StreamingImageUpload(postService, imageBlobStorage, postImageService, maxSize.toBytes());
+    }
+
+    @Bean
+    public BatchImageUpload batchImageUpload(PostService postService,
+                                             ContentAddressedStorage imageBlobStorage,
+                                             PostImageService postImageService,
+                                             ThreadPoolExecutor imageUploadExecutor) {
+        return new BatchImageUpload(postService, imageBlobStorage, postImageService, imageUploadExecutor);
+    }
+
+    @Bean
+    public UploadAdmission uploadAdmission(@Value("${post.images.upload.admission.max-concurrent}") int maxConcurrent,
+                                           @Value("${post.images.upload.admission.max-queued}") int maxQueued,
+                                           @Value("${post.images.upload.admission.max-wait}") Duration maxWait,
+                                           @Value("${post.images.upload.admission.per-user}") int perUser,
+                                           @Value("${post.images.upload.admission.retry-after}") Duration retryAfter) {
+        return new UploadAdmission(maxConcurrent, maxQueued, maxWait, perUser, retryAfter);
+    }
+
+    /**
+     * Регистрируется как обычный фильтр сервлета с наименьшим приоритетом, то есть после
+     * springSecurityFilterChain и до DispatcherServlet.
+     */
+    @Bean
+    public UploadAdmissionFilter uploadAdmissionFilter(UploadAdmission uploadAdmission) {
+        return new UploadAdmissionFilter(uploadAdmission);
+    }
+
+    @Bean
+    public MeterBinder uploadAdmissionMetrics(UploadAdmission uploadAdmission) {
+        return registry -> {
+            FunctionTimer.builder("images.upload.admission.wait", uploadAdmission,
+                            UploadAdmission::admitted, UploadAdmission::waitSeconds, TimeUnit.SECONDS)
+                    .register(registry);
+            FunctionCounter.builder("images.upload.rejected", uploadAdmission, UploadAdmission::rejectedBusy)
+                    .tags("reason", "capacity")
+                    .register(registry);
+            FunctionCounter.builder("images.upload.rejected", uploadAdmission, UploadAdmission::rejectedUser)
+                    .tags("reason", "user")
+                    .register(registry);
+            Gauge.builder("images.upload.in-flight", uploadAdmission, UploadAdmission::inFlight)
+                    .register(registry);
+            Gauge.builder("images.upload.waiting", uploadAdmission, UploadAdmission::waiting)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public ImageVariantService imageVariantService(JdbcTemplate jdbcTemplate,
+                                                   ContentAddressedStorage imageBlobStorage,
+                                                   ImageResizer imageResizer,
+                                                   ThreadPoolExecutor imageVariantExecutor,
+                                                   @Value("${post.images.variants.widths}") List<Integer> widths,
+                                                   @Value("${post.images.variants.timeout}") Duration timeout) {
+        return new ImageVariantService(jdbcTemplate, imageBlobStorage, imageResizer, imageVariantExecutor,
+                widths.stream().sorted().distinct().toList(), timeout);
+    }
+
+    @Bean
+    public MeterBinder imageVariantMetrics(ThreadPoolExecutor imageVariantExecutor) {
+        return registry -> Gauge.builder("images.variants.queued", imageVariantExecutor,
+                        executor -> executor.getQueue().size())
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder imageFileCleanerMetrics(ImageFileCleaner imageFileCleaner) {
+        return registry -> Gauge.builder("images.cleanup.pending", imageFileCleaner, ImageFileCleaner::size)
+                .register(registry);
+    }
+}
@@ -0,0 +1,24 @@
+package ru.elseff.socialmedia.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import ru.elseff.socialmedia.web.api.modules.postreaction.counter.ReactionCounters;
+
+@Configuration
+@EnableScheduling
+public class PostReactionConfig {
+
+    @Bean
+    public ReactionCounters reactionCounters() {
+        return new ReactionCounters();
+    }
+
+    @Bean
+    public MeterBinder reactionCountersMetrics(ReactionCounters reactionCounters) {
+        return registry -> Gauge.builder("reactions.pending", reactionCounters, ReactionCounters::size)
+                .register(registry);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.elseff.socialmedia.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.elseff.socialmedia.web.api.modules.postview.sketch.PostViewSketches;
+
+@Configuration
+public class PostViewConfig {
+
+    @Bean
+    public PostViewSketches postViewSketches() {
+        return new PostViewSketches();
+    }
+
+    @Bean
+    public MeterBinder postViewSketchesMetrics(PostViewSketches postViewSketches) {
+        return registry -> Gauge.builder("views.pending", postViewSketches, PostViewSketches::size)
+                .register(registry);
+    }
+}
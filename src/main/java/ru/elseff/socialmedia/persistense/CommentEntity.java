@@ -0,0 +1,73 @@
+package ru.elseff.socialmedia.persistense;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Комментарий к посту. root_id, depth и path заполняет триггер при вставке.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Table(name = "comment_entity", schema = "public")
+public class CommentEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false, unique = true)
+    Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "post_id", nullable = false)
+    PostEntity post;
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "user_id", nullable = false)
+    UserEntity user;
+
+    @Column(name = "parent_id")
+    Long parentId;
+
+    @Column(name = "root_id", insertable = false, updatable = false)
+    Long rootId;
+
+    @Column(name = "depth", insertable = false, updatable = false)
+    Integer depth;
+
+    @Column(name = "path", insertable = false, updatable = false)
+    String path;
+
+    @Column(name = "text", nullable = false)
+    String text;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    Timestamp createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = Timestamp.from(Instant.now());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CommentEntity that)) return false;
+        return Objects.equals(getId(), that.getId())
+                && Objects.equals(getParentId(), that.getParentId())
+                && Objects.equals(getText(), that.getText());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getId(), getParentId(), getText());
+    }
+}
@@ -28,6 +28,9 @@ public class PostImageEntity {
     @Column(name = "filename", nullable = false)
     String filename;
 
+    @Column(name = "blob_hash", updatable = false)
+    String blobHash;
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
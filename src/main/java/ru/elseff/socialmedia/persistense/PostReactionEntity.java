@@ -0,0 +1,41 @@
+package ru.elseff.socialmedia.persistense;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+import java.util.Objects;
+
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Table(name = "post_reaction", schema = "public")
+public class PostReactionEntity {
+
+    @EmbeddedId
+    PostReactionID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    ReactionType type;
+
+    @Column(name = "created_at", insertable = false, updatable = false)
+    Timestamp createdAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PostReactionEntity that)) return false;
+        return getId().equals(that.getId()) && getType() == that.getType();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getId(), getType());
+    }
+}
@@ -0,0 +1,37 @@
+package ru.elseff.socialmedia.persistense;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+import java.util.Objects;
+
+@Getter
+@Setter
+@Builder
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PostReactionID implements Serializable {
+
+    @Column(name = "post_id", nullable = false)
+    Long postId;
+
+    @Column(name = "user_id", nullable = false)
+    Long userId;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PostReactionID that)) return false;
+        return getPostId().equals(that.getPostId()) && getUserId().equals(that.getUserId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getPostId(), getUserId());
+    }
+}
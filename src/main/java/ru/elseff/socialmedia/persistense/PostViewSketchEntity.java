@@ -0,0 +1,44 @@
+package ru.elseff.socialmedia.persistense;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.sql.Timestamp;
+import java.util.Objects;
+
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Table(name = "post_view_sketch", schema = "public")
+public class PostViewSketchEntity {
+
+    @Id
+    @Column(name = "post_id", nullable = false)
+    Long postId;
+
+    @Column(name = "sketch", nullable = false)
+    byte[] sketch;
+
+    @Column(name = "updated_at", insertable = false, updatable = false)
+    Timestamp updatedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PostViewSketchEntity that)) return false;
+        return getPostId().equals(that.getPostId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getPostId());
+    }
+}
@@ -0,0 +1,10 @@
+package ru.elseff.socialmedia.persistense;
+
+public enum ReactionType {
+    LIKE,
+    LOVE,
+    LAUGH,
+    WOW,
+    SAD,
+    ANGRY
+}
@@ -0,0 +1,58 @@
+package ru.elseff.socialmedia.persistense.dao;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.elseff.socialmedia.persistense.CommentEntity;
+import ru.elseff.socialmedia.persistense.projection.CommentRow;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CommentRepository extends JpaRepository<CommentEntity, Long> {
+
+    String SELECT_COMMENT_ROW = "select c.id as id, c.parent_id as parentId, c.depth as depth, c.text as text, " +
+            "c.created_at as createdAt, u.id as authorId, u.username as authorUsername";
+
+    /**
+     * Страница веток: до {@code size} комментариев верхнего уровня после {@code after}
+     * вместе с ответами до глубины {@code depth}, одним запросом.
+     */
+    @Query(value = "with roots as (" +
+            "select r.id from comment_entity r " +
+            "where r.post_id = :postId and r.parent_id is null and r.id > :after " +
+            "order by r.id limit :size + 1) " +
+            SELECT_COMMENT_ROW + ", (select count(*) from roots) > :size as hasNext " +
+            "from comment_entity c join user_entity u on u.id = c.user_id " +
+            "where c.root_id in (select id from roots order by id limit :size) and c.depth <= :depth " +
+            "order by c.root_id, c.path",
+            nativeQuery = true)
+    List<CommentRow> findThreads(@Param("postId") Long postId,
+                                 @Param("after") Long after,
+                                 @Param("size") int size,
+                                 @Param("depth") int depth);
+
+    /**
+     * Комментарий и его ответы до глубины {@code depth} относительно него.
+     * Потомки — ровно пути из диапазона [path, path || '/'), так как '/' следует сразу за '.'.
+     */
+    @Query(value = SELECT_COMMENT_ROW + ", false as hasNext " +
+            "from comment_entity s " +
+            "join comment_entity c on c.root_id = s.root_id " +
+            "and c.path >= s.path and c.path < s.path || '/' and c.depth <= s.depth + :depth " +
+            "join user_entity u on u.id = c.user_id " +
+            "where s.id = :id and s.post_id = :postId " +
+            "order by c.path",
+            nativeQuery = true)
+    List<CommentRow> findSubtree(@Param("postId") Long postId,
+                                 @Param("id") Long id,
+                                 @Param("depth") int depth);
+
+    @Query("select c from CommentEntity c where c.id = :id and c.post.id = :postId")
+    Optional<CommentEntity> findByIdAndPostId(@Param("id") Long id, @Param("postId") Long postId);
+
+    @Query("select count(c) > 0 from CommentEntity c where c.id = :id and c.post.id = :postId")
+    boolean existsByIdAndPostId(@Param("id") Long id, @Param("postId") Long postId);
+}
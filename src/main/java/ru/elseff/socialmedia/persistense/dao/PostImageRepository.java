@@ -1,12 +1,22 @@
 package ru.elseff.socialmedia.persistense.dao;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.elseff.socialmedia.persistense.PostEntity;
 import ru.elseff.socialmedia.persistense.PostImageEntity;
+import ru.elseff.socialmedia.persistense.projection.PostImageFileRow;
+import ru.elseff.socialmedia.persistense.projection.PostImageView;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface PostImageRepository extends JpaRepository<PostImageEntity, Long> {
@@ -14,4 +24,17 @@ public interface PostImageRepository extends JpaRepository<PostImageEntity, Long
     Optional<PostImageEntity> findByFilename(String filename);
 
     List<PostImageEntity> findAllByPost(PostEntity postEntity);
+
+    @Query("select new ru.elseff.socialmedia.persistense.projection.PostImageView(i.id, i.post.id, i.filename) " +
+            "from PostImageEntity i where i.post.id in :postIds order by i.id")
+    List<PostImageView> findAllViewsByPostIdIn(@Param("postIds") Collection<Long> postIds);
+
+    @Query("select i.filename as filename, i.blobHash as blobHash " +
+            "from PostImageEntity i where i.id = :id and i.post.id = :postId")
+    Optional<PostImageFileRow> findFileByIdAndPostId(@Param("id") Long id, @Param("postId") Long postId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new ru.elseff.socialmedia.persistense.projection.PostImageView(i.id, p.id, i.filename) " +
+            "from PostImageEntity i join i.post p join p.user u where u.username = :username order by p.id, i.id")
+    Stream<PostImageView> streamViewsByUsername(@Param("username") String username);
 }
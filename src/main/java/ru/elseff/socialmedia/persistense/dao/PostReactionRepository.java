@@ -0,0 +1,27 @@
+package ru.elseff.socialmedia.persistense.dao;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.elseff.socialmedia.persistense.PostReactionEntity;
+import ru.elseff.socialmedia.persistense.PostReactionID;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+@Repository
+public interface PostReactionRepository extends JpaRepository<PostReactionEntity, PostReactionID> {
+
+    @Modifying
+    @Query(value = "insert into post_reaction (post_id, user_id, type) values (:postId, :userId, :type) " +
+            "on conflict (post_id, user_id) do nothing",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("postId") Long postId, @Param("userId") Long userId, @Param("type") String type);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from PostReactionEntity r where r.id = :id")
+    Optional<PostReactionEntity> findByIdForUpdate(@Param("id") PostReactionID id);
+}
@@ -2,11 +2,120 @@ package ru.elseff.socialmedia.persistense.dao;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.projection.PostSearchRow;
+import ru.elseff.socialmedia.persistense.projection.PostVersion;
+import ru.elseff.socialmedia.persistense.projection.PostView;
 
+import javax.persistence.QueryHint;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+/**
+ * post_entity секционирована по created_at, и её первичный ключ — (id, created_at): база не
+ * проверяет уникальность id, её обеспечивает только последовательность post_entity_id_seq.
+ * Запросы только по id (findById, findViewById, findAllViewsByIdIn) не отсекают секции и
+ * проверяют idx_post_entity_id в каждой из них, поэтому на горячем пути они идут через PostCache,
+ * а выборки страниц ограничены по created_at.
+ */
 @Repository
 public interface PostRepository extends JpaRepository<PostEntity, Long> {
+    String SELECT_POST_VIEW = "select new ru.elseff.socialmedia.persistense.projection.PostView(" +
+            "p.id, p.title, p.text, p.createdAt, p.updatedAt, u.id, u.username) " +
+            "from PostEntity p join p.user u ";
+
+    String SELECT_POST_SEARCH_ROW = "select p.id as id, p.title as title, p.text as text, " +
+            "p.created_at as createdAt, p.updated_at as updatedAt, " +
+            "u.id as authorId, u.username as authorUsername, r.rank as rank " +
+            "from post_entity p " +
+            "join user_entity u on u.id = p.user_id " +
+            "cross join websearch_to_tsquery('russian', :query) q " +
+            "cross join lateral (select ts_rank_cd(p.search_vector, q) as rank) r " +
+            "where p.search_vector @@ q ";
+
+    /**
+     * Картинки считаются коррелированными подзапросами, а не group by p.id: после секционирования
+     * id уже не первичный ключ, и остальные поля поста от него функционально не зависят.
+     */
+    String SELECT_POST_VERSION = "select new ru.elseff.socialmedia.persistense.projection.PostVersion(" +
+            "p.id, p.createdAt, p.updatedAt, " +
+            "(select count(i) from PostImageEntity i where i.post = p), " +
+            "(select max(i.id) from PostImageEntity i where i.post = p)) " +
+            "from PostEntity p ";
+
     Page<PostEntity> findAll(Pageable pageable);
+
+    @Query(value = SELECT_POST_VERSION,
+            countQuery = "select count(p) from PostEntity p")
+    Page<PostVersion> findAllVersions(Pageable pageable);
+
+    @Query(value = SELECT_POST_VIEW,
+            countQuery = "select count(p) from PostEntity p")
+    Page<PostView> findAllViews(Pageable pageable);
+
+    @Query(SELECT_POST_VIEW +
+            "order by p.createdAt desc, p.id desc")
+    Slice<PostView> findAllViewsFirst(Pageable pageable);
+
+    @Query(SELECT_POST_VIEW +
+            "where p.createdAt <= :createdAt " +
+            "and (p.createdAt < :createdAt or (p.createdAt = :createdAt and p.id < :id)) " +
+            "order by p.createdAt desc, p.id desc")
+    Slice<PostView> findAllViewsAfter(@Param("createdAt") Timestamp createdAt,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
+
+    @Query(SELECT_POST_VIEW +
+            "where p.user.id = :userId " +
+            "order by p.createdAt desc, p.id desc")
+    Slice<PostView> findAllViewsByUserIdFirst(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(SELECT_POST_VIEW +
+            "where p.user.id = :userId " +
+            "and p.createdAt <= :createdAt " +
+            "and (p.createdAt < :createdAt or (p.createdAt = :createdAt and p.id < :id)) " +
+            "order by p.createdAt desc, p.id desc")
+    Slice<PostView> findAllViewsByUserIdAfter(@Param("userId") Long userId,
+                                              @Param("createdAt") Timestamp createdAt,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+
+    @Query(SELECT_POST_VIEW + "where p.id = :id")
+    Optional<PostView> findViewById(@Param("id") Long id);
+
+    @Query(SELECT_POST_VIEW + "where p.id in :ids")
+    List<PostView> findAllViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = SELECT_POST_SEARCH_ROW +
+            "order by r.rank desc, p.id desc limit :limit",
+            nativeQuery = true)
+    List<PostSearchRow> search(@Param("query") String query,
+                               @Param("limit") int limit);
+
+    @Query(value = SELECT_POST_SEARCH_ROW +
+            "and (r.rank, p.id) < (cast(:rank as real), :id) " +
+            "order by r.rank desc, p.id desc limit :limit",
+            nativeQuery = true)
+    List<PostSearchRow> searchAfter(@Param("query") String query,
+                                    @Param("rank") float rank,
+                                    @Param("id") Long id,
+                                    @Param("limit") int limit);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_POST_VIEW + "where u.username = :username order by p.id")
+    Stream<PostView> streamViewsByUsername(@Param("username") String username);
+
+    @Query("select p.id from PostEntity p where p.user.id = :userId order by p.id desc")
+    List<Long> findIdsByUserId(@Param("userId") Long userId, Pageable pageable);
 }
@@ -1,6 +1,8 @@
 package ru.elseff.socialmedia.persistense.dao;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.elseff.socialmedia.persistense.SubscriptionEntity;
 import ru.elseff.socialmedia.persistense.SubscriptionID;
@@ -16,4 +18,16 @@ public interface SubscriptionRepository extends JpaRepository<SubscriptionEntity
     Optional<SubscriptionEntity> findByUserAndSubscriber(UserEntity user, UserEntity subscriber);
 
     List<SubscriptionEntity> findAllByUserAndAccepted(UserEntity user, Boolean accepted);
+
+    @Query("select s.id.subscriberId from SubscriptionEntity s where s.id.userId = :userId")
+    List<Long> findSubscriberIdsByUserId(@Param("userId") Long userId);
+
+    @Query("select s.id.userId from SubscriptionEntity s where s.id.subscriberId = :subscriberId")
+    List<Long> findUserIdsBySubscriberId(@Param("subscriberId") Long subscriberId);
+
+    @Query("select count(s) from SubscriptionEntity s where s.id.userId = :userId")
+    long countSubscribersByUserId(@Param("userId") Long userId);
+
+    @Query("select distinct s.id.userId from SubscriptionEntity s")
+    List<Long> findAllFollowedUserIds();
 }
@@ -1,6 +1,8 @@
 package ru.elseff.socialmedia.persistense.dao;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.elseff.socialmedia.persistense.UserEntity;
 
@@ -18,4 +20,7 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
     Optional<UserEntity> findByEmail(String email);
 
     Optional<UserEntity> findByUsername(String username);
+
+    @Query("select u.id from UserEntity u where u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
 }
@@ -0,0 +1,105 @@
+package ru.elseff.socialmedia.persistense.partition;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostDeletedEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Обслуживание месячных секций post_entity и message_entity: заранее создаёт секции на
+ * monthsAhead месяцев вперёд, чтобы новые строки не попадали в секцию по умолчанию, и
+ * отсоединяет секции старше retentionMonths. Отсоединённые секции остаются в базе отдельными
+ * таблицами; при retentionMonths = 0 (по умолчанию) ничего не отсоединяется.
+ * <p>
+ * Картинки, реакции, просмотры и комментарии постов отсоединяемой секции удаляются в базе
+ * перед отсоединением, а для самих постов публикуется PostDeletedEvent, чтобы их убрали из
+ * кэша, лент и счётчиков в памяти так же, как при обычном удалении. Посты уже отсоединённой
+ * секции читаются порциями по id; строки картинок, загруженных до хранения по хешу, удаляются
+ * той же порцией, и их имена файлов уходят в события.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PartitionMaintenance {
+
+    static final String POST_TABLE = "post_entity";
+
+    static final List<String> PARTITIONED_TABLES = List.of(POST_TABLE, "message_entity");
+
+    static final String CREATE_PARTITIONS = "select create_monthly_partitions(?, null, ?)";
+
+    static final String DETACH_PARTITIONS = "select detach_monthly_partitions(?, " +
+            "cast(date_trunc('month', now()) - make_interval(months => ?) as date))";
+
+    static final String SELECT_DETACHED_POSTS = "select id, user_id from %s where id > ? order by id limit ?";
+
+    static final String DELETE_LEGACY_IMAGES = "delete from post_image_entity " +
+            "where post_id = any(?) and blob_hash is null returning post_id, filename";
+
+    static final int EXPIRED_POSTS_CHUNK_SIZE = 1000;
+
+    JdbcTemplate jdbcTemplate;
+
+    ApplicationEventPublisher eventPublisher;
+
+    int monthsAhead;
+
+    int retentionMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${partitioning.cron}")
+    public void maintain() {
+        for (String table : PARTITIONED_TABLES) {
+            try {
+                jdbcTemplate.queryForObject(CREATE_PARTITIONS, Object.class, table, monthsAhead);
+                if (retentionMonths > 0) {
+                    List<String> detached = jdbcTemplate.queryForList(DETACH_PARTITIONS, String.class,
+                            table, retentionMonths);
+                    if (!detached.isEmpty()) {
+                        log.info("detached partitions of {}: {}", table, detached);
+                        if (POST_TABLE.equals(table))
+                            detached.forEach(this::publishDeletedPosts);
+                    }
+                }
+            } catch (DataAccessException e) {
+                log.warn("could not maintain partitions of {}: {}", table, e.getMessage());
+            }
+        }
+    }
+
+    private void publishDeletedPosts(String partition) {
+        String selectPosts = String.format(SELECT_DETACHED_POSTS, partition);
+        long lastId = 0;
+        while (true) {
+            Map<Long, Long> authors = new LinkedHashMap<>();
+            jdbcTemplate.query(selectPosts, (RowCallbackHandler) row ->
+                    authors.put(row.getLong("id"), row.getLong("user_id")), lastId, EXPIRED_POSTS_CHUNK_SIZE);
+            if (authors.isEmpty())
+                return;
+
+            long[] postIds = authors.keySet().stream().mapToLong(Long::longValue).toArray();
+            Map<Long, List<String>> imageFilenames = new HashMap<>();
+            jdbcTemplate.query(DELETE_LEGACY_IMAGES, (RowCallbackHandler) row ->
+                    imageFilenames.computeIfAbsent(row.getLong("post_id"), id -> new ArrayList<>())
+                            .add(row.getString("filename")), (Object) postIds);
+
+            authors.forEach((postId, authorId) -> eventPublisher.publishEvent(
+                    new PostDeletedEvent(postId, authorId, imageFilenames.getOrDefault(postId, List.of()))));
+            lastId = postIds[postIds.length - 1];
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.elseff.socialmedia.persistense.projection;
+
+import java.sql.Timestamp;
+
+/**
+ * Строка комментария из выборки дерева; строки идут в порядке обхода в глубину.
+ */
+public interface CommentRow {
+
+    Long getId();
+
+    Long getParentId();
+
+    Integer getDepth();
+
+    String getText();
+
+    Timestamp getCreatedAt();
+
+    Long getAuthorId();
+
+    String getAuthorUsername();
+
+    Boolean getHasNext();
+}
@@ -0,0 +1,11 @@
+package ru.elseff.socialmedia.persistense.projection;
+
+public interface PostImageFileRow {
+
+    String getFilename();
+
+    /**
+     * null у изображений, загруженных до перехода на хранение по хешу содержимого.
+     */
+    String getBlobHash();
+}
@@ -0,0 +1,18 @@
+package ru.elseff.socialmedia.persistense.projection;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostImageView {
+
+    Long id;
+
+    Long postId;
+
+    String filename;
+}
@@ -0,0 +1,26 @@
+package ru.elseff.socialmedia.persistense.projection;
+
+import java.sql.Timestamp;
+
+public interface PostSearchRow {
+
+    Long getId();
+
+    String getTitle();
+
+    String getText();
+
+    Timestamp getCreatedAt();
+
+    Timestamp getUpdatedAt();
+
+    Long getAuthorId();
+
+    String getAuthorUsername();
+
+    Float getRank();
+
+    default PostView toView() {
+        return new PostView(getId(), getTitle(), getText(), getCreatedAt(), getUpdatedAt(), getAuthorId(), getAuthorUsername());
+    }
+}
@@ -0,0 +1,61 @@
+package ru.elseff.socialmedia.persistense.projection;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import ru.elseff.socialmedia.persistense.ReactionType;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Версия поста: всё, от чего зависит его представление, без самих данных.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostVersion {
+
+    Long id;
+
+    Instant modifiedAt;
+
+    long imageCount;
+
+    Long lastImageId;
+
+    Map<ReactionType, Long> reactions;
+
+    Long views;
+
+    public PostVersion(Long id, Date createdAt, Date updatedAt, Long imageCount, Long lastImageId) {
+        this(id,
+                updatedAt != null ? updatedAt.toInstant() : createdAt != null ? createdAt.toInstant() : null,
+                imageCount != null ? imageCount : 0,
+                lastImageId,
+                Map.of(),
+                null);
+    }
+
+    public static PostVersion of(PostView post) {
+        List<PostImageView> images = post.getImages();
+
+        return new PostVersion(post.getId(),
+                post.getUpdatedAt() != null ? post.getUpdatedAt() : post.getCreatedAt(),
+                images.size(),
+                images.stream().map(PostImageView::getId).max(Long::compare).orElse(null),
+                post.getReactions(),
+                post.getViews());
+    }
+
+    public PostVersion withReactions(Map<ReactionType, Long> reactions) {
+        return new PostVersion(id, modifiedAt, imageCount, lastImageId, Map.copyOf(reactions), views);
+    }
+
+    public PostVersion withViews(Long views) {
+        return new PostVersion(id, modifiedAt, imageCount, lastImageId, reactions, views);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.elseff.socialmedia.persistense.projection;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import ru.elseff.socialmedia.persistense.ReactionType;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемый снимок поста для чтения: поля поста, id и username автора одним запросом,
+ * картинки, счётчики реакций и просмотров догружаются отдельными запросами сразу для всей страницы.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostView {
+
+    Long id;
+
+    String title;
+
+    String text;
+
+    Instant createdAt;
+
+    Instant updatedAt;
+
+    Long authorId;
+
+    String authorUsername;
+
+    List<PostImageView> images;
+
+    Map<ReactionType, Long> reactions;
+
+    Long views;
+
+    public PostView(Long id,
+                    String title,
+                    String text,
+                    Date createdAt,
+                    Date updatedAt,
+                    Long authorId,
+                    String authorUsername) {
+        this(id, title, text,
+                createdAt != null ? createdAt.toInstant() : null,
+                updatedAt != null ? updatedAt.toInstant() : null,
+                authorId, authorUsername, List.of(), Map.of(), null);
+    }
+
+    public PostView withImages(List<PostImageView> images) {
+        return new PostView(id, title, text, createdAt, updatedAt, authorId, authorUsername, List.copyOf(images), reactions, views);
+    }
+
+    public PostView withReactions(Map<ReactionType, Long> reactions) {
+        return new PostView(id, title, text, createdAt, updatedAt, authorId, authorUsername, images, Map.copyOf(reactions), views);
+    }
+
+    public PostView withViews(Long views) {
+        return new PostView(id, title, text, createdAt, updatedAt, authorId, authorUsername, images, reactions, views);
+    }
+}
@@ -0,0 +1,166 @@
+package ru.elseff.socialmedia.web.api.modules.comment.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import ru.elseff.socialmedia.persistense.CommentEntity;
+import ru.elseff.socialmedia.web.api.modules.comment.dto.CommentCreationDto;
+import ru.elseff.socialmedia.web.api.modules.comment.dto.CommentDto;
+import ru.elseff.socialmedia.web.api.modules.comment.dto.CommentPage;
+import ru.elseff.socialmedia.web.api.modules.comment.dto.mapper.CommentDtoMapper;
+import ru.elseff.socialmedia.web.api.modules.comment.service.CommentService;
+
+import javax.validation.Valid;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/posts/{postId}/comments")
+@SecurityRequirement(name = "Bearer Authentication")
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Tag(name = "Comment Controller", description = "Комментарии к постам")
+public class CommentController {
+
+    CommentService commentService;
+
+    CommentDtoMapper commentDtoMapper;
+
+    @Operation(
+            method = "GET",
+            summary = "Найти комментарии",
+            description = "Получить ветки комментариев поста: комментарии верхнего уровня по возрастанию id " +
+                    "вместе с ответами до указанной глубины. Следующая страница доступна по ссылке next",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Комментарии успешно найдены",
+                            content = @Content(
+                                    schema = @Schema(implementation = CommentDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Неверный размер страницы или глубина",
+                            content = @Content
+                    )
+            }
+    )
+    @GetMapping
+    @ResponseStatus(HttpStatus.OK)
+    public CollectionModel<CommentDto> findThreads(@Parameter(description = "id поста", required = true)
+                                                   @PathVariable("postId") Long postId,
+                                                   @Parameter(description = "id последнего комментария верхнего уровня с предыдущей страницы")
+                                                   @RequestParam(required = false) Long after,
+                                                   @Parameter(description = "Количество комментариев верхнего уровня")
+                                                   @RequestParam(defaultValue = "20", required = false) int size,
+                                                   @Parameter(description = "Глубина ответов")
+                                                   @RequestParam(defaultValue = "3", required = false) int depth) {
+        CommentPage page = commentService.findThreads(postId, after, size, depth);
+        CollectionModel<CommentDto> model = CollectionModel.of(commentDtoMapper.mapCommentRowsToTree(page.getComments()));
+
+        if (page.getNext() != null)
+            model.add(linkTo(methodOn(CommentController.class).findThreads(postId, page.getNext(), size, depth))
+                    .withRel(IanaLinkRelations.NEXT));
+
+        return model;
+    }
+
+    @Operation(
+            method = "GET",
+            summary = "Найти ветку комментария",
+            description = "Получить комментарий вместе с ответами до указанной глубины",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Комментарий успешно найден",
+                            content = @Content(
+                                    schema = @Schema(implementation = CommentDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Комментарий не найден",
+                            content = @Content
+                    )
+            }
+    )
+    @GetMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public CommentDto findSubtree(@Parameter(description = "id поста", required = true)
+                                  @PathVariable("postId") Long postId,
+                                  @Parameter(description = "id комментария", required = true)
+                                  @PathVariable("id") Long id,
+                                  @Parameter(description = "Глубина ответов")
+                                  @RequestParam(defaultValue = "3", required = false) int depth) {
+        return commentDtoMapper.mapCommentRowsToTree(commentService.findSubtree(postId, id, depth)).get(0);
+    }
+
+    @Operation(
+            method = "POST",
+            summary = "Добавить комментарий",
+            description = "Добавить комментарий к посту или ответ на комментарий, указав parentId",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201",
+                            description = "Комментарий успешно добавлен",
+                            content = @Content(
+                                    schema = @Schema(implementation = CommentDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Пост или родительский комментарий не найден",
+                            content = @Content
+                    )
+            }
+    )
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public CommentDto addComment(@Parameter(description = "id поста", required = true)
+                                 @PathVariable("postId") Long postId,
+                                 @RequestBody @Valid CommentCreationDto commentCreationDto) {
+        CommentEntity comment = commentService.addComment(postId,
+                commentDtoMapper.mapCreationDtoToCommentEntity(commentCreationDto));
+
+        return commentDtoMapper.mapCommentEntityToDto(comment);
+    }
+
+    @Operation(
+            method = "DELETE",
+            summary = "Удалить комментарий",
+            description = "Удалить свой комментарий вместе со всеми ответами на него",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "204",
+                            description = "Комментарий успешно удалён",
+                            content = @Content
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Комментарий не найден или принадлежит другому пользователю",
+                            content = @Content
+                    )
+            }
+    )
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteComment(@Parameter(description = "id поста", required = true)
+                              @PathVariable("postId") Long postId,
+                              @Parameter(description = "id комментария", required = true)
+                              @PathVariable("id") Long id) {
+        commentService.deleteComment(postId, id);
+    }
+}
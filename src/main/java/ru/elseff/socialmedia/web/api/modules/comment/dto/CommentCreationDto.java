@@ -0,0 +1,25 @@
+package ru.elseff.socialmedia.web.api.modules.comment.dto;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+
+@Getter
+@Setter
+@Builder
+@ToString
+@Validated
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CommentCreationDto {
+
+    @Size(max = 1000, message = "Размер комментария должен быть меньше 1000 символов")
+    @NotBlank(message = "Комментарий не должен быть пустым")
+    String text;
+
+    Long parentId;
+}
@@ -0,0 +1,38 @@
+package ru.elseff.socialmedia.web.api.modules.comment.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.hateoas.server.core.Relation;
+import ru.elseff.socialmedia.web.api.modules.user.dto.UserDto;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "Comment entity dto")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Relation(collectionRelation = "comments", itemRelation = "comment")
+public class CommentDto extends RepresentationModel<CommentDto> {
+
+    Long id;
+
+    Long parentId;
+
+    Integer depth;
+
+    String text;
+
+    UserDto author;
+
+    String createdAt;
+
+    List<CommentDto> replies;
+}
@@ -0,0 +1,19 @@
+package ru.elseff.socialmedia.web.api.modules.comment.dto;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import ru.elseff.socialmedia.persistense.projection.CommentRow;
+
+import java.util.List;
+
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CommentPage {
+
+    List<CommentRow> comments;
+
+    Long next;
+}
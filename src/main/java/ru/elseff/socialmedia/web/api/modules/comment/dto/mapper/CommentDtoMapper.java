@@ -0,0 +1,77 @@
+package ru.elseff.socialmedia.web.api.modules.comment.dto.mapper;
+
+import lombok.NonNull;
+import org.springframework.stereotype.Component;
+import ru.elseff.socialmedia.persistense.CommentEntity;
+import ru.elseff.socialmedia.persistense.projection.CommentRow;
+import ru.elseff.socialmedia.web.api.modules.comment.dto.CommentCreationDto;
+import ru.elseff.socialmedia.web.api.modules.comment.dto.CommentDto;
+import ru.elseff.socialmedia.web.api.modules.post.dto.mapper.DtoDates;
+import ru.elseff.socialmedia.web.api.modules.user.dto.UserDto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class CommentDtoMapper {
+
+    public CommentDto mapCommentEntityToDto(@NonNull CommentEntity commentEntity) {
+        return CommentDto.builder()
+                .id(commentEntity.getId())
+                .parentId(commentEntity.getParentId())
+                .text(commentEntity.getText())
+                .author(UserDto.builder()
+                        .id(commentEntity.getUser().getId())
+                        .username(commentEntity.getUser().getUsername())
+                        .build())
+                .createdAt(DtoDates.format(commentEntity.getCreatedAt()))
+                .build();
+    }
+
+    public CommentDto mapCommentRowToDto(@NonNull CommentRow commentRow) {
+        return CommentDto.builder()
+                .id(commentRow.getId())
+                .parentId(commentRow.getParentId())
+                .depth(commentRow.getDepth())
+                .text(commentRow.getText())
+                .author(UserDto.builder()
+                        .id(commentRow.getAuthorId())
+                        .username(commentRow.getAuthorUsername())
+                        .build())
+                .createdAt(DtoDates.format(commentRow.getCreatedAt()))
+                .replies(new ArrayList<>())
+                .build();
+    }
+
+    /**
+     * Собирает деревья за один проход: строки идут в порядке обхода в глубину,
+     * поэтому родитель каждой строки уже встречен раньше неё. Строки, чей родитель
+     * не попал в выборку, становятся корнями.
+     */
+    public List<CommentDto> mapCommentRowsToTree(@NonNull List<CommentRow> commentRows) {
+        Map<Long, CommentDto> comments = new HashMap<>(commentRows.size() * 2);
+        List<CommentDto> roots = new ArrayList<>();
+
+        for (CommentRow commentRow : commentRows) {
+            CommentDto comment = mapCommentRowToDto(commentRow);
+            CommentDto parent = commentRow.getParentId() != null ? comments.get(commentRow.getParentId()) : null;
+
+            if (parent != null)
+                parent.getReplies().add(comment);
+            else
+                roots.add(comment);
+            comments.put(comment.getId(), comment);
+        }
+
+        return roots;
+    }
+
+    public CommentEntity mapCreationDtoToCommentEntity(@NonNull CommentCreationDto creationDto) {
+        return CommentEntity.builder()
+                .text(creationDto.getText())
+                .parentId(creationDto.getParentId())
+                .build();
+    }
+}
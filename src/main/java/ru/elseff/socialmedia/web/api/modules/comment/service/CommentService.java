@@ -0,0 +1,92 @@
+package ru.elseff.socialmedia.web.api.modules.comment.service;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.stereotype.Service;
+import ru.elseff.socialmedia.persistense.CommentEntity;
+import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.UserEntity;
+import ru.elseff.socialmedia.persistense.dao.CommentRepository;
+import ru.elseff.socialmedia.persistense.projection.CommentRow;
+import ru.elseff.socialmedia.web.api.modules.comment.dto.CommentPage;
+import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.user.service.UserService;
+
+import javax.transaction.Transactional;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CommentService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    public static final int MAX_DEPTH = 10;
+
+    CommentRepository commentRepository;
+
+    PostService postService;
+
+    UserService userService;
+
+    @Transactional
+    public CommentPage findThreads(Long postId, Long after, int size, int depth) {
+        checkLimits(size, depth);
+
+        List<CommentRow> comments = commentRepository.findThreads(postId, after != null ? after : 0L, size, depth);
+        Long next = null;
+        if (!comments.isEmpty() && comments.get(0).getHasNext()) {
+            for (CommentRow comment : comments)
+                if (comment.getParentId() == null)
+                    next = comment.getId();
+        }
+
+        return new CommentPage(comments, next);
+    }
+
+    @Transactional
+    public List<CommentRow> findSubtree(Long postId, Long id, int depth) {
+        checkLimits(1, depth);
+
+        List<CommentRow> comments = commentRepository.findSubtree(postId, id, depth);
+        if (comments.isEmpty())
+            throw new IllegalArgumentException("comment not found");
+
+        return comments;
+    }
+
+    @Transactional
+    public CommentEntity addComment(Long postId, CommentEntity commentEntity) {
+        PostEntity post = postService.findById(postId);
+
+        if (commentEntity.getParentId() != null
+                && !commentRepository.existsByIdAndPostId(commentEntity.getParentId(), postId))
+            throw new IllegalArgumentException("parent comment not found");
+
+        commentEntity.setPost(post);
+        commentEntity.setUser(userService.getCurrentAuthUser());
+
+        return commentRepository.save(commentEntity);
+    }
+
+    @Transactional
+    public void deleteComment(Long postId, Long id) {
+        CommentEntity comment = commentRepository.findByIdAndPostId(id, postId)
+                .orElseThrow(() -> new IllegalArgumentException("comment not found"));
+
+        UserEntity user = userService.getCurrentAuthUser();
+        if (!comment.getUser().equals(user))
+            throw new IllegalArgumentException("someone else's comment");
+
+        commentRepository.delete(comment);
+    }
+
+    private void checkLimits(int size, int depth) {
+        if (size < 1 || size > MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("page size must be between 1 and " + MAX_PAGE_SIZE);
+        if (depth < 0 || depth > MAX_DEPTH)
+            throw new IllegalArgumentException("depth must be between 0 and " + MAX_DEPTH);
+    }
+}
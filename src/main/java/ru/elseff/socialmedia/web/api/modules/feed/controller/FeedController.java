@@ -0,0 +1,71 @@
+package ru.elseff.socialmedia.web.api.modules.feed.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Slice;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import ru.elseff.socialmedia.persistense.projection.PostView;
+import ru.elseff.socialmedia.web.api.modules.feed.service.FeedService;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostDto;
+import ru.elseff.socialmedia.web.api.modules.post.dto.mapper.PostDtoAssembler;
+
+import java.util.List;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping(value = "/api/v1/posts/feed")
+@SecurityRequirement(name = "Bearer Authentication")
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Tag(name = "Feed Controller", description = "Лента подписок")
+public class FeedController {
+
+    FeedService feedService;
+
+    PostDtoAssembler postDtoAssembler;
+
+    @Operation(
+            method = "GET",
+            summary = "Лента подписок",
+            description = "Посты пользователей, на которых подписан текущий пользователь, от новых к старым",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Посты успешно найдены",
+                            content = @Content(
+                                    schema = @Schema(implementation = PostDto.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping
+    @ResponseStatus(HttpStatus.OK)
+    public CollectionModel<PostDto> getFeed(@Parameter(description = "id поста, после которого начинается страница")
+                                            @RequestParam(required = false) Long before,
+                                            @Parameter(description = "Размер страницы. Количество элементов в ней")
+                                            @RequestParam(defaultValue = "20", required = false) int size) {
+        Slice<PostView> posts = feedService.getFeed(before, size);
+        CollectionModel<PostDto> model = postDtoAssembler.toViewCollectionModel(posts);
+
+        if (posts.hasNext() && posts.hasContent()) {
+            List<PostView> content = posts.getContent();
+            Long next = content.get(content.size() - 1).getId();
+            model.add(linkTo(methodOn(FeedController.class).getFeed(next, size)).withRel(IanaLinkRelations.NEXT));
+        }
+
+        return model;
+    }
+}
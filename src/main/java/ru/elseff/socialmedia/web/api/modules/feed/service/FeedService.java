@@ -0,0 +1,115 @@
+package ru.elseff.socialmedia.web.api.modules.feed.service;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.elseff.socialmedia.persistense.UserEntity;
+import ru.elseff.socialmedia.persistense.dao.PostRepository;
+import ru.elseff.socialmedia.persistense.dao.SubscriptionRepository;
+import ru.elseff.socialmedia.persistense.projection.PostView;
+import ru.elseff.socialmedia.web.api.modules.feed.timeline.FeedEngine;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostCreatedEvent;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostDeletedEvent;
+import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.subscription.event.SubscriptionChangedEvent;
+import ru.elseff.socialmedia.web.api.modules.user.service.UserService;
+
+import javax.transaction.Transactional;
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class FeedService {
+
+    PostRepository postRepository;
+
+    PostService postService;
+
+    SubscriptionRepository subscriptionRepository;
+
+    UserService userService;
+
+    FeedEngine feedEngine;
+
+    @Transactional
+    public Slice<PostView> getFeed(Long before, int size) {
+        PageRequest pageRequest = PageRequest.of(0, size);
+        UserEntity user = userService.getCurrentAuthUser();
+
+        List<Long> followedUserIds = feedEngine.hasCelebrities()
+                ? subscriptionRepository.findUserIdsBySubscriberId(user.getId())
+                : List.of();
+
+        List<Long> ids = feedEngine.read(user.getId(), followedUserIds, before != null ? before : Long.MAX_VALUE, size + 1);
+        boolean hasNext = ids.size() > size;
+        if (hasNext)
+            ids = ids.subList(0, size);
+
+        return new SliceImpl<>(postService.findAllByIds(ids), pageRequest, hasNext);
+    }
+
+    @TransactionalEventListener
+    public void onPostCreated(PostCreatedEvent event) {
+        Long authorId = event.getAuthorId();
+        long subscriberCount = feedEngine.subscriberCount(authorId,
+                () -> subscriptionRepository.countSubscribersByUserId(authorId));
+
+        int writes = feedEngine.publish(authorId, event.getPostIds(), subscriberCount,
+                () -> subscriptionRepository.findSubscriberIdsByUserId(authorId));
+        log.debug("posts {} written to {} timelines", event.getPostIds(), writes);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        Long authorId = event.getAuthorId();
+
+        feedEngine.remove(authorId, event.getPostId(),
+                () -> subscriptionRepository.findSubscriberIdsByUserId(authorId));
+    }
+
+    /**
+     * В ленте автор может занимать не больше её ёмкости, поэтому достаточно его последних
+     * feed.timeline.capacity постов и при подписке, и при отписке.
+     */
+    @TransactionalEventListener
+    public void onSubscriptionChanged(SubscriptionChangedEvent event) {
+        Long authorId = event.getUserId();
+        PageRequest latestPosts = PageRequest.of(0, feedEngine.getTimelineCapacity());
+
+        if (event.isSubscribed())
+            feedEngine.follow(event.getSubscriberId(), authorId, () -> postRepository.findIdsByUserId(authorId, latestPosts));
+        else
+            feedEngine.unfollow(event.getSubscriberId(), authorId, () -> postRepository.findIdsByUserId(authorId, latestPosts));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildTimelines() {
+        PageRequest latestPosts = PageRequest.of(0, feedEngine.getTimelineCapacity());
+        long writes = 0;
+
+        for (Long authorId : subscriptionRepository.findAllFollowedUserIds()) {
+            List<Long> postIds = postRepository.findIdsByUserId(authorId, latestPosts);
+            if (postIds.isEmpty())
+                continue;
+
+            long subscriberCount = feedEngine.subscriberCount(authorId,
+                    () -> subscriptionRepository.countSubscribersByUserId(authorId));
+            List<Long> subscriberIds = subscriberCount < feedEngine.getCelebrityThreshold()
+                    ? subscriptionRepository.findSubscriberIdsByUserId(authorId)
+                    : List.of();
+
+            writes += feedEngine.publish(authorId, postIds, subscriberCount, () -> subscriberIds);
+        }
+        log.info("timelines rebuilt: {} timeline entries written", writes);
+    }
+}
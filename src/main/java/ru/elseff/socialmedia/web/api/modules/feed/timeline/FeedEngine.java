@@ -0,0 +1,165 @@
+package ru.elseff.socialmedia.web.api.modules.feed.timeline;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Гибридная лента: посты обычных авторов рассылаются в ленты подписчиков при записи (push),
+ * посты авторов с числом подписчиков не меньше порога хранятся только в ленте автора
+ * и подмешиваются при чтении k-way слиянием (pull).
+ * Статус популярного автора не снимается до перестроения лент. Число подписчиков автора
+ * читается из базы один раз и дальше поддерживается событиями подписки.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class FeedEngine {
+
+    @Getter
+    int celebrityThreshold;
+
+    TimelineStore homeTimelines;
+
+    TimelineStore authorTimelines;
+
+    Set<Long> celebrities = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Id первого поста популярного автора, не разосланного подписчикам: более старые посты
+     * лежат в их лентах.
+     */
+    Map<Long, Long> pulledSince = new ConcurrentHashMap<>();
+
+    Map<Long, AtomicLong> subscriberCounts = new ConcurrentHashMap<>();
+
+    public FeedEngine(int timelineCapacity, int celebrityThreshold) {
+        if (celebrityThreshold < 1)
+            throw new IllegalArgumentException("celebrity threshold must be positive");
+        this.celebrityThreshold = celebrityThreshold;
+        this.homeTimelines = new TimelineStore(timelineCapacity);
+        this.authorTimelines = new TimelineStore(timelineCapacity);
+    }
+
+    public int getTimelineCapacity() {
+        return homeTimelines.getCapacity();
+    }
+
+    public boolean isCelebrity(long authorId) {
+        return celebrities.contains(authorId);
+    }
+
+    public boolean hasCelebrities() {
+        return !celebrities.isEmpty();
+    }
+
+    /**
+     * Число подписчиков автора; count вызывается, только если автор ещё не встречался.
+     */
+    public long subscriberCount(long authorId, LongSupplier count) {
+        return subscriberCounts.computeIfAbsent(authorId, id -> new AtomicLong(count.getAsLong())).get();
+    }
+
+    /**
+     * @return количество записей в ленты, вызванных постом
+     */
+    public int publish(long authorId, long postId, long subscriberCount, Supplier<? extends Collection<Long>> subscriberIds) {
+        return publish(authorId, List.of(postId), subscriberCount, subscriberIds);
+    }
+
+    /**
+     * Подписчики запрашиваются один раз на все посты.
+     */
+    public int publish(long authorId, Collection<Long> postIds, long subscriberCount, Supplier<? extends Collection<Long>> subscriberIds) {
+        if (subscriberCount >= celebrityThreshold)
+            celebrities.add(authorId);
+
+        if (isCelebrity(authorId)) {
+            for (Long postId : postIds) {
+                authorTimelines.push(authorId, postId);
+                pulledSince.merge(authorId, postId, Math::min);
+            }
+            return postIds.size();
+        }
+
+        Collection<Long> subscribers = subscriberIds.get();
+        for (Long postId : postIds)
+            subscribers.forEach(subscriberId -> homeTimelines.push(subscriberId, postId));
+        return subscribers.size() * postIds.size();
+    }
+
+    /**
+     * Пост, разосланный до того, как автор стал популярным, удаляется и из лент подписчиков.
+     */
+    public void remove(long authorId, long postId, Supplier<? extends Collection<Long>> subscriberIds) {
+        authorTimelines.remove(authorId, postId);
+        if (!isCelebrity(authorId) || postId < pulledSince.getOrDefault(authorId, Long.MAX_VALUE))
+            subscriberIds.get().forEach(subscriberId -> homeTimelines.remove(subscriberId, postId));
+    }
+
+    /**
+     * Дописывает в ленту нового подписчика последние посты автора. Посты популярного автора
+     * подмешиваются при чтении, и для него ничего делать не нужно.
+     */
+    public void follow(long subscriberId, long authorId, Supplier<? extends Collection<Long>> postIds) {
+        subscriberCounts.computeIfPresent(authorId, (id, count) -> {
+            count.incrementAndGet();
+            return count;
+        });
+        if (!isCelebrity(authorId))
+            postIds.get().forEach(postId -> homeTimelines.push(subscriberId, postId));
+    }
+
+    /**
+     * Убирает посты автора из ленты отписавшегося.
+     */
+    public void unfollow(long subscriberId, long authorId, Supplier<? extends Collection<Long>> postIds) {
+        subscriberCounts.computeIfPresent(authorId, (id, count) -> {
+            count.decrementAndGet();
+            return count;
+        });
+        if (!isCelebrity(authorId))
+            postIds.get().forEach(postId -> homeTimelines.remove(subscriberId, postId));
+    }
+
+    public List<Long> read(long userId, Collection<Long> followedAuthorIds, long before, int limit) {
+        List<List<Long>> sources = new ArrayList<>();
+        sources.add(homeTimelines.read(userId, before, limit));
+
+        for (Long authorId : followedAuthorIds)
+            if (isCelebrity(authorId))
+                sources.add(authorTimelines.read(authorId, before, limit));
+
+        return sources.size() == 1
+                ? sources.get(0)
+                : merge(sources, limit);
+    }
+
+    private static List<Long> merge(List<List<Long>> sources, int limit) {
+        PriorityQueue<int[]> heads = new PriorityQueue<>(sources.size(),
+                Comparator.comparingLong((int[] head) -> sources.get(head[0]).get(head[1])).reversed());
+        for (int source = 0; source < sources.size(); source++)
+            if (!sources.get(source).isEmpty())
+                heads.add(new int[]{source, 0});
+
+        List<Long> result = new ArrayList<>(limit);
+        long last = Long.MAX_VALUE;
+        while (result.size() < limit && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<Long> source = sources.get(head[0]);
+            long id = source.get(head[1]);
+            if (id != last) {
+                result.add(id);
+                last = id;
+            }
+            if (++head[1] < source.size())
+                heads.add(head);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,77 @@
+package ru.elseff.socialmedia.web.api.modules.feed.timeline;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ограниченная лента id постов одного пользователя.
+ * Id хранятся по возрастанию, при переполнении вытесняются самые старые.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class Timeline {
+
+    static final int INITIAL_CAPACITY = 16;
+
+    final int capacity;
+
+    long[] ids;
+
+    int size;
+
+    public Timeline(int capacity) {
+        this.capacity = capacity;
+        this.ids = new long[Math.min(capacity, INITIAL_CAPACITY)];
+    }
+
+    public synchronized void add(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0)
+            return;
+
+        int insertAt = -position - 1;
+        if (size == capacity) {
+            if (insertAt == 0)
+                return;
+            System.arraycopy(ids, 1, ids, 0, insertAt - 1);
+            ids[insertAt - 1] = id;
+            return;
+        }
+
+        if (size == ids.length)
+            ids = Arrays.copyOf(ids, Math.min(capacity, size * 2));
+
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+    }
+
+    public synchronized boolean remove(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position < 0)
+            return false;
+
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+        return true;
+    }
+
+    public synchronized List<Long> before(long before, int limit) {
+        int position = Arrays.binarySearch(ids, 0, size, before);
+        int end = position >= 0 ? position : -position - 1;
+        int start = Math.max(0, end - limit);
+
+        List<Long> result = new ArrayList<>(end - start);
+        for (int i = end - 1; i >= start; i--)
+            result.add(ids[i]);
+
+        return result;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.elseff.socialmedia.web.api.modules.feed.timeline;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Материализованные ленты пользователей в памяти: id пользователя -> {@link Timeline}.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TimelineStore {
+
+    @Getter
+    int capacity;
+
+    Map<Long, Timeline> timelines = new ConcurrentHashMap<>();
+
+    public TimelineStore(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("timeline capacity must be positive");
+        this.capacity = capacity;
+    }
+
+    public void push(long ownerId, long postId) {
+        timelines.computeIfAbsent(ownerId, id -> new Timeline(capacity)).add(postId);
+    }
+
+    public void remove(long ownerId, long postId) {
+        Timeline timeline = timelines.get(ownerId);
+        if (timeline != null)
+            timeline.remove(postId);
+    }
+
+    public List<Long> read(long ownerId, long before, int limit) {
+        Timeline timeline = timelines.get(ownerId);
+
+        return timeline != null
+                ? timeline.before(before, limit)
+                : List.of();
+    }
+
+    public int size() {
+        return timelines.size();
+    }
+}
@@ -0,0 +1,139 @@
+package ru.elseff.socialmedia.web.api.modules.post.cache;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import ru.elseff.socialmedia.persistense.projection.PostView;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Ограниченный по размеру (LRU) и времени жизни кэш снимков постов.
+ * Загрузка идёт без блокировки; если за время загрузки пост был инвалидирован или обновлён,
+ * результат не кэшируется, чтобы не вернуть в кэш устаревший снимок.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostCache {
+
+    int maxSize;
+
+    long ttlNanos;
+
+    LongSupplier clock;
+
+    Map<Long, Entry> entries;
+
+    /**
+     * Метка идущей загрузки каждого поста; инвалидация и обновление её снимают.
+     */
+    Map<Long, Object> loads = new HashMap<>();
+
+    LongAdder hits = new LongAdder();
+
+    LongAdder misses = new LongAdder();
+
+    LongAdder evictions = new LongAdder();
+
+    public PostCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    PostCache(int maxSize, Duration ttl, LongSupplier clock) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("cache size must be positive");
+
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() <= PostCache.this.maxSize)
+                    return false;
+
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    public PostView get(Long postId, Function<Long, PostView> loader) {
+        Object load = new Object();
+        synchronized (this) {
+            Entry entry = entries.get(postId);
+            if (entry != null) {
+                if (clock.getAsLong() - entry.expiresAt < 0) {
+                    hits.increment();
+                    return entry.post;
+                }
+                entries.remove(postId);
+                evictions.increment();
+            }
+            loads.put(postId, load);
+        }
+        misses.increment();
+
+        PostView post = null;
+        try {
+            post = loader.apply(postId);
+        } finally {
+            synchronized (this) {
+                if (loads.remove(postId, load) && post != null)
+                    entries.put(postId, new Entry(post, clock.getAsLong() + ttlNanos));
+            }
+        }
+        return post;
+    }
+
+    public synchronized void invalidate(Long postId) {
+        loads.remove(postId);
+        entries.remove(postId);
+    }
+
+    /**
+     * Заменяет снимок поста, если он есть в кэше, не сбрасывая время жизни.
+     */
+    public synchronized void update(Long postId, UnaryOperator<PostView> updater) {
+        loads.remove(postId);
+        entries.computeIfPresent(postId, (id, entry) -> new Entry(updater.apply(entry.post), entry.expiresAt));
+    }
+
+    /**
+     * Есть ли снимок поста в кэше; не считается обращением и не влияет на вытеснение.
+     */
+    public synchronized boolean contains(Long postId) {
+        return entries.containsKey(postId);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @RequiredArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static class Entry {
+
+        PostView post;
+
+        long expiresAt;
+    }
+}
@@ -2,6 +2,7 @@ package ru.elseff.socialmedia.web.api.modules.post.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
@@ -12,20 +13,41 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.PagedModel;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.elseff.socialmedia.exception.handling.dto.Violation;
 import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.projection.PostVersion;
+import ru.elseff.socialmedia.persistense.projection.PostView;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostBulkResultDto;
 import ru.elseff.socialmedia.web.api.modules.post.dto.PostCreationDto;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostCursor;
 import ru.elseff.socialmedia.web.api.modules.post.dto.PostDto;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostETag;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostSearchResult;
 import ru.elseff.socialmedia.web.api.modules.post.dto.PostUpdateDto;
 import ru.elseff.socialmedia.web.api.modules.post.dto.mapper.PostDtoAssembler;
 import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.postview.service.PostViewService;
 
 import javax.validation.Valid;
+import javax.validation.Validator;
+import javax.validation.constraints.Size;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
 @Validated
 @RestController
@@ -38,10 +60,16 @@ public class PostController {
 
     PostService postService;
 
-    PagedResourcesAssembler<PostEntity> pagedResourcesAssembler;
+    PagedResourcesAssembler<PostView> pagedResourcesAssembler;
 
     PostDtoAssembler postDtoAssembler;
 
+    Validator validator;
+
+    PostViewService postViewService;
+
+    static final int BULK_MAX_SIZE = 500;
+
     @Operation(
             method = "GET",
             summary = "Лента активности",
@@ -53,22 +81,110 @@ public class PostController {
                             content = @Content(
                                     schema = @Schema(implementation = PostDto.class)
                             )
+                    ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Страница не изменилась с версии из If-None-Match",
+                            content = @Content
                     )
             }
     )
     @GetMapping
+    public ResponseEntity<PagedModel<PostDto>> findAll(@Parameter(description = "Номер страницы")
+                                                       @RequestParam(defaultValue = "0", required = false) int page,
+                                                       @Parameter(description = "Размер страницы. Количество элементов в ней")
+                                                       @RequestParam(defaultValue = "20", required = false) int size,
+                                                       @Parameter(description = "Поле, по которому будет идти сортировка")
+                                                       @RequestParam(defaultValue = "id", required = false) String sortField,
+                                                       @Parameter(description = "Сортировка (ASC - по возрастанию, DESC - по убыванию)")
+                                                       @RequestParam(defaultValue = "ASC", required = false) Sort.Direction sortOrder,
+                                                       @Parameter(hidden = true) WebRequest request) {
+        Page<PostVersion> versions = postService.findAllVersions(size, page, sortField, sortOrder.toString());
+        if (request.checkNotModified(PostETag.of(versions)))
+            return null;
+
+        Page<PostView> posts = postService.findAll(size, page, sortField, sortOrder.toString());
+
+        return ResponseEntity.ok()
+                .eTag(PostETag.of(posts.map(PostVersion::of)))
+                .body(pagedResourcesAssembler.toModel(posts, postDtoAssembler::mapPostViewToDto));
+    }
+
+    @Operation(
+            method = "GET",
+            summary = "Лента активности (курсор)",
+            description = "Посты пользователей от новых к старым. Следующая страница доступна по ссылке next, " +
+                    "общее количество постов не считается",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Посты успешно найдены",
+                            content = @Content(
+                                    schema = @Schema(implementation = PostDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Неверный курсор",
+                            content = @Content
+                    )
+            }
+    )
+    @GetMapping(params = "after")
+    @ResponseStatus(HttpStatus.OK)
+    public CollectionModel<PostDto> findAllAfter(@Parameter(description = "Курсор из ссылки next. Пустое значение - первая страница")
+                                                 @RequestParam String after,
+                                                 @Parameter(description = "Размер страницы. Количество элементов в ней")
+                                                 @RequestParam(defaultValue = "20", required = false) int size) {
+        Slice<PostView> posts = postService.findAllAfter(after, size);
+        CollectionModel<PostDto> model = postDtoAssembler.toViewCollectionModel(posts);
+
+        if (posts.hasNext()) {
+            List<PostView> content = posts.getContent();
+            String next = PostCursor.of(content.get(content.size() - 1)).encode();
+            model.add(linkTo(methodOn(PostController.class).findAllAfter(next, size)).withRel(IanaLinkRelations.NEXT));
+        }
+
+        return model;
+    }
+
+    @Operation(
+            method = "GET",
+            summary = "Поиск постов",
+            description = "Полнотекстовый поиск по названию и тексту постов. Посты отсортированы по релевантности, " +
+                    "следующая страница доступна по ссылке next",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Посты успешно найдены",
+                            content = @Content(
+                                    schema = @Schema(implementation = PostDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Пустой запрос или неверный курсор",
+                            content = @Content
+                    )
+            }
+    )
+    @GetMapping("/search")
     @ResponseStatus(HttpStatus.OK)
-    public PagedModel<PostDto> findAll(@Parameter(description = "Номер страницы")
-                                       @RequestParam(defaultValue = "0", required = false) int page,
-                                       @Parameter(description = "Размер страницы. Количество элементов в ней")
-                                       @RequestParam(defaultValue = "20", required = false) int size,
-                                       @Parameter(description = "Поле, по которому будет идти сортировка")
-                                       @RequestParam(defaultValue = "id", required = false) String sortField,
-                                       @Parameter(description = "Сортировка (ASC - по возрастанию, DESC - по убыванию)")
-                                       @RequestParam(defaultValue = "ASC", required = false) Sort.Direction sortOrder) {
-        Page<PostEntity> posts = postService.findAll(size, page, sortField, sortOrder.toString());
-
-        return pagedResourcesAssembler.toModel(posts, postDtoAssembler);
+    public CollectionModel<PostDto> search(@Parameter(description = "Поисковый запрос", required = true)
+                                           @RequestParam String q,
+                                           @Parameter(description = "Курсор из ссылки next")
+                                           @RequestParam(required = false) String after,
+                                           @Parameter(description = "Размер страницы. Количество элементов в ней")
+                                           @RequestParam(defaultValue = "20", required = false) int size) {
+        PostSearchResult result = postService.search(q, after, size);
+        CollectionModel<PostDto> model = postDtoAssembler.toViewCollectionModel(result.getPosts());
+
+        if (result.getNext() != null) {
+            String next = result.getNext().encode();
+            model.add(linkTo(methodOn(PostController.class).search(q, next, size)).withRel(IanaLinkRelations.NEXT));
+        }
+
+        return model;
     }
 
     @Operation(
@@ -83,6 +199,11 @@ public class PostController {
                                     schema = @Schema(implementation = PostDto.class)
                             )
                     ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Пост не изменился с версии из If-None-Match",
+                            content = @Content
+                    ),
                     @ApiResponse(
                             responseCode = "404",
                             description = "Пост не найден",
@@ -92,12 +213,18 @@ public class PostController {
 
     )
     @GetMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public PostDto findById(@Parameter(description = "id поста", required = true)
-                            @PathVariable Long id) {
-        PostEntity post = postService.findById(id);
+    public ResponseEntity<PostDto> findById(@Parameter(description = "id поста", required = true)
+                                            @PathVariable Long id,
+                                            @Parameter(hidden = true) WebRequest request) {
+        PostView post = postService.findViewById(id);
+        postViewService.recordView(id, request.getUserPrincipal());
+        String eTag = PostETag.of(PostVersion.of(post));
+        if (request.checkNotModified(eTag))
+            return null;
 
-        return postDtoAssembler.mapPostEntityToDto(post);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(postDtoAssembler.mapPostViewToDto(post));
     }
 
     @Operation(
@@ -131,6 +258,63 @@ public class PostController {
         return postDtoAssembler.mapPostEntityToDto(result);
     }
 
+    @Operation(
+            method = "POST",
+            summary = "Добавить посты пакетом",
+            description = "Добавить до " + BULK_MAX_SIZE + " постов одной транзакцией. Невалидные посты пропускаются, " +
+                    "для каждого поста возвращается результат с его индексом в запросе",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Посты обработаны",
+                            content = @Content(
+                                    array = @ArraySchema(schema = @Schema(implementation = PostBulkResultDto.class))
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Пустой или слишком большой пакет",
+                            content = @Content
+                    )
+            }
+
+    )
+    @PostMapping("/bulk")
+    @ResponseStatus(HttpStatus.OK)
+    public List<PostBulkResultDto> addPosts(@RequestBody(description = "Данные для создания постов",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = PostCreationDto.class))))
+                                            @org.springframework.web.bind.annotation.RequestBody
+                                            @Size(min = 1, max = BULK_MAX_SIZE,
+                                                    message = "Количество постов в пакете должно быть от 1 до " + BULK_MAX_SIZE)
+                                            List<PostCreationDto> postDtos) {
+        PostBulkResultDto[] results = new PostBulkResultDto[postDtos.size()];
+        List<PostEntity> posts = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+
+        for (int i = 0; i < postDtos.size(); i++) {
+            List<Violation> violations = validate(postDtos.get(i));
+            if (violations.isEmpty()) {
+                posts.add(postDtoAssembler.mapCreationDtoToPostEntity(postDtos.get(i)));
+                indexes.add(i);
+            } else
+                results[i] = PostBulkResultDto.builder()
+                        .index(i)
+                        .status(PostBulkResultDto.Status.REJECTED)
+                        .violations(violations)
+                        .build();
+        }
+
+        List<PostEntity> created = postService.addPosts(posts);
+        for (int i = 0; i < created.size(); i++)
+            results[indexes.get(i)] = PostBulkResultDto.builder()
+                    .index(indexes.get(i))
+                    .status(PostBulkResultDto.Status.CREATED)
+                    .post(postDtoAssembler.mapPostEntityToDto(created.get(i)))
+                    .build();
+
+        return List.of(results);
+    }
+
     @Operation(
             method = "DELETE",
             summary = "Удалить пост",
@@ -194,4 +378,14 @@ public class PostController {
 
         return postDtoAssembler.mapPostEntityToDto(result);
     }
+
+    private List<Violation> validate(PostCreationDto postDto) {
+        if (postDto == null)
+            return List.of(new Violation("", "Пост не должен быть пустым"));
+
+        return validator.validate(postDto)
+                .stream()
+                .map(violation -> new Violation(violation.getPropertyPath().toString(), violation.getMessage()))
+                .collect(Collectors.toList());
+    }
 }
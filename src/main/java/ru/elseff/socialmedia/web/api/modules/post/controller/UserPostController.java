@@ -0,0 +1,124 @@
+package ru.elseff.socialmedia.web.api.modules.post.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Slice;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.elseff.socialmedia.persistense.projection.PostView;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostCursor;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostDto;
+import ru.elseff.socialmedia.web.api.modules.post.dto.mapper.PostDtoAssembler;
+import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.user.service.UserService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping(value = "/api/v1/users/{username}/posts")
+@SecurityRequirement(name = "Bearer Authentication")
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Tag(name = "User Post Controller", description = "Посты пользователя")
+public class UserPostController {
+
+    PostService postService;
+
+    UserService userService;
+
+    PostDtoAssembler postDtoAssembler;
+
+    ObjectMapper objectMapper;
+
+    @Operation(
+            method = "GET",
+            summary = "Посты пользователя",
+            description = "Посты пользователя от новых к старым. Следующая страница доступна по ссылке next",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Посты успешно найдены",
+                            content = @Content(
+                                    schema = @Schema(implementation = PostDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Пользователь не найден или неверный курсор",
+                            content = @Content
+                    )
+            }
+    )
+    @GetMapping
+    @ResponseStatus(HttpStatus.OK)
+    public CollectionModel<PostDto> findAll(@Parameter(description = "Имя пользователя", required = true)
+                                            @PathVariable String username,
+                                            @Parameter(description = "Курсор из ссылки next")
+                                            @RequestParam(required = false) String after,
+                                            @Parameter(description = "Размер страницы. Количество элементов в ней")
+                                            @RequestParam(defaultValue = "20", required = false) int size) {
+        Slice<PostView> posts = postService.findAllByUsername(username, after, size);
+        CollectionModel<PostDto> model = postDtoAssembler.toViewCollectionModel(posts);
+
+        if (posts.hasNext()) {
+            List<PostView> content = posts.getContent();
+            String next = PostCursor.of(content.get(content.size() - 1)).encode();
+            model.add(linkTo(methodOn(UserPostController.class).findAll(username, next, size)).withRel(IanaLinkRelations.NEXT));
+        }
+
+        return model;
+    }
+
+    @Operation(
+            method = "GET",
+            summary = "Выгрузка постов пользователя",
+            description = "Все посты пользователя по возрастанию id в формате NDJSON: один пост в строке " +
+                    "в том же виде, что и в остальных ответах с постами",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Посты выгружаются",
+                            content = @Content(mediaType = "application/x-ndjson")
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Пользователь не найден",
+                            content = @Content
+                    )
+            }
+    )
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    @ResponseStatus(HttpStatus.OK)
+    public StreamingResponseBody export(@Parameter(description = "Имя пользователя", required = true)
+                                        @PathVariable String username) {
+        userService.findIdByUsername(username);
+        ObjectWriter writer = objectMapper.writerFor(PostDto.class);
+
+        return outputStream -> postService.exportByUsername(username, post -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(postDtoAssembler.mapPostViewToDto(post)));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package ru.elseff.socialmedia.web.api.modules.post.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import ru.elseff.socialmedia.exception.handling.dto.Violation;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "Post bulk creation result")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PostBulkResultDto {
+
+    int index;
+
+    Status status;
+
+    PostDto post;
+
+    List<Violation> violations;
+
+    public enum Status {
+        CREATED, REJECTED
+    }
+}
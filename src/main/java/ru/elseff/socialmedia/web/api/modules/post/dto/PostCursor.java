@@ -0,0 +1,51 @@
+package ru.elseff.socialmedia.web.api.modules.post.dto;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import ru.elseff.socialmedia.persistense.projection.PostView;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор для постраничной навигации по постам без OFFSET.
+ * Кодирует позицию последнего поста страницы: (created_at, id).
+ */
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostCursor {
+
+    Timestamp createdAt;
+
+    Long id;
+
+    public static PostCursor of(PostView post) {
+        return new PostCursor(Timestamp.from(post.getCreatedAt()), post.getId());
+    }
+
+    public static PostCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(":");
+            if (parts.length != 3)
+                throw new IllegalArgumentException("invalid cursor");
+
+            Instant instant = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new PostCursor(Timestamp.from(instant), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
+    }
+
+    public String encode() {
+        Instant instant = createdAt.toInstant();
+        String raw = instant.getEpochSecond() + ":" + instant.getNano() + ":" + id;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
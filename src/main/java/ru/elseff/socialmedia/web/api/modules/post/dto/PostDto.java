@@ -6,10 +6,12 @@ import lombok.*;
 import lombok.experimental.FieldDefaults;
 import org.springframework.hateoas.RepresentationModel;
 import org.springframework.hateoas.server.core.Relation;
+import ru.elseff.socialmedia.persistense.ReactionType;
 import ru.elseff.socialmedia.web.api.modules.postimage.dto.PostImageDto;
 import ru.elseff.socialmedia.web.api.modules.user.dto.UserDto;
 
 import java.util.List;
+import java.util.Map;
 
 @Getter
 @Setter
@@ -36,4 +38,8 @@ public class PostDto extends RepresentationModel<PostDto> {
     String updatedAt;
 
     List<PostImageDto> images;
+
+    Map<ReactionType, Long> reactions;
+
+    Long views;
 }
@@ -0,0 +1,56 @@
+package ru.elseff.socialmedia.web.api.modules.post.dto;
+
+import org.springframework.data.domain.Page;
+import ru.elseff.socialmedia.persistense.ReactionType;
+import ru.elseff.socialmedia.persistense.projection.PostVersion;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Сильные ETag для поста и для страницы постов, вычисляемые по их версиям.
+ */
+public final class PostETag {
+
+    private PostETag() {
+    }
+
+    public static String of(PostVersion version) {
+        Instant modifiedAt = version.getModifiedAt();
+
+        return "\"" + version.getId() +
+                "-" + (modifiedAt != null ? modifiedAt.getEpochSecond() + "." + modifiedAt.getNano() : "0") +
+                "-" + version.getImageCount() +
+                "-" + (version.getLastImageId() != null ? version.getLastImageId() : 0) +
+                reactions(version.getReactions()) +
+                (version.getViews() != null ? "-v" + version.getViews() : "") + "\"";
+    }
+
+    public static String of(Page<PostVersion> page) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Long.toString(page.getTotalElements()).getBytes(StandardCharsets.UTF_8));
+            for (PostVersion version : page)
+                digest.update(of(version).getBytes(StandardCharsets.UTF_8));
+
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String reactions(Map<ReactionType, Long> reactions) {
+        StringBuilder builder = new StringBuilder();
+        for (ReactionType type : ReactionType.values()) {
+            Long count = reactions.get(type);
+            if (count != null)
+                builder.append('-').append(type.ordinal()).append(':').append(count);
+        }
+
+        return builder.toString();
+    }
+}
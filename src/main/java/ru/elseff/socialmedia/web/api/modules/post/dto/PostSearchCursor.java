@@ -0,0 +1,50 @@
+package ru.elseff.socialmedia.web.api.modules.post.dto;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import ru.elseff.socialmedia.persistense.projection.PostSearchRow;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Курсор для поиска по постам. Кодирует позицию последнего поста страницы: (rank, id).
+ */
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostSearchCursor {
+
+    float rank;
+
+    Long id;
+
+    public static PostSearchCursor of(PostSearchRow row) {
+        return new PostSearchCursor(row.getRank(), row.getId());
+    }
+
+    public static PostSearchCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(":");
+            if (parts.length != 2)
+                throw new IllegalArgumentException("invalid cursor");
+
+            float rank = Float.intBitsToFloat(Integer.parseInt(parts[0]));
+            if (!Float.isFinite(rank))
+                throw new IllegalArgumentException("invalid cursor");
+
+            return new PostSearchCursor(rank, Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String raw = Float.floatToIntBits(rank) + ":" + id;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
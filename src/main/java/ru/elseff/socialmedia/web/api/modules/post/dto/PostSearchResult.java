@@ -0,0 +1,22 @@
+package ru.elseff.socialmedia.web.api.modules.post.dto;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import ru.elseff.socialmedia.persistense.projection.PostView;
+
+import java.util.List;
+
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostSearchResult {
+
+    List<PostView> posts;
+
+    /**
+     * Курсор следующей страницы или null, если страница последняя
+     */
+    PostSearchCursor next;
+}
@@ -0,0 +1,27 @@
+package ru.elseff.socialmedia.web.api.modules.post.dto.mapper;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Формат дат в DTO. В отличие от SimpleDateFormat, DateTimeFormatter неизменяем и
+ * потокобезопасен, поэтому один экземпляр разделяется всеми запросами.
+ */
+public final class DtoDates {
+
+    static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd hh:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    private DtoDates() {
+    }
+
+    public static String format(Instant instant) {
+        return instant != null ? FORMATTER.format(instant) : null;
+    }
+
+    public static String format(Date date) {
+        return date != null ? FORMATTER.format(date.toInstant()) : null;
+    }
+}
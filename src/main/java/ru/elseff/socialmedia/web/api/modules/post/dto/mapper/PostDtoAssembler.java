@@ -3,9 +3,13 @@ package ru.elseff.socialmedia.web.api.modules.post.dto.mapper;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.server.mvc.RepresentationModelAssemblerSupport;
 import org.springframework.stereotype.Component;
 import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.PostImageEntity;
+import ru.elseff.socialmedia.persistense.projection.PostImageView;
+import ru.elseff.socialmedia.persistense.projection.PostView;
 import ru.elseff.socialmedia.web.api.modules.post.controller.PostController;
 import ru.elseff.socialmedia.web.api.modules.post.dto.PostCreationDto;
 import ru.elseff.socialmedia.web.api.modules.post.dto.PostDto;
@@ -13,9 +17,11 @@ import ru.elseff.socialmedia.web.api.modules.post.dto.PostUpdateDto;
 import ru.elseff.socialmedia.web.api.modules.postimage.dto.PostImageDto;
 import ru.elseff.socialmedia.web.api.modules.user.dto.UserDto;
 
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.function.Function;
 
 @Getter
 @Setter
@@ -30,29 +36,45 @@ public class PostDtoAssembler extends RepresentationModelAssemblerSupport<PostEn
                 .id(postEntity.getId())
                 .title(postEntity.getTitle())
                 .text(postEntity.getText())
-                .createdAt(postEntity.getCreatedAt() != null
-                        ? new SimpleDateFormat("yyyy-MM-dd hh:mm:ss").format(postEntity.getCreatedAt())
-                        : null)
-                .updatedAt(postEntity.getUpdatedAt() != null
-                        ? new SimpleDateFormat("yyyy-MM-dd hh:mm:ss").format(postEntity.getUpdatedAt())
-                        : null)
+                .createdAt(DtoDates.format(postEntity.getCreatedAt()))
+                .updatedAt(DtoDates.format(postEntity.getUpdatedAt()))
                 .author(UserDto.builder()
                         .id(postEntity.getUser().getId())
                         .username(postEntity.getUser().getUsername())
                         .build())
                 .images(postEntity.getImages() != null
-                        ? postEntity.getImages()
-                        .stream()
-                        .map(image ->
-                                PostImageDto.builder()
-                                        .id(image.getId())
-                                        .filename(image.getFilename())
-                                        .build()
-                        ).collect(Collectors.toList())
+                        ? mapImages(postEntity.getImages(), PostImageEntity::getId, PostImageEntity::getFilename)
                         : null)
                 .build();
     }
 
+    public PostDto mapPostViewToDto(@NonNull PostView postView) {
+        return PostDto.builder()
+                .id(postView.getId())
+                .title(postView.getTitle())
+                .text(postView.getText())
+                .createdAt(DtoDates.format(postView.getCreatedAt()))
+                .updatedAt(DtoDates.format(postView.getUpdatedAt()))
+                .author(UserDto.builder()
+                        .id(postView.getAuthorId())
+                        .username(postView.getAuthorUsername())
+                        .build())
+                .images(mapImages(postView.getImages(), PostImageView::getId, PostImageView::getFilename))
+                .reactions(postView.getReactions())
+                .views(postView.getViews())
+                .build();
+    }
+
+    public CollectionModel<PostDto> toViewCollectionModel(@NonNull Iterable<PostView> postViews) {
+        List<PostDto> posts = postViews instanceof Collection<PostView> collection
+                ? new ArrayList<>(collection.size())
+                : new ArrayList<>();
+        for (PostView postView : postViews)
+            posts.add(mapPostViewToDto(postView));
+
+        return CollectionModel.of(posts);
+    }
+
     public PostEntity mapCreationDtoToPostEntity(@NonNull PostCreationDto creationDto) {
         return PostEntity.builder()
                 .title(creationDto.getTitle())
@@ -69,6 +91,18 @@ public class PostDtoAssembler extends RepresentationModelAssemblerSupport<PostEn
                 .build();
     }
 
+    private static <T> List<PostImageDto> mapImages(Collection<T> images,
+                                                     Function<T, Long> id,
+                                                     Function<T, String> filename) {
+        List<PostImageDto> result = new ArrayList<>(images.size());
+        for (T image : images)
+            result.add(PostImageDto.builder()
+                    .id(id.apply(image))
+                    .filename(filename.apply(image))
+                    .build());
+        return result;
+    }
+
     @Override
     public PostDto toModel(@NonNull PostEntity entity) {
         return mapPostEntityToDto(entity);
@@ -0,0 +1,28 @@
+package ru.elseff.socialmedia.web.api.modules.post.event;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Посты одного автора, созданные в одной транзакции: пакетная загрузка публикует одно событие
+ * на весь пакет.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostCreatedEvent {
+
+    List<Long> postIds;
+
+    Long authorId;
+
+    public PostCreatedEvent(Long postId, Long authorId) {
+        this(List.of(postId), authorId);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.elseff.socialmedia.web.api.modules.post.event;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Getter
+@ToString
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostDeletedEvent {
+
+    Long postId;
+
+    Long authorId;
+
+    List<String> imageFilenames;
+}
@@ -3,37 +3,211 @@ package ru.elseff.socialmedia.web.api.modules.post.service;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.PostImageEntity;
+import ru.elseff.socialmedia.persistense.ReactionType;
 import ru.elseff.socialmedia.persistense.UserEntity;
+import ru.elseff.socialmedia.persistense.dao.PostImageRepository;
 import ru.elseff.socialmedia.persistense.dao.PostRepository;
+import ru.elseff.socialmedia.persistense.projection.PostImageView;
+import ru.elseff.socialmedia.persistense.projection.PostSearchRow;
+import ru.elseff.socialmedia.persistense.projection.PostVersion;
+import ru.elseff.socialmedia.persistense.projection.PostView;
+import ru.elseff.socialmedia.web.api.modules.post.cache.PostCache;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostCursor;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostSearchCursor;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostSearchResult;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostCreatedEvent;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostDeletedEvent;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostUpdatedEvent;
+import ru.elseff.socialmedia.web.api.modules.postimage.event.PostImageUploadedEvent;
+import ru.elseff.socialmedia.web.api.modules.postreaction.event.PostReactionsFlushedEvent;
+import ru.elseff.socialmedia.web.api.modules.postreaction.service.PostReactionService;
+import ru.elseff.socialmedia.web.api.modules.postview.event.PostViewsFlushedEvent;
+import ru.elseff.socialmedia.web.api.modules.postview.service.PostViewService;
 import ru.elseff.socialmedia.web.api.modules.user.service.UserService;
 
 import javax.transaction.Transactional;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class PostService {
 
+    static final String NEXT_POST_IDS = "select nextval('post_entity_id_seq') as id from generate_series(1, ?) order by id";
+
+    static final String INSERT_POST = "insert into post_entity (id, title, text, user_id, created_at) values (?, ?, ?, ?, ?)";
+
+    static final int EXPORT_CHUNK_SIZE = 500;
+
     PostRepository postRepository;
 
+    PostImageRepository postImageRepository;
+
     UserService userService;
 
+    ApplicationEventPublisher eventPublisher;
+
+    PostCache postCache;
+
+    PostReactionService postReactionService;
+
+    PostViewService postViewService;
+
+    JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public Page<PostView> findAll(int size,
+                                  int page,
+                                  String sortField,
+                                  String sortOrder) {
+        Page<PostView> posts = postRepository.findAllViews(pageRequest(size, page, sortField, sortOrder));
+        return posts.map(withDetails(posts.getContent()));
+    }
+
+    @Transactional
+    public Page<PostVersion> findAllVersions(int size,
+                                             int page,
+                                             String sortField,
+                                             String sortOrder) {
+        Page<PostVersion> versions = postRepository.findAllVersions(pageRequest(size, page, sortField, sortOrder));
+        List<Long> ids = versions.map(PostVersion::getId).getContent();
+        Map<Long, Map<ReactionType, Long>> reactions = postReactionService.findPersistedCounts(ids);
+        Map<Long, Long> views = postViewService.findCounts(ids);
+
+        return versions.map(version -> version
+                .withReactions(postReactionService.withPending(
+                        version.getId(), reactions.getOrDefault(version.getId(), Map.of())))
+                .withViews(views.getOrDefault(version.getId(), 0L)));
+    }
+
+    @Transactional
+    public Slice<PostView> findAllAfter(String after, int size) {
+        PageRequest pageRequest = PageRequest.of(0, size);
+        Slice<PostView> posts;
+
+        if (after == null || after.isBlank())
+            posts = postRepository.findAllViewsFirst(pageRequest);
+        else {
+            PostCursor cursor = PostCursor.decode(after);
+            posts = postRepository.findAllViewsAfter(cursor.getCreatedAt(), cursor.getId(), pageRequest);
+        }
+        return posts.map(withDetails(posts.getContent()));
+    }
+
     @Transactional
-    public Page<PostEntity> findAll(int size,
-                                    int page,
-                                    String sortField,
-                                    String sortOrder) {
-        return postRepository
-                .findAll(PageRequest.of(
-                        page,
-                        size,
-                        Sort.by(Sort.Direction.fromString(sortOrder),
-                                sortField)));
+    public Slice<PostView> findAllByUsername(String username, String after, int size) {
+        Long userId = userService.findIdByUsername(username);
+        PageRequest pageRequest = PageRequest.of(0, size);
+        Slice<PostView> posts;
+
+        if (after == null || after.isBlank())
+            posts = postRepository.findAllViewsByUserIdFirst(userId, pageRequest);
+        else {
+            PostCursor cursor = PostCursor.decode(after);
+            posts = postRepository.findAllViewsByUserIdAfter(userId, cursor.getCreatedAt(), cursor.getId(), pageRequest);
+        }
+        return posts.map(withDetails(posts.getContent()));
+    }
+
+    @Transactional
+    public PostSearchResult search(String query, String after, int size) {
+        if (query == null || query.isBlank())
+            throw new IllegalArgumentException("empty search query");
+
+        List<PostSearchRow> rows;
+        if (after == null || after.isBlank())
+            rows = postRepository.search(query, size + 1);
+        else {
+            PostSearchCursor cursor = PostSearchCursor.decode(after);
+            rows = postRepository.searchAfter(query, cursor.getRank(), cursor.getId(), size + 1);
+        }
+
+        boolean hasNext = rows.size() > size;
+        if (hasNext)
+            rows = rows.subList(0, size);
+
+        List<PostView> posts = rows.stream()
+                .map(PostSearchRow::toView)
+                .collect(Collectors.toList());
+        return new PostSearchResult(
+                posts.stream()
+                        .map(withDetails(posts))
+                        .collect(Collectors.toList()),
+                hasNext ? PostSearchCursor.of(rows.get(rows.size() - 1)) : null);
+    }
+
+    @Transactional
+    public List<PostView> findAllByIds(List<Long> ids) {
+        if (ids.isEmpty())
+            return List.of();
+
+        Map<Long, PostView> posts = postRepository.findAllViewsByIdIn(ids)
+                .stream()
+                .collect(Collectors.toMap(PostView::getId, Function.identity()));
+
+        Function<PostView, PostView> withDetails = withDetails(posts.values());
+
+        return ids
+                .stream()
+                .map(posts::get)
+                .filter(Objects::nonNull)
+                .map(withDetails)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Отдаёт все посты автора по возрастанию id, не загружая их в память целиком.
+     * Посты и картинки читаются двумя курсорами, упорядоченными по id поста, и сливаются на лету;
+     * счётчики реакций и просмотров догружаются пачками по EXPORT_CHUNK_SIZE постов.
+     */
+    @Transactional
+    public void exportByUsername(String username, Consumer<PostView> consumer) {
+        try (Stream<PostView> posts = postRepository.streamViewsByUsername(username);
+             Stream<PostImageView> images = postImageRepository.streamViewsByUsername(username)) {
+            Iterator<PostImageView> imageIterator = images.iterator();
+            PostImageView image = imageIterator.hasNext() ? imageIterator.next() : null;
+            List<PostView> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+
+            for (Iterator<PostView> postIterator = posts.iterator(); postIterator.hasNext(); ) {
+                PostView post = postIterator.next();
+                List<PostImageView> postImages = new ArrayList<>();
+
+                while (image != null && image.getPostId() <= post.getId()) {
+                    if (image.getPostId().equals(post.getId()))
+                        postImages.add(image);
+                    image = imageIterator.hasNext() ? imageIterator.next() : null;
+                }
+
+                chunk.add(post.withImages(postImages));
+                if (chunk.size() == EXPORT_CHUNK_SIZE) {
+                    chunk.stream().map(withCounters(chunk)).forEach(consumer);
+                    chunk.clear();
+                }
+            }
+            chunk.stream().map(withCounters(chunk)).forEach(consumer);
+        }
     }
 
     @Transactional
@@ -42,12 +216,57 @@ public class PostService {
                 .orElseThrow(() -> new IllegalArgumentException("post not found"));
     }
 
+    /**
+     * В кэше лежит снимок со сброшенными в базу счётчиками реакций,
+     * ещё не сброшенный прирост добавляется при каждом чтении.
+     */
+    public PostView findViewById(Long id) {
+        PostView post = postCache.get(id, this::loadView);
+        Map<ReactionType, Long> reactions = postReactionService.withPending(id, post.getReactions());
+
+        return reactions.equals(post.getReactions()) ? post : post.withReactions(reactions);
+    }
+
     @Transactional
     public PostEntity addPost(PostEntity postEntity) {
         UserEntity user = userService.getCurrentAuthUser();
         postEntity.setUser(user);
 
-        return postRepository.save(postEntity);
+        PostEntity post = postRepository.save(postEntity);
+        eventPublisher.publishEvent(new PostCreatedEvent(post.getId(), user.getId()));
+
+        return post;
+    }
+
+    /**
+     * Id всего пакета берутся из последовательности одним запросом, строки вставляются одним
+     * JDBC-пакетом, а ленты получают одно событие на весь пакет.
+     */
+    @Transactional
+    public List<PostEntity> addPosts(List<PostEntity> postEntities) {
+        if (postEntities.isEmpty())
+            return List.of();
+
+        UserEntity user = userService.getCurrentAuthUser();
+        List<Long> ids = jdbcTemplate.queryForList(NEXT_POST_IDS, Long.class, postEntities.size());
+        Timestamp createdAt = Timestamp.from(Instant.now());
+        for (int i = 0; i < postEntities.size(); i++) {
+            PostEntity post = postEntities.get(i);
+            post.setId(ids.get(i));
+            post.setUser(user);
+            post.setCreatedAt(createdAt);
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_POST, postEntities, postEntities.size(), (statement, post) -> {
+            statement.setLong(1, post.getId());
+            statement.setString(2, post.getTitle());
+            statement.setString(3, post.getText());
+            statement.setLong(4, user.getId());
+            statement.setTimestamp(5, post.getCreatedAt());
+        });
+        eventPublisher.publishEvent(new PostCreatedEvent(ids, user.getId()));
+
+        return postEntities;
     }
 
     @Transactional
@@ -55,9 +274,14 @@ public class PostService {
         PostEntity post = postRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("post not found"));
 
-        if (isCurrentUserOwnPost(post))
+        if (isCurrentUserOwnPost(post)) {
+            List<String> imageFilenames = post.getImages().stream()
+                    .filter(image -> image.getBlobHash() == null)
+                    .map(PostImageEntity::getFilename)
+                    .toList();
             postRepository.deleteById(id);
-        else
+            eventPublisher.publishEvent(new PostDeletedEvent(id, post.getUser().getId(), imageFilenames));
+        } else
             throw new IllegalArgumentException("someone else's post");
     }
 
@@ -72,7 +296,10 @@ public class PostService {
             if (post.getText() != null)
                 postFromDb.setText(post.getText());
 
-            return postRepository.save(postFromDb);
+            PostEntity result = postRepository.save(postFromDb);
+            eventPublisher.publishEvent(new PostUpdatedEvent(id));
+
+            return result;
         } else
             throw new IllegalArgumentException("someone else's post");
     }
@@ -84,4 +311,99 @@ public class PostService {
         return post.getUser().equals(user);
     }
 
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostUpdated(PostUpdatedEvent event) {
+        postCache.invalidate(event.getPostId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        postCache.invalidate(event.getPostId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostImageUploaded(PostImageUploadedEvent event) {
+        postCache.invalidate(event.getPostId());
+    }
+
+    /**
+     * Сброшенный прирост переносится в снимки из кэша: если их выбрасывать, то при сбросе раз
+     * в несколько секунд посты с реакциями почти не задерживались бы в кэше.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostReactionsFlushed(PostReactionsFlushedEvent event) {
+        event.getDeltas().forEach((postId, deltas) ->
+                postCache.update(postId, post -> post.withReactions(plus(post.getReactions(), deltas))));
+    }
+
+    /**
+     * Оценку по слитому скетчу нельзя посчитать по приросту, поэтому она перечитывается одним
+     * запросом, но только для постов, которые сейчас лежат в кэше.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostViewsFlushed(PostViewsFlushedEvent event) {
+        List<Long> cached = event.getPostIds().stream()
+                .filter(postCache::contains)
+                .collect(Collectors.toList());
+        Map<Long, Long> views = postViewService.findCounts(cached);
+
+        cached.forEach(postId -> postCache.update(postId, post -> post.withViews(views.getOrDefault(postId, 0L))));
+    }
+
+    private static Map<ReactionType, Long> plus(Map<ReactionType, Long> counts, Map<ReactionType, Long> deltas) {
+        Map<ReactionType, Long> sum = new EnumMap<>(ReactionType.class);
+        sum.putAll(counts);
+        deltas.forEach((type, delta) -> sum.merge(type, delta, Long::sum));
+        sum.values().removeIf(count -> count == 0);
+
+        return sum;
+    }
+
+    private PageRequest pageRequest(int size, int page, String sortField, String sortOrder) {
+        return PageRequest.of(page, size, Sort.by(Sort.Direction.fromString(sortOrder), sortField));
+    }
+
+    private PostView loadView(Long id) {
+        PostView post = postRepository.findViewById(id)
+                .orElseThrow(() -> new IllegalArgumentException("post not found"));
+
+        return post.withImages(postImageRepository.findAllViewsByPostIdIn(List.of(id)))
+                .withReactions(postReactionService.findPersistedCounts(List.of(id)).getOrDefault(id, Map.of()))
+                .withViews(postViewService.findCount(id));
+    }
+
+    /**
+     * Догружает картинки, счётчики реакций и просмотров сразу для всех постов страницы.
+     */
+    private Function<PostView, PostView> withDetails(Collection<PostView> posts) {
+        if (posts.isEmpty())
+            return Function.identity();
+
+        List<Long> ids = posts.stream().map(PostView::getId).collect(Collectors.toList());
+        Map<Long, List<PostImageView>> images = postImageRepository
+                .findAllViewsByPostIdIn(ids)
+                .stream()
+                .collect(Collectors.groupingBy(PostImageView::getPostId));
+        Function<PostView, PostView> withCounters = withCounters(posts);
+
+        return post -> withCounters.apply(post.withImages(images.getOrDefault(post.getId(), List.of())));
+    }
+
+    /**
+     * Догружает счётчики реакций и просмотров сразу для всех переданных постов.
+     */
+    private Function<PostView, PostView> withCounters(Collection<PostView> posts) {
+        if (posts.isEmpty())
+            return Function.identity();
+
+        List<Long> ids = posts.stream().map(PostView::getId).collect(Collectors.toList());
+        Map<Long, Map<ReactionType, Long>> reactions = postReactionService.findPersistedCounts(ids);
+        Map<Long, Long> views = postViewService.findCounts(ids);
+
+        return post -> post
+                .withReactions(postReactionService.withPending(
+                        post.getId(), reactions.getOrDefault(post.getId(), Map.of())))
+                .withViews(views.getOrDefault(post.getId(), 0L));
+    }
+
 }
@@ -0,0 +1,150 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.admission;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Допуск загрузок изображений. Одновременно обрабатывается не больше maxConcurrent загрузок и
+ * не больше perUser загрузок одного пользователя. Загрузка сверх общего лимита ждёт
+ * освобождения места не дольше maxWait, а ждущих не больше maxQueued; остальным отказывается
+ * сразу, чтобы загрузки не занимали все потоки Tomcat и диск в ущерб ленте.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class UploadAdmission {
+
+    int maxConcurrent;
+
+    int maxQueued;
+
+    long maxWaitNanos;
+
+    int perUser;
+
+    Duration retryAfter;
+
+    Semaphore permits;
+
+    Map<String, Integer> inFlightByUser = new ConcurrentHashMap<>();
+
+    AtomicInteger waiting = new AtomicInteger();
+
+    LongAdder admitted = new LongAdder();
+
+    LongAdder waitNanos = new LongAdder();
+
+    LongAdder rejectedBusy = new LongAdder();
+
+    LongAdder rejectedUser = new LongAdder();
+
+    public UploadAdmission(int maxConcurrent, int maxQueued, Duration maxWait, int perUser, Duration retryAfter) {
+        if (maxConcurrent <= 0 || perUser <= 0)
+            throw new IllegalArgumentException("upload limits must be positive");
+        if (maxQueued < 0)
+            throw new IllegalArgumentException("upload queue size must not be negative");
+
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.perUser = perUser;
+        this.retryAfter = retryAfter;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Возвращает разрешение, которое нужно закрыть по окончании загрузки. Сверх лимита
+     * пользователя бросает UploadRejectedException с 429, сверх общего лимита или при
+     * прерывании ожидания — с 503.
+     */
+    public Permit admit(String user) {
+        if (inFlightByUser.merge(user, 1, Integer::sum) > perUser) {
+            releaseUser(user);
+            rejectedUser.increment();
+            throw new UploadRejectedException(HttpStatus.TOO_MANY_REQUESTS, retryAfter);
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire() && !awaitPermit()) {
+                rejectedBusy.increment();
+                throw new UploadRejectedException(HttpStatus.SERVICE_UNAVAILABLE, retryAfter);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            releaseUser(user);
+            throw new UploadRejectedException(HttpStatus.SERVICE_UNAVAILABLE, retryAfter);
+        } catch (UploadRejectedException e) {
+            releaseUser(user);
+            throw e;
+        }
+        waitNanos.add(System.nanoTime() - start);
+        admitted.increment();
+        return new Permit(user);
+    }
+
+    public int inFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int waiting() {
+        return waiting.get();
+    }
+
+    public long admitted() {
+        return admitted.sum();
+    }
+
+    public double waitSeconds() {
+        return waitNanos.sum() / 1e9;
+    }
+
+    public long rejectedBusy() {
+        return rejectedBusy.sum();
+    }
+
+    public long rejectedUser() {
+        return rejectedUser.sum();
+    }
+
+    private boolean awaitPermit() throws InterruptedException {
+        try {
+            if (waiting.incrementAndGet() > maxQueued)
+                return false;
+            return permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void releaseUser(String user) {
+        inFlightByUser.computeIfPresent(user, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    public final class Permit implements AutoCloseable {
+
+        private final String user;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(String user) {
+            this.user = user;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+                releaseUser(user);
+            }
+        }
+    }
+}
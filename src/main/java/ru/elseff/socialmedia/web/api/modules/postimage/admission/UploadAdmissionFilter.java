@@ -0,0 +1,77 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.admission;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Пропускает загрузки изображений через UploadAdmission до того, как DispatcherServlet начнёт
+ * разбирать multipart-тело. Регистрируется после цепочки Spring Security, поэтому загрузка
+ * без аутентификации получает 401 и не занимает место. Отказ отдаётся с Retry-After и
+ * закрытием соединения, чтобы Tomcat не дочитывал тело отклонённой загрузки.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    static final List<String> UPLOAD_PATTERNS = List.of(
+            "/api/v1/posts/*/images/upload",
+            "/api/v1/posts/*/images/batch",
+            "/api/v1/posts/*/images/stream");
+
+    static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    UploadAdmission uploadAdmission;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || UPLOAD_PATTERNS.stream().noneMatch(pattern -> PATH_MATCHER.match(pattern, request.getRequestURI()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain chain) throws ServletException, IOException {
+        UploadAdmission.Permit permit;
+        try {
+            permit = uploadAdmission.admit(user(request));
+        } catch (UploadRejectedException e) {
+            reject(response, e);
+            return;
+        }
+
+        try (permit) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private static String user(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken))
+            return authentication.getName();
+        return request.getRemoteAddr();
+    }
+
+    private static void reject(HttpServletResponse response, UploadRejectedException e) throws IOException {
+        log.debug("upload rejected with {}: {}", e.getStatus().value(), e.getMessage());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())));
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        response.sendError(e.getStatus().value(), e.getMessage());
+    }
+}
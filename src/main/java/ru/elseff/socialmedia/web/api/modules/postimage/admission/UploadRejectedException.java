@@ -0,0 +1,23 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.admission;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class UploadRejectedException extends RuntimeException {
+
+    HttpStatus status;
+
+    Duration retryAfter;
+
+    public UploadRejectedException(HttpStatus status, Duration retryAfter) {
+        super(status == HttpStatus.TOO_MANY_REQUESTS ? "too many uploads in progress" : "upload capacity exhausted");
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,69 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.cleanup;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage;
+
+import javax.transaction.Transactional;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Удаляет блобы, на которые не ссылается ни одно изображение дольше grace. Строки блокируются
+ * FOR UPDATE до конца транзакции, и файл удаляется под этой блокировкой: загрузка того же
+ * содержимого в это время ждёт на строке блоба и после коммита увидит, что файла уже нет.
+ * Блобы удаляются из хранилища одной пачкой вместе с вариантами, а строки вариантов удаляет
+ * каскад.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ImageBlobCollector {
+
+    static final String SELECT_UNREFERENCED = "select hash from image_blob " +
+            "where ref_count = 0 and updated_at < now() - make_interval(secs => ?) " +
+            "order by updated_at limit ? for update skip locked";
+
+    static final String SELECT_VARIANT_WIDTHS = "select width from image_variant where blob_hash = ?";
+
+    static final String DELETE_BLOB = "delete from image_blob where hash = ? and ref_count = 0";
+
+    static final int BATCH_SIZE = 100;
+
+    JdbcTemplate jdbcTemplate;
+
+    ContentAddressedStorage storage;
+
+    Duration grace;
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${post.images.blobs.gc-delay}")
+    public int collect() {
+        List<String> hashes = jdbcTemplate.queryForList(SELECT_UNREFERENCED, String.class,
+                grace.toSeconds(), BATCH_SIZE);
+
+        if (hashes.isEmpty())
+            return 0;
+
+        Map<String, List<Integer>> variantWidths = new LinkedHashMap<>(hashes.size() * 2);
+        for (String hash : hashes)
+            variantWidths.put(hash, jdbcTemplate.queryForList(SELECT_VARIANT_WIDTHS, Integer.class, hash));
+        try {
+            storage.delete(variantWidths);
+        } catch (IOException e) {
+            log.warn("could not delete {} image blobs, will retry: {}", hashes.size(), e.getMessage());
+            return 0;
+        }
+
+        jdbcTemplate.batchUpdate(DELETE_BLOB, hashes, hashes.size(),
+                (statement, hash) -> statement.setString(1, hash));
+        return hashes.size();
+    }
+}
@@ -0,0 +1,128 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.cleanup;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.BlobStore;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Фоновое удаление файлов изображений из BlobStore. Очередь ограничена: если она заполнена,
+ * файл не удаляется и об этом пишется предупреждение, запросы при этом не блокируются.
+ * Рабочий поток удаляет ключи пачками до batchSize одним вызовом хранилища, а при ошибке
+ * возвращает пачку в очередь после паузы retryDelay, пока не исчерпано maxAttempts попыток.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ImageFileCleaner {
+
+    BlobStore store;
+
+    BlockingQueue<Task> queue;
+
+    int batchSize;
+
+    int maxAttempts;
+
+    Duration retryDelay;
+
+    Thread worker;
+
+    public ImageFileCleaner(BlobStore store, int capacity, int batchSize, int maxAttempts, Duration retryDelay) {
+        if (capacity <= 0 || batchSize <= 0 || maxAttempts <= 0)
+            throw new IllegalArgumentException("capacity, batch size and max attempts must be positive");
+        this.store = store;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.worker = new Thread(this::run, "image-file-cleaner");
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        worker.start();
+    }
+
+    /**
+     * Останавливает рабочий поток и последний раз пытается удалить всё, что осталось в очереди.
+     */
+    public void stop() throws InterruptedException {
+        worker.interrupt();
+        worker.join();
+
+        List<Task> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        deleteBatch(rest).forEach(task -> log.warn("image file {} was not deleted", task.key()));
+    }
+
+    public void enqueue(Collection<String> keys) {
+        for (String key : keys)
+            offer(new Task(key, 1));
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Task> batch = new ArrayList<>(batchSize);
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+
+            List<Task> retries = deleteBatch(batch);
+            if (retries.isEmpty())
+                continue;
+            try {
+                Thread.sleep(retryDelay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            retries.forEach(this::offer);
+        }
+    }
+
+    /**
+     * Удаляет файлы пачки и возвращает задачи, которые стоит повторить.
+     */
+    List<Task> deleteBatch(List<Task> batch) {
+        if (batch.isEmpty())
+            return List.of();
+
+        try {
+            store.delete(batch.stream().map(Task::key).toList());
+            return List.of();
+        } catch (IOException e) {
+            List<Task> retries = new ArrayList<>(batch.size());
+            for (Task task : batch) {
+                if (task.attempt() < maxAttempts)
+                    retries.add(new Task(task.key(), task.attempt() + 1));
+                else
+                    log.error("giving up deleting image file {} after {} attempts: {}",
+                            task.key(), task.attempt(), e.getMessage());
+            }
+            return retries;
+        }
+    }
+
+    private void offer(Task task) {
+        if (!queue.offer(task))
+            log.warn("image file cleanup queue is full, {} will not be deleted", task.key());
+    }
+
+    record Task(String key, int attempt) {
+    }
+}
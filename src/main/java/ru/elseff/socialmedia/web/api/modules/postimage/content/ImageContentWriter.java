@@ -0,0 +1,148 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.content;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Отдаёт файл целиком или по диапазонам из заголовка Range, не загружая его в память.
+ * Если файл лежит на локальном диске и контейнер поддерживает sendfile (Tomcat NIO без TLS),
+ * одиночный диапазон отдаёт ядро напрямую из page cache; иначе байты переносит
+ * BlobStore.transferTo. Несколько диапазонов отдаются как multipart/byteranges.
+ */
+@Component
+public class ImageContentWriter {
+
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    static final String CRLF = "\r\n";
+
+    public void write(ImageFile image, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = image.length();
+        MediaType contentType = image.contentType();
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        List<Range> ranges;
+        try {
+            ranges = ranges(request.getHeader(HttpHeaders.RANGE), length);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setContentLengthLong(0);
+            return;
+        }
+
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType.toString());
+            writeRange(image, new Range(0, length), request, response);
+        } else if (ranges.size() == 1) {
+            Range range = ranges.get(0);
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(length));
+            writeRange(image, range, request, response);
+        } else {
+            writeMultipart(image, ranges, response);
+        }
+    }
+
+    /**
+     * Пустой список означает, что Range не передан и нужен весь файл. Перекрывающиеся
+     * диапазоны суммарно длиннее файла отклоняются, как и в ResourceRegionHttpMessageConverter.
+     */
+    static List<Range> ranges(String header, long length) {
+        if (header == null)
+            return List.of();
+
+        List<HttpRange> httpRanges = HttpRange.parseRanges(header);
+        List<Range> ranges = new ArrayList<>(httpRanges.size());
+        long total = 0;
+        for (HttpRange httpRange : httpRanges) {
+            long start = httpRange.getRangeStart(length);
+            long end = httpRange.getRangeEnd(length);
+            if (start > end)
+                throw new IllegalArgumentException("range is not satisfiable");
+            ranges.add(new Range(start, end - start + 1));
+            total += end - start + 1;
+        }
+        if (ranges.size() > 1 && total > length)
+            throw new IllegalArgumentException("ranges are longer than the content");
+        return ranges;
+    }
+
+    private void writeRange(ImageFile image,
+                            Range range,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        response.setContentLengthLong(range.length());
+        if (range.length() == 0)
+            return;
+
+        Optional<Path> path = image.store().localPath(image.key());
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)) && path.isPresent()) {
+            request.setAttribute(SENDFILE_FILENAME, path.get().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            request.setAttribute(SENDFILE_END, range.start() + range.length());
+            return;
+        }
+
+        image.store().transferTo(image.key(), range.start(), range.length(), response.getOutputStream());
+    }
+
+    private void writeMultipart(ImageFile image,
+                                List<Range> ranges,
+                                HttpServletResponse response) throws IOException {
+        String boundary = new String(MimeTypeUtils.generateMultipartBoundary(), StandardCharsets.US_ASCII);
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        byte[] end = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+
+        long contentLength = end.length;
+        for (Range range : ranges) {
+            byte[] partHeader = (CRLF + "--" + boundary + CRLF +
+                    HttpHeaders.CONTENT_TYPE + ": " + image.contentType() + CRLF +
+                    HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(image.length()) + CRLF + CRLF)
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range.length();
+        }
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+
+        ServletOutputStream outputStream = response.getOutputStream();
+        for (int i = 0; i < ranges.size(); i++) {
+            outputStream.write(partHeaders.get(i));
+            image.store().transferTo(image.key(), ranges.get(i).start(), ranges.get(i).length(), outputStream);
+        }
+        outputStream.write(end);
+    }
+
+    record Range(long start, long length) {
+
+        String contentRange(long total) {
+            return "bytes " + start + "-" + (start + length - 1) + "/" + total;
+        }
+    }
+}
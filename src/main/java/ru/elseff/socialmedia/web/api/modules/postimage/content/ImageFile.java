@@ -0,0 +1,10 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.content;
+
+import org.springframework.http.MediaType;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.BlobStore;
+
+/**
+ * Файл изображения в хранилище, его длина и тип содержимого.
+ */
+public record ImageFile(BlobStore store, String key, long length, MediaType contentType) {
+}
@@ -2,6 +2,7 @@ package ru.elseff.socialmedia.web.api.modules.postimage.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -11,17 +12,30 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import ru.elseff.socialmedia.persistense.PostImageEntity;
+import ru.elseff.socialmedia.web.api.modules.postimage.content.ImageContentWriter;
+import ru.elseff.socialmedia.web.api.modules.postimage.content.ImageFile;
+import ru.elseff.socialmedia.web.api.modules.postimage.dto.PostImageBatchResultDto;
 import ru.elseff.socialmedia.web.api.modules.postimage.dto.PostImageDto;
 import ru.elseff.socialmedia.web.api.modules.postimage.dto.mapper.PostImageDtoMapper;
 import ru.elseff.socialmedia.web.api.modules.postimage.service.PostImageService;
+import ru.elseff.socialmedia.web.api.modules.postimage.service.PostImageService.UploadResult;
+import ru.elseff.socialmedia.web.api.modules.postimage.upload.BatchImageUpload;
+import ru.elseff.socialmedia.web.api.modules.postimage.upload.StreamingImageUpload;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+@Validated
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/v1/posts/{postId}/images")
@@ -34,6 +48,14 @@ public class PostImageController {
 
     PostImageDtoMapper postImageDtoMapper;
 
+    ImageContentWriter imageContentWriter;
+
+    StreamingImageUpload streamingImageUpload;
+
+    BatchImageUpload batchImageUpload;
+
+    static final int BATCH_MAX_SIZE = 20;
+
     @Operation(
             method = "GET",
             summary = "Найти изображения",
@@ -102,9 +124,135 @@ public class PostImageController {
                             )
                     ))
             @RequestParam("image") MultipartFile multipartFile) {
-        PostImageEntity image = postImageService.uploadPostImage(multipartFile, postId)
-                .orElseThrow(() -> new RuntimeException("something wrong"));
+        PostImageEntity image = postImageService.uploadPostImage(multipartFile, postId);
 
         return postImageDtoMapper.mapPostImageEntityToDto(image);
     }
+
+    @Operation(
+            method = "POST",
+            summary = "Загрузить изображение потоком",
+            description = "Загрузить изображение частью image запроса multipart/form-data. Тело читается " +
+                    "за один проход без промежуточного файла; тип определяется по содержимому файла",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201",
+                            description = "Успешно",
+                            content = @Content(
+                                    schema = @Schema(implementation = PostImageDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Пост не найден или принадлежит другому пользователю, нет части " +
+                                    "image, файл не изображение или больше допустимого размера",
+                            content = @Content
+                    )
+            }
+    )
+    @PostMapping(value = "/stream", consumes = "multipart/form-data", produces = "application/json")
+    @ResponseStatus(HttpStatus.CREATED)
+    public PostImageDto streamImage(@Parameter(description = "id поста", required = true)
+                                    @PathVariable("postId") Long postId,
+                                    HttpServletRequest request) throws IOException {
+        PostImageEntity image = streamingImageUpload.upload(request.getContentType(), request.getInputStream(), postId);
+
+        return postImageDtoMapper.mapPostImageEntityToDto(image);
+    }
+
+    @Operation(
+            method = "POST",
+            summary = "Загрузить несколько изображений",
+            description = "Загрузить до " + BATCH_MAX_SIZE + " изображений своего поста одним запросом. " +
+                    "Для каждого файла возвращается результат в порядке частей запроса",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Файлы обработаны",
+                            content = @Content(
+                                    array = @ArraySchema(schema = @Schema(implementation = PostImageBatchResultDto.class))
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Пост не найден, принадлежит другому пользователю, " +
+                                    "или пакет пустой либо слишком большой",
+                            content = @Content
+                    )
+            }
+    )
+    @PostMapping(value = "/batch", consumes = "multipart/form-data", produces = "application/json")
+    @ResponseStatus(HttpStatus.OK)
+    public List<PostImageBatchResultDto> uploadImages(
+            @Parameter(description = "id поста", required = true)
+            @PathVariable("postId") Long postId,
+            @Parameter(description = "Файлы с изображениями", required = true)
+            @RequestParam("images")
+            @Size(min = 1, max = BATCH_MAX_SIZE,
+                    message = "Количество изображений в пакете должно быть от 1 до " + BATCH_MAX_SIZE)
+            List<MultipartFile> multipartFiles) {
+        List<UploadResult> uploads = batchImageUpload.upload(multipartFiles, postId);
+
+        List<PostImageBatchResultDto> results = new ArrayList<>(uploads.size());
+        for (int i = 0; i < uploads.size(); i++) {
+            UploadResult upload = uploads.get(i);
+            results.add(upload.image() != null
+                    ? PostImageBatchResultDto.builder()
+                    .index(i)
+                    .filename(upload.filename())
+                    .status(PostImageBatchResultDto.Status.UPLOADED)
+                    .image(postImageDtoMapper.mapPostImageEntityToDto(upload.image()))
+                    .build()
+                    : PostImageBatchResultDto.builder()
+                    .index(i)
+                    .filename(upload.filename())
+                    .status(PostImageBatchResultDto.Status.REJECTED)
+                    .error(upload.error())
+                    .build());
+        }
+        return results;
+    }
+
+    @Operation(
+            method = "GET",
+            summary = "Скачать изображение",
+            description = "Получить содержимое изображения поста. Поддерживается заголовок Range " +
+                    "с одним или несколькими диапазонами байтов. Параметр w выбирает уменьшенную копию " +
+                    "наименьшей из подходящих ширин; пока её нет, отдаётся оригинал",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Изображение целиком",
+                            content = @Content(mediaType = "application/octet-stream")
+                    ),
+                    @ApiResponse(
+                            responseCode = "206",
+                            description = "Запрошенные диапазоны изображения",
+                            content = @Content(mediaType = "application/octet-stream")
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Изображение не найдено",
+                            content = @Content
+                    ),
+                    @ApiResponse(
+                            responseCode = "416",
+                            description = "Диапазон не может быть удовлетворён",
+                            content = @Content
+                    )
+            }
+    )
+    @GetMapping("/{imageId}/content")
+    public void downloadImage(@Parameter(description = "id поста", required = true)
+                              @PathVariable("postId") Long postId,
+                              @Parameter(description = "id изображения", required = true)
+                              @PathVariable("imageId") Long imageId,
+                              @Parameter(description = "желаемая ширина в пикселях")
+                              @RequestParam(value = "w", required = false) Integer width,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        ImageFile image = postImageService.findImageFile(postId, imageId, width);
+
+        imageContentWriter.write(image, request, response);
+    }
 }
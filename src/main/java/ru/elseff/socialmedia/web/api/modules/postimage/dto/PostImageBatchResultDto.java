@@ -0,0 +1,32 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@Setter
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "Post image batch upload result")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PostImageBatchResultDto {
+
+    int index;
+
+    String filename;
+
+    Status status;
+
+    PostImageDto image;
+
+    String error;
+
+    public enum Status {
+        UPLOADED, REJECTED
+    }
+}
@@ -0,0 +1,20 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.event;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@ToString
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostImageUploadedEvent {
+
+    Long postId;
+
+    Long imageId;
+
+    String blobHash;
+}
@@ -4,21 +4,39 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.multipart.MultipartFile;
 import ru.elseff.socialmedia.persistense.PostEntity;
 import ru.elseff.socialmedia.persistense.PostImageEntity;
 import ru.elseff.socialmedia.persistense.dao.PostImageRepository;
+import ru.elseff.socialmedia.persistense.projection.PostImageFileRow;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostDeletedEvent;
 import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.postimage.cleanup.ImageFileCleaner;
+import ru.elseff.socialmedia.web.api.modules.postimage.content.ImageFile;
+import ru.elseff.socialmedia.web.api.modules.postimage.event.PostImageUploadedEvent;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.BlobStore;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage.StagedBlob;
+import ru.elseff.socialmedia.web.api.modules.postimage.variant.ImageVariantService;
 
 import javax.transaction.Transactional;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static java.util.Objects.requireNonNull;
@@ -29,11 +47,28 @@ import static java.util.Objects.requireNonNull;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class PostImageService {
 
+    static final String INSERT_IMAGE = "insert into post_image_entity (post_id, filename, blob_hash) values (?, ?, ?)";
+
+    static final String DELETE_IMAGE = "delete from post_image_entity where id = ?";
+
     PostService postService;
 
     PostImageRepository postImageRepository;
 
-    Path root = Paths.get("uploads/postimages");
+    ApplicationEventPublisher eventPublisher;
+
+    ImageFileCleaner imageFileCleaner;
+
+    ContentAddressedStorage imageBlobStorage;
+
+    ImageVariantService imageVariantService;
+
+    /**
+     * Изображения, загруженные до хранения по хешу, под закодированными именами файлов.
+     */
+    BlobStore legacyImageStore;
+
+    JdbcTemplate jdbcTemplate;
 
     @Transactional
     public List<PostImageEntity> findAllByPostId(Long postId) {
@@ -42,33 +77,180 @@ public class PostImageService {
         return postImageRepository.findAllByPost(post);
     }
 
+    /**
+     * Хеш считается при копировании загрузки во временный файл. Строка изображения
+     * сохраняется с flush до переноса файла: триггер увеличивает счётчик ссылок блоба и
+     * блокирует его строку, так что ImageBlobCollector не удалит файл между проверкой и
+     * переносом. Если файл перенести не удалось, исключение откатывает транзакцию вместе
+     * со строкой.
+     */
     @Transactional
-    public Optional<PostImageEntity> uploadPostImage(MultipartFile file, Long postId) {
+    public PostImageEntity uploadPostImage(MultipartFile file, Long postId) {
         PostEntity post = postService.findById(postId);
+        String filename = requireNonNull(file.getOriginalFilename());
+
+        try (StagedBlob blob = imageBlobStorage.stage(file.getInputStream())) {
+            return saveImage(postId, post, filename, blob);
+        } catch (IOException e) {
+            log.error("failed to save file {}", filename, e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Сохраняет уже записанный во временный файл блоб как изображение поста. Для потоковой
+     * загрузки: тело запроса читается до начала транзакции, и она держится только на время
+     * вставки строки и переноса файла. IOException откатывает транзакцию, как и в uploadPostImage.
+     */
+    @Transactional(rollbackOn = IOException.class)
+    public PostImageEntity addPostImage(Long postId, String filename, StagedBlob blob) throws IOException {
+        PostEntity post = postService.findById(postId);
+
+        return saveImage(postId, post, filename, blob);
+    }
+
+    /**
+     * Сохраняет строки изображений пакетной загрузки (см. BatchImageUpload), чьи блобы уже
+     * перенесены в хранилище до начала транзакции: строки вставляются одним JDBC-пакетом, и
+     * транзакция не ждёт записи файлов. Вставка через триггер блокирует строки блобов, поэтому
+     * ImageBlobCollector их уже не заберёт, но мог забрать раньше, если блоб был без ссылок
+     * дольше grace. Поэтому под блокировкой каждый блоб один раз проверяется на существование,
+     * и строки пропавших удаляются до фиксации транзакции. Результаты идут в порядке хешей.
+     */
+    @Transactional
+    public List<UploadResult> addPostImages(Long postId, List<String> filenames, List<String> hashes) {
+        PostEntity post = postService.findById(postId);
+        List<Long> ids = insertImages(postId, filenames, hashes);
+
+        Map<String, Boolean> stored = new HashMap<>();
+        List<UploadResult> results = new ArrayList<>(hashes.size());
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < hashes.size(); i++) {
+            if (stored.computeIfAbsent(hashes.get(i), this::isStored)) {
+                PostImageEntity image = PostImageEntity.builder()
+                        .id(ids.get(i))
+                        .post(post)
+                        .filename(filenames.get(i))
+                        .blobHash(hashes.get(i))
+                        .build();
+                results.add(UploadResult.uploaded(image));
+                eventPublisher.publishEvent(new PostImageUploadedEvent(postId, image.getId(), image.getBlobHash()));
+            } else {
+                log.error("failed to save file {}: blob {} is missing", filenames.get(i), hashes.get(i));
+                failed.add(ids.get(i));
+                results.add(UploadResult.failed(filenames.get(i), "could not store file"));
+            }
+        }
+        if (!failed.isEmpty())
+            jdbcTemplate.batchUpdate(DELETE_IMAGE, failed, failed.size(),
+                    (statement, id) -> statement.setLong(1, id));
+        return results;
+    }
 
-        PostImageEntity image = PostImageEntity.builder()
+    /**
+     * Если задана ширина, отдаётся подходящий вариант изображения, а при его отсутствии
+     * оригинал. Изображения, загруженные до хранения по хешу, вариантов не имеют. Метод не
+     * транзакционный: строка изображения читается в короткой транзакции репозитория, а
+     * ожидание варианта, до post.images.variants.timeout, не держит соединение с базой.
+     */
+    public ImageFile findImageFile(Long postId, Long imageId, Integer width) throws IOException {
+        PostImageFileRow image = postImageRepository.findFileByIdAndPostId(imageId, postId)
+                .orElseThrow(() -> new IllegalArgumentException("image not found"));
+
+        if (width != null && image.getBlobHash() != null) {
+            Optional<ImageFile> variant = imageVariantService.findVariant(image.getBlobHash(), width);
+            if (variant.isPresent())
+                return variant.get();
+        }
+
+        BlobStore store = image.getBlobHash() != null ? imageBlobStorage.getStore() : legacyImageStore;
+        String key = image.getBlobHash() != null ? image.getBlobHash() : encodeLegacyFilename(image.getFilename());
+        long length = store.size(key)
+                .orElseThrow(() -> new IllegalArgumentException("image file not found"));
+
+        return new ImageFile(store, key, length, MediaTypeFactory.getMediaType(image.getFilename())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM));
+    }
+
+    /**
+     * Файлы удаляются фоновым потоком только после фиксации транзакции, чтобы откат удаления
+     * поста не оставил записи без файлов и чтобы сама транзакция не ждала диска. Событие несёт
+     * только изображения, загруженные до хранения по хешу: блобы удаляет ImageBlobCollector.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        imageFileCleaner.enqueue(event.getImageFilenames().stream()
+                .map(PostImageService::encodeLegacyFilename)
+                .toList());
+    }
+
+    private PostImageEntity saveImage(Long postId, PostEntity post, String filename, StagedBlob blob) throws IOException {
+        PostImageEntity result = postImageRepository.saveAndFlush(PostImageEntity.builder()
                 .post(post)
-                .filename(file.getOriginalFilename())
-                .build();
+                .filename(filename)
+                .blobHash(blob.hash())
+                .build());
+        if (imageBlobStorage.publish(blob))
+            log.info("file saved successfully");
+        eventPublisher.publishEvent(new PostImageUploadedEvent(postId, result.getId(), blob.hash()));
+        return result;
+    }
 
+    private boolean isStored(String hash) {
         try {
-            String filename = requireNonNull(file.getOriginalFilename());
-            String[] partsFileName = filename.split("\\.");
-            String name = partsFileName[0];
-            String extension = partsFileName[1];
-            String encodeFilename = Base64.getEncoder().encodeToString(name.getBytes(StandardCharsets.UTF_8)) + "." + extension;
-            Path path = root.resolve(encodeFilename);
-            Files.copy(file.getInputStream(), path);
-            log.info("file saved successfully");
-            return Optional.of(postImageRepository.save(image));
+            return imageBlobStorage.exists(hash);
         } catch (IOException e) {
-            e.printStackTrace();
-            log.error("failed to save file {}", file.getOriginalFilename());
+            log.warn("could not check blob {}: {}", hash, e.getMessage());
+            return false;
         }
-        return Optional.empty();
     }
 
-    public Path getRoot() {
-        return root;
+    /**
+     * Вставляет строки одним пакетом и возвращает их id в том же порядке. Триггер на вставку
+     * увеличивает счётчики ссылок блобов так же, как при сохранении через JPA.
+     */
+    private List<Long> insertImages(Long postId, List<String> filenames, List<String> hashes) {
+        List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_IMAGE, new String[]{"id"})) {
+                for (int i = 0; i < hashes.size(); i++) {
+                    statement.setLong(1, postId);
+                    statement.setString(2, filenames.get(i));
+                    statement.setString(3, hashes.get(i));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                List<Long> keys = new ArrayList<>(hashes.size());
+                try (ResultSet generated = statement.getGeneratedKeys()) {
+                    while (generated.next())
+                        keys.add(generated.getLong(1));
+                }
+                return keys;
+            }
+        });
+        if (ids == null || ids.size() != hashes.size())
+            throw new IllegalStateException("expected " + hashes.size() + " generated image ids");
+        return ids;
+    }
+
+    static String encodeLegacyFilename(String filename) {
+        String[] partsFileName = filename.split("\\.");
+        String name = partsFileName[0];
+        String extension = partsFileName[1];
+        return Base64.getEncoder().encodeToString(name.getBytes(StandardCharsets.UTF_8)) + "." + extension;
+    }
+
+    /**
+     * Итог загрузки одного файла пакета: сохранённое изображение или причина отказа.
+     */
+    public record UploadResult(String filename, PostImageEntity image, String error) {
+
+        public static UploadResult uploaded(PostImageEntity image) {
+            return new UploadResult(image.getFilename(), image, null);
+        }
+
+        public static UploadResult failed(String filename, String error) {
+            return new UploadResult(filename, null, error);
+        }
     }
 }
@@ -0,0 +1,54 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Хранилище неизменяемых файлов изображений по строковому ключу. Запись по ключу атомарна:
+ * читатель видит либо прежнее содержимое, либо новое целиком. Чтение отсутствующего ключа
+ * бросает NoSuchFileException.
+ */
+public interface BlobStore {
+
+    void put(String key, InputStream content, long length) throws IOException;
+
+    /**
+     * Записывает файл под ключом. Реализация вправе перенести файл, а не копировать его.
+     */
+    default void putFile(String key, Path file) throws IOException {
+        try (InputStream content = Files.newInputStream(file)) {
+            put(key, content, Files.size(file));
+        }
+    }
+
+    InputStream get(String key) throws IOException;
+
+    /**
+     * Пишет length байт начиная с offset в target, не загружая их в память целиком.
+     */
+    void transferTo(String key, long offset, long length, OutputStream target) throws IOException;
+
+    OptionalLong size(String key) throws IOException;
+
+    default boolean exists(String key) throws IOException {
+        return size(key).isPresent();
+    }
+
+    /**
+     * Удаляет ключи одной пачкой; отсутствующие ключи пропускаются.
+     */
+    void delete(Collection<String> keys) throws IOException;
+
+    /**
+     * Файл на локальном диске, если он есть: его можно отдать через sendfile.
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,112 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Файлы, адресуемые SHA-256 своего содержимого. Запись двухфазная: stage копирует поток во
+ * временный локальный файл, попутно считая хеш, а publish кладёт его в BlobStore, только если
+ * такого блоба ещё нет. Между фазами вызывающий фиксирует ссылку на блоб в базе. Уменьшенные
+ * копии хранятся в том же BlobStore под ключом хеша с суффиксом ширины.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ContentAddressedStorage {
+
+    @Getter
+    BlobStore store;
+
+    Path staging;
+
+    public ContentAddressedStorage(BlobStore store, Path staging) {
+        this.store = store;
+        this.staging = staging;
+    }
+
+    public StagedBlob stage(InputStream content) throws IOException {
+        Path temp = createTemp();
+        MessageDigest digest = sha256();
+        try (InputStream input = new DigestInputStream(content, digest)) {
+            Files.copy(input, temp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return new StagedBlob(HexFormat.of().formatHex(digest.digest()), temp);
+    }
+
+    /**
+     * Возвращает true, если блоб записан этим вызовом, и false, если такое содержимое уже было.
+     */
+    public boolean publish(StagedBlob blob) throws IOException {
+        if (store.exists(blob.hash()))
+            return false;
+
+        store.putFile(blob.hash(), blob.temp());
+        return true;
+    }
+
+    public boolean exists(String hash) throws IOException {
+        return store.exists(hash);
+    }
+
+    public InputStream open(String hash) throws IOException {
+        return store.get(hash);
+    }
+
+    public Path createTemp() throws IOException {
+        return Files.createTempFile(Files.createDirectories(staging), "staged-", ".part");
+    }
+
+    public void publishVariant(Path temp, String hash, int width) throws IOException {
+        store.putFile(variantKey(hash, width), temp);
+    }
+
+    /**
+     * Удаляет блобы вместе с перечисленными вариантами одной пачкой.
+     */
+    public void delete(Map<String, List<Integer>> variantWidths) throws IOException {
+        List<String> keys = new ArrayList<>();
+        variantWidths.forEach((hash, widths) -> {
+            keys.add(hash);
+            widths.forEach(width -> keys.add(variantKey(hash, width)));
+        });
+        store.delete(keys);
+    }
+
+    public static String variantKey(String hash, int width) {
+        return hash + ".w" + width;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Временный файл удаляется при закрытии, если publish его не перенёс.
+     */
+    public record StagedBlob(String hash, Path temp) implements AutoCloseable {
+
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Однократный фоновый перенос файлов изображений из плоских каталогов в ShardedLayout.
+ * Файлы переносятся пачками по batchSize с паузой между пачками, чтобы не отнимать диск у
+ * запросов; приложение всё это время работает, читая обе раскладки. Повторный запуск после
+ * рестарта продолжает с оставшихся файлов, а когда переносить нечего, сразу завершается.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ImageLayoutMigration {
+
+    List<ShardedLayout> layouts;
+
+    int batchSize;
+
+    Duration pause;
+
+    AtomicLong migrated = new AtomicLong();
+
+    Thread worker;
+
+    public ImageLayoutMigration(List<ShardedLayout> layouts, int batchSize, Duration pause) {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("batch size must be positive");
+        this.layouts = layouts;
+        this.batchSize = batchSize;
+        this.pause = pause;
+        this.worker = new Thread(this::run, "image-layout-migration");
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        worker.start();
+    }
+
+    public void stop() throws InterruptedException {
+        worker.interrupt();
+        worker.join();
+    }
+
+    public long migrated() {
+        return migrated.get();
+    }
+
+    private void run() {
+        try {
+            for (ShardedLayout layout : layouts)
+                migrate(layout);
+        } catch (InterruptedException e) {
+            log.info("image layout migration interrupted after {} files", migrated.get());
+        }
+    }
+
+    void migrate(ShardedLayout layout) throws InterruptedException {
+        long before = migrated.get();
+        while (!Thread.currentThread().isInterrupted()) {
+            int moved;
+            try {
+                moved = layout.migrateBatch(batchSize);
+            } catch (IOException e) {
+                log.error("image layout migration of {} stopped: {}", layout.getRoot(), e.getMessage());
+                return;
+            }
+            if (moved == 0)
+                break;
+
+            migrated.addAndGet(moved);
+            Thread.sleep(pause.toMillis());
+        }
+        if (migrated.get() > before)
+            log.info("moved {} image files under {} to sharded layout", migrated.get() - before, layout.getRoot());
+    }
+}
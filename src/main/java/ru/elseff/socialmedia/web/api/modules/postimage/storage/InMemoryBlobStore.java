@@ -0,0 +1,62 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хранилище в памяти процесса для тестов и локального запуска без диска.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class InMemoryBlobStore implements BlobStore {
+
+    Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(String key, InputStream content, long length) throws IOException {
+        byte[] bytes = content.readAllBytes();
+        if (bytes.length != length)
+            throw new IOException("expected " + length + " bytes, got " + bytes.length);
+        blobs.put(key, bytes);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return new ByteArrayInputStream(bytes(key));
+    }
+
+    @Override
+    public void transferTo(String key, long offset, long length, OutputStream target) throws IOException {
+        byte[] bytes = bytes(key);
+        if (offset + length > bytes.length)
+            throw new IOException("range is outside of " + key);
+        target.write(bytes, (int) offset, (int) length);
+    }
+
+    @Override
+    public OptionalLong size(String key) {
+        byte[] bytes = blobs.get(key);
+        return bytes != null ? OptionalLong.of(bytes.length) : OptionalLong.empty();
+    }
+
+    @Override
+    public void delete(Collection<String> keys) {
+        keys.forEach(blobs::remove);
+    }
+
+    private byte[] bytes(String key) throws IOException {
+        byte[] bytes = blobs.get(key);
+        if (bytes == null)
+            throw new NoSuchFileException(key);
+        return bytes;
+    }
+}
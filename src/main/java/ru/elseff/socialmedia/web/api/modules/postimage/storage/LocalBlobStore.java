@@ -0,0 +1,119 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Файлы на локальном диске в раскладке ShardedLayout. Запись идёт во временный файл в
+ * root/tmp и переносится на место атомарным переименованием; отдача диапазонов использует
+ * FileChannel.transferTo.
+ */
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LocalBlobStore implements BlobStore {
+
+    @Getter
+    ShardedLayout layout;
+
+    @Override
+    public void put(String key, InputStream content, long length) throws IOException {
+        Path temp = createTemp();
+        try {
+            Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+            move(temp, key);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Файл с того же диска переносится без копирования, с другого копируется через временный.
+     */
+    @Override
+    public void putFile(String key, Path file) throws IOException {
+        try {
+            move(file, key);
+        } catch (AtomicMoveNotSupportedException e) {
+            try (InputStream content = Files.newInputStream(file)) {
+                put(key, content, Files.size(file));
+            }
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(existing(key));
+    }
+
+    @Override
+    public void transferTo(String key, long offset, long length, OutputStream target) throws IOException {
+        try (FileChannel channel = FileChannel.open(existing(key), StandardOpenOption.READ)) {
+            WritableByteChannel output = Channels.newChannel(target);
+            long position = offset;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, output);
+                if (transferred <= 0)
+                    throw new IOException("file was truncated while being sent");
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    @Override
+    public OptionalLong size(String key) throws IOException {
+        try {
+            return OptionalLong.of(Files.size(layout.resolve(key)));
+        } catch (NoSuchFileException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    @Override
+    public void delete(Collection<String> keys) throws IOException {
+        for (String key : keys)
+            layout.delete(key);
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        Path path = layout.resolve(key);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    private Path existing(String key) throws NoSuchFileException {
+        Path path = layout.resolve(key);
+        if (!Files.isRegularFile(path))
+            throw new NoSuchFileException(key);
+        return path;
+    }
+
+    private Path createTemp() throws IOException {
+        return Files.createTempFile(Files.createDirectories(layout.getRoot().resolve("tmp")), "blob-", ".part");
+    }
+
+    private void move(Path source, String key) throws IOException {
+        Path target = layout.path(key);
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
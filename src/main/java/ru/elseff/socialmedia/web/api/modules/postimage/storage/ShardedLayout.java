@@ -0,0 +1,115 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Раскладка файлов по двум уровням каталогов из 256 штук: файл name лежит в
+ * root/ab/cd/name, где abcd — первые hex-символы ключа. Ключом служит само имя, если оно уже
+ * hex-хеш, иначе SHA-256 имени. Пока файлы из прежнего плоского каталога не перенесены,
+ * чтение ищет файл в обеих раскладках, а запись идёт только в новую.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ShardedLayout {
+
+    Path root;
+
+    boolean hashNames;
+
+    private ShardedLayout(Path root, boolean hashNames) {
+        this.root = root;
+        this.hashNames = hashNames;
+    }
+
+    /**
+     * Имена файлов начинаются с hex-хеша содержимого.
+     */
+    public static ShardedLayout forHashes(Path root) {
+        return new ShardedLayout(root, true);
+    }
+
+    public static ShardedLayout forNames(Path root) {
+        return new ShardedLayout(root, false);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public Path path(String name) {
+        String key = hashNames ? name : sha256(name);
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(name);
+    }
+
+    /**
+     * Существующий файл в любой из раскладок, иначе путь в новой: туда же файл могла
+     * перенести миграция между двумя проверками.
+     */
+    public Path resolve(String name) {
+        Path sharded = path(name);
+        if (Files.exists(sharded))
+            return sharded;
+
+        Path flat = root.resolve(name);
+        if (Files.exists(flat))
+            return flat;
+        return sharded;
+    }
+
+    public boolean exists(String name) {
+        return Files.exists(resolve(name));
+    }
+
+    public void delete(String name) throws IOException {
+        Files.deleteIfExists(path(name));
+        Files.deleteIfExists(root.resolve(name));
+    }
+
+    /**
+     * Переносит до batchSize файлов из плоского каталога в новую раскладку и возвращает их
+     * число. Каталоги, в том числе уже созданные шарды, пропускаются.
+     */
+    public int migrateBatch(int batchSize) throws IOException {
+        if (!Files.isDirectory(root))
+            return 0;
+
+        List<Path> batch = new ArrayList<>(batchSize);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root, Files::isRegularFile)) {
+            for (Path entry : entries) {
+                if (hashNames && entry.getFileName().toString().length() < 4)
+                    continue;
+                batch.add(entry);
+                if (batch.size() == batchSize)
+                    break;
+            }
+        }
+
+        for (Path file : batch) {
+            Path target = path(file.getFileName().toString());
+            Files.createDirectories(target.getParent());
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return batch.size();
+    }
+
+    private static String sha256(String name) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(name.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
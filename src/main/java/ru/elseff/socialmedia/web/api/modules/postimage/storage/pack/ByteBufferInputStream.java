@@ -0,0 +1,47 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage.pack;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Поток над буфером, в том числе над отображённым в память участком сегмента.
+ */
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+final class ByteBufferInputStream extends InputStream {
+
+    ByteBuffer buffer;
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) {
+        if (length == 0)
+            return 0;
+        if (!buffer.hasRemaining())
+            return -1;
+
+        int read = Math.min(length, buffer.remaining());
+        buffer.get(target, offset, read);
+        return read;
+    }
+
+    @Override
+    public long skip(long count) {
+        int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+}
@@ -0,0 +1,455 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage.pack;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.BlobStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Хранилище мелких блобов в больших файлах-сегментах, как в Haystack: блобы дописываются в
+ * активный сегмент, а индекс ключ → (сегмент, смещение, длина) держится в памяти, так что
+ * чтение не открывает файлов и не ходит по каталогам. Заполненный сегмент запечатывается и
+ * отображается в память.
+ * <p>
+ * Индекс периодически сохраняется в файл index вместе с длиной каждого сегмента на момент
+ * сохранения. При открытии индекс читается из файла, а записи, дописанные после сохранения,
+ * восстанавливаются просмотром хвостов сегментов; недописанная запись в конце активного
+ * сегмента отрезается. Если файла индекса нет или он повреждён, сегменты просматриваются
+ * целиком.
+ * <p>
+ * Удалённые и перезаписанные блобы остаются в сегментах мусором до compact: он переписывает
+ * живые записи сегмента в активный сегмент и удаляет старый файл.
+ * <p>
+ * put и delete возвращаются только после того, как записи сброшены на диск. Перед сохранением
+ * индекса сбрасывается активный сегмент, так что индекс не ссылается на записи, которые могут
+ * пропасть при сбое питания.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PackBlobStore implements BlobStore, Closeable {
+
+    static final String INDEX = "index";
+
+    static final String SEGMENT_SUFFIX = ".pack";
+
+    static final int INDEX_MAGIC = 0x50494458;
+
+    static final int INDEX_VERSION = 1;
+
+    static final int READ_ATTEMPTS = 3;
+
+    Path root;
+
+    long segmentSize;
+
+    Map<String, Needle> index = new ConcurrentHashMap<>();
+
+    NavigableMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+
+    ReentrantLock writeLock = new ReentrantLock();
+
+    @NonFinal
+    volatile Segment active;
+
+    @NonFinal
+    Map<Integer, Long> checkpointed = Map.of();
+
+    private PackBlobStore(Path root, long segmentSize) {
+        this.root = root;
+        this.segmentSize = segmentSize;
+    }
+
+    public static PackBlobStore open(Path root, long segmentSize) throws IOException {
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("segment size must be between 1 byte and 2 GB");
+
+        PackBlobStore store = new PackBlobStore(root, segmentSize);
+        store.load();
+        return store;
+    }
+
+    @Override
+    public void put(String key, InputStream content, long length) throws IOException {
+        byte[] keyBytes = keyBytes(key);
+        if (Segment.recordSize(keyBytes.length, length) > Integer.MAX_VALUE)
+            throw new IOException("blob " + key + " is too large for a pack segment");
+
+        writeLock.lock();
+        try {
+            Needle needle = append(Segment.PUT, keyBytes, content, length);
+            active.force();
+            track(key, needle);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return new ByteBufferInputStream(read(key));
+    }
+
+    @Override
+    public void transferTo(String key, long offset, long length, OutputStream target) throws IOException {
+        ByteBuffer content = read(key);
+        if (offset < 0 || length < 0 || offset + length > content.remaining())
+            throw new IOException("range is outside of " + key);
+
+        WritableByteChannel output = Channels.newChannel(target);
+        ByteBuffer range = content.slice((int) offset, (int) length);
+        while (range.hasRemaining())
+            output.write(range);
+    }
+
+    @Override
+    public OptionalLong size(String key) {
+        Needle needle = index.get(key);
+        return needle != null ? OptionalLong.of(needle.length()) : OptionalLong.empty();
+    }
+
+    /**
+     * Для каждого существующего ключа дописывает запись об удалении; место освобождает compact.
+     */
+    @Override
+    public void delete(Collection<String> keys) throws IOException {
+        writeLock.lock();
+        try {
+            boolean appended = false;
+            for (String key : keys) {
+                if (!index.containsKey(key))
+                    continue;
+                append(Segment.DELETE, keyBytes(key), InputStream.nullInputStream(), 0);
+                untrack(key);
+                appended = true;
+            }
+            if (appended)
+                active.force();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Байты удалённых и перезаписанных блобов во всех сегментах.
+     */
+    public long garbage() {
+        return segments.values().stream()
+                .mapToLong(Segment::garbage)
+                .sum();
+    }
+
+    /**
+     * Переписывает запечатанные сегменты, в которых мусор составляет не меньше minGarbageRatio
+     * их размера, начиная со старых, и возвращает число освобождённых байт. Чтения и записи
+     * во время сжатия продолжаются: каждая живая запись переносится под блокировкой записи,
+     * только если индекс всё ещё указывает на неё. Старый файл удаляется после checkpoint,
+     * который сбрасывает перенесённые записи на диск.
+     */
+    public synchronized long compact(double minGarbageRatio) throws IOException {
+        long reclaimed = 0;
+        for (Segment segment : List.copyOf(segments.values())) {
+            if (!segment.sealed() || segment.garbage() < segment.size() * minGarbageRatio)
+                continue;
+
+            long garbage = segment.garbage();
+            boolean oldest = segment.getId() == segments.firstKey();
+            Segment.scan(segment.contents(), 0, (type, key, offset, length) -> relocate(segment, oldest, type, key,
+                    offset, length));
+            if (segment.live().get() != 0) {
+                log.error("pack segment {} still has {} live bytes after compaction, keeping it",
+                        segment.getId(), segment.live().get());
+                continue;
+            }
+
+            checkpoint();
+            segments.remove(segment.getId());
+            segment.close();
+            Files.delete(segment.getPath());
+            reclaimed += garbage;
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Сохраняет индекс. Запись не останавливается: длины сегментов фиксируются до обхода
+     * индекса, а всё, что дописано после, при открытии восстановится из хвостов сегментов.
+     * Несброшенные записи бывают только в активном сегменте: при смене активного старый
+     * сбрасывается, поэтому до записи индекса достаточно сбросить активный. Файл индекса
+     * сбрасывается на диск до переименования.
+     */
+    public synchronized void checkpoint() throws IOException {
+        Map<Integer, Long> coverage = new TreeMap<>();
+        Segment current;
+        writeLock.lock();
+        try {
+            segments.values().forEach(segment -> coverage.put(segment.getId(), segment.size()));
+            current = active;
+        } finally {
+            writeLock.unlock();
+        }
+        if (coverage.equals(checkpointed))
+            return;
+        current.force();
+
+        Path temp = root.resolve(INDEX + ".tmp");
+        CRC32C crc = new CRC32C();
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream output = new DataOutputStream(new CheckedOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(file)), crc))) {
+            output.writeInt(INDEX_MAGIC);
+            output.writeInt(INDEX_VERSION);
+            output.writeInt(coverage.size());
+            for (Map.Entry<Integer, Long> segment : coverage.entrySet()) {
+                output.writeInt(segment.getKey());
+                output.writeLong(segment.getValue());
+            }
+            for (Map.Entry<String, Needle> entry : index.entrySet()) {
+                byte[] key = keyBytes(entry.getKey());
+                output.writeShort(key.length);
+                output.write(key);
+                output.writeInt(entry.getValue().segment());
+                output.writeLong(entry.getValue().offset());
+                output.writeLong(entry.getValue().length());
+            }
+            output.writeShort(0);
+            output.writeInt((int) crc.getValue());
+            output.flush();
+            file.force(false);
+        }
+        Files.move(temp, root.resolve(INDEX), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        checkpointed = coverage;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        checkpoint();
+        for (Segment segment : segments.values())
+            segment.close();
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(root);
+        Map<Integer, Long> coverage = readIndex();
+
+        List<Integer> ids;
+        try (Stream<Path> files = Files.list(root)) {
+            ids = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        for (int id : ids)
+            segments.put(id, Segment.open(segmentPath(id), id));
+
+        if (segments.values().stream().anyMatch(segment -> segment.size() < coverage.getOrDefault(segment.getId(), 0L))
+                || index.values().stream().anyMatch(needle -> !segments.containsKey(needle.segment()))) {
+            log.warn("pack index under {} does not match its segments, rebuilding it from segments", root);
+            index.clear();
+            coverage.clear();
+        }
+
+        for (Segment segment : segments.values()) {
+            if (segment.getId() != segments.lastKey())
+                segment.seal();
+
+            long end = Segment.scan(segment.contents(), coverage.getOrDefault(segment.getId(), 0L),
+                    (type, key, offset, length) -> apply(segment.getId(), type, key, offset, length));
+            if (end == segment.size())
+                continue;
+            if (segment.sealed()) {
+                log.error("pack segment {} is damaged after byte {}, blobs after it are lost", segment.getId(), end);
+            } else {
+                log.warn("truncating unfinished record at byte {} of pack segment {}", end, segment.getId());
+                segment.truncate(end);
+            }
+        }
+
+        index.forEach((key, needle) -> segments.get(needle.segment()).live()
+                .addAndGet(Segment.recordSize(keyBytes(key).length, needle.length())));
+
+        active = segments.isEmpty() ? createSegment(1) : segments.lastEntry().getValue();
+        log.info("opened pack store {} with {} blobs in {} segments", root, index.size(), segments.size());
+    }
+
+    /**
+     * Читает сохранённый индекс в index и возвращает длины сегментов, которые он покрывает.
+     * Отсутствующий или повреждённый индекс даёт пустое покрытие.
+     */
+    private Map<Integer, Long> readIndex() throws IOException {
+        Path file = root.resolve(INDEX);
+        if (!Files.exists(file))
+            return new HashMap<>();
+
+        CRC32C crc = new CRC32C();
+        try (DataInputStream input = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file)), crc))) {
+            if (input.readInt() != INDEX_MAGIC || input.readInt() != INDEX_VERSION)
+                throw new IOException("unknown pack index format");
+
+            Map<Integer, Long> coverage = new HashMap<>();
+            for (int i = input.readInt(); i > 0; i--)
+                coverage.put(input.readInt(), input.readLong());
+
+            Map<String, Needle> entries = new HashMap<>();
+            for (int keyLength = input.readShort(); keyLength > 0; keyLength = input.readShort()) {
+                String key = new String(input.readNBytes(keyLength), StandardCharsets.UTF_8);
+                entries.put(key, new Needle(input.readInt(), input.readLong(), input.readLong()));
+            }
+            int expected = (int) crc.getValue();
+            if (input.readInt() != expected)
+                throw new IOException("pack index checksum mismatch");
+
+            index.putAll(entries);
+            return coverage;
+        } catch (EOFException e) {
+            log.warn("pack index under {} is truncated, rebuilding it from segments", root);
+        } catch (IOException e) {
+            log.warn("pack index under {} is unreadable, rebuilding it from segments: {}", root, e.getMessage());
+        }
+        return new HashMap<>();
+    }
+
+    private void apply(int segment, byte type, byte[] key, long offset, long length) {
+        String name = new String(key, StandardCharsets.UTF_8);
+        if (type == Segment.PUT)
+            index.put(name, new Needle(segment, offset, length));
+        else
+            index.remove(name);
+    }
+
+    /**
+     * Переносит запись сжимаемого сегмента в активный. PUT переносится, если индекс ещё
+     * указывает на него. DELETE нужен, пока в более старых сегментах может лежать удалённый
+     * блоб, и только если ключ с тех пор не записан заново.
+     */
+    private void relocate(Segment segment, boolean oldest, byte type, byte[] key, long offset, long length)
+            throws IOException {
+        String name = new String(key, StandardCharsets.UTF_8);
+        writeLock.lock();
+        try {
+            if (type == Segment.PUT) {
+                Needle needle = index.get(name);
+                if (needle != null && needle.segment() == segment.getId() && needle.offset() == offset)
+                    track(name, append(Segment.PUT, key,
+                            new ByteBufferInputStream(segment.read(offset, length)), length));
+            } else if (!oldest && !index.containsKey(name)) {
+                append(Segment.DELETE, key, InputStream.nullInputStream(), 0);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Вызывается под writeLock. Если запись не помещается в активный сегмент, он сбрасывается
+     * на диск, запечатывается и открывается следующий. Новую запись сбрасывает вызывающий.
+     */
+    private Needle append(byte type, byte[] key, InputStream content, long length) throws IOException {
+        Segment segment = active;
+        if (segment.size() > 0 && segment.size() + Segment.recordSize(key.length, length) > segmentSize) {
+            segment.force();
+            segment.seal();
+            segment = createSegment(segment.getId() + 1);
+            active = segment;
+        }
+        return new Needle(segment.getId(), segment.append(type, key, content, length), length);
+    }
+
+    private void track(String key, Needle needle) {
+        Needle previous = index.put(key, needle);
+        long recordSize = Segment.recordSize(keyBytes(key).length, needle.length());
+        if (previous != null)
+            segments.get(previous.segment()).live().addAndGet(-Segment.recordSize(keyBytes(key).length,
+                    previous.length()));
+        segments.get(needle.segment()).live().addAndGet(recordSize);
+    }
+
+    private void untrack(String key) {
+        Needle previous = index.remove(key);
+        if (previous != null)
+            segments.get(previous.segment()).live().addAndGet(-Segment.recordSize(keyBytes(key).length,
+                    previous.length()));
+    }
+
+    /**
+     * Сегмент может быть удалён сжатием между чтением индекса и чтением данных: тогда индекс
+     * уже указывает на новое место, и чтение повторяется.
+     */
+    private ByteBuffer read(String key) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            Needle needle = index.get(key);
+            if (needle == null)
+                throw new NoSuchFileException(key);
+
+            Segment segment = segments.get(needle.segment());
+            try {
+                if (segment != null)
+                    return segment.read(needle.offset(), needle.length());
+            } catch (ClosedChannelException e) {
+                if (attempt >= READ_ATTEMPTS)
+                    throw e;
+            }
+            if (attempt >= READ_ATTEMPTS)
+                throw new IOException("pack segment " + needle.segment() + " of " + key + " is gone");
+        }
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Segment segment = Segment.open(segmentPath(id), id);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Path segmentPath(int id) {
+        return root.resolve(String.format("%08d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private static byte[] keyBytes(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0 || bytes.length > Short.MAX_VALUE)
+            throw new IllegalArgumentException("pack key must be between 1 and " + Short.MAX_VALUE + " bytes");
+        return bytes;
+    }
+
+    record Needle(int segment, long offset, long length) {
+    }
+}
@@ -0,0 +1,37 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage.pack;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+
+/**
+ * Периодически сжимает сегменты PackBlobStore, в которых накопилось не меньше garbageRatio
+ * мусора, и сохраняет индекс, чтобы при рестарте просматривать только короткие хвосты.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PackCompactor {
+
+    PackBlobStore store;
+
+    double garbageRatio;
+
+    @Scheduled(fixedDelayString = "${post.images.blobs.pack.compaction-delay}")
+    public long compact() {
+        try {
+            long reclaimed = store.compact(garbageRatio);
+            if (reclaimed > 0)
+                log.info("pack compaction reclaimed {} bytes", reclaimed);
+            store.checkpoint();
+            return reclaimed;
+        } catch (IOException e) {
+            log.error("pack compaction failed, will retry: {}", e.getMessage());
+            return 0;
+        }
+    }
+}
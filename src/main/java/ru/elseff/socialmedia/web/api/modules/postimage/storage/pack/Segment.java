@@ -0,0 +1,212 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage.pack;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Файл сегмента: записи только дописываются в конец. Запись — заголовок (магическое число,
+ * тип, длина ключа, длина данных), ключ, данные и CRC32C ключа с данными. Удаление — запись
+ * типа DELETE без данных. Запечатанный сегмент больше не растёт и читается через отображение
+ * в память целиком; в активном отображается только читаемый участок, так что чтение блоба не
+ * копирует его в кучу.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+final class Segment implements Closeable {
+
+    static final int MAGIC = 0x50494d47;
+
+    static final byte PUT = 1;
+
+    static final byte DELETE = 2;
+
+    static final int HEADER_SIZE = 15;
+
+    static final int TRAILER_SIZE = 4;
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    @Getter
+    int id;
+
+    @Getter
+    Path path;
+
+    FileChannel channel;
+
+    AtomicLong live = new AtomicLong();
+
+    @NonFinal
+    volatile long size;
+
+    @NonFinal
+    volatile ByteBuffer mapped;
+
+    private Segment(int id, Path path, FileChannel channel) throws IOException {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    static Segment open(Path path, int id) throws IOException {
+        return new Segment(id, path, FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE));
+    }
+
+    static long recordSize(int keyLength, long length) {
+        return HEADER_SIZE + keyLength + length + TRAILER_SIZE;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Байты записей, на которые указывает индекс.
+     */
+    AtomicLong live() {
+        return live;
+    }
+
+    long garbage() {
+        return size - live.get();
+    }
+
+    /**
+     * Дописывает запись и возвращает смещение её данных. При ошибке файл обрезается до
+     * прежней длины, так что недописанная запись не остаётся в сегменте.
+     */
+    long append(byte type, byte[] key, InputStream data, long length) throws IOException {
+        long start = size;
+        CRC32C crc = new CRC32C();
+        crc.update(key);
+        try {
+            long position = write(ByteBuffer.allocate(HEADER_SIZE + key.length)
+                    .putInt(MAGIC)
+                    .put(type)
+                    .putShort((short) key.length)
+                    .putLong(length)
+                    .put(key)
+                    .flip(), start);
+
+            byte[] buffer = new byte[(int) Math.min(Math.max(length, 1), BUFFER_SIZE)];
+            long remaining = length;
+            while (remaining > 0) {
+                int read = data.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0)
+                    throw new IOException("expected " + length + " bytes, got " + (length - remaining));
+                crc.update(buffer, 0, read);
+                position = write(ByteBuffer.wrap(buffer, 0, read), position);
+                remaining -= read;
+            }
+            if (data.read() >= 0)
+                throw new IOException("expected " + length + " bytes, got more");
+
+            write(ByteBuffer.allocate(TRAILER_SIZE).putInt((int) crc.getValue()).flip(), position);
+        } catch (IOException e) {
+            channel.truncate(start);
+            throw e;
+        }
+        size = start + recordSize(key.length, length);
+        return start + HEADER_SIZE + key.length;
+    }
+
+    /**
+     * Отображает сегмент в память; после этого в него ничего не пишется.
+     */
+    void seal() throws IOException {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    boolean sealed() {
+        return mapped != null;
+    }
+
+    ByteBuffer read(long offset, long length) throws IOException {
+        ByteBuffer sealed = mapped;
+        if (sealed != null)
+            return sealed.slice((int) offset, (int) length);
+
+        if (offset + length > size)
+            throw new IOException("segment " + id + " ends before byte " + (offset + length));
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    /**
+     * Сбрасывает дописанные записи на диск. Длина файла сбрасывается вместе с данными, прочие
+     * метаданные не нужны.
+     */
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Содержимое сегмента целиком для последовательного просмотра записей.
+     */
+    ByteBuffer contents() throws IOException {
+        ByteBuffer sealed = mapped;
+        return sealed != null ? sealed.duplicate() : channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    void truncate(long length) throws IOException {
+        channel.truncate(length);
+        size = length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Проходит по записям начиная с from и возвращает позицию за последней целой записью.
+     * Просмотр останавливается на первой записи с неверным заголовком или контрольной суммой.
+     */
+    static long scan(ByteBuffer contents, long from, RecordVisitor visitor) throws IOException {
+        int position = (int) from;
+        while (position + HEADER_SIZE <= contents.limit()) {
+            byte type = contents.get(position + 4);
+            int keyLength = contents.getShort(position + 5);
+            long length = contents.getLong(position + 7);
+            if (contents.getInt(position) != MAGIC || (type != PUT && type != DELETE) || keyLength <= 0
+                    || length < 0 || position + recordSize(keyLength, length) > contents.limit())
+                break;
+
+            int end = (int) (position + recordSize(keyLength, length));
+            CRC32C crc = new CRC32C();
+            crc.update(contents.slice(position + HEADER_SIZE, keyLength + (int) length));
+            if (contents.getInt(end - TRAILER_SIZE) != (int) crc.getValue())
+                break;
+
+            byte[] key = new byte[keyLength];
+            contents.get(position + HEADER_SIZE, key);
+            visitor.visit(type, key, position + HEADER_SIZE + keyLength, length);
+            position = end;
+        }
+        return position;
+    }
+
+    private long write(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+        return position;
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+
+        void visit(byte type, byte[] key, long offset, long length) throws IOException;
+    }
+}
@@ -0,0 +1,193 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage.s3;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.util.StreamUtils;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.BlobStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Хранилище в S3-совместимом сервисе (AWS S3, MinIO, Ceph RGW) через REST API с адресацией
+ * бакета в пути. Тела запросов и ответов передаются потоком; тело PUT не хешируется
+ * (UNSIGNED-PAYLOAD), поэтому загрузка не читает файл дважды. Удаление идёт запросами
+ * DeleteObjects по 1000 ключей.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class S3BlobStore implements BlobStore {
+
+    static final int DELETE_BATCH_SIZE = 1000;
+
+    HttpClient httpClient;
+
+    String endpoint;
+
+    String bucket;
+
+    SigV4Signer signer;
+
+    Duration timeout;
+
+    public S3BlobStore(HttpClient httpClient, URI endpoint, String bucket, SigV4Signer signer, Duration timeout) {
+        String base = endpoint.toString();
+        this.httpClient = httpClient;
+        this.endpoint = base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+        this.bucket = bucket;
+        this.signer = signer;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void put(String key, InputStream content, long length) throws IOException {
+        BodyPublisher body = length > 0
+                ? BodyPublishers.fromPublisher(BodyPublishers.ofInputStream(() -> content), length)
+                : BodyPublishers.noBody();
+        expect(send("PUT", objectUri(key), Map.of(), SigV4Signer.UNSIGNED_PAYLOAD, body, BodyHandlers.discarding()),
+                key, 200);
+    }
+
+    @Override
+    public void putFile(String key, Path file) throws IOException {
+        BodyPublisher body = Files.size(file) > 0 ? BodyPublishers.ofFile(file) : BodyPublishers.noBody();
+        expect(send("PUT", objectUri(key), Map.of(), SigV4Signer.UNSIGNED_PAYLOAD, body, BodyHandlers.discarding()),
+                key, 200);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        HttpResponse<InputStream> response = send("GET", objectUri(key), Map.of(), SigV4Signer.UNSIGNED_PAYLOAD,
+                BodyPublishers.noBody(), BodyHandlers.ofInputStream());
+        return body(response, key, 200);
+    }
+
+    @Override
+    public void transferTo(String key, long offset, long length, OutputStream target) throws IOException {
+        if (length == 0)
+            return;
+
+        HttpResponse<InputStream> response = send("GET", objectUri(key),
+                Map.of("range", "bytes=" + offset + "-" + (offset + length - 1)), SigV4Signer.UNSIGNED_PAYLOAD,
+                BodyPublishers.noBody(), BodyHandlers.ofInputStream());
+        try (InputStream content = body(response, key, 206)) {
+            if (StreamUtils.copyRange(content, target, 0, length - 1) != length)
+                throw new IOException("object " + key + " was truncated while being sent");
+        }
+    }
+
+    @Override
+    public OptionalLong size(String key) throws IOException {
+        HttpResponse<Void> response = send("HEAD", objectUri(key), Map.of(), SigV4Signer.UNSIGNED_PAYLOAD,
+                BodyPublishers.noBody(), BodyHandlers.discarding());
+        if (response.statusCode() == 404)
+            return OptionalLong.empty();
+        expect(response, key, 200);
+        return response.headers().firstValueAsLong("content-length");
+    }
+
+    @Override
+    public void delete(Collection<String> keys) throws IOException {
+        List<String> batch = new ArrayList<>(Math.min(keys.size(), DELETE_BATCH_SIZE));
+        for (String key : keys) {
+            batch.add(key);
+            if (batch.size() == DELETE_BATCH_SIZE) {
+                deleteObjects(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty())
+            deleteObjects(batch);
+    }
+
+    private void deleteObjects(List<String> keys) throws IOException {
+        StringBuilder xml = new StringBuilder("<Delete><Quiet>true</Quiet>");
+        for (String key : keys)
+            xml.append("<Object><Key>").append(escapeXml(key)).append("</Key></Object>");
+        byte[] body = xml.append("</Delete>").toString().getBytes(StandardCharsets.UTF_8);
+
+        HttpResponse<String> response = send("POST", URI.create(endpoint + "/" + SigV4Signer.encode(bucket, false) + "?delete"),
+                Map.of("content-md5", md5Base64(body), "content-type", "application/xml"),
+                SigV4Signer.sha256Hex(body), BodyPublishers.ofByteArray(body), BodyHandlers.ofString());
+        expect(response, bucket, 200);
+        if (response.body().contains("<Error>"))
+            throw new IOException("some objects were not deleted: " + response.body());
+    }
+
+    private URI objectUri(String key) {
+        return URI.create(endpoint + "/" + SigV4Signer.encode(bucket, false) + "/" + SigV4Signer.encode(key, true));
+    }
+
+    private <T> HttpResponse<T> send(String method,
+                                     URI uri,
+                                     Map<String, String> headers,
+                                     String payloadHash,
+                                     BodyPublisher body,
+                                     BodyHandler<T> handler) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .method(method, body);
+        headers.forEach(request::header);
+        signer.sign(method, uri, headers, payloadHash, Instant.now()).forEach(request::header);
+        try {
+            return httpClient.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(method + " " + uri + " was interrupted");
+        }
+    }
+
+    private static InputStream body(HttpResponse<InputStream> response, String key, int status) throws IOException {
+        if (response.statusCode() != status) {
+            response.body().close();
+            expect(response, key, status);
+        }
+        return response.body();
+    }
+
+    private static void expect(HttpResponse<?> response, String key, int status) throws IOException {
+        if (response.statusCode() == 404)
+            throw new NoSuchFileException(key);
+        if (response.statusCode() != status)
+            throw new IOException(response.request().method() + " " + key + " failed with status " + response.statusCode());
+    }
+
+    private static String md5Base64(byte[] body) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String escapeXml(String value) {
+        return value.replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;")
+                .replace("\"", "&quot;")
+                .replace("'", "&apos;");
+    }
+}
@@ -0,0 +1,125 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.upload;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.multipart.MultipartFile;
+import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.postimage.service.PostImageService;
+import ru.elseff.socialmedia.web.api.modules.postimage.service.PostImageService.UploadResult;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage.StagedBlob;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Пакетная загрузка изображений поста. Пост и его владелец проверяются один раз, файлы
+ * параллельно копируются во временные и переносятся в хранилище на imageUploadExecutor вне
+ * транзакции, одинаковые файлы пакета переносятся один раз. Только потом
+ * PostImageService.addPostImages в короткой транзакции вставляет строки перенесённых. Блобы,
+ * чьи строки так и не вставились, остаются без ссылок и их забирает ImageBlobCollector после
+ * grace. Результаты идут в порядке файлов; временные файлы удаляются в любом случае.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class BatchImageUpload {
+
+    PostService postService;
+
+    ContentAddressedStorage imageBlobStorage;
+
+    PostImageService postImageService;
+
+    /**
+     * Ограниченный пул для записи и переноса файлов пакетной загрузки.
+     */
+    Executor imageUploadExecutor;
+
+    public List<UploadResult> upload(List<MultipartFile> files, Long postId) {
+        PostEntity post = postService.findById(postId);
+        if (!postService.isCurrentUserOwnPost(post))
+            throw new IllegalArgumentException("someone else's post");
+
+        List<CompletableFuture<StagedBlob>> staging = files.stream()
+                .map(file -> CompletableFuture.supplyAsync(() -> stage(file), imageUploadExecutor))
+                .toList();
+
+        UploadResult[] results = new UploadResult[files.size()];
+        List<Integer> indexes = new ArrayList<>(files.size());
+        List<String> filenames = new ArrayList<>(files.size());
+        List<String> hashes = new ArrayList<>(files.size());
+        try {
+            Map<String, CompletableFuture<Void>> publishing = new HashMap<>();
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    StagedBlob blob = staging.get(i).join();
+                    publishing.computeIfAbsent(blob.hash(),
+                            hash -> CompletableFuture.runAsync(() -> publish(blob), imageUploadExecutor));
+                } catch (CompletionException e) {
+                    log.error("failed to save file {}: {}", files.get(i).getOriginalFilename(), e.getCause().getMessage());
+                    results[i] = UploadResult.failed(files.get(i).getOriginalFilename(), "could not store file");
+                }
+            }
+            for (int i = 0; i < files.size(); i++) {
+                if (results[i] != null)
+                    continue;
+                String hash = staging.get(i).join().hash();
+                try {
+                    publishing.get(hash).join();
+                    indexes.add(i);
+                    filenames.add(files.get(i).getOriginalFilename());
+                    hashes.add(hash);
+                } catch (CompletionException e) {
+                    log.error("failed to save file {}: {}", files.get(i).getOriginalFilename(), e.getCause().getMessage());
+                    results[i] = UploadResult.failed(files.get(i).getOriginalFilename(), "could not store file");
+                }
+            }
+            if (!hashes.isEmpty()) {
+                List<UploadResult> added = postImageService.addPostImages(postId, filenames, hashes);
+                for (int i = 0; i < added.size(); i++)
+                    results[indexes.get(i)] = added.get(i);
+            }
+        } finally {
+            staging.forEach(future -> future.thenAccept(BatchImageUpload::discard));
+        }
+        return List.of(results);
+    }
+
+    private StagedBlob stage(MultipartFile file) {
+        try {
+            requireNonNull(file.getOriginalFilename(), "file name is missing");
+            return imageBlobStorage.stage(file.getInputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void publish(StagedBlob blob) {
+        try {
+            imageBlobStorage.publish(blob);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void discard(StagedBlob blob) {
+        try {
+            blob.close();
+        } catch (IOException e) {
+            log.warn("could not delete staged file {}: {}", blob.temp(), e.getMessage());
+        }
+    }
+}
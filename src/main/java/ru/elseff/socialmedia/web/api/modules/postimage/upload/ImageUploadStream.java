@@ -0,0 +1,121 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.upload;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.springframework.http.MediaType;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Поток загружаемого изображения: по мере чтения считает байты, обрывает загрузку сверх
+ * maxSize и запоминает первые байты, по которым определяется тип содержимого. Всё это
+ * происходит в том же проходе, в котором поток хешируется и пишется на диск. Если первые
+ * SIGNATURE_LENGTH байт не похожи на изображение, загрузка обрывается сразу, а не после
+ * записи всего файла.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ImageUploadStream extends FilterInputStream {
+
+    static final int SIGNATURE_LENGTH = 12;
+
+    static final int SKIP_BUFFER_SIZE = 8 * 1024;
+
+    static final MediaType IMAGE_WEBP = MediaType.parseMediaType("image/webp");
+
+    long maxSize;
+
+    byte[] signature = new byte[SIGNATURE_LENGTH];
+
+    @NonFinal
+    long size;
+
+    public ImageUploadStream(InputStream source, long maxSize) {
+        super(source);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            if (size < SIGNATURE_LENGTH)
+                signature[(int) size] = (byte) b;
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            if (size < SIGNATURE_LENGTH)
+                System.arraycopy(b, off, signature, (int) size, (int) Math.min(read, SIGNATURE_LENGTH - size));
+            count(read);
+        }
+        return read;
+    }
+
+    /**
+     * Пропущенные байты тоже читаются, чтобы попасть в размер и сигнатуру.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0)
+            return 0;
+
+        byte[] scratch = new byte[(int) Math.min(n, SKIP_BUFFER_SIZE)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(scratch, 0, (int) Math.min(scratch.length, n - skipped));
+            if (read < 0)
+                break;
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Тип по сигнатуре файла, а не по заявленному клиентом Content-Type.
+     */
+    public Optional<MediaType> contentType() {
+        byte[] head = Arrays.copyOf(signature, (int) Math.min(size, SIGNATURE_LENGTH));
+        if (startsWith(head, 0, 0xFF, 0xD8, 0xFF))
+            return Optional.of(MediaType.IMAGE_JPEG);
+        if (startsWith(head, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A))
+            return Optional.of(MediaType.IMAGE_PNG);
+        if (startsWith(head, 0, 'G', 'I', 'F', '8', '7', 'a') || startsWith(head, 0, 'G', 'I', 'F', '8', '9', 'a'))
+            return Optional.of(MediaType.IMAGE_GIF);
+        if (startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P'))
+            return Optional.of(IMAGE_WEBP);
+        return Optional.empty();
+    }
+
+    private void count(int read) {
+        long before = size;
+        size += read;
+        if (size > maxSize)
+            throw new IllegalArgumentException("image is larger than " + maxSize + " bytes");
+        if (before < SIGNATURE_LENGTH && size >= SIGNATURE_LENGTH && contentType().isEmpty())
+            throw new IllegalArgumentException("file is not a supported image");
+    }
+
+    private static boolean startsWith(byte[] head, int offset, int... expected) {
+        if (head.length < offset + expected.length)
+            return false;
+        for (int i = 0; i < expected.length; i++) {
+            if ((head[offset + i] & 0xFF) != expected[i])
+                return false;
+        }
+        return true;
+    }
+}
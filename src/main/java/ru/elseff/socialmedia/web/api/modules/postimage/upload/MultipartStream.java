@@ -0,0 +1,289 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.upload;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.MediaType;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Потоковый разбор тела multipart/form-data (RFC 7578) за один проход с буфером постоянного
+ * размера. Части читаются по очереди: тело части — поток, который заканчивается перед
+ * следующим разделителем, а переход к следующей части пропускает непрочитанный остаток.
+ * Нарушение формата — IllegalArgumentException, обрыв тела — EOFException.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class MultipartStream {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    static final int MAX_HEADERS_SIZE = 8 * 1024;
+
+    static final int MAX_BOUNDARY_LENGTH = 70;
+
+    InputStream input;
+
+    /**
+     * CRLF--boundary. Перед телом условно стоит CRLF, чтобы первый разделитель искался так же,
+     * как остальные.
+     */
+    byte[] delimiter;
+
+    byte[] buffer = new byte[BUFFER_SIZE];
+
+    @NonFinal
+    int head;
+
+    @NonFinal
+    int tail;
+
+    @NonFinal
+    boolean finished;
+
+    @NonFinal
+    Part current;
+
+    public MultipartStream(InputStream input, String boundary) {
+        if (boundary.isEmpty() || boundary.length() > MAX_BOUNDARY_LENGTH)
+            throw new IllegalArgumentException("multipart boundary must be between 1 and 70 characters");
+
+        this.input = input;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.buffer[0] = '\r';
+        this.buffer[1] = '\n';
+        this.tail = 2;
+    }
+
+    /**
+     * Граница из заголовка Content-Type запроса.
+     */
+    public static String boundary(String contentType) {
+        if (contentType == null)
+            throw new IllegalArgumentException("request is not multipart/form-data");
+
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        String boundary = mediaType.getParameter("boundary");
+        if (!MediaType.MULTIPART_FORM_DATA.includes(mediaType) || boundary == null)
+            throw new IllegalArgumentException("request is not multipart/form-data");
+        return boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")
+                ? boundary.substring(1, boundary.length() - 1)
+                : boundary;
+    }
+
+    /**
+     * Следующая часть или null, если достигнут завершающий разделитель.
+     */
+    public Part nextPart() throws IOException {
+        if (finished)
+            return null;
+
+        (current != null ? current.getBody() : new PartInputStream()).transferTo(OutputStream.nullOutputStream());
+        head += delimiter.length;
+        if (!fill(2))
+            throw new EOFException("multipart body ends without a closing delimiter");
+        if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            head += 2;
+            finished = true;
+            current = null;
+            return null;
+        }
+        skipLine();
+
+        current = new Part(readHeaders(), new PartInputStream());
+        return current;
+    }
+
+    /**
+     * Пропускает допустимые после разделителя пробелы и CRLF.
+     */
+    private void skipLine() throws IOException {
+        while (fill(1) && (buffer[head] == ' ' || buffer[head] == '\t'))
+            head++;
+        if (!fill(2) || buffer[head] != '\r' || buffer[head + 1] != '\n')
+            throw new IllegalArgumentException("multipart delimiter is not followed by CRLF");
+        head += 2;
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        int size = 0;
+        while (true) {
+            int end = indexOfLineEnd();
+            if (end < 0)
+                throw new IllegalArgumentException("multipart part headers are too large or truncated");
+            size += end - head + 2;
+            if (size > MAX_HEADERS_SIZE)
+                throw new IllegalArgumentException("multipart part headers are too large");
+
+            String line = new String(buffer, head, end - head, StandardCharsets.UTF_8);
+            head = end + 2;
+            if (line.isEmpty())
+                return headers;
+
+            int colon = line.indexOf(':');
+            if (colon <= 0)
+                throw new IllegalArgumentException("malformed multipart header: " + line);
+            headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+        }
+    }
+
+    /**
+     * Позиция CRLF, завершающего строку заголовка, или -1, если строка длиннее лимита или поток
+     * закончился.
+     */
+    private int indexOfLineEnd() throws IOException {
+        int from = head;
+        while (true) {
+            for (int i = from; i + 1 < tail; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n')
+                    return i;
+            }
+            int scanned = tail - head;
+            if (scanned >= MAX_HEADERS_SIZE || !fill(scanned + 1))
+                return -1;
+            from = head + Math.max(0, scanned - 1);
+        }
+    }
+
+    /**
+     * Добивается, чтобы в буфере было не меньше count байт начиная с head, сдвигая данные в
+     * начало буфера. Возвращает false, если поток закончился раньше.
+     */
+    private boolean fill(int count) throws IOException {
+        if (tail - head >= count)
+            return true;
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        while (tail < count) {
+            int read = input.read(buffer, tail, buffer.length - tail);
+            if (read < 0)
+                return false;
+            tail += read;
+        }
+        return true;
+    }
+
+    /**
+     * Позиция начала разделителя в [from, tail) или -1.
+     */
+    private int indexOfDelimiter(int from) {
+        byte first = delimiter[0];
+        for (int i = from; i <= tail - delimiter.length; i++) {
+            if (buffer[i] != first)
+                continue;
+            int j = 1;
+            while (j < delimiter.length && buffer[i + j] == delimiter[j])
+                j++;
+            if (j == delimiter.length)
+                return i;
+        }
+        return -1;
+    }
+
+    @Getter
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    public static class Part {
+
+        Map<String, String> headers;
+
+        String name;
+
+        String filename;
+
+        String contentType;
+
+        InputStream body;
+
+        Part(Map<String, String> headers, InputStream body) {
+            this.headers = headers;
+            this.body = body;
+            ContentDisposition disposition = ContentDisposition.parse(headers.getOrDefault("content-disposition",
+                    "form-data"));
+            this.name = disposition.getName();
+            this.filename = disposition.getFilename();
+            this.contentType = headers.get("content-type");
+        }
+    }
+
+    /**
+     * Тело текущей части: отдаёт байты буфера, пока в нём не встретится разделитель. Хвост
+     * буфера короче разделителя придерживается, пока не станет ясно, что это не его начало.
+     * Буфер просматривается один раз: поиск продолжается с места, где закончился прошлый, а
+     * найденный разделитель запоминается до конца части.
+     */
+    private class PartInputStream extends InputStream {
+
+        @NonFinal
+        boolean ended;
+
+        /**
+         * Позиция в буфере, до которой разделитель уже искали и не нашли.
+         */
+        @NonFinal
+        int searched = head;
+
+        /**
+         * Позиция найденного разделителя или -1.
+         */
+        @NonFinal
+        int found = -1;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (length == 0)
+                return 0;
+
+            while (!ended) {
+                int available = available();
+                if (available > 0) {
+                    int read = Math.min(length, available);
+                    System.arraycopy(buffer, head, target, offset, read);
+                    head += read;
+                    return read;
+                }
+                if (found == head) {
+                    ended = true;
+                    break;
+                }
+                int shift = head;
+                if (!fill(tail - head + 1))
+                    throw new EOFException("multipart body ends inside a part");
+                searched -= shift - head;
+            }
+            return -1;
+        }
+
+        /**
+         * Байты, которые точно принадлежат части.
+         */
+        @Override
+        public int available() {
+            if (ended)
+                return 0;
+            if (found < 0) {
+                found = indexOfDelimiter(searched);
+                searched = Math.max(searched, tail - delimiter.length + 1);
+            }
+            return found >= 0 ? found - head : Math.max(0, searched - head);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.upload;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.PostImageEntity;
+import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.postimage.service.PostImageService;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage.StagedBlob;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Загрузка изображения прямо из тела запроса, без multipart-разбора Spring: тот сначала
+ * сохраняет часть во временный файл целиком, а затем её ещё раз копирует stage. Здесь каждый
+ * байт части читается один раз — разбор multipart, проверка размера и сигнатуры, SHA-256 и
+ * запись во временный файл хранилища идут в одном проходе с буфером постоянного размера.
+ * Чтение тела идёт вне транзакции; в ней только вставка строки и перенос файла.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class StreamingImageUpload {
+
+    static final String IMAGE_PART = "image";
+
+    PostService postService;
+
+    ContentAddressedStorage imageBlobStorage;
+
+    PostImageService postImageService;
+
+    long maxSize;
+
+    public PostImageEntity upload(String contentType, InputStream body, Long postId) throws IOException {
+        PostEntity post = postService.findById(postId);
+        if (!postService.isCurrentUserOwnPost(post))
+            throw new IllegalArgumentException("someone else's post");
+
+        MultipartStream multipart = new MultipartStream(body, MultipartStream.boundary(contentType));
+        MultipartStream.Part part;
+        while ((part = multipart.nextPart()) != null) {
+            if (!IMAGE_PART.equals(part.getName()) || part.getFilename() == null)
+                continue;
+
+            ImageUploadStream image = new ImageUploadStream(part.getBody(), maxSize);
+            try (StagedBlob blob = imageBlobStorage.stage(image)) {
+                if (image.contentType().isEmpty())
+                    throw new IllegalArgumentException("file is not a supported image");
+
+                log.debug("streamed {} bytes of {} for post {}", image.size(), image.contentType().get(), postId);
+                return postImageService.addPostImage(postId, part.getFilename(), blob);
+            }
+        }
+        throw new IllegalArgumentException("request has no " + IMAGE_PART + " part");
+    }
+}
@@ -0,0 +1,114 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.variant;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.MediaType;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Уменьшает изображения средствами javax.imageio. Размеры читаются из заголовка до
+ * декодирования, поэтому изображение больше maxPixels отклоняется, не заняв памяти под
+ * растр. Крупные исходники декодируются с прореживанием: в память попадает растр не более
+ * чем вдвое шире целевого, а дальше он сглаживается билинейной интерполяцией.
+ */
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ImageResizer {
+
+    long maxPixels;
+
+    public ImageSize size(InputStream source) throws IOException {
+        try (ImageInputStream input = open(source)) {
+            ImageReader reader = reader(input);
+            try {
+                return checkedSize(reader);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Пропорционально уменьшает изображение до width и пишет его в target: PNG, если у
+     * исходника есть прозрачность, иначе JPEG. Изображение не шире width не увеличивается.
+     */
+    public ResizedImage resize(InputStream source, int width, Path target) throws IOException {
+        BufferedImage image;
+        try (ImageInputStream input = open(source)) {
+            ImageReader reader = reader(input);
+            try {
+                ImageSize size = checkedSize(reader);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, size.width() / (width * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                image = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        boolean alpha = image.getColorModel().hasAlpha();
+        int targetWidth = Math.min(width, image.getWidth());
+        int targetHeight = Math.max(1, (int) Math.round((double) image.getHeight() * targetWidth / image.getWidth()));
+
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        MediaType contentType = alpha ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG;
+        if (!ImageIO.write(scaled, alpha ? "png" : "jpg", target.toFile()))
+            throw new IOException("no image writer for " + contentType);
+
+        return new ResizedImage(targetWidth, targetHeight, contentType, Files.size(target));
+    }
+
+    private static ImageInputStream open(InputStream source) throws IOException {
+        ImageInputStream input = ImageIO.createImageInputStream(source);
+        if (input == null)
+            throw new IOException("cannot open image stream");
+        return input;
+    }
+
+    private static ImageReader reader(ImageInputStream input) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext())
+            throw new IOException("unsupported image format");
+
+        ImageReader reader = readers.next();
+        reader.setInput(input, true, true);
+        return reader;
+    }
+
+    private ImageSize checkedSize(ImageReader reader) throws IOException {
+        ImageSize size = new ImageSize(reader.getWidth(0), reader.getHeight(0));
+        if ((long) size.width() * size.height() > maxPixels)
+            throw new IOException("image " + size.width() + "x" + size.height() + " exceeds " + maxPixels + " pixels");
+        return size;
+    }
+
+    public record ImageSize(int width, int height) {
+    }
+
+    public record ResizedImage(int width, int height, MediaType contentType, long size) {
+    }
+}
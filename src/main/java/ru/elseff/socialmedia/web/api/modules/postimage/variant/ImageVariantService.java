@@ -0,0 +1,208 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.variant;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.elseff.socialmedia.web.api.modules.postimage.content.ImageFile;
+import ru.elseff.socialmedia.web.api.modules.postimage.event.PostImageUploadedEvent;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage;
+import ru.elseff.socialmedia.web.api.modules.postimage.variant.ImageResizer.ImageSize;
+import ru.elseff.socialmedia.web.api.modules.postimage.variant.ImageResizer.ResizedImage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Уменьшенные копии изображений заданных ширин. После коммита загрузки они строятся на
+ * ограниченном пуле; если пул переполнен или задача упала, вариант строится при первом
+ * запросе, а если пул переполнен и тогда, то в потоке самого запроса. Одновременные запросы
+ * одного варианта ждут одну и ту же задачу, а пока варианта нет, отдаётся оригинал.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ImageVariantService {
+
+    static final String SELECT_VARIANT = "select content_type from image_variant where blob_hash = ? and width = ?";
+
+    static final String SELECT_BLOB_WIDTH = "select width from image_blob where hash = ?";
+
+    static final String UPDATE_BLOB_SIZE = "update image_blob set width = ?, height = ? where hash = ? and width is null";
+
+    static final String INSERT_VARIANT = "insert into image_variant (blob_hash, width, height, content_type, size) " +
+            "values (?, ?, ?, ?, ?) on conflict do nothing";
+
+    JdbcTemplate jdbcTemplate;
+
+    ContentAddressedStorage storage;
+
+    ImageResizer resizer;
+
+    Executor executor;
+
+    /**
+     * Ширины по возрастанию.
+     */
+    List<Integer> widths;
+
+    Duration timeout;
+
+    Map<Key, CompletableFuture<Optional<ImageFile>>> inFlight = new ConcurrentHashMap<>();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageUploaded(PostImageUploadedEvent event) {
+        if (event.getBlobHash() == null)
+            return;
+
+        for (int width : widths)
+            generate(event.getBlobHash(), width);
+    }
+
+    /**
+     * Вариант наименьшей из настроенных ширин, не меньшей запрошенной. Пустой результат
+     * значит, что нужно отдать оригинал: он не шире запрошенного, запрошенная ширина больше
+     * всех настроенных или вариант не удалось построить за timeout.
+     */
+    public Optional<ImageFile> findVariant(String hash, int requestedWidth) throws IOException {
+        if (requestedWidth <= 0)
+            throw new IllegalArgumentException("width must be positive");
+
+        Optional<Integer> width = widths.stream()
+                .filter(candidate -> candidate >= requestedWidth)
+                .findFirst();
+        if (width.isEmpty())
+            return Optional.empty();
+
+        Optional<ImageFile> stored = findStored(hash, width.get());
+        if (stored.isPresent())
+            return stored;
+
+        List<Integer> sourceWidth = jdbcTemplate.queryForList(SELECT_BLOB_WIDTH, Integer.class, hash);
+        if (!sourceWidth.isEmpty() && sourceWidth.get(0) != null && sourceWidth.get(0) <= width.get())
+            return Optional.empty();
+
+        try {
+            return generate(hash, width.get(), true).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.info("variant {} of image blob {} is not ready, serving original", width.get(), hash);
+        } catch (ExecutionException e) {
+            log.debug("serving original of image blob {} instead of variant {}", hash, width.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Optional.empty();
+    }
+
+    CompletableFuture<Optional<ImageFile>> generate(String hash, int width) {
+        return generate(hash, width, false);
+    }
+
+    /**
+     * Возвращает уже запущенную задачу для этого варианта или ставит новую. Задача снимается
+     * с учёта по завершении, так что после неудачи следующий запрос попробует снова. Если пул
+     * переполнен, задача запроса выполняется в его потоке: иначе при заполненной очереди
+     * вариант не построился бы никогда, а клиент всё время получал бы оригинал.
+     */
+    private CompletableFuture<Optional<ImageFile>> generate(String hash, int width, boolean onRequest) {
+        Key key = new Key(hash, width);
+        CompletableFuture<Optional<ImageFile>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<ImageFile>> running = inFlight.putIfAbsent(key, future);
+        if (running != null)
+            return running;
+
+        Runnable task = () -> {
+            try {
+                future.complete(build(hash, width));
+            } catch (Exception e) {
+                log.warn("could not build variant {} of image blob {}: {}", width, hash, e.toString());
+                future.completeExceptionally(e);
+            } finally {
+                inFlight.remove(key, future);
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (onRequest) {
+                log.debug("variant pool is full, building variant {} of image blob {} on request", width, hash);
+                task.run();
+            } else {
+                inFlight.remove(key, future);
+                future.completeExceptionally(e);
+                log.debug("variant pool is full, variant {} of image blob {} will be built on request", width, hash);
+            }
+        }
+        return future;
+    }
+
+    private Optional<ImageFile> build(String hash, int width) throws IOException {
+        Optional<ImageFile> stored = findStored(hash, width);
+        if (stored.isPresent())
+            return stored;
+
+        ImageSize size;
+        try (InputStream source = storage.open(hash)) {
+            size = resizer.size(source);
+        }
+        jdbcTemplate.update(UPDATE_BLOB_SIZE, size.width(), size.height(), hash);
+        if (size.width() <= width)
+            return Optional.empty();
+
+        Path temp = storage.createTemp();
+        try {
+            ResizedImage resized;
+            try (InputStream source = storage.open(hash)) {
+                resized = resizer.resize(source, width, temp);
+            }
+            storage.publishVariant(temp, hash, width);
+            try {
+                jdbcTemplate.update(INSERT_VARIANT, hash, width, resized.height(),
+                        resized.contentType().toString(), resized.size());
+            } catch (RuntimeException e) {
+                storage.getStore().delete(List.of(ContentAddressedStorage.variantKey(hash, width)));
+                throw e;
+            }
+            return Optional.of(new ImageFile(storage.getStore(), ContentAddressedStorage.variantKey(hash, width),
+                    resized.size(), resized.contentType()));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Optional<ImageFile> findStored(String hash, int width) throws IOException {
+        List<String> contentType = jdbcTemplate.queryForList(SELECT_VARIANT, String.class, hash, width);
+        if (contentType.isEmpty())
+            return Optional.empty();
+
+        String key = ContentAddressedStorage.variantKey(hash, width);
+        OptionalLong size = storage.getStore().size(key);
+        if (size.isEmpty())
+            return Optional.empty();
+        return Optional.of(new ImageFile(storage.getStore(), key, size.getAsLong(), MediaType.parseMediaType(contentType.get(0))));
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    record Key(String hash, int width) {
+    }
+}
@@ -0,0 +1,116 @@
+package ru.elseff.socialmedia.web.api.modules.postreaction.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import ru.elseff.socialmedia.persistense.ReactionType;
+import ru.elseff.socialmedia.web.api.modules.postreaction.dto.PostReactionsDto;
+import ru.elseff.socialmedia.web.api.modules.postreaction.service.PostReactionService;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/posts/{postId}/reactions")
+@SecurityRequirement(name = "Bearer Authentication")
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Tag(name = "Post Reaction Controller", description = "Реакции на посты")
+public class PostReactionController {
+
+    PostReactionService postReactionService;
+
+    @Operation(
+            method = "GET",
+            summary = "Найти реакции",
+            description = "Получить количество реакций каждого типа на пост и реакцию текущего пользователя",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Реакции успешно найдены",
+                            content = @Content(
+                                    schema = @Schema(implementation = PostReactionsDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Пост не найден",
+                            content = @Content
+                    )
+            }
+    )
+    @GetMapping
+    @ResponseStatus(HttpStatus.OK)
+    public PostReactionsDto findReactions(@Parameter(description = "id поста", required = true)
+                                          @PathVariable("postId") Long postId) {
+        return getReactions(postId);
+    }
+
+    @Operation(
+            method = "PUT",
+            summary = "Поставить реакцию",
+            description = "Поставить реакцию на пост или заменить уже поставленную",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Реакция поставлена",
+                            content = @Content(
+                                    schema = @Schema(implementation = PostReactionsDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Пост не найден",
+                            content = @Content
+                    )
+            }
+    )
+    @PutMapping
+    @ResponseStatus(HttpStatus.OK)
+    public PostReactionsDto react(@Parameter(description = "id поста", required = true)
+                                  @PathVariable("postId") Long postId,
+                                  @Parameter(description = "Тип реакции", required = true)
+                                  @RequestParam("type") ReactionType type) {
+        postReactionService.react(postId, type);
+
+        return getReactions(postId);
+    }
+
+    @Operation(
+            method = "DELETE",
+            summary = "Убрать реакцию",
+            description = "Убрать реакцию текущего пользователя с поста",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "204",
+                            description = "Реакция убрана",
+                            content = @Content
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Реакция не найдена",
+                            content = @Content
+                    )
+            }
+    )
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void removeReaction(@Parameter(description = "id поста", required = true)
+                               @PathVariable("postId") Long postId) {
+        postReactionService.removeReaction(postId);
+    }
+
+    private PostReactionsDto getReactions(Long postId) {
+        return PostReactionsDto.builder()
+                .postId(postId)
+                .counts(postReactionService.findCounts(postId))
+                .reaction(postReactionService.findCurrentUserReaction(postId).orElse(null))
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+package ru.elseff.socialmedia.web.api.modules.postreaction.counter;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import ru.elseff.socialmedia.persistense.ReactionType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Прирост счётчиков реакций, ещё не записанный в post_reaction_count.
+ * Каждый счётчик — LongAdder, поэтому одновременные реакции на популярный пост
+ * не конкурируют за одну ячейку. Счётчик, не менявшийся между двумя сбросами, удаляется;
+ * писатель, успевший попасть в удалённый счётчик, сам забирает из него остаток
+ * и переносит в актуальный, так что прирост не теряется и не учитывается дважды.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReactionCounters {
+
+    ConcurrentMap<Key, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public void add(Long postId, ReactionType type, long delta) {
+        Key key = new Key(postId, type);
+        LongAdder counter = pending.computeIfAbsent(key, k -> new LongAdder());
+        counter.add(delta);
+
+        while (pending.get(key) != counter) {
+            long orphan = counter.sumThenReset();
+            if (orphan == 0)
+                return;
+            counter = pending.computeIfAbsent(key, k -> new LongAdder());
+            counter.add(orphan);
+        }
+    }
+
+    public long get(Long postId, ReactionType type) {
+        LongAdder counter = pending.get(new Key(postId, type));
+
+        return counter != null ? counter.sum() : 0;
+    }
+
+    public Map<ReactionType, Long> withPending(Long postId, Map<ReactionType, Long> base) {
+        Map<ReactionType, Long> counts = new EnumMap<>(ReactionType.class);
+        counts.putAll(base);
+        for (ReactionType type : ReactionType.values()) {
+            long delta = get(postId, type);
+            if (delta != 0)
+                counts.merge(type, delta, Long::sum);
+        }
+        counts.values().removeIf(count -> count <= 0);
+
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Забирает накопленный прирост, упорядоченный по посту и типу реакции.
+     */
+    public List<Delta> drain() {
+        List<Delta> deltas = new ArrayList<>();
+
+        pending.forEach((key, counter) -> {
+            long delta = counter.sumThenReset();
+            if (delta == 0 && pending.remove(key, counter))
+                delta = counter.sumThenReset();
+            if (delta != 0)
+                deltas.add(new Delta(key.postId(), key.type(), delta));
+        });
+        deltas.sort(Comparator.comparing(Delta::getPostId).thenComparing(Delta::getType));
+
+        return deltas;
+    }
+
+    public void remove(Long postId) {
+        for (ReactionType type : ReactionType.values())
+            pending.remove(new Key(postId, type));
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    private record Key(Long postId, ReactionType type) {
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    public static class Delta {
+
+        Long postId;
+
+        ReactionType type;
+
+        long delta;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.elseff.socialmedia.web.api.modules.postreaction.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import ru.elseff.socialmedia.persistense.ReactionType;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "Post reactions dto")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PostReactionsDto {
+
+    Long postId;
+
+    Map<ReactionType, Long> counts;
+
+    ReactionType reaction;
+}
@@ -0,0 +1,24 @@
+package ru.elseff.socialmedia.web.api.modules.postreaction.event;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+import ru.elseff.socialmedia.persistense.ReactionType;
+
+/**
+ * Реакция пользователя сменилась с {@code removed} на {@code added}; любое из них может быть null.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostReactionChangedEvent {
+
+    Long postId;
+
+    ReactionType removed;
+
+    ReactionType added;
+}
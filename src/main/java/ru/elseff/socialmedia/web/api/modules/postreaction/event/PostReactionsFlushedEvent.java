@@ -0,0 +1,22 @@
+package ru.elseff.socialmedia.web.api.modules.postreaction.event;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+import ru.elseff.socialmedia.persistense.ReactionType;
+
+import java.util.Map;
+
+@Getter
+@ToString
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostReactionsFlushedEvent {
+
+    /**
+     * Записанный в базу прирост по постам и типам реакций.
+     */
+    Map<Long, Map<ReactionType, Long>> deltas;
+}
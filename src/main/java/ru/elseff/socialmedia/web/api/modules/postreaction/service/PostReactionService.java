@@ -0,0 +1,174 @@
+package ru.elseff.socialmedia.web.api.modules.postreaction.service;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.elseff.socialmedia.persistense.PostReactionEntity;
+import ru.elseff.socialmedia.persistense.PostReactionID;
+import ru.elseff.socialmedia.persistense.ReactionType;
+import ru.elseff.socialmedia.persistense.dao.PostReactionRepository;
+import ru.elseff.socialmedia.persistense.dao.PostRepository;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostDeletedEvent;
+import ru.elseff.socialmedia.web.api.modules.postreaction.counter.ReactionCounters;
+import ru.elseff.socialmedia.web.api.modules.postreaction.event.PostReactionChangedEvent;
+import ru.elseff.socialmedia.web.api.modules.postreaction.event.PostReactionsFlushedEvent;
+import ru.elseff.socialmedia.web.api.modules.user.service.UserService;
+
+import javax.annotation.PreDestroy;
+import javax.transaction.Transactional;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Реакции на посты. Строка пользователя в post_reaction пишется сразу и не даёт поставить
+ * реакцию дважды, а счётчики копятся в памяти и сбрасываются в post_reaction_count пачкой
+ * по расписанию, чтобы популярный пост не превращался в одну горячую строку.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostReactionService {
+
+    static final String UPSERT_COUNT = "insert into post_reaction_count (post_id, type, count) " +
+            "select ?, ?, ? where exists (select 1 from post_entity where id = ?) " +
+            "on conflict (post_id, type) do update set count = post_reaction_count.count + excluded.count";
+
+    static final String SELECT_COUNTS = "select post_id, type, count from post_reaction_count " +
+            "where post_id = any(?) and count <> 0";
+
+    PostReactionRepository postReactionRepository;
+
+    PostRepository postRepository;
+
+    UserService userService;
+
+    ApplicationEventPublisher eventPublisher;
+
+    ReactionCounters reactionCounters;
+
+    JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void react(Long postId, ReactionType type) {
+        if (!postRepository.existsById(postId))
+            throw new IllegalArgumentException("post not found");
+
+        Long userId = userService.getCurrentAuthUser().getId();
+
+        if (postReactionRepository.insertIfAbsent(postId, userId, type.name()) > 0) {
+            eventPublisher.publishEvent(new PostReactionChangedEvent(postId, null, type));
+            return;
+        }
+
+        postReactionRepository.findByIdForUpdate(new PostReactionID(postId, userId))
+                .filter(reaction -> reaction.getType() != type)
+                .ifPresent(reaction -> {
+                    ReactionType previous = reaction.getType();
+                    reaction.setType(type);
+                    eventPublisher.publishEvent(new PostReactionChangedEvent(postId, previous, type));
+                });
+    }
+
+    @Transactional
+    public void removeReaction(Long postId) {
+        Long userId = userService.getCurrentAuthUser().getId();
+
+        PostReactionEntity reaction = postReactionRepository.findByIdForUpdate(new PostReactionID(postId, userId))
+                .orElseThrow(() -> new IllegalArgumentException("reaction not found"));
+
+        postReactionRepository.delete(reaction);
+        eventPublisher.publishEvent(new PostReactionChangedEvent(postId, reaction.getType(), null));
+    }
+
+    @Transactional
+    public Optional<ReactionType> findCurrentUserReaction(Long postId) {
+        Long userId = userService.getCurrentAuthUser().getId();
+
+        return postReactionRepository.findById(new PostReactionID(postId, userId))
+                .map(PostReactionEntity::getType);
+    }
+
+    @Transactional
+    public Map<ReactionType, Long> findCounts(Long postId) {
+        if (!postRepository.existsById(postId))
+            throw new IllegalArgumentException("post not found");
+
+        return withPending(postId, findPersistedCounts(List.of(postId)).getOrDefault(postId, Map.of()));
+    }
+
+    /**
+     * Счётчики, уже сброшенные в базу, без учёта накопленных в памяти, одним запросом на все
+     * посты.
+     */
+    @Transactional
+    public Map<Long, Map<ReactionType, Long>> findPersistedCounts(Collection<Long> postIds) {
+        if (postIds.isEmpty())
+            return Map.of();
+
+        Map<Long, Map<ReactionType, Long>> counts = new HashMap<>();
+        jdbcTemplate.query(SELECT_COUNTS, (RowCallbackHandler) row -> counts
+                        .computeIfAbsent(row.getLong("post_id"), id -> new EnumMap<>(ReactionType.class))
+                        .put(ReactionType.valueOf(row.getString("type")), row.getLong("count")),
+                (Object) postIds.stream().mapToLong(Long::longValue).toArray());
+
+        return counts;
+    }
+
+    public Map<ReactionType, Long> withPending(Long postId, Map<ReactionType, Long> persisted) {
+        return reactionCounters.withPending(postId, persisted);
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "#{T(org.springframework.boot.convert.DurationStyle)" +
+            ".detectAndParse('${post.reactions.flush-delay}').toMillis()}")
+    public void flush() {
+        List<ReactionCounters.Delta> deltas = reactionCounters.drain();
+        if (deltas.isEmpty())
+            return;
+
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_COUNT, deltas, deltas.size(), (statement, delta) -> {
+                statement.setLong(1, delta.getPostId());
+                statement.setString(2, delta.getType().name());
+                statement.setLong(3, delta.getDelta());
+                statement.setLong(4, delta.getPostId());
+            });
+        } catch (DataAccessException e) {
+            log.warn("could not flush {} reaction counters, will retry: {}", deltas.size(), e.getMessage());
+            deltas.forEach(delta -> reactionCounters.add(delta.getPostId(), delta.getType(), delta.getDelta()));
+            return;
+        }
+
+        Map<Long, Map<ReactionType, Long>> flushed = new HashMap<>();
+        for (ReactionCounters.Delta delta : deltas)
+            flushed.computeIfAbsent(delta.getPostId(), id -> new EnumMap<>(ReactionType.class))
+                    .put(delta.getType(), delta.getDelta());
+        eventPublisher.publishEvent(new PostReactionsFlushedEvent(flushed));
+    }
+
+    @TransactionalEventListener
+    public void onReactionChanged(PostReactionChangedEvent event) {
+        if (event.getRemoved() != null)
+            reactionCounters.add(event.getPostId(), event.getRemoved(), -1);
+        if (event.getAdded() != null)
+            reactionCounters.add(event.getPostId(), event.getAdded(), 1);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        reactionCounters.remove(event.getPostId());
+    }
+}
@@ -0,0 +1,18 @@
+package ru.elseff.socialmedia.web.api.modules.postview.event;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Set;
+
+@Getter
+@ToString
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostViewsFlushedEvent {
+
+    Set<Long> postIds;
+}
@@ -0,0 +1,113 @@
+package ru.elseff.socialmedia.web.api.modules.postview.service;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostDeletedEvent;
+import ru.elseff.socialmedia.web.api.modules.postview.event.PostViewsFlushedEvent;
+import ru.elseff.socialmedia.web.api.modules.postview.sketch.HyperLogLog;
+import ru.elseff.socialmedia.web.api.modules.postview.sketch.PostViewSketches;
+
+import javax.annotation.PreDestroy;
+import javax.transaction.Transactional;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Приблизительный подсчёт уникальных просмотров поста. Просмотры копятся в скетчах в памяти
+ * и по расписанию сливаются с post_view_sketch прямо в базе, поэтому несколько экземпляров
+ * приложения могут сбрасывать свои скетчи независимо.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostViewService {
+
+    static final String MERGE_SKETCH = "insert into post_view_sketch (post_id, sketch) " +
+            "select ?, ? where exists (select 1 from post_entity where id = ?) " +
+            "on conflict (post_id) do update set sketch = (" +
+            "select decode(string_agg(lpad(to_hex(greatest(" +
+            "get_byte(post_view_sketch.sketch, i), get_byte(excluded.sketch, i))), 2, '0'), '' order by i), 'hex') " +
+            "from generate_series(0, length(excluded.sketch) - 1) as i), " +
+            "updated_at = now()";
+
+    static final String SELECT_SKETCHES = "select post_id, sketch from post_view_sketch where post_id = any(?)";
+
+    PostViewSketches postViewSketches;
+
+    ApplicationEventPublisher eventPublisher;
+
+    JdbcTemplate jdbcTemplate;
+
+    public void recordView(Long postId, Principal viewer) {
+        if (viewer != null)
+            postViewSketches.record(postId, HyperLogLog.hash(viewer.getName()));
+    }
+
+    /**
+     * Оценка по уже слитым в базу скетчам, без просмотров с последнего сброса.
+     */
+    @Transactional
+    public long findCount(Long postId) {
+        return findCounts(List.of(postId)).getOrDefault(postId, 0L);
+    }
+
+    /**
+     * То же сразу для всех постов страницы, одним запросом. Постов без просмотров в ответе нет.
+     */
+    @Transactional
+    public Map<Long, Long> findCounts(Collection<Long> postIds) {
+        if (postIds.isEmpty())
+            return Map.of();
+
+        Map<Long, Long> counts = new HashMap<>();
+        jdbcTemplate.query(SELECT_SKETCHES, (RowCallbackHandler) row -> counts.put(row.getLong("post_id"),
+                        HyperLogLog.fromByteArray(row.getBytes("sketch")).estimate()),
+                (Object) postIds.stream().mapToLong(Long::longValue).toArray());
+
+        return counts;
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "#{T(org.springframework.boot.convert.DurationStyle)" +
+            ".detectAndParse('${post.views.flush-delay}').toMillis()}")
+    public void flush() {
+        Map<Long, HyperLogLog> sketches = postViewSketches.drain();
+        if (sketches.isEmpty())
+            return;
+
+        List<Map.Entry<Long, HyperLogLog>> entries = new ArrayList<>(sketches.entrySet());
+        try {
+            jdbcTemplate.batchUpdate(MERGE_SKETCH, entries, entries.size(), (statement, entry) -> {
+                statement.setLong(1, entry.getKey());
+                statement.setBytes(2, entry.getValue().toByteArray());
+                statement.setLong(3, entry.getKey());
+            });
+        } catch (DataAccessException e) {
+            log.warn("could not merge {} view sketches, will retry: {}", entries.size(), e.getMessage());
+            sketches.forEach(postViewSketches::merge);
+            return;
+        }
+
+        eventPublisher.publishEvent(new PostViewsFlushedEvent(new HashSet<>(sketches.keySet())));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        postViewSketches.remove(event.getPostId());
+    }
+}
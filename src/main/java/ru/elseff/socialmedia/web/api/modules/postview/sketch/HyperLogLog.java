@@ -0,0 +1,104 @@
+package ru.elseff.socialmedia.web.api.modules.postview.sketch;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog с точностью 10: 1024 регистра по байту, стандартная ошибка оценки около 3%.
+ * Размер не зависит от числа просмотров, а объединение двух скетчей — поэлементный максимум,
+ * поэтому их можно сливать в любом порядке и сколько угодно раз.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class HyperLogLog {
+
+    public static final int PRECISION = 10;
+
+    public static final int REGISTERS = 1 << PRECISION;
+
+    static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    byte[] registers;
+
+    public HyperLogLog() {
+        this(new byte[REGISTERS]);
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public static HyperLogLog fromByteArray(byte[] bytes) {
+        if (bytes.length != REGISTERS)
+            throw new IllegalArgumentException("invalid sketch size");
+
+        return new HyperLogLog(bytes.clone());
+    }
+
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+    /**
+     * @return изменился ли скетч
+     */
+    public boolean add(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+
+        if (registers[index] >= rank)
+            return false;
+
+        synchronized (this) {
+            if (registers[index] >= rank)
+                return false;
+            registers[index] = rank;
+
+            return true;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        byte[] otherRegisters = other.toByteArray();
+
+        synchronized (this) {
+            for (int i = 0; i < REGISTERS; i++)
+                if (otherRegisters[i] > registers[i])
+                    registers[i] = otherRegisters[i];
+        }
+    }
+
+    public synchronized byte[] toByteArray() {
+        return registers.clone();
+    }
+
+    public long estimate() {
+        byte[] snapshot = toByteArray();
+        double sum = 0;
+        int zeros = 0;
+
+        for (byte register : snapshot) {
+            sum += 1.0 / (1L << register);
+            if (register == 0)
+                zeros++;
+        }
+
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0)
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+
+        return Math.round(estimate);
+    }
+}
@@ -0,0 +1,58 @@
+package ru.elseff.socialmedia.web.api.modules.postview.sketch;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Скетчи просмотров, накопленные с последнего слияния с post_view_sketch.
+ * Держатся только для постов, которые смотрели за этот промежуток, по 1 КБ на пост.
+ * Если писатель изменил скетч, который сброс уже забрал, он повторяет запись в новом скетче:
+ * повторное добавление в HyperLogLog ничего не портит.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostViewSketches {
+
+    ConcurrentMap<Long, HyperLogLog> pending = new ConcurrentHashMap<>();
+
+    public void record(Long postId, long hash) {
+        HyperLogLog sketch = pending.computeIfAbsent(postId, id -> new HyperLogLog());
+
+        if (sketch.add(hash) && pending.get(postId) != sketch)
+            pending.computeIfAbsent(postId, id -> new HyperLogLog()).add(hash);
+    }
+
+    public void merge(Long postId, HyperLogLog other) {
+        HyperLogLog sketch = pending.computeIfAbsent(postId, id -> new HyperLogLog());
+        sketch.merge(other);
+
+        if (pending.get(postId) != sketch)
+            pending.computeIfAbsent(postId, id -> new HyperLogLog()).merge(other);
+    }
+
+    /**
+     * Забирает накопленные скетчи, упорядоченные по id поста.
+     */
+    public Map<Long, HyperLogLog> drain() {
+        Map<Long, HyperLogLog> sketches = new TreeMap<>();
+        for (Long postId : pending.keySet()) {
+            HyperLogLog sketch = pending.remove(postId);
+            if (sketch != null)
+                sketches.put(postId, sketch);
+        }
+
+        return sketches;
+    }
+
+    public void remove(Long postId) {
+        pending.remove(postId);
+    }
+
+    public int size() {
+        return pending.size();
+    }
+}
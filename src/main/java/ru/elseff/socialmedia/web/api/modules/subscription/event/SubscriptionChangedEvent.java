@@ -0,0 +1,23 @@
+package ru.elseff.socialmedia.web.api.modules.subscription.event;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Подписчик subscriberId подписался на userId (subscribed = true) или отписался от него.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SubscriptionChangedEvent {
+
+    Long userId;
+
+    Long subscriberId;
+
+    boolean subscribed;
+}
@@ -3,11 +3,13 @@ package ru.elseff.socialmedia.web.api.modules.subscription.service;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import ru.elseff.socialmedia.persistense.SubscriptionEntity;
 import ru.elseff.socialmedia.persistense.SubscriptionID;
 import ru.elseff.socialmedia.persistense.UserEntity;
 import ru.elseff.socialmedia.persistense.dao.SubscriptionRepository;
+import ru.elseff.socialmedia.web.api.modules.subscription.event.SubscriptionChangedEvent;
 import ru.elseff.socialmedia.web.api.modules.user.service.UserService;
 
 import javax.transaction.Transactional;
@@ -22,6 +24,12 @@ public class SubscriptionService {
 
     UserService userService;
 
+    ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Ленты строятся по самим подпискам, в том числе не принятым: каждое создание или удаление
+     * подписки публикует SubscriptionChangedEvent, а смена accepted на ленты не влияет.
+     */
     @Transactional
     public String changeSub(String username) {
         UserEntity user = userService.findByUsername(username);
@@ -34,6 +42,7 @@ public class SubscriptionService {
         Optional<SubscriptionEntity> subOptional = subscriptionRepository.findByUserAndSubscriber(user, subscriber);
         if (subOptional.isPresent()) {//если мы подписаны на него, то удаляем нашу подписку и отменяем его, если она есть
             subscriptionRepository.delete(subOptional.get());// удалили нашу подписку
+            eventPublisher.publishEvent(new SubscriptionChangedEvent(user.getId(), subscriber.getId(), false));
             /*
             если он подписан на нас, статус его подписки - не принята
             */
@@ -59,6 +68,7 @@ public class SubscriptionService {
                         .accepted(true)
                         .build();
                 subscriptionRepository.save(subscription);
+                eventPublisher.publishEvent(new SubscriptionChangedEvent(user.getId(), subscriber.getId(), true));
                 return "subscription of " + username + " accepted";
             } else { //если не подписан на нас, мы подписываемся на него
                 SubscriptionID id = SubscriptionID.builder()
@@ -72,6 +82,7 @@ public class SubscriptionService {
                         .accepted(false)
                         .build();
                 subscriptionRepository.save(subscription);
+                eventPublisher.publishEvent(new SubscriptionChangedEvent(user.getId(), subscriber.getId(), true));
                 return "you subscribe " + username + " now";
             }
         }
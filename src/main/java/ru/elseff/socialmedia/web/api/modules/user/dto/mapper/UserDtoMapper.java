@@ -1,6 +1,7 @@
 package ru.elseff.socialmedia.web.api.modules.user.dto.mapper;
 
 import org.springframework.stereotype.Component;
+import ru.elseff.socialmedia.persistense.RoleEntity;
 import ru.elseff.socialmedia.persistense.UserEntity;
 import ru.elseff.socialmedia.web.api.modules.auth.dto.AuthRegisterRequest;
 import ru.elseff.socialmedia.web.api.modules.message.dto.MessageDto;
@@ -9,48 +10,51 @@ import ru.elseff.socialmedia.web.api.modules.role.dto.RoleDto;
 import ru.elseff.socialmedia.web.api.modules.subscription.dto.SubscriptionDto;
 import ru.elseff.socialmedia.web.api.modules.user.dto.UserDto;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 
 @Component
 public class UserDtoMapper {
     public UserDto mapUserEntityToDto(UserEntity user) {
+        Set<RoleDto> roles = new HashSet<>(capacity(user.getRoles().size()));
+        for (RoleEntity role : user.getRoles())
+            roles.add(RoleDto.builder()
+                    .name(role.getName())
+                    .build());
+
         return UserDto.builder()
                 .id(user.getId())
                 .username(user.getUsername())
                 .email(user.getEmail())
-                .roles(user.getRoles().stream().map(role ->
-                        RoleDto.builder()
-                                .name(role.getName())
-                                .build())
-                        .collect(Collectors.toSet()))
-                .posts(user.getPosts().stream().map(post ->
+                .roles(roles)
+                .posts(mapList(user.getPosts(), post ->
                         PostDto.builder()
                                 .id(post.getId())
                                 .title(post.getTitle())
                                 .text(post.getText())
-                                .build()).collect(Collectors.toList()))
-                .subscribers(user.getSubscribers().stream().map(subscription ->
+                                .build()))
+                .subscribers(mapList(user.getSubscribers(), subscription ->
                         SubscriptionDto.builder()
                                 .subscriberUsername(subscription.getSubscriber().getUsername())
                                 .accepted(subscription.getAccepted())
-                                .build())
-                        .collect(Collectors.toList()))
-                .subscriptions(user.getSubscriptions().stream().map(sub ->
+                                .build()))
+                .subscriptions(mapList(user.getSubscriptions(), sub ->
                         SubscriptionDto.builder()
                                 .username(sub.getUser().getUsername())
                                 .accepted(sub.getAccepted())
-                                .build())
-                        .collect(Collectors.toList()))
-                .messages(user.getMessages().stream().map(message ->
+                                .build()))
+                .messages(mapList(user.getMessages(), message ->
                         MessageDto.builder()
                                 .id(message.getId())
                                 .senderUsername(message.getSender().getUsername())
                                 .recipientUsername(message.getRecipient().getUsername())
                                 .text(message.getText())
                                 .sendAt(message.getSendAt())
-                                .build())
-                        .collect(Collectors.toList()))
+                                .build()))
                 .build();
     }
 
@@ -67,4 +71,14 @@ public class UserDtoMapper {
                 .build();
     }
 
+    private static <T, R> List<R> mapList(Collection<T> source, Function<T, R> mapper) {
+        List<R> result = new ArrayList<>(source.size());
+        for (T item : source)
+            result.add(mapper.apply(item));
+        return result;
+    }
+
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
 }
@@ -43,6 +43,12 @@ public class UserService {
                 .orElseThrow(()->new IllegalArgumentException("user not found"));
     }
 
+    @Transactional
+    public Long findIdByUsername(String username) {
+        return userRepository.findIdByUsername(username)
+                .orElseThrow(() -> new IllegalArgumentException("user not found"));
+    }
+
     @Transactional
     public UserEntity getCurrentAuthUser() {
         UserDetailsImpl principal = (UserDetailsImpl) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
@@ -0,0 +1 @@
+CREATE INDEX idx_post_entity_user_id_created_at_id ON post_entity (user_id, created_at DESC, id DESC);
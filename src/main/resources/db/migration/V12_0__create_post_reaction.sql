@@ -0,0 +1,19 @@
+CREATE TABLE post_reaction
+(
+    post_id    BIGINT      NOT NULL,
+    user_id    BIGINT      NOT NULL,
+    type       VARCHAR(16) NOT NULL,
+    created_at TIMESTAMP   NOT NULL DEFAULT now(),
+    CONSTRAINT pk_post_reaction PRIMARY KEY (post_id, user_id),
+    CONSTRAINT fk_post_reaction_post_id FOREIGN KEY (post_id) REFERENCES post_entity (id) ON DELETE CASCADE,
+    CONSTRAINT fk_post_reaction_user_id FOREIGN KEY (user_id) REFERENCES user_entity (id) ON DELETE CASCADE
+);
+
+CREATE TABLE post_reaction_count
+(
+    post_id BIGINT      NOT NULL,
+    type    VARCHAR(16) NOT NULL,
+    count   BIGINT      NOT NULL DEFAULT 0,
+    CONSTRAINT pk_post_reaction_count PRIMARY KEY (post_id, type),
+    CONSTRAINT fk_post_reaction_count_post_id FOREIGN KEY (post_id) REFERENCES post_entity (id) ON DELETE CASCADE
+);
@@ -0,0 +1,8 @@
+CREATE TABLE post_view_sketch
+(
+    post_id    BIGINT    NOT NULL,
+    sketch     BYTEA     NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT now(),
+    CONSTRAINT pk_post_view_sketch PRIMARY KEY (post_id),
+    CONSTRAINT fk_post_view_sketch_post_id FOREIGN KEY (post_id) REFERENCES post_entity (id) ON DELETE CASCADE
+);
@@ -0,0 +1,49 @@
+CREATE TABLE comment_entity
+(
+    id         BIGSERIAL NOT NULL,
+    post_id    BIGINT    NOT NULL,
+    user_id    BIGINT    NOT NULL,
+    parent_id  BIGINT,
+    root_id    BIGINT    NOT NULL,
+    depth      INT       NOT NULL,
+    path       TEXT COLLATE "C" NOT NULL,
+    text       TEXT      NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    CONSTRAINT pk_comment_id PRIMARY KEY (id),
+    CONSTRAINT fk_comment_post_id FOREIGN KEY (post_id) REFERENCES post_entity (id) ON DELETE CASCADE,
+    CONSTRAINT fk_comment_user_id FOREIGN KEY (user_id) REFERENCES user_entity (id) ON DELETE CASCADE,
+    CONSTRAINT fk_comment_parent_id FOREIGN KEY (parent_id) REFERENCES comment_entity (id) ON DELETE CASCADE
+);
+
+-- Путь — id предков и самого комментария фиксированной ширины через точку,
+-- поэтому сортировка по пути даёт обход дерева в глубину, а поддерево — диапазон по префиксу.
+CREATE FUNCTION comment_entity_set_path() RETURNS TRIGGER AS
+$$
+DECLARE
+    parent comment_entity%ROWTYPE;
+BEGIN
+    IF NEW.parent_id IS NULL THEN
+        NEW.root_id := NEW.id;
+        NEW.depth := 0;
+        NEW.path := lpad(NEW.id::TEXT, 19, '0');
+    ELSE
+        SELECT * INTO parent FROM comment_entity WHERE id = NEW.parent_id;
+        IF NOT FOUND OR parent.post_id <> NEW.post_id THEN
+            RAISE EXCEPTION 'parent comment % not found in post %', NEW.parent_id, NEW.post_id;
+        END IF;
+        NEW.root_id := parent.root_id;
+        NEW.depth := parent.depth + 1;
+        NEW.path := parent.path || '.' || lpad(NEW.id::TEXT, 19, '0');
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_comment_entity_set_path
+    BEFORE INSERT
+    ON comment_entity
+    FOR EACH ROW
+EXECUTE FUNCTION comment_entity_set_path();
+
+CREATE INDEX idx_comment_entity_post_id_roots ON comment_entity (post_id, id) WHERE parent_id IS NULL;
+CREATE INDEX idx_comment_entity_root_id_path ON comment_entity (root_id, path);
@@ -0,0 +1,73 @@
+-- Месячные секции вида <parent>_pYYYYMM с границами [начало месяца, начало следующего).
+-- Строки, успевшие попасть в секцию по умолчанию, переносятся в новую секцию; на время
+-- переноса триггеры удаления зависимых строк отключаются через partitioning.moving.
+CREATE FUNCTION create_monthly_partition(parent TEXT, month DATE) RETURNS BOOLEAN AS
+$$
+DECLARE
+    start_at       DATE := date_trunc('month', month);
+    end_at         DATE := date_trunc('month', month) + INTERVAL '1 month';
+    partition_name TEXT := parent || '_p' || to_char(month, 'YYYYMM');
+    default_name   TEXT := parent || '_default';
+    key_column     TEXT := substring(pg_get_partkeydef(parent::REGCLASS) FROM '\((.*)\)');
+    column_list    TEXT;
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    SELECT string_agg(quote_ident(column_name), ', ' ORDER BY ordinal_position)
+    INTO column_list
+    FROM information_schema.columns
+    WHERE table_schema = current_schema()
+      AND table_name = parent
+      AND is_generated = 'NEVER';
+
+    EXECUTE format('LOCK TABLE %I IN ACCESS EXCLUSIVE MODE', default_name);
+    EXECUTE format('CREATE TEMP TABLE moved_rows ON COMMIT DROP AS SELECT %s FROM %I WHERE %I >= %L AND %I < %L',
+                   column_list, default_name, key_column, start_at, key_column, end_at);
+    PERFORM set_config('partitioning.moving', 'on', TRUE);
+    EXECUTE format('DELETE FROM %I WHERE %I >= %L AND %I < %L',
+                   default_name, key_column, start_at, key_column, end_at);
+    PERFORM set_config('partitioning.moving', 'off', TRUE);
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, parent, start_at, end_at);
+    EXECUTE format('INSERT INTO %I (%s) SELECT %s FROM moved_rows', parent, column_list, column_list);
+    DROP TABLE moved_rows;
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Отсоединяет месячные секции, целиком лежащие раньше before. Отсоединённые таблицы
+-- остаются в базе как архив и больше не участвуют в запросах к родительской таблице.
+CREATE FUNCTION detach_monthly_partitions(parent TEXT, before DATE) RETURNS SETOF TEXT AS
+$$
+DECLARE
+    partition_name TEXT;
+BEGIN
+    FOR partition_name IN
+        SELECT c.relname
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = parent::REGCLASS
+          AND c.relname ~ ('^' || parent || '_p[0-9]{6}$')
+          AND to_date(right(c.relname, 6), 'YYYYMM') + INTERVAL '1 month' <= before
+        ORDER BY c.relname
+        LOOP
+            EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', parent, partition_name);
+            RETURN NEXT partition_name;
+        END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION create_monthly_partitions(parent TEXT, since TIMESTAMP, months_ahead INT) RETURNS VOID AS
+$$
+DECLARE
+    current_month DATE := date_trunc('month', coalesce(since, now()));
+BEGIN
+    WHILE current_month <= date_trunc('month', now()) + make_interval(months => months_ahead)
+        LOOP
+            PERFORM create_monthly_partition(parent, current_month);
+            current_month := current_month + INTERVAL '1 month';
+        END LOOP;
+END;
+$$ LANGUAGE plpgsql;
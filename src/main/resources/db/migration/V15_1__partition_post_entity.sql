@@ -0,0 +1,69 @@
+-- Внешний ключ на секционированную таблицу должен включать ключ секционирования,
+-- поэтому ссылки на post_entity больше не проверяются базой. Удаление зависимых строк
+-- вместо ON DELETE CASCADE делает триггер post_entity_delete_dependents.
+ALTER TABLE post_image_entity DROP CONSTRAINT fk_post_id;
+ALTER TABLE post_reaction DROP CONSTRAINT fk_post_reaction_post_id;
+ALTER TABLE post_reaction_count DROP CONSTRAINT fk_post_reaction_count_post_id;
+ALTER TABLE post_view_sketch DROP CONSTRAINT fk_post_view_sketch_post_id;
+ALTER TABLE comment_entity DROP CONSTRAINT fk_comment_post_id;
+
+ALTER TABLE post_entity RENAME TO post_entity_old;
+ALTER INDEX idx_post_entity_created_at_id RENAME TO idx_post_entity_old_created_at_id;
+ALTER INDEX idx_post_entity_user_id_created_at_id RENAME TO idx_post_entity_old_user_id_created_at_id;
+ALTER INDEX idx_post_entity_search_vector RENAME TO idx_post_entity_old_search_vector;
+
+CREATE TABLE post_entity
+(
+    id            BIGINT       NOT NULL DEFAULT nextval('post_entity_id_seq'),
+    title         VARCHAR(255) NOT NULL,
+    text          TEXT         NOT NULL,
+    user_id       BIGINT       NOT NULL,
+    created_at    TIMESTAMP    NOT NULL DEFAULT now(),
+    updated_at    TIMESTAMP,
+    search_vector tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('russian', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('russian', coalesce(text, '')), 'B')
+        ) STORED,
+    CONSTRAINT pk_post_entity_id_created_at PRIMARY KEY (id, created_at),
+    CONSTRAINT fk_post_entity_user_id FOREIGN KEY (user_id) REFERENCES user_entity (id)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE post_entity_default PARTITION OF post_entity DEFAULT;
+
+SELECT create_monthly_partitions('post_entity', (SELECT min(created_at) FROM post_entity_old), 3);
+
+INSERT INTO post_entity (id, title, text, user_id, created_at, updated_at)
+SELECT id, title, text, user_id, coalesce(created_at, now()), updated_at
+FROM post_entity_old;
+
+ALTER SEQUENCE post_entity_id_seq OWNED BY post_entity.id;
+DROP TABLE post_entity_old;
+
+CREATE INDEX idx_post_entity_id ON post_entity (id);
+CREATE INDEX idx_post_entity_created_at_id ON post_entity (created_at DESC, id DESC);
+CREATE INDEX idx_post_entity_user_id_created_at_id ON post_entity (user_id, created_at DESC, id DESC);
+CREATE INDEX idx_post_entity_search_vector ON post_entity USING GIN (search_vector);
+
+CREATE FUNCTION post_entity_delete_dependents() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF current_setting('partitioning.moving', TRUE) = 'on' THEN
+        RETURN OLD;
+    END IF;
+    DELETE FROM post_image_entity WHERE post_id = OLD.id;
+    DELETE FROM post_reaction WHERE post_id = OLD.id;
+    DELETE FROM post_reaction_count WHERE post_id = OLD.id;
+    DELETE FROM post_view_sketch WHERE post_id = OLD.id;
+    DELETE FROM comment_entity WHERE post_id = OLD.id;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_post_entity_delete_dependents
+    AFTER DELETE
+    ON post_entity
+    FOR EACH ROW
+EXECUTE FUNCTION post_entity_delete_dependents();
+
+CREATE INDEX idx_post_image_entity_post_id ON post_image_entity (post_id);
+CREATE INDEX idx_comment_entity_post_id ON comment_entity (post_id);
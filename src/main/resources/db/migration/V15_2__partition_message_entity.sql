@@ -0,0 +1,28 @@
+ALTER TABLE message_entity RENAME TO message_entity_old;
+
+CREATE TABLE message_entity
+(
+    id           BIGINT        NOT NULL DEFAULT nextval('message_entity_id_seq'),
+    text         VARCHAR(1000) NOT NULL,
+    sender_id    BIGINT        NOT NULL,
+    recipient_id BIGINT        NOT NULL,
+    send_at      TIMESTAMP     NOT NULL DEFAULT now(),
+    CONSTRAINT pk_message_id_send_at PRIMARY KEY (id, send_at),
+    CONSTRAINT fk_message_sender_user_id FOREIGN KEY (sender_id) REFERENCES user_entity (id),
+    CONSTRAINT fk_message_recipient_user_id FOREIGN KEY (recipient_id) REFERENCES user_entity (id)
+) PARTITION BY RANGE (send_at);
+
+CREATE TABLE message_entity_default PARTITION OF message_entity DEFAULT;
+
+SELECT create_monthly_partitions('message_entity', (SELECT min(send_at) FROM message_entity_old), 3);
+
+INSERT INTO message_entity (id, text, sender_id, recipient_id, send_at)
+SELECT id, text, sender_id, recipient_id, coalesce(send_at, now())
+FROM message_entity_old;
+
+ALTER SEQUENCE message_entity_id_seq OWNED BY message_entity.id;
+DROP TABLE message_entity_old;
+
+CREATE INDEX idx_message_entity_id ON message_entity (id);
+CREATE INDEX idx_message_entity_sender_id_send_at ON message_entity (sender_id, send_at DESC);
+CREATE INDEX idx_message_entity_recipient_id_send_at ON message_entity (recipient_id, send_at DESC);
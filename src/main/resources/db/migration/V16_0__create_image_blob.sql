@@ -0,0 +1,58 @@
+-- Содержимое изображений хранится один раз на SHA-256. Счётчик ссылок ведут триггеры на
+-- post_image_entity, поэтому он верен при любом способе удаления строк: orphanRemoval,
+-- каскад из поста или триггер post_entity_delete_dependents. Блобы с нулевым счётчиком
+-- удаляет ImageBlobCollector.
+CREATE TABLE image_blob
+(
+    hash       VARCHAR(64) NOT NULL,
+    ref_count  INT         NOT NULL DEFAULT 0,
+    created_at TIMESTAMP   NOT NULL DEFAULT now(),
+    updated_at TIMESTAMP   NOT NULL DEFAULT now(),
+    CONSTRAINT pk_image_blob PRIMARY KEY (hash),
+    CONSTRAINT ck_image_blob_ref_count CHECK (ref_count >= 0)
+);
+
+CREATE INDEX idx_image_blob_unreferenced ON image_blob (updated_at) WHERE ref_count = 0;
+
+ALTER TABLE post_image_entity
+    ADD COLUMN blob_hash VARCHAR(64),
+    ADD CONSTRAINT fk_post_image_blob_hash FOREIGN KEY (blob_hash) REFERENCES image_blob (hash);
+
+CREATE INDEX idx_post_image_entity_blob_hash ON post_image_entity (blob_hash);
+
+-- BEFORE, чтобы строка блоба существовала к моменту проверки внешнего ключа.
+CREATE FUNCTION image_blob_acquire() RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO image_blob (hash, ref_count)
+    VALUES (NEW.blob_hash, 1)
+    ON CONFLICT (hash) DO UPDATE SET ref_count  = image_blob.ref_count + 1,
+                                     updated_at = now();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION image_blob_release() RETURNS TRIGGER AS
+$$
+BEGIN
+    UPDATE image_blob
+    SET ref_count  = ref_count - 1,
+        updated_at = now()
+    WHERE hash = OLD.blob_hash;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_post_image_entity_acquire_blob
+    BEFORE INSERT
+    ON post_image_entity
+    FOR EACH ROW
+    WHEN (NEW.blob_hash IS NOT NULL)
+EXECUTE FUNCTION image_blob_acquire();
+
+CREATE TRIGGER trg_post_image_entity_release_blob
+    AFTER DELETE
+    ON post_image_entity
+    FOR EACH ROW
+    WHEN (OLD.blob_hash IS NOT NULL)
+EXECUTE FUNCTION image_blob_release();
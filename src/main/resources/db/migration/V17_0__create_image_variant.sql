@@ -0,0 +1,15 @@
+ALTER TABLE image_blob
+    ADD COLUMN width  INT,
+    ADD COLUMN height INT;
+
+CREATE TABLE image_variant
+(
+    blob_hash    VARCHAR(64) NOT NULL,
+    width        INT         NOT NULL,
+    height       INT         NOT NULL,
+    content_type VARCHAR(32) NOT NULL,
+    size         BIGINT      NOT NULL,
+    created_at   TIMESTAMP   NOT NULL DEFAULT now(),
+    CONSTRAINT pk_image_variant PRIMARY KEY (blob_hash, width),
+    CONSTRAINT fk_image_variant_blob_hash FOREIGN KEY (blob_hash) REFERENCES image_blob (hash) ON DELETE CASCADE
+);
@@ -0,0 +1,36 @@
+-- Отсоединение секции не вызывает триггеры удаления, поэтому зависимые строки её постов
+-- удаляются перед отсоединением тем же набором, что и в post_entity_delete_dependents.
+-- Удаление картинок уменьшает image_blob.ref_count, и блобы затем забирает ImageBlobCollector.
+CREATE FUNCTION delete_post_entity_dependents(partition_name TEXT) RETURNS VOID AS
+$$
+BEGIN
+    EXECUTE format('DELETE FROM post_image_entity WHERE post_id IN (SELECT id FROM %I)', partition_name);
+    EXECUTE format('DELETE FROM post_reaction WHERE post_id IN (SELECT id FROM %I)', partition_name);
+    EXECUTE format('DELETE FROM post_reaction_count WHERE post_id IN (SELECT id FROM %I)', partition_name);
+    EXECUTE format('DELETE FROM post_view_sketch WHERE post_id IN (SELECT id FROM %I)', partition_name);
+    EXECUTE format('DELETE FROM comment_entity WHERE post_id IN (SELECT id FROM %I)', partition_name);
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION detach_monthly_partitions(parent TEXT, before DATE) RETURNS SETOF TEXT AS
+$$
+DECLARE
+    partition_name TEXT;
+BEGIN
+    FOR partition_name IN
+        SELECT c.relname
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = parent::REGCLASS
+          AND c.relname ~ ('^' || parent || '_p[0-9]{6}$')
+          AND to_date(right(c.relname, 6), 'YYYYMM') + INTERVAL '1 month' <= before
+        ORDER BY c.relname
+        LOOP
+            IF parent = 'post_entity' THEN
+                PERFORM delete_post_entity_dependents(partition_name);
+            END IF;
+            EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', parent, partition_name);
+            RETURN NEXT partition_name;
+        END LOOP;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,14 @@
+-- Строки картинок, загруженных до хранения по хешу, остаются после отсоединения секции:
+-- PartitionMaintenance удаляет их порциями вместе с публикацией событий, чтобы не читать
+-- имена файлов всей секции заранее.
+CREATE OR REPLACE FUNCTION delete_post_entity_dependents(partition_name TEXT) RETURNS VOID AS
+$$
+BEGIN
+    EXECUTE format('DELETE FROM post_image_entity WHERE blob_hash IS NOT NULL AND post_id IN (SELECT id FROM %I)',
+                   partition_name);
+    EXECUTE format('DELETE FROM post_reaction WHERE post_id IN (SELECT id FROM %I)', partition_name);
+    EXECUTE format('DELETE FROM post_reaction_count WHERE post_id IN (SELECT id FROM %I)', partition_name);
+    EXECUTE format('DELETE FROM post_view_sketch WHERE post_id IN (SELECT id FROM %I)', partition_name);
+    EXECUTE format('DELETE FROM comment_entity WHERE post_id IN (SELECT id FROM %I)', partition_name);
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1 @@
+CREATE INDEX idx_post_entity_created_at_id ON post_entity (created_at DESC, id DESC);
@@ -0,0 +1 @@
+CREATE INDEX idx_subscription_entity_subscriber_id ON subscription_entity (subscriber_id);
@@ -0,0 +1,7 @@
+ALTER TABLE post_entity
+    ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('russian', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('russian', coalesce(text, '')), 'B')
+    ) STORED;
+
+CREATE INDEX idx_post_entity_search_vector ON post_entity USING GIN (search_vector);
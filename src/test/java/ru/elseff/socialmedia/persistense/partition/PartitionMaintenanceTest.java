@@ -0,0 +1,146 @@
+package ru.elseff.socialmedia.persistense.partition;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.elseff.socialmedia.persistense.UserEntity;
+import ru.elseff.socialmedia.persistense.dao.PostRepository;
+import ru.elseff.socialmedia.persistense.dao.UserRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+
+@Testcontainers
+@SpringBootTest
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class PartitionMaintenanceTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest");
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    PostRepository postRepository;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+    }
+
+    @BeforeEach
+    void setUp() {
+        postRepository.deleteAll();
+        jdbcTemplate.update("delete from message_entity");
+        userRepository.deleteAll();
+        userRepository.save(getUser());
+    }
+
+    @Test
+    @DisplayName("Секции на текущий и следующие месяцы созданы при старте")
+    void partitionsCreatedOnStartup() {
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i <= 3; i++) {
+            String suffix = now.plusMonths(i).format(PARTITION_SUFFIX);
+            Assertions.assertNotNull(regclass("post_entity_p" + suffix));
+            Assertions.assertNotNull(regclass("message_entity_p" + suffix));
+        }
+    }
+
+    @Test
+    @DisplayName("Строки из секции по умолчанию переносятся в созданную секцию")
+    void maintain_MovesRowsOutOfDefaultPartition() {
+        LocalDateTime sendAt = LocalDateTime.now().plusMonths(6);
+        Long userId = userRepository.findByEmail(getUser().getEmail()).get().getId();
+        insertMessage(userId, sendAt);
+
+        Assertions.assertEquals("message_entity_default", messagePartition());
+
+        new PartitionMaintenance(jdbcTemplate, eventPublisher, 6, 0).maintain();
+
+        Assertions.assertEquals("message_entity_p" + sendAt.format(PARTITION_SUFFIX), messagePartition());
+    }
+
+    @Test
+    @DisplayName("Секции старше срока хранения отсоединяются вместе с удалением зависимых строк")
+    void maintain_DetachesExpiredPartitions() {
+        LocalDateTime createdAt = LocalDateTime.now().minusMonths(30);
+        Long userId = userRepository.findByEmail(getUser().getEmail()).get().getId();
+        jdbcTemplate.queryForObject("select create_monthly_partition('post_entity', cast(? as date))",
+                Boolean.class, Timestamp.valueOf(createdAt));
+        Long postId = jdbcTemplate.queryForObject("insert into post_entity (title, text, user_id, created_at) " +
+                "values ('title', 'text', ?, ?) returning id", Long.class, userId, Timestamp.valueOf(createdAt));
+
+        jdbcTemplate.update("insert into post_image_entity (post_id, filename, blob_hash) values (?, 'a.png', ?)",
+                postId, "a".repeat(64));
+        jdbcTemplate.update("insert into post_image_entity (post_id, filename) values (?, 'b.png')", postId);
+        jdbcTemplate.update("insert into post_reaction_count (post_id, type, count) values (?, 'LIKE', 3)", postId);
+
+        new PartitionMaintenance(jdbcTemplate, eventPublisher, 3, 24).maintain();
+
+        String partition = "post_entity_p" + createdAt.format(PARTITION_SUFFIX);
+        Assertions.assertNotNull(regclass(partition));
+        Assertions.assertTrue(postRepository.findById(postId).isEmpty());
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject("select count(*) from " + partition, Integer.class));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from post_image_entity where post_id = ?", Integer.class, postId));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from post_reaction_count where post_id = ?", Integer.class, postId));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                "select ref_count from image_blob where hash = ?", Integer.class, "a".repeat(64)));
+
+        jdbcTemplate.execute("drop table " + partition);
+    }
+
+    private void insertMessage(Long userId, LocalDateTime sendAt) {
+        jdbcTemplate.update("insert into message_entity (text, sender_id, recipient_id, send_at) values (?, ?, ?, ?)",
+                "text", userId, userId, Timestamp.valueOf(sendAt));
+    }
+
+    private String messagePartition() {
+        return jdbcTemplate.queryForObject("select tableoid::regclass::text from message_entity", String.class);
+    }
+
+    private String regclass(String name) {
+        return jdbcTemplate.queryForObject("select to_regclass(?)::text", String.class, name);
+    }
+
+    private UserEntity getUser() {
+        return UserEntity.builder()
+                .email("test@test.com")
+                .username("test_username")
+                .password("test_password")
+                .roles(Set.of())
+                .posts(Set.of())
+                .subscriptions(Set.of())
+                .subscribers(Set.of())
+                .messages(Set.of())
+                .build();
+    }
+}
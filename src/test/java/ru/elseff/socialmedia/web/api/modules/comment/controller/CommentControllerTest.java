@@ -0,0 +1,181 @@
+package ru.elseff.socialmedia.web.api.modules.comment.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.TestExecutionEvent;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.UserEntity;
+import ru.elseff.socialmedia.persistense.dao.UserRepository;
+import ru.elseff.socialmedia.web.api.modules.comment.dto.CommentCreationDto;
+import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Testcontainers
+@SpringBootTest
+@AutoConfigureMockMvc
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class CommentControllerTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest");
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    PostService postService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    final String endpoint = "/api/v1/posts/{postId}/comments";
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
+    }
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        userRepository.save(getUser());
+    }
+
+    @Test
+    @DisplayName("Ветки комментариев загружаются одним запросом")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void findThreads() throws Exception {
+        Long postId = postService.addPost(getPost()).getId();
+        Long first = addComment(postId, null);
+        Long reply = addComment(postId, first);
+        Long deepReply = addComment(postId, reply);
+        addComment(postId, deepReply);
+        Long second = addComment(postId, null);
+        Long third = addComment(postId, null);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        String response = mockMvc.perform(get(endpoint, postId).param("size", "2").param("depth", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(List.of(first.intValue(), second.intValue()),
+                JsonPath.parse(response).read("$._embedded.comments[*].id"));
+        Assertions.assertEquals(deepReply.intValue(),
+                (int) JsonPath.parse(response).read("$._embedded.comments[0].replies[0].replies[0].id"));
+        Assertions.assertEquals(List.of(),
+                JsonPath.parse(response).read("$._embedded.comments[0].replies[0].replies[0].replies[*]"));
+
+        String next = JsonPath.parse(response).read("$._links.next.href");
+        response = mockMvc.perform(get(next))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        Assertions.assertEquals(List.of(third.intValue()), JsonPath.parse(response).read("$._embedded.comments[*].id"));
+        Assertions.assertFalse(response.contains("\"next\""));
+    }
+
+    @Test
+    @DisplayName("Найти ветку комментария и удалить её")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void findSubtree() throws Exception {
+        Long postId = postService.addPost(getPost()).getId();
+        Long root = addComment(postId, null);
+        Long reply = addComment(postId, root);
+        Long deepReply = addComment(postId, reply);
+        addComment(postId, root);
+
+        String response = mockMvc.perform(get(endpoint + "/{id}", postId, reply))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        Assertions.assertEquals(reply.intValue(), (int) JsonPath.parse(response).read("$.id"));
+        Assertions.assertEquals(List.of(deepReply.intValue()), JsonPath.parse(response).read("$.replies[*].id"));
+
+        mockMvc.perform(delete(endpoint + "/{id}", postId, reply))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get(endpoint + "/{id}", postId, deepReply))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Ответить на комментарий из другого поста")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void addComment_If_Parent_Is_In_Other_Post() throws Exception {
+        Long postId = postService.addPost(getPost()).getId();
+        Long otherPostId = postService.addPost(getPost()).getId();
+        Long parent = addComment(otherPostId, null);
+
+        mockMvc.perform(post(endpoint, postId)
+                        .content(objectMapper.writeValueAsString(new CommentCreationDto("reply", parent)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding(StandardCharsets.UTF_8))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Long addComment(Long postId, Long parentId) throws Exception {
+        String response = mockMvc.perform(post(endpoint, postId)
+                        .content(objectMapper.writeValueAsString(new CommentCreationDto("comment", parentId)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding(StandardCharsets.UTF_8))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        return ((Number) JsonPath.parse(response).read("$.id")).longValue();
+    }
+
+    private UserEntity getUser() {
+        return UserEntity.builder()
+                .email("test@test.com")
+                .username("test_username")
+                .password("test_password")
+                .build();
+    }
+
+    private PostEntity getPost() {
+        return PostEntity.builder()
+                .title("test title")
+                .text("test text")
+                .images(new HashSet<>())
+                .build();
+    }
+}
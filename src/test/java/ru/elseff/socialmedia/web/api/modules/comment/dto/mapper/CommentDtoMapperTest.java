@@ -0,0 +1,93 @@
+package ru.elseff.socialmedia.web.api.modules.comment.dto.mapper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.elseff.socialmedia.persistense.projection.CommentRow;
+import ru.elseff.socialmedia.web.api.modules.comment.dto.CommentDto;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+class CommentDtoMapperTest {
+
+    final CommentDtoMapper commentDtoMapper = new CommentDtoMapper();
+
+    @Test
+    @DisplayName("Дерево собирается из строк в порядке обхода в глубину")
+    void mapCommentRowsToTree() {
+        List<CommentRow> rows = List.of(
+                getRow(1L, null, 0),
+                getRow(2L, 1L, 1),
+                getRow(4L, 2L, 2),
+                getRow(3L, 1L, 1),
+                getRow(5L, null, 0));
+
+        List<CommentDto> roots = commentDtoMapper.mapCommentRowsToTree(rows);
+
+        Assertions.assertEquals(List.of(1L, 5L), roots.stream().map(CommentDto::getId).toList());
+        CommentDto first = roots.get(0);
+        Assertions.assertEquals(List.of(2L, 3L), first.getReplies().stream().map(CommentDto::getId).toList());
+        Assertions.assertEquals(4L, first.getReplies().get(0).getReplies().get(0).getId());
+        Assertions.assertTrue(roots.get(1).getReplies().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Корнем поддерева становится строка, чей родитель не попал в выборку")
+    void mapCommentRowsToTree_Subtree() {
+        List<CommentRow> rows = List.of(
+                getRow(2L, 1L, 1),
+                getRow(4L, 2L, 2));
+
+        List<CommentDto> roots = commentDtoMapper.mapCommentRowsToTree(rows);
+
+        Assertions.assertEquals(1, roots.size());
+        Assertions.assertEquals(2L, roots.get(0).getId());
+        Assertions.assertEquals(4L, roots.get(0).getReplies().get(0).getId());
+    }
+
+    private CommentRow getRow(Long id, Long parentId, int depth) {
+        return new CommentRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getParentId() {
+                return parentId;
+            }
+
+            @Override
+            public Integer getDepth() {
+                return depth;
+            }
+
+            @Override
+            public String getText() {
+                return "comment " + id;
+            }
+
+            @Override
+            public Timestamp getCreatedAt() {
+                return Timestamp.from(Instant.EPOCH);
+            }
+
+            @Override
+            public Long getAuthorId() {
+                return 1L;
+            }
+
+            @Override
+            public String getAuthorUsername() {
+                return "test_username";
+            }
+
+            @Override
+            public Boolean getHasNext() {
+                return false;
+            }
+        };
+    }
+}
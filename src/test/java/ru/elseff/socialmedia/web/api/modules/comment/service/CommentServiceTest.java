@@ -0,0 +1,159 @@
+package ru.elseff.socialmedia.web.api.modules.comment.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.elseff.socialmedia.persistense.CommentEntity;
+import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.UserEntity;
+import ru.elseff.socialmedia.persistense.dao.CommentRepository;
+import ru.elseff.socialmedia.persistense.projection.CommentRow;
+import ru.elseff.socialmedia.web.api.modules.comment.dto.CommentPage;
+import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.user.service.UserService;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class CommentServiceTest {
+
+    @InjectMocks
+    CommentService commentService;
+
+    @Mock
+    CommentRepository commentRepository;
+
+    @Mock
+    PostService postService;
+
+    @Mock
+    UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    @DisplayName("Найти ветки комментариев одним запросом")
+    void findThreads() {
+        List<CommentRow> rows = List.of(getRow(1L, null, true), getRow(2L, 1L, true), getRow(3L, null, true));
+        given(commentRepository.findThreads(anyLong(), anyLong(), anyInt(), anyInt())).willReturn(rows);
+
+        CommentPage page = commentService.findThreads(1L, null, 2, 3);
+
+        Assertions.assertEquals(3, page.getComments().size());
+        Assertions.assertEquals(3L, page.getNext());
+        verify(commentRepository, times(1)).findThreads(1L, 0L, 2, 3);
+        verifyNoMoreInteractions(commentRepository);
+    }
+
+    @Test
+    @DisplayName("Найти последнюю страницу веток комментариев")
+    void findThreads_Last_Page() {
+        List<CommentRow> rows = List.of(getRow(4L, null, false));
+        given(commentRepository.findThreads(anyLong(), anyLong(), anyInt(), anyInt())).willReturn(rows);
+
+        CommentPage page = commentService.findThreads(1L, 3L, 2, 3);
+
+        Assertions.assertNull(page.getNext());
+        verify(commentRepository, times(1)).findThreads(1L, 3L, 2, 3);
+    }
+
+    @Test
+    @DisplayName("Найти ветки комментариев со слишком большой глубиной")
+    void findThreads_If_Depth_Is_Too_Big() {
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> commentService.findThreads(1L, null, 20, CommentService.MAX_DEPTH + 1));
+
+        Assertions.assertEquals("depth must be between 0 and " + CommentService.MAX_DEPTH, exception.getMessage());
+        verifyNoInteractions(commentRepository);
+    }
+
+    @Test
+    @DisplayName("Найти ветку комментария, если он не найден")
+    void findSubtree_If_Comment_Is_Not_Found() {
+        given(commentRepository.findSubtree(anyLong(), anyLong(), anyInt())).willReturn(List.of());
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> commentService.findSubtree(1L, 0L, 3));
+
+        Assertions.assertEquals("comment not found", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Добавить ответ на комментарий")
+    void addComment() {
+        PostEntity post = PostEntity.builder().id(1L).build();
+        UserEntity user = getUser(1L);
+        CommentEntity comment = CommentEntity.builder().text("reply").parentId(5L).build();
+        given(postService.findById(anyLong())).willReturn(post);
+        given(commentRepository.existsByIdAndPostId(anyLong(), anyLong())).willReturn(true);
+        given(userService.getCurrentAuthUser()).willReturn(user);
+        given(commentRepository.save(any(CommentEntity.class))).willAnswer(invocation -> invocation.getArgument(0));
+
+        CommentEntity actual = commentService.addComment(1L, comment);
+
+        Assertions.assertEquals(post, actual.getPost());
+        Assertions.assertEquals(user, actual.getUser());
+        verify(commentRepository, times(1)).existsByIdAndPostId(5L, 1L);
+        verify(commentRepository, times(1)).save(comment);
+    }
+
+    @Test
+    @DisplayName("Добавить ответ на комментарий из другого поста")
+    void addComment_If_Parent_Is_Not_Found() {
+        given(postService.findById(anyLong())).willReturn(PostEntity.builder().id(1L).build());
+        given(commentRepository.existsByIdAndPostId(anyLong(), anyLong())).willReturn(false);
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> commentService.addComment(1L, CommentEntity.builder().text("reply").parentId(5L).build()));
+
+        Assertions.assertEquals("parent comment not found", exception.getMessage());
+        verify(commentRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Удалить чужой комментарий")
+    void deleteComment_If_Someone_Else_Comment() {
+        CommentEntity comment = CommentEntity.builder().id(5L).user(getUser(2L)).text("comment").build();
+        given(commentRepository.findByIdAndPostId(anyLong(), anyLong())).willReturn(Optional.of(comment));
+        given(userService.getCurrentAuthUser()).willReturn(getUser(1L));
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> commentService.deleteComment(1L, 5L));
+
+        Assertions.assertEquals("someone else's comment", exception.getMessage());
+        verify(commentRepository, never()).delete(any());
+    }
+
+    private UserEntity getUser(Long id) {
+        return UserEntity.builder()
+                .id(id)
+                .username("test_username" + id)
+                .email("test" + id + "@test.com")
+                .build();
+    }
+
+    private CommentRow getRow(Long id, Long parentId, boolean hasNext) {
+        CommentRow row = mock(CommentRow.class);
+        given(row.getId()).willReturn(id);
+        given(row.getParentId()).willReturn(parentId);
+        given(row.getHasNext()).willReturn(hasNext);
+
+        return row;
+    }
+}
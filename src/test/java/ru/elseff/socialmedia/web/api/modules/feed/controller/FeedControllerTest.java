@@ -0,0 +1,172 @@
+package ru.elseff.socialmedia.web.api.modules.feed.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.TestExecutionEvent;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.SubscriptionEntity;
+import ru.elseff.socialmedia.persistense.SubscriptionID;
+import ru.elseff.socialmedia.persistense.UserEntity;
+import ru.elseff.socialmedia.persistense.dao.PostRepository;
+import ru.elseff.socialmedia.persistense.dao.SubscriptionRepository;
+import ru.elseff.socialmedia.persistense.dao.UserRepository;
+import ru.elseff.socialmedia.web.api.modules.feed.service.FeedService;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostCreatedEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Testcontainers
+@SpringBootTest
+@AutoConfigureMockMvc
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class FeedControllerTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest");
+
+    @Autowired
+    SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    PostRepository postRepository;
+
+    @Autowired
+    FeedService feedService;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    final String endpoint = "/api/v1/posts/feed";
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        userRepository.save(getUser1());
+        userRepository.save(getUser2());
+    }
+
+    @Test
+    @DisplayName("Получить ленту подписок")
+    @WithUserDetails(value = "test2@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void getFeed() throws Exception {
+        UserEntity author = userRepository.getByEmail("test@test.com");
+        UserEntity subscriber = userRepository.getByEmail("test2@test.com");
+        subscriptionRepository.save(getSubscriptionEntity(author, subscriber));
+        PostEntity first = publish(getPost(author, "test title 1"));
+        PostEntity second = publish(getPost(author, "test title 2"));
+
+        MockHttpServletRequestBuilder request = get(endpoint)
+                .param("size", "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding(StandardCharsets.UTF_8);
+
+        String response = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<Integer> firstPageIds = JsonPath.parse(response).read("$._embedded.posts[*].id");
+        String next = JsonPath.parse(response).read("$._links.next.href");
+
+        Assertions.assertEquals(List.of(second.getId().intValue()), firstPageIds);
+
+        response = mockMvc.perform(get(next)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding(StandardCharsets.UTF_8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<Integer> secondPageIds = JsonPath.parse(response).read("$._embedded.posts[*].id");
+
+        Assertions.assertEquals(List.of(first.getId().intValue()), secondPageIds);
+    }
+
+    @Test
+    @DisplayName("Получить пустую ленту")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void getFeed_If_No_Subscriptions() throws Exception {
+        MockHttpServletRequestBuilder request = get(endpoint)
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding(StandardCharsets.UTF_8);
+
+        String response = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        Assertions.assertFalse(response.contains("_embedded"));
+    }
+
+    private PostEntity publish(PostEntity post) {
+        PostEntity saved = postRepository.save(post);
+        feedService.onPostCreated(new PostCreatedEvent(saved.getId(), post.getUser().getId()));
+        return saved;
+    }
+
+    private SubscriptionEntity getSubscriptionEntity(UserEntity user, UserEntity subscriber) {
+        return SubscriptionEntity.builder()
+                .id(SubscriptionID.builder()
+                        .subscriberId(subscriber.getId())
+                        .userId(user.getId())
+                        .build())
+                .subscriber(subscriber)
+                .user(user)
+                .accepted(false)
+                .build();
+    }
+
+    private PostEntity getPost(UserEntity author, String title) {
+        return PostEntity.builder()
+                .title(title)
+                .text("test text")
+                .images(new HashSet<>())
+                .user(author)
+                .build();
+    }
+
+    private UserEntity getUser1() {
+        return UserEntity.builder()
+                .email("test@test.com")
+                .username("test_username")
+                .password("test_password")
+                .build();
+    }
+
+    private UserEntity getUser2() {
+        return UserEntity.builder()
+                .email("test2@test.com")
+                .username("test_username2")
+                .password("test_password2")
+                .build();
+    }
+}
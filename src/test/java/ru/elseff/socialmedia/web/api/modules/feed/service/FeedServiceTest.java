@@ -0,0 +1,277 @@
+package ru.elseff.socialmedia.web.api.modules.feed.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import ru.elseff.socialmedia.persistense.UserEntity;
+import ru.elseff.socialmedia.persistense.dao.PostRepository;
+import ru.elseff.socialmedia.persistense.dao.SubscriptionRepository;
+import ru.elseff.socialmedia.persistense.projection.PostView;
+import ru.elseff.socialmedia.web.api.modules.feed.timeline.FeedEngine;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostCreatedEvent;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostDeletedEvent;
+import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.subscription.event.SubscriptionChangedEvent;
+import ru.elseff.socialmedia.web.api.modules.user.service.UserService;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class FeedServiceTest {
+
+    @InjectMocks
+    FeedService feedService;
+
+    @Mock
+    PostRepository postRepository;
+
+    @Mock
+    PostService postService;
+
+    @Mock
+    SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    UserService userService;
+
+    @Spy
+    FeedEngine feedEngine = new FeedEngine(3, 2);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    @DisplayName("Новый пост попадает в ленты подписчиков")
+    void onPostCreated() {
+        given(subscriptionRepository.countSubscribersByUserId(anyLong())).willReturn(1L);
+        given(subscriptionRepository.findSubscriberIdsByUserId(anyLong())).willReturn(List.of(2L, 3L));
+
+        feedService.onPostCreated(new PostCreatedEvent(10L, 1L));
+
+        Assertions.assertEquals(List.of(10L), read(2L));
+        Assertions.assertEquals(List.of(10L), read(3L));
+        Assertions.assertEquals(List.of(), read(1L));
+        verify(subscriptionRepository, times(1)).countSubscribersByUserId(1L);
+        verify(subscriptionRepository, times(1)).findSubscriberIdsByUserId(1L);
+        verifyNoMoreInteractions(subscriptionRepository);
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("Пакет постов рассылается одним запросом подписчиков")
+    void onPostCreated_Batch() {
+        given(subscriptionRepository.countSubscribersByUserId(anyLong())).willReturn(1L);
+        given(subscriptionRepository.findSubscriberIdsByUserId(anyLong())).willReturn(List.of(2L));
+
+        feedService.onPostCreated(new PostCreatedEvent(List.of(10L, 11L, 12L), 1L));
+
+        Assertions.assertEquals(List.of(12L, 11L, 10L), read(2L));
+        verify(subscriptionRepository, times(1)).countSubscribersByUserId(1L);
+        verify(subscriptionRepository, times(1)).findSubscriberIdsByUserId(1L);
+    }
+
+    @Test
+    @DisplayName("Число подписчиков читается из базы один раз и дальше меняется подписками")
+    void onPostCreated_Counts_Subscribers_Once() {
+        given(subscriptionRepository.countSubscribersByUserId(anyLong())).willReturn(1L);
+        given(subscriptionRepository.findSubscriberIdsByUserId(anyLong())).willReturn(List.of(2L));
+        given(postRepository.findIdsByUserId(anyLong(), any(Pageable.class))).willReturn(List.of(10L));
+
+        feedService.onPostCreated(new PostCreatedEvent(10L, 1L));
+        feedService.onSubscriptionChanged(new SubscriptionChangedEvent(1L, 3L, true));
+        feedService.onPostCreated(new PostCreatedEvent(11L, 1L));
+
+        Assertions.assertTrue(feedEngine.isCelebrity(1L));
+        Assertions.assertEquals(List.of(10L), read(2L));
+        verify(subscriptionRepository, times(1)).countSubscribersByUserId(1L);
+    }
+
+    @Test
+    @DisplayName("Пост популярного автора не рассылается подписчикам, а подмешивается при чтении")
+    void onPostCreated_If_Author_Is_Celebrity() {
+        given(subscriptionRepository.countSubscribersByUserId(anyLong())).willReturn(2L);
+        push(9L);
+        push(11L);
+
+        feedService.onPostCreated(new PostCreatedEvent(10L, 1L));
+
+        Assertions.assertTrue(feedEngine.isCelebrity(1L));
+        Assertions.assertEquals(List.of(11L, 9L), read(2L));
+        Assertions.assertEquals(List.of(11L, 10L, 9L), feedEngine.read(2L, List.of(1L, 5L), Long.MAX_VALUE, 20));
+        Assertions.assertEquals(List.of(10L, 9L), feedEngine.read(2L, List.of(1L), 11L, 20));
+        verify(subscriptionRepository, times(1)).countSubscribersByUserId(1L);
+        verifyNoMoreInteractions(subscriptionRepository);
+    }
+
+    @Test
+    @DisplayName("Получить ленту с постами популярного автора")
+    void getFeed_With_Celebrity_Posts() {
+        given(subscriptionRepository.countSubscribersByUserId(anyLong())).willReturn(2L);
+        given(subscriptionRepository.findUserIdsBySubscriberId(anyLong())).willReturn(List.of(1L));
+        given(userService.getCurrentAuthUser()).willReturn(getUser());
+        given(postService.findAllByIds(anyList())).willReturn(List.of(getPost(11L), getPost(10L)));
+        push(10L);
+        feedService.onPostCreated(new PostCreatedEvent(11L, 1L));
+
+        Slice<PostView> feed = feedService.getFeed(null, 20);
+
+        Assertions.assertEquals(List.of(11L, 10L), feed.map(PostView::getId).getContent());
+        Assertions.assertFalse(feed.hasNext());
+        verify(subscriptionRepository, times(1)).findUserIdsBySubscriberId(2L);
+    }
+
+    @Test
+    @DisplayName("Удалённый пост пропадает из лент подписчиков")
+    void onPostDeleted() {
+        given(subscriptionRepository.findSubscriberIdsByUserId(anyLong())).willReturn(List.of(2L));
+        push(10L);
+        push(11L);
+
+        feedService.onPostDeleted(new PostDeletedEvent(10L, 1L, List.of()));
+
+        Assertions.assertEquals(List.of(11L), read(2L));
+    }
+
+    @Test
+    @DisplayName("Новый подписчик получает в ленту последние посты автора")
+    void onSubscriptionChanged_Subscribed() {
+        given(postRepository.findIdsByUserId(anyLong(), any(Pageable.class))).willReturn(List.of(7L, 5L));
+        feedEngine.publish(4L, 6L, 1L, () -> List.of(2L));
+
+        feedService.onSubscriptionChanged(new SubscriptionChangedEvent(1L, 2L, true));
+
+        Assertions.assertEquals(List.of(7L, 6L, 5L), read(2L));
+        verify(postRepository, times(1)).findIdsByUserId(eq(1L), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("После отписки посты автора пропадают из ленты")
+    void onSubscriptionChanged_Unsubscribed() {
+        given(postRepository.findIdsByUserId(anyLong(), any(Pageable.class))).willReturn(List.of(11L, 10L));
+        push(10L);
+        push(11L);
+        feedEngine.publish(4L, 12L, 1L, () -> List.of(2L));
+
+        feedService.onSubscriptionChanged(new SubscriptionChangedEvent(1L, 2L, false));
+
+        Assertions.assertEquals(List.of(12L), read(2L));
+    }
+
+    @Test
+    @DisplayName("Подписка на популярного автора не копирует его посты в ленту")
+    void onSubscriptionChanged_If_Author_Is_Celebrity() {
+        feedEngine.publish(1L, 10L, 2L, List::of);
+
+        feedService.onSubscriptionChanged(new SubscriptionChangedEvent(1L, 2L, true));
+
+        Assertions.assertEquals(List.of(), read(2L));
+        Assertions.assertEquals(List.of(10L), feedEngine.read(2L, List.of(1L), Long.MAX_VALUE, 20));
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("Пост, разосланный до того, как автор стал популярным, удаляется из лент подписчиков")
+    void onPostDeleted_If_Author_Became_Celebrity() {
+        given(subscriptionRepository.findSubscriberIdsByUserId(anyLong())).willReturn(List.of(2L));
+        push(10L);
+        feedEngine.publish(1L, 11L, 2L, List::of);
+
+        feedService.onPostDeleted(new PostDeletedEvent(11L, 1L, List.of()));
+        verifyNoInteractions(subscriptionRepository);
+        feedService.onPostDeleted(new PostDeletedEvent(10L, 1L, List.of()));
+
+        Assertions.assertEquals(List.of(), feedEngine.read(2L, List.of(1L), Long.MAX_VALUE, 20));
+    }
+
+    @Test
+    @DisplayName("Лента ограничена по размеру и хранит самые новые посты")
+    void timeline_Is_Bounded() {
+        for (long postId = 1; postId <= 5; postId++)
+            push(postId);
+        push(1L);
+
+        Assertions.assertEquals(List.of(5L, 4L, 3L), read(2L));
+    }
+
+    @Test
+    @DisplayName("Получить ленту текущего пользователя")
+    void getFeed() {
+        push(10L);
+        push(11L);
+        push(12L);
+        given(userService.getCurrentAuthUser()).willReturn(getUser());
+        given(postService.findAllByIds(anyList())).willReturn(List.of(getPost(12L), getPost(11L)));
+
+        Slice<PostView> feed = feedService.getFeed(null, 2);
+
+        Assertions.assertEquals(List.of(12L, 11L), feed.map(PostView::getId).getContent());
+        Assertions.assertTrue(feed.hasNext());
+        verify(postService, times(1)).findAllByIds(List.of(12L, 11L));
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("Получить следующую страницу ленты")
+    void getFeed_Next_Page() {
+        push(10L);
+        push(11L);
+        push(12L);
+        given(userService.getCurrentAuthUser()).willReturn(getUser());
+        given(postService.findAllByIds(anyList())).willReturn(List.of(getPost(10L)));
+
+        Slice<PostView> feed = feedService.getFeed(11L, 2);
+
+        Assertions.assertEquals(List.of(10L), feed.map(PostView::getId).getContent());
+        Assertions.assertFalse(feed.hasNext());
+    }
+
+    @Test
+    @DisplayName("Восстановить ленты из базы данных")
+    void rebuildTimelines() {
+        given(subscriptionRepository.findAllFollowedUserIds()).willReturn(List.of(1L));
+        given(subscriptionRepository.countSubscribersByUserId(anyLong())).willReturn(1L);
+        given(postRepository.findIdsByUserId(anyLong(), any(Pageable.class))).willReturn(List.of(7L, 5L));
+        given(subscriptionRepository.findSubscriberIdsByUserId(anyLong())).willReturn(List.of(2L, 3L));
+
+        feedService.rebuildTimelines();
+
+        Assertions.assertEquals(List.of(7L, 5L), read(2L));
+        Assertions.assertEquals(List.of(7L, 5L), read(3L));
+    }
+
+    private void push(long postId) {
+        feedEngine.publish(1L, postId, 1L, () -> List.of(2L));
+    }
+
+    private List<Long> read(long userId) {
+        return feedEngine.read(userId, List.of(), Long.MAX_VALUE, 20);
+    }
+
+    private UserEntity getUser() {
+        return UserEntity.builder()
+                .id(2L)
+                .email("test@test.com")
+                .username("test username")
+                .password("test password")
+                .build();
+    }
+
+    private PostView getPost(Long id) {
+        return new PostView(id, "test post title " + id, "test post text " + id, null, null, 1L, "test_username");
+    }
+}
@@ -0,0 +1,95 @@
+package ru.elseff.socialmedia.web.api.modules.feed.timeline;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Задержка чтения ленты и усиление записи (timelineWrites / posts) для автора
+ * с 10, 10 000 и 1 000 000 подписчиков: чистый push против гибридной ленты.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FeedEngineBenchmark {
+
+    static final int TIMELINE_CAPACITY = 100;
+
+    static final int CELEBRITY_THRESHOLD = 10_000;
+
+    static final int OTHER_AUTHORS = 50;
+
+    static final long AUTHOR_ID = 0;
+
+    static final long READER_ID = 1;
+
+    @Param({"10", "10000", "1000000"})
+    public int followers;
+
+    @Param({"PUSH", "HYBRID"})
+    public String strategy;
+
+    FeedEngine engine;
+
+    List<Long> followerIds;
+
+    List<Long> readerFollows;
+
+    long nextPostId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new FeedEngine(TIMELINE_CAPACITY,
+                "PUSH".equals(strategy) ? Integer.MAX_VALUE : CELEBRITY_THRESHOLD);
+        followerIds = LongStream.rangeClosed(READER_ID, followers)
+                .boxed()
+                .collect(Collectors.toList());
+        readerFollows = LongStream.concat(LongStream.of(AUTHOR_ID), LongStream.rangeClosed(2, OTHER_AUTHORS + 1))
+                .boxed()
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < TIMELINE_CAPACITY; i++) {
+            for (long author = 2; author <= OTHER_AUTHORS + 1; author++)
+                engine.publish(author, ++nextPostId, 1, () -> List.of(READER_ID));
+            engine.publish(AUTHOR_ID, ++nextPostId, followers, () -> followerIds);
+        }
+    }
+
+    @Benchmark
+    public int publish(WriteCounters counters) {
+        int writes = engine.publish(AUTHOR_ID, ++nextPostId, followers, () -> followerIds);
+        counters.posts++;
+        counters.timelineWrites += writes;
+        return writes;
+    }
+
+    @Benchmark
+    public List<Long> read() {
+        return engine.read(READER_ID, readerFollows, Long.MAX_VALUE, 20);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WriteCounters {
+
+        public long posts;
+
+        public long timelineWrites;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FeedEngineBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
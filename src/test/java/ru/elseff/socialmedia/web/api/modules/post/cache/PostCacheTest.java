@@ -0,0 +1,120 @@
+package ru.elseff.socialmedia.web.api.modules.post.cache;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.elseff.socialmedia.persistense.projection.PostView;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class PostCacheTest {
+
+    final AtomicLong clock = new AtomicLong();
+
+    PostCache postCache;
+
+    @BeforeEach
+    void setUp() {
+        postCache = new PostCache(2, Duration.ofSeconds(10), clock::get);
+    }
+
+    @Test
+    @DisplayName("Снимок поста устаревает по времени жизни")
+    void get_After_Ttl() {
+        postCache.get(1L, this::getPost);
+        clock.addAndGet(Duration.ofSeconds(9).toNanos());
+        postCache.get(1L, this::getPost);
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        postCache.get(1L, this::getPost);
+
+        Assertions.assertEquals(1, postCache.getHits());
+        Assertions.assertEquals(2, postCache.getMisses());
+        Assertions.assertEquals(1, postCache.getEvictions());
+    }
+
+    @Test
+    @DisplayName("При переполнении вытесняется давно не читанный пост")
+    void get_If_Cache_Is_Full() {
+        postCache.get(1L, this::getPost);
+        postCache.get(2L, this::getPost);
+        postCache.get(1L, this::getPost);
+        postCache.get(3L, this::getPost);
+        postCache.get(1L, this::getPost);
+        postCache.get(2L, this::getPost);
+
+        Assertions.assertEquals(2, postCache.size());
+        Assertions.assertEquals(2, postCache.getHits());
+        Assertions.assertEquals(4, postCache.getMisses());
+        Assertions.assertEquals(2, postCache.getEvictions());
+    }
+
+    @Test
+    @DisplayName("После изменения поста читатели не видят устаревший снимок")
+    void get_Concurrent_With_Invalidate() throws Exception {
+        AtomicLong version = new AtomicLong();
+        PostCache postCache = new PostCache(100, Duration.ofMinutes(1));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 3; i++)
+                readers.add(executor.submit(() -> {
+                    for (int j = 0; j < 20_000; j++)
+                        postCache.get(1L, id -> getPost(id, version.get()));
+                }));
+
+            for (int i = 0; i < 1_000; i++) {
+                version.incrementAndGet();
+                postCache.invalidate(1L);
+            }
+            for (Future<?> reader : readers)
+                reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        PostView post = postCache.get(1L, id -> getPost(id, version.get()));
+        Assertions.assertEquals("title " + version.get(), post.getTitle());
+    }
+
+    @Test
+    @DisplayName("Обновление меняет снимок в кэше и не добавляет отсутствующий")
+    void update() {
+        postCache.get(1L, this::getPost);
+        postCache.update(1L, post -> getPost(post.getId(), 1));
+        postCache.update(2L, post -> getPost(post.getId(), 1));
+
+        Assertions.assertEquals("title 1", postCache.get(1L, this::getPost).getTitle());
+        Assertions.assertEquals(1, postCache.size());
+        Assertions.assertEquals(1, postCache.getHits());
+    }
+
+    @Test
+    @DisplayName("Снимок, загруженный во время обновления поста, не попадает в кэш, а другие посты попадают")
+    void get_Concurrent_With_Update() {
+        postCache.get(1L, id -> {
+            postCache.get(2L, this::getPost);
+            postCache.update(1L, post -> post);
+            return getPost(id);
+        });
+        postCache.get(2L, this::getPost);
+
+        Assertions.assertEquals(1, postCache.size());
+        Assertions.assertEquals(1, postCache.getHits());
+    }
+
+    private PostView getPost(Long id) {
+        return getPost(id, 0);
+    }
+
+    private PostView getPost(Long id, long version) {
+        return new PostView(id, "title " + version, "text", null, null, 1L, "test_username");
+    }
+}
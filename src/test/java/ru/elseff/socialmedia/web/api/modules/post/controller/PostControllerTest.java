@@ -13,6 +13,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.TestExecutionEvent;
 import org.springframework.security.test.context.support.WithUserDetails;
@@ -23,8 +25,10 @@ import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilde
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.elseff.socialmedia.StatementCounter;
 import ru.elseff.socialmedia.exception.handling.dto.Violation;
 import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.PostImageEntity;
 import ru.elseff.socialmedia.persistense.UserEntity;
 import ru.elseff.socialmedia.persistense.dao.PostRepository;
 import ru.elseff.socialmedia.persistense.dao.UserRepository;
@@ -33,6 +37,7 @@ import ru.elseff.socialmedia.web.api.modules.post.dto.PostDto;
 import ru.elseff.socialmedia.web.api.modules.post.dto.PostUpdateDto;
 import ru.elseff.socialmedia.web.api.modules.post.dto.mapper.PostDtoAssembler;
 import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.postview.service.PostViewService;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -41,10 +46,12 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Testcontainers
 @SpringBootTest
+@Import(StatementCounter.class)
 @AutoConfigureMockMvc
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -68,6 +75,12 @@ class PostControllerTest {
     @Autowired
     PostService postService;
 
+    @Autowired
+    PostViewService postViewService;
+
+    @Autowired
+    StatementCounter statementCounter;
+
     @Autowired
     MockMvc mockMvc;
 
@@ -78,6 +91,7 @@ class PostControllerTest {
         registry.add("spring.datasource.url", postgres::getJdbcUrl);
         registry.add("spring.datasource.username", postgres::getUsername);
         registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("post.views.flush-delay", () -> "1h");
     }
 
     @Test
@@ -121,6 +135,113 @@ class PostControllerTest {
         Assertions.assertEquals(expectedPostList, actualPostList);
     }
 
+    @Test
+    @DisplayName("Найти все посты по курсору")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void findAllAfter() throws Exception {
+        PostEntity first = postService.addPost(getPost1());
+        PostEntity second = postService.addPost(getPost2());
+        MockHttpServletRequestBuilder request = get(endpoint)
+                .param("after", "")
+                .param("size", "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding(StandardCharsets.UTF_8);
+
+        String response = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<Integer> firstPageIds = JsonPath.parse(response).read("$._embedded.posts[*].id");
+        String next = JsonPath.parse(response).read("$._links.next.href");
+
+        Assertions.assertEquals(List.of(second.getId().intValue()), firstPageIds);
+        Assertions.assertFalse(response.contains("totalElements"));
+
+        response = mockMvc.perform(get(next)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding(StandardCharsets.UTF_8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<Integer> secondPageIds = JsonPath.parse(response).read("$._embedded.posts[*].id");
+
+        Assertions.assertEquals(List.of(first.getId().intValue()), secondPageIds);
+        Assertions.assertFalse(response.contains("\"next\""));
+    }
+
+    @Test
+    @DisplayName("Страница постов загружается четырьмя запросами: посты, картинки, реакции и просмотры")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void findAllAfter_Statement_Count() throws Exception {
+        for (int i = 0; i < 5; i++)
+            postService.addPost(getPostWithImages(i));
+        statementCounter.clear();
+
+        MockHttpServletRequestBuilder request = get(endpoint)
+                .param("after", "")
+                .param("size", "20")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding(StandardCharsets.UTF_8);
+
+        String response = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> authors = JsonPath.parse(response).read("$._embedded.posts[*].author.username");
+        List<String> images = JsonPath.parse(response).read("$._embedded.posts[*].images[*].filename");
+
+        Assertions.assertEquals(5, authors.size());
+        Assertions.assertEquals(10, images.size());
+        Assertions.assertEquals(4, statementCounter.count());
+    }
+
+    @Test
+    @DisplayName("Поиск постов по названию и тексту")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void search() throws Exception {
+        PostEntity inTitle = postService.addPost(getPost("Кошки и собаки", "Заметки о домашних животных"));
+        PostEntity inText = postService.addPost(getPost("Заметки", "Сегодня видел чёрную кошку"));
+        postService.addPost(getPost("Погода", "Сегодня солнечно"));
+        MockHttpServletRequestBuilder request = get(endpoint + "/search")
+                .param("q", "кошка")
+                .param("size", "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding(StandardCharsets.UTF_8);
+
+        String response = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<Integer> firstPageIds = JsonPath.parse(response).read("$._embedded.posts[*].id");
+        String next = JsonPath.parse(response).read("$._links.next.href");
+
+        Assertions.assertEquals(List.of(inTitle.getId().intValue()), firstPageIds);
+
+        response = mockMvc.perform(get(next)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding(StandardCharsets.UTF_8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<Integer> secondPageIds = JsonPath.parse(response).read("$._embedded.posts[*].id");
+
+        Assertions.assertEquals(List.of(inText.getId().intValue()), secondPageIds);
+        Assertions.assertFalse(response.contains("\"next\""));
+    }
+
+    @Test
+    @DisplayName("Поиск постов по пустому запросу")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void search_If_Query_Is_Blank() throws Exception {
+        MockHttpServletRequestBuilder request = get(endpoint + "/search")
+                .param("q", " ")
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding(StandardCharsets.UTF_8);
+
+        mockMvc.perform(request)
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("Найти пост по id")
     @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
@@ -144,6 +265,78 @@ class PostControllerTest {
         Assertions.assertEquals(getUser1().getUsername(), actualPost.getAuthor().getUsername());
     }
 
+    @Test
+    @DisplayName("Найти пост по id с If-None-Match")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void findById_If_Not_Modified() throws Exception {
+        PostEntity post = postService.addPost(getPost1());
+        String endpoint = this.endpoint + "/" + post.getId();
+
+        String etag = mockMvc.perform(get(endpoint))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        String response = mockMvc.perform(get(endpoint).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andReturn().getResponse().getContentAsString();
+
+        Assertions.assertTrue(response.isEmpty());
+
+        mockMvc.perform(patch(endpoint)
+                        .content(objectMapper.writeValueAsString(getPostUpdateDto()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding(StandardCharsets.UTF_8))
+                .andExpect(status().isOk());
+
+        String newEtag = mockMvc.perform(get(endpoint).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Assertions.assertNotEquals(etag, newEtag);
+    }
+
+    @Test
+    @DisplayName("Просмотры поста считаются по уникальным зрителям")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void findById_Views() throws Exception {
+        PostEntity post = postService.addPost(getPost1());
+        String endpoint = this.endpoint + "/" + post.getId();
+
+        for (int i = 0; i < 3; i++)
+            mockMvc.perform(get(endpoint))
+                    .andExpect(status().isOk());
+        postViewService.flush();
+
+        String response = mockMvc.perform(get(endpoint))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        postViewService.flush();
+
+        Assertions.assertEquals(1, (int) JsonPath.parse(response).read("$.views"));
+        Assertions.assertEquals(1, postViewService.findCount(post.getId()));
+    }
+
+    @Test
+    @DisplayName("Найти все посты с If-None-Match")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void findAll_If_Not_Modified() throws Exception {
+        postService.addPost(getPost1());
+
+        String etag = mockMvc.perform(get(endpoint))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(endpoint).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        postService.addPost(getPost2());
+
+        mockMvc.perform(get(endpoint).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @DisplayName("Найти пост, если он не найден")
     @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
@@ -206,6 +399,58 @@ class PostControllerTest {
         Assertions.assertEquals(expectedViolations, actualViolations);
     }
 
+    @Test
+    @DisplayName("Добавить посты пакетом")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void addPosts() throws Exception {
+        List<PostCreationDto> posts = new ArrayList<>();
+        for (int i = 0; i < 60; i++)
+            posts.add(i == 1 ? getInvalidPostCreationDto() : getPostCreationDto());
+        String content = objectMapper.writeValueAsString(posts);
+
+        MockHttpServletRequestBuilder request = post(endpoint + "/bulk")
+                .content(content)
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding(StandardCharsets.UTF_8);
+
+        String response = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<Integer> indexes = JsonPath.parse(response).read("$[*].index");
+        List<String> statuses = JsonPath.parse(response).read("$[*].status");
+        List<Integer> ids = JsonPath.parse(response).read("$[*].post.id");
+        String rejectedField = JsonPath.parse(response).read("$[1].violations[0].fieldName");
+
+        Assertions.assertEquals(60, indexes.size());
+        Assertions.assertEquals(1, indexes.get(1));
+        Assertions.assertEquals("REJECTED", statuses.get(1));
+        Assertions.assertEquals(59, statuses.stream().filter("CREATED"::equals).count());
+        Assertions.assertEquals(59, ids.stream().distinct().count());
+        Assertions.assertEquals("title", rejectedField);
+        Assertions.assertEquals(59, postRepository.count());
+    }
+
+    @Test
+    @DisplayName("Добавить слишком большой пакет постов")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void addPosts_If_Too_Many() throws Exception {
+        List<PostCreationDto> posts = new ArrayList<>();
+        for (int i = 0; i < 501; i++)
+            posts.add(getPostCreationDto());
+        String content = objectMapper.writeValueAsString(posts);
+
+        MockHttpServletRequestBuilder request = post(endpoint + "/bulk")
+                .content(content)
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding(StandardCharsets.UTF_8);
+
+        mockMvc.perform(request)
+                .andExpect(status().isBadRequest());
+
+        Assertions.assertEquals(0, postRepository.count());
+    }
+
     @Test
     @DisplayName("Удалить пост")
     @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
@@ -403,6 +648,22 @@ class PostControllerTest {
                 .build();
     }
 
+    private PostEntity getPostWithImages(int i) {
+        PostEntity post = getPost1();
+        post.getImages().add(PostImageEntity.builder().post(post).filename(i + "_1.png").build());
+        post.getImages().add(PostImageEntity.builder().post(post).filename(i + "_2.png").build());
+
+        return post;
+    }
+
+    private PostEntity getPost(String title, String text) {
+        return PostEntity.builder()
+                .title(title)
+                .text(text)
+                .images(new HashSet<>())
+                .build();
+    }
+
     private PostEntity getPost2() {
         return PostEntity.builder()
                 .title("test title 2")
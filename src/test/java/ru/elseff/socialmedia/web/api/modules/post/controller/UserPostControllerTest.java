@@ -0,0 +1,184 @@
+package ru.elseff.socialmedia.web.api.modules.post.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.TestExecutionEvent;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.PostImageEntity;
+import ru.elseff.socialmedia.persistense.UserEntity;
+import ru.elseff.socialmedia.persistense.dao.UserRepository;
+import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Testcontainers
+@SpringBootTest
+@AutoConfigureMockMvc
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class UserPostControllerTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest");
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    PostService postService;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    final String endpoint = "/api/v1/users/{username}/posts";
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        userRepository.save(getUser1());
+        userRepository.save(getUser2());
+    }
+
+    @Test
+    @DisplayName("Найти посты пользователя по курсору")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void findAll() throws Exception {
+        Long first = postService.addPost(getPost(0)).getId();
+        Long second = postService.addPost(getPost(1)).getId();
+
+        String response = mockMvc.perform(get(endpoint, getUser1().getUsername()).param("size", "1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<Integer> firstPageIds = JsonPath.parse(response).read("$._embedded.posts[*].id");
+        String next = JsonPath.parse(response).read("$._links.next.href");
+
+        Assertions.assertEquals(List.of(second.intValue()), firstPageIds);
+
+        response = mockMvc.perform(get(next))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<Integer> secondPageIds = JsonPath.parse(response).read("$._embedded.posts[*].id");
+        List<String> authors = JsonPath.parse(response).read("$._embedded.posts[*].author.username");
+
+        Assertions.assertEquals(List.of(first.intValue()), secondPageIds);
+        Assertions.assertEquals(List.of(getUser1().getUsername()), authors);
+        Assertions.assertFalse(response.contains("\"next\""));
+    }
+
+    @Test
+    @DisplayName("Найти посты пользователя, если он не найден")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void findAll_If_User_Is_Not_Found() throws Exception {
+        mockMvc.perform(get(endpoint, "unknown"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Выгрузить посты пользователя в NDJSON")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void export() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            ids.add(postService.addPost(getPost(i)).getId());
+
+        MvcResult result = mockMvc.perform(get(endpoint + "/export", getUser1().getUsername()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String response = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        String[] lines = response.split("\n");
+        Assertions.assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            Assertions.assertEquals(ids.get(i).intValue(), (int) JsonPath.parse(lines[i]).read("$.id"));
+            Assertions.assertEquals(getUser1().getUsername(), JsonPath.parse(lines[i]).read("$.author.username"));
+            Assertions.assertTrue(JsonPath.parse(lines[i]).read("$.createdAt", String.class)
+                    .matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}"));
+            Assertions.assertEquals(List.of(i + ".png"), JsonPath.parse(lines[i]).read("$.images[*].filename"));
+        }
+    }
+
+    @Test
+    @DisplayName("Выгрузить посты пользователя без постов")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void export_If_User_Has_No_Posts() throws Exception {
+        MvcResult result = mockMvc.perform(get(endpoint + "/export", getUser2().getUsername()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String response = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        Assertions.assertTrue(response.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Выгрузить посты, если пользователь не найден")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void export_If_User_Is_Not_Found() throws Exception {
+        mockMvc.perform(get(endpoint + "/export", "unknown"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private UserEntity getUser1() {
+        return UserEntity.builder()
+                .email("test@test.com")
+                .username("test_username")
+                .password("test_password")
+                .build();
+    }
+
+    private UserEntity getUser2() {
+        return UserEntity.builder()
+                .email("test2@test.com")
+                .username("test_username2")
+                .password("test_password2")
+                .build();
+    }
+
+    private PostEntity getPost(int i) {
+        PostEntity post = PostEntity.builder()
+                .title("test title " + i)
+                .text("test text " + i)
+                .images(new HashSet<>())
+                .build();
+        post.getImages().add(PostImageEntity.builder().post(post).filename(i + ".png").build());
+
+        return post;
+    }
+}
@@ -0,0 +1,126 @@
+package ru.elseff.socialmedia.web.api.modules.post.dto.mapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.elseff.socialmedia.persistense.ReactionType;
+import ru.elseff.socialmedia.persistense.projection.PostImageView;
+import ru.elseff.socialmedia.persistense.projection.PostView;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostDto;
+import ru.elseff.socialmedia.web.api.modules.postimage.dto.PostImageDto;
+import ru.elseff.socialmedia.web.api.modules.user.dto.UserDto;
+
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Маппинг и сериализация страницы из 100 постов: прежний путь (SimpleDateFormat на каждую
+ * дату, стримы, рефлексивный Jackson) против текущего PostDtoAssembler и Blackbird.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class PostDtoBenchmark {
+
+    static final int PAGE_SIZE = 100;
+
+    @Param({"LEGACY", "CURRENT"})
+    public String path;
+
+    List<PostView> page;
+
+    PostDtoAssembler postDtoAssembler;
+
+    ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        page = new ArrayList<>(PAGE_SIZE);
+        Instant now = Instant.now();
+        for (long id = 1; id <= PAGE_SIZE; id++)
+            page.add(new PostView(id, "title " + id, "text of post " + id,
+                    Timestamp.from(now.minusSeconds(id * 60)), Timestamp.from(now.minusSeconds(id)),
+                    id % 10, "author" + id % 10)
+                    .withImages(List.of(new PostImageView(id * 2, id, "image" + id + ".png"),
+                            new PostImageView(id * 2 + 1, id, "image" + id + "b.png")))
+                    .withReactions(Map.of(ReactionType.LIKE, id, ReactionType.WOW, 1L))
+                    .withViews(id * 7));
+
+        postDtoAssembler = new PostDtoAssembler();
+        objectMapper = new ObjectMapper();
+        if ("CURRENT".equals(path))
+            objectMapper.registerModule(new BlackbirdModule());
+    }
+
+    @Benchmark
+    public List<PostDto> map() {
+        return "CURRENT".equals(path) ? mapCurrent() : mapLegacy();
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(map());
+    }
+
+    private List<PostDto> mapCurrent() {
+        List<PostDto> posts = new ArrayList<>(page.size());
+        for (PostView postView : page)
+            posts.add(postDtoAssembler.mapPostViewToDto(postView));
+        return posts;
+    }
+
+    private List<PostDto> mapLegacy() {
+        List<PostDto> posts = new ArrayList<>();
+        page.forEach(postView -> posts.add(mapPostViewToDtoLegacy(postView)));
+        return posts;
+    }
+
+    private static PostDto mapPostViewToDtoLegacy(PostView postView) {
+        return PostDto.builder()
+                .id(postView.getId())
+                .title(postView.getTitle())
+                .text(postView.getText())
+                .createdAt(postView.getCreatedAt() != null
+                        ? new SimpleDateFormat("yyyy-MM-dd hh:mm:ss").format(Date.from(postView.getCreatedAt()))
+                        : null)
+                .updatedAt(postView.getUpdatedAt() != null
+                        ? new SimpleDateFormat("yyyy-MM-dd hh:mm:ss").format(Date.from(postView.getUpdatedAt()))
+                        : null)
+                .author(UserDto.builder()
+                        .id(postView.getAuthorId())
+                        .username(postView.getAuthorUsername())
+                        .build())
+                .images(postView.getImages()
+                        .stream()
+                        .map(image ->
+                                PostImageDto.builder()
+                                        .id(image.getId())
+                                        .filename(image.getFilename())
+                                        .build()
+                        ).collect(Collectors.toList()))
+                .reactions(postView.getReactions())
+                .views(postView.getViews())
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PostDtoBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -6,20 +6,53 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
 import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.ReactionType;
 import ru.elseff.socialmedia.persistense.UserEntity;
+import ru.elseff.socialmedia.persistense.dao.PostImageRepository;
 import ru.elseff.socialmedia.persistense.dao.PostRepository;
+import ru.elseff.socialmedia.persistense.projection.PostImageView;
+import ru.elseff.socialmedia.persistense.projection.PostSearchRow;
+import ru.elseff.socialmedia.persistense.projection.PostVersion;
+import ru.elseff.socialmedia.persistense.projection.PostView;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostETag;
+import ru.elseff.socialmedia.web.api.modules.post.cache.PostCache;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostCursor;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostSearchCursor;
+import ru.elseff.socialmedia.web.api.modules.post.dto.PostSearchResult;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostCreatedEvent;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostDeletedEvent;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostUpdatedEvent;
+import ru.elseff.socialmedia.web.api.modules.postimage.event.PostImageUploadedEvent;
+import ru.elseff.socialmedia.web.api.modules.postreaction.event.PostReactionsFlushedEvent;
+import ru.elseff.socialmedia.web.api.modules.postreaction.service.PostReactionService;
+import ru.elseff.socialmedia.web.api.modules.postview.event.PostViewsFlushedEvent;
+import ru.elseff.socialmedia.web.api.modules.postview.service.PostViewService;
 import ru.elseff.socialmedia.web.api.modules.user.service.UserService;
 
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
@@ -38,6 +71,24 @@ class PostServiceTest {
     @Mock
     PostRepository postRepository;
 
+    @Mock
+    PostImageRepository postImageRepository;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    PostReactionService postReactionService;
+
+    @Mock
+    PostViewService postViewService;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Spy
+    PostCache postCache = new PostCache(10, Duration.ofMinutes(1));
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -46,20 +97,242 @@ class PostServiceTest {
     @Test
     @DisplayName("Найти все посты")
     void findAll() {
-        when(postRepository.findAll(any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(getPost1(), getPost2())));
+        when(postRepository.findAllViews(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(getPostView1(), getPostView2())));
+        when(postImageRepository.findAllViewsByPostIdIn(anyCollection()))
+                .thenReturn(List.of(new PostImageView(5L, 2L, "image.png")));
+
+        Page<PostView> posts = postService.findAll(20, 0, "id", "ASC");
+
+        List<Long> expectedPostIds = List.of(1L, 2L);
+        List<Long> actualPostIds = posts.map(PostView::getId).getContent();
+
+        Assertions.assertEquals(expectedPostIds, actualPostIds);
+        Assertions.assertTrue(posts.getContent().get(0).getImages().isEmpty());
+        Assertions.assertEquals("image.png", posts.getContent().get(1).getImages().get(0).getFilename());
+        verify(postRepository, times(1)).findAllViews(any(Pageable.class));
+        verify(postImageRepository, times(1)).findAllViewsByPostIdIn(List.of(1L, 2L));
+        verifyNoMoreInteractions(postRepository);
+        verifyNoMoreInteractions(postImageRepository);
+        verifyNoInteractions(userService);
+    }
 
-        Page<PostEntity> posts = postService.findAll(20, 0, "id", "ASC");
+    @Test
+    @DisplayName("Счётчики реакций и просмотров страницы загружаются одним запросом")
+    void findAllAfter_Reactions() {
+        when(postRepository.findAllViewsFirst(any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(getPostView2(), getPostView1())));
+        when(postReactionService.findPersistedCounts(anyCollection()))
+                .thenReturn(Map.of(1L, Map.of(ReactionType.LIKE, 3L)));
+        when(postReactionService.withPending(anyLong(), anyMap())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(postViewService.findCounts(anyCollection())).thenReturn(Map.of(2L, 4L));
+
+        Slice<PostView> posts = postService.findAllAfter("", 20);
+
+        Assertions.assertEquals(Map.of(), posts.getContent().get(0).getReactions());
+        Assertions.assertEquals(Map.of(ReactionType.LIKE, 3L), posts.getContent().get(1).getReactions());
+        Assertions.assertEquals(4L, posts.getContent().get(0).getViews());
+        Assertions.assertEquals(0L, posts.getContent().get(1).getViews());
+        verify(postReactionService, times(1)).findPersistedCounts(List.of(2L, 1L));
+        verify(postViewService, times(1)).findCounts(List.of(2L, 1L));
+        verifyNoMoreInteractions(postViewService);
+    }
 
-        List<PostEntity> expectedPosts = new ArrayList<>(List.of(getPost1(), getPost2()));
-        List<PostEntity> actualPosts = posts.getContent();
+    @Test
+    @DisplayName("Найти первую страницу постов по курсору")
+    void findAllAfter_First_Page() {
+        when(postRepository.findAllViewsFirst(any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(getPostView2(), getPostView1())));
 
-        Assertions.assertEquals(expectedPosts, actualPosts);
-        verify(postRepository, times(1)).findAll(any(Pageable.class));
+        Slice<PostView> posts = postService.findAllAfter("", 20);
+
+        Assertions.assertEquals(List.of(2L, 1L), posts.map(PostView::getId).getContent());
+        verify(postRepository, times(1)).findAllViewsFirst(any(Pageable.class));
+        verify(postImageRepository, times(1)).findAllViewsByPostIdIn(List.of(2L, 1L));
         verifyNoMoreInteractions(postRepository);
         verifyNoInteractions(userService);
     }
 
+    @Test
+    @DisplayName("Найти следующую страницу постов по курсору")
+    void findAllAfter_Next_Page() {
+        Timestamp createdAt = Timestamp.from(Instant.parse("2022-10-01T10:15:30.123456Z"));
+        String after = new PostCursor(createdAt, 2L).encode();
+        when(postRepository.findAllViewsAfter(any(Timestamp.class), anyLong(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(getPostView1())));
+
+        Slice<PostView> posts = postService.findAllAfter(after, 20);
+
+        Assertions.assertEquals(List.of(1L), posts.map(PostView::getId).getContent());
+        verify(postRepository, times(1)).findAllViewsAfter(eq(createdAt), eq(2L), any(Pageable.class));
+        verifyNoMoreInteractions(postRepository);
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    @DisplayName("Найти посты по списку id с сохранением порядка")
+    void findAllByIds() {
+        when(postRepository.findAllViewsByIdIn(anyCollection()))
+                .thenReturn(List.of(getPostView1(), getPostView2()));
+
+        List<PostView> posts = postService.findAllByIds(List.of(2L, 3L, 1L));
+
+        Assertions.assertEquals(List.of(2L, 1L), posts.stream().map(PostView::getId).collect(Collectors.toList()));
+        verify(postRepository, times(1)).findAllViewsByIdIn(List.of(2L, 3L, 1L));
+        verify(postImageRepository, times(1)).findAllViewsByPostIdIn(anyCollection());
+        verifyNoMoreInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("Найти посты по неверному курсору")
+    void findAllAfter_If_Cursor_Is_Invalid() {
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> postService.findAllAfter("not a cursor", 20));
+
+        String expectedExceptionMessage = "invalid cursor";
+        String actualExceptionMessage = exception.getMessage();
+
+        Assertions.assertEquals(expectedExceptionMessage, actualExceptionMessage);
+        verifyNoInteractions(postRepository);
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    @DisplayName("Найти посты пользователя")
+    void findAllByUsername() {
+        given(userService.findIdByUsername(anyString())).willReturn(1L);
+        when(postRepository.findAllViewsByUserIdFirst(anyLong(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(getPostView2(), getPostView1())));
+
+        Slice<PostView> posts = postService.findAllByUsername("test_username", null, 20);
+
+        Assertions.assertEquals(List.of(2L, 1L), posts.map(PostView::getId).getContent());
+        verify(userService, times(1)).findIdByUsername("test_username");
+        verify(postRepository, times(1)).findAllViewsByUserIdFirst(eq(1L), any(Pageable.class));
+        verifyNoMoreInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("Найти следующую страницу постов пользователя")
+    void findAllByUsername_Next_Page() {
+        Timestamp createdAt = Timestamp.from(Instant.parse("2022-10-01T10:15:30.123456Z"));
+        String after = new PostCursor(createdAt, 2L).encode();
+        given(userService.findIdByUsername(anyString())).willReturn(1L);
+        when(postRepository.findAllViewsByUserIdAfter(anyLong(), any(Timestamp.class), anyLong(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(getPostView1())));
+
+        Slice<PostView> posts = postService.findAllByUsername("test_username", after, 20);
+
+        Assertions.assertEquals(List.of(1L), posts.map(PostView::getId).getContent());
+        verify(postRepository, times(1)).findAllViewsByUserIdAfter(eq(1L), eq(createdAt), eq(2L), any(Pageable.class));
+        verifyNoMoreInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("Найти посты пользователя, если он не найден")
+    void findAllByUsername_If_User_Is_Not_Found() {
+        given(userService.findIdByUsername(anyString())).willThrow(new IllegalArgumentException("user not found"));
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> postService.findAllByUsername("unknown", null, 20));
+
+        Assertions.assertEquals("user not found", exception.getMessage());
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("Поиск постов")
+    void search() {
+        when(postRepository.search(anyString(), anyInt()))
+                .thenReturn(List.of(getSearchRow(2L, 0.5f), getSearchRow(1L, 0.2f)));
+
+        PostSearchResult result = postService.search("test", null, 1);
+
+        Assertions.assertEquals(List.of(2L), result.getPosts().stream().map(PostView::getId).collect(Collectors.toList()));
+        Assertions.assertEquals(0.5f, result.getNext().getRank());
+        Assertions.assertEquals(2L, result.getNext().getId());
+        verify(postRepository, times(1)).search("test", 2);
+        verify(postImageRepository, times(1)).findAllViewsByPostIdIn(List.of(2L));
+        verifyNoMoreInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("Поиск постов, следующая страница")
+    void search_Next_Page() {
+        String after = new PostSearchCursor(0.5f, 2L).encode();
+        when(postRepository.searchAfter(anyString(), anyFloat(), anyLong(), anyInt()))
+                .thenReturn(List.of(getSearchRow(1L, 0.2f)));
+
+        PostSearchResult result = postService.search("test", after, 1);
+
+        Assertions.assertEquals(List.of(1L), result.getPosts().stream().map(PostView::getId).collect(Collectors.toList()));
+        Assertions.assertNull(result.getNext());
+        verify(postRepository, times(1)).searchAfter("test", 0.5f, 2L, 2);
+        verifyNoMoreInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("Поиск постов по пустому запросу")
+    void search_If_Query_Is_Blank() {
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> postService.search(" ", null, 20));
+
+        Assertions.assertEquals("empty search query", exception.getMessage());
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("Версии страницы дают тот же ETag, что и сама страница")
+    void findAllVersions() {
+        when(postRepository.findAllViews(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(getPostView1(), getPostView2())));
+        when(postRepository.findAllVersions(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(new PostVersion(1L, null, null, 0L, null),
+                        new PostVersion(2L, null, null, 0L, null))));
+        when(postReactionService.findPersistedCounts(anyCollection()))
+                .thenReturn(Map.of(1L, Map.of(ReactionType.LIKE, 2L)));
+        when(postReactionService.withPending(anyLong(), anyMap())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(postViewService.findCounts(anyCollection())).thenReturn(Map.of(2L, 4L));
+
+        Page<PostVersion> versions = postService.findAllVersions(20, 0, "id", "ASC");
+        Page<PostView> posts = postService.findAll(20, 0, "id", "ASC");
+
+        Assertions.assertEquals(4L, versions.getContent().get(1).getViews());
+        Assertions.assertEquals(PostETag.of(posts.map(PostVersion::of)), PostETag.of(versions));
+    }
+
+    @Test
+    @DisplayName("Выгрузить посты пользователя вместе с картинками и счётчиками")
+    void exportByUsername() {
+        when(postReactionService.findPersistedCounts(anyCollection()))
+                .thenReturn(Map.of(1L, Map.of(ReactionType.LIKE, 2L)));
+        when(postReactionService.withPending(anyLong(), anyMap())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(postViewService.findCounts(anyCollection())).thenReturn(Map.of(2L, 4L));
+        when(postRepository.streamViewsByUsername(anyString()))
+                .thenReturn(Stream.of(getPostView1(), getPostView2()));
+        when(postImageRepository.streamViewsByUsername(anyString()))
+                .thenReturn(Stream.of(
+                        new PostImageView(5L, 1L, "first.png"),
+                        new PostImageView(6L, 1L, "second.png"),
+                        new PostImageView(7L, 2L, "third.png")));
+        List<PostView> exported = new ArrayList<>();
+
+        postService.exportByUsername("test_username", exported::add);
+
+        Assertions.assertEquals(List.of(1L, 2L), exported.stream().map(PostView::getId).collect(Collectors.toList()));
+        Assertions.assertEquals(List.of(5L, 6L), exported.get(0).getImages().stream().map(PostImageView::getId).collect(Collectors.toList()));
+        Assertions.assertEquals(List.of(7L), exported.get(1).getImages().stream().map(PostImageView::getId).collect(Collectors.toList()));
+        Assertions.assertEquals(Map.of(ReactionType.LIKE, 2L), exported.get(0).getReactions());
+        Assertions.assertEquals(0L, exported.get(0).getViews());
+        Assertions.assertEquals(4L, exported.get(1).getViews());
+        verify(postReactionService, times(1)).findPersistedCounts(List.of(1L, 2L));
+        verify(postViewService, times(1)).findCounts(List.of(1L, 2L));
+        verify(postRepository, times(1)).streamViewsByUsername("test_username");
+        verify(postImageRepository, times(1)).streamViewsByUsername("test_username");
+        verifyNoMoreInteractions(postRepository);
+        verifyNoMoreInteractions(postImageRepository);
+    }
+
     @Test
     @DisplayName("Найти пост по id")
     void findById() {
@@ -91,6 +364,122 @@ class PostServiceTest {
         verifyNoInteractions(userService);
     }
 
+    @Test
+    @DisplayName("Найти пост по id через кэш")
+    void findViewById() {
+        given(postRepository.findViewById(anyLong())).willReturn(Optional.of(getPostView1()));
+        given(postImageRepository.findAllViewsByPostIdIn(anyCollection()))
+                .willReturn(List.of(new PostImageView(5L, 1L, "image.png")));
+        given(postViewService.findCount(anyLong())).willReturn(3L);
+
+        PostView first = postService.findViewById(1L);
+        PostView second = postService.findViewById(1L);
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals("image.png", second.getImages().get(0).getFilename());
+        Assertions.assertEquals(3L, second.getViews());
+        Assertions.assertEquals(1, postCache.getHits());
+        Assertions.assertEquals(1, postCache.getMisses());
+        verify(postRepository, times(1)).findViewById(1L);
+        verifyNoMoreInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("Найти пост по id через кэш, если он не найден")
+    void findViewById_If_Post_Is_Not_Found() {
+        given(postRepository.findViewById(anyLong())).willReturn(Optional.empty());
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> postService.findViewById(0L));
+
+        Assertions.assertEquals("post not found", exception.getMessage());
+        Assertions.assertEquals(0, postCache.size());
+    }
+
+    @Test
+    @DisplayName("Изменение поста сбрасывает его из кэша")
+    void findViewById_After_Invalidation() {
+        given(postRepository.findViewById(anyLong())).willReturn(Optional.of(getPostView1()));
+
+        postService.findViewById(1L);
+        postService.onPostUpdated(new PostUpdatedEvent(1L));
+        postService.findViewById(1L);
+        postService.onPostImageUploaded(new PostImageUploadedEvent(1L, 5L, null));
+        postService.findViewById(1L);
+        postService.onPostDeleted(new PostDeletedEvent(1L, 1L, List.of()));
+        postService.findViewById(1L);
+
+        Assertions.assertEquals(4, postCache.getMisses());
+        verify(postRepository, times(4)).findViewById(1L);
+    }
+
+    @Test
+    @DisplayName("Сброс просмотров перечитывает оценку только для постов из кэша")
+    void findViewById_After_Views_Flushed() {
+        given(postRepository.findViewById(anyLong())).willReturn(Optional.of(getPostView1()));
+        given(postViewService.findCount(1L)).willReturn(3L);
+        given(postViewService.findCounts(List.of(1L))).willReturn(Map.of(1L, 7L));
+
+        postService.findViewById(1L);
+        postService.onPostViewsFlushed(new PostViewsFlushedEvent(Set.of(1L, 2L)));
+        PostView post = postService.findViewById(1L);
+
+        Assertions.assertEquals(7L, post.getViews());
+        Assertions.assertEquals(1, postCache.getMisses());
+        verify(postViewService, times(1)).findCounts(List.of(1L));
+        verify(postRepository, times(1)).findViewById(1L);
+    }
+
+    @Test
+    @DisplayName("Сброс реакций обновляет счётчики в снимке из кэша, не выбрасывая его")
+    void findViewById_After_Reactions_Flushed() {
+        given(postRepository.findViewById(anyLong())).willReturn(Optional.of(getPostView1()));
+        given(postReactionService.findPersistedCounts(anyCollection()))
+                .willReturn(Map.of(1L, Map.of(ReactionType.LIKE, 3L, ReactionType.WOW, 1L)));
+        given(postReactionService.withPending(anyLong(), anyMap())).willAnswer(invocation -> invocation.getArgument(1));
+
+        postService.findViewById(1L);
+        postService.onPostReactionsFlushed(new PostReactionsFlushedEvent(
+                Map.of(1L, Map.of(ReactionType.LIKE, 2L, ReactionType.WOW, -1L))));
+        PostView post = postService.findViewById(1L);
+
+        Assertions.assertEquals(Map.of(ReactionType.LIKE, 5L), post.getReactions());
+        Assertions.assertEquals(1, postCache.getMisses());
+        Assertions.assertEquals(1, postCache.getHits());
+        verify(postRepository, times(1)).findViewById(1L);
+    }
+
+    @Test
+    @DisplayName("К снимку из кэша добавляется ещё не сброшенный прирост реакций")
+    void findViewById_With_Pending_Reactions() {
+        given(postRepository.findViewById(anyLong())).willReturn(Optional.of(getPostView1()));
+        given(postReactionService.findPersistedCounts(anyCollection()))
+                .willReturn(Map.of(1L, Map.of(ReactionType.LIKE, 3L)));
+        given(postReactionService.withPending(1L, Map.of(ReactionType.LIKE, 3L)))
+                .willReturn(Map.of(ReactionType.LIKE, 5L));
+
+        PostView first = postService.findViewById(1L);
+        PostView second = postService.findViewById(1L);
+
+        Assertions.assertEquals(Map.of(ReactionType.LIKE, 5L), second.getReactions());
+        Assertions.assertNotSame(first, second);
+        verify(postRepository, times(1)).findViewById(1L);
+        verify(postReactionService, times(1)).findPersistedCounts(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("Снимок, загруженный во время изменения поста, не попадает в кэш")
+    void findViewById_If_Updated_While_Loading() {
+        given(postRepository.findViewById(anyLong())).willAnswer(invocation -> {
+            postService.onPostUpdated(new PostUpdatedEvent(1L));
+            return Optional.of(getPostView1());
+        });
+
+        postService.findViewById(1L);
+
+        Assertions.assertEquals(0, postCache.size());
+    }
+
     @Test
     @DisplayName("Добавить пост")
     void addPost() {
@@ -103,8 +492,41 @@ class PostServiceTest {
         Assertions.assertEquals(expectedPost, actualPost);
         verify(userService, times(1)).getCurrentAuthUser();
         verify(postRepository, times(1)).save(any(PostEntity.class));
+        verify(eventPublisher, times(1)).publishEvent(any(PostCreatedEvent.class));
         verifyNoMoreInteractions(userService);
         verifyNoMoreInteractions(postRepository);
+        verifyNoMoreInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Добавить посты пакетом")
+    void addPosts() {
+        when(userService.getCurrentAuthUser()).thenReturn(getUser());
+        when(jdbcTemplate.queryForList(PostService.NEXT_POST_IDS, Long.class, 2)).thenReturn(List.of(7L, 8L));
+
+        List<PostEntity> posts = postService.addPosts(List.of(getPost1(), getPost2()));
+
+        Assertions.assertEquals(List.of(7L, 8L), posts.stream().map(PostEntity::getId).toList());
+        Assertions.assertTrue(posts.stream().allMatch(post -> post.getUser() != null && post.getCreatedAt() != null));
+        verify(userService, times(1)).getCurrentAuthUser();
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(PostService.INSERT_POST), eq(posts), eq(2),
+                any(ParameterizedPreparedStatementSetter.class));
+        ArgumentCaptor<PostCreatedEvent> event = ArgumentCaptor.forClass(PostCreatedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        Assertions.assertEquals(List.of(7L, 8L), event.getValue().getPostIds());
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("Добавить пустой пакет постов")
+    void addPosts_If_Empty() {
+        List<PostEntity> posts = postService.addPosts(List.of());
+
+        Assertions.assertTrue(posts.isEmpty());
+        verifyNoInteractions(userService);
+        verifyNoInteractions(postRepository);
+        verifyNoInteractions(jdbcTemplate);
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
@@ -121,9 +543,10 @@ class PostServiceTest {
         verify(postRepository, times(1)).deleteById(anyLong());
         verify(postRepository, times(1)).findById(anyLong());
         verify(userService, times(1)).getCurrentAuthUser();
+        verify(eventPublisher, times(1)).publishEvent(any(PostDeletedEvent.class));
         verifyNoMoreInteractions(postRepository);
         verifyNoMoreInteractions(userService);
-
+        verifyNoMoreInteractions(eventPublisher);
     }
 
     @Test
@@ -178,6 +601,7 @@ class PostServiceTest {
         verify(userService, times(1)).getCurrentAuthUser();
         verify(postRepository, times(1)).findById(anyLong());
         verify(postRepository, times(1)).save(any(PostEntity.class));
+        verify(eventPublisher, times(1)).publishEvent(any(PostUpdatedEvent.class));
         verifyNoMoreInteractions(userService);
         verifyNoMoreInteractions(postRepository);
     }
@@ -252,12 +676,57 @@ class PostServiceTest {
                 .build();
     }
 
+    private PostSearchRow getSearchRow(Long id, float rank) {
+        return new PostSearchRow() {
+            public Long getId() {
+                return id;
+            }
+
+            public String getTitle() {
+                return "test post title " + id;
+            }
+
+            public String getText() {
+                return "test post text " + id;
+            }
+
+            public Timestamp getCreatedAt() {
+                return null;
+            }
+
+            public Timestamp getUpdatedAt() {
+                return null;
+            }
+
+            public Long getAuthorId() {
+                return 1L;
+            }
+
+            public String getAuthorUsername() {
+                return "test_username";
+            }
+
+            public Float getRank() {
+                return rank;
+            }
+        };
+    }
+
+    private PostView getPostView1() {
+        return new PostView(1L, "test post title", "test post text", null, null, 1L, "test_username");
+    }
+
+    private PostView getPostView2() {
+        return new PostView(2L, "test post title 2", "test post text 2", null, null, 1L, "test_username");
+    }
+
     private PostEntity getPost1() {
         return PostEntity.builder()
                 .id(1L)
                 .title("test post title")
                 .text("test post text")
                 .user(getUser())
+                .images(Set.of())
                 .build();
     }
 
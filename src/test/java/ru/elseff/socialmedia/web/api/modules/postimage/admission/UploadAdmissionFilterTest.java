@@ -0,0 +1,96 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.admission;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.FilterChain;
+import java.time.Duration;
+import java.util.List;
+
+class UploadAdmissionFilterTest {
+
+    UploadAdmission admission = new UploadAdmission(1, 0, Duration.ZERO, 1, Duration.ofSeconds(3));
+
+    UploadAdmissionFilter filter = new UploadAdmissionFilter(admission);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Загрузка проходит и освобождает место по окончании")
+    void doFilter() throws Exception {
+        authenticate("user");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(upload("/api/v1/posts/1/images/upload"), new MockHttpServletResponse(), chain);
+
+        Assertions.assertNotNull(chain.getRequest());
+        Assertions.assertEquals(0, admission.inFlight());
+    }
+
+    @Test
+    @DisplayName("Загрузка сверх лимита пользователя получает 429 с Retry-After")
+    void doFilter_Over_User_Limit() throws Exception {
+        authenticate("user");
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        FilterChain nested = (request, response) ->
+                filter.doFilter(upload("/api/v1/posts/1/images/batch"), rejected, new MockFilterChain());
+
+        filter.doFilter(upload("/api/v1/posts/1/images/upload"), new MockHttpServletResponse(), nested);
+
+        Assertions.assertEquals(429, rejected.getStatus());
+        Assertions.assertEquals("3", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        Assertions.assertEquals("close", rejected.getHeader(HttpHeaders.CONNECTION));
+    }
+
+    @Test
+    @DisplayName("Загрузка сверх общего лимита получает 503")
+    void doFilter_Over_Capacity() throws Exception {
+        authenticate("user1");
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        FilterChain nested = (request, response) -> {
+            authenticate("user2");
+            filter.doFilter(upload("/api/v1/posts/2/images/upload"), rejected, new MockFilterChain());
+        };
+
+        filter.doFilter(upload("/api/v1/posts/1/images/upload"), new MockHttpServletResponse(), nested);
+
+        Assertions.assertEquals(503, rejected.getStatus());
+        Assertions.assertEquals(1, admission.rejectedBusy());
+    }
+
+    @Test
+    @DisplayName("Остальные запросы не ограничиваются")
+    void doFilter_Not_An_Upload() throws Exception {
+        UploadAdmission.Permit permit = admission.admit("user");
+
+        for (MockHttpServletRequest request : List.of(new MockHttpServletRequest("GET", "/api/v1/posts/1/images/5/content"),
+                new MockHttpServletRequest("POST", "/api/v1/posts"))) {
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+            Assertions.assertNotNull(chain.getRequest());
+        }
+        permit.close();
+    }
+
+    private static MockHttpServletRequest upload(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setContentType("multipart/form-data; boundary=x");
+        return request;
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+}
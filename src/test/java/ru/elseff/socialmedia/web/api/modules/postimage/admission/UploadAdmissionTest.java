@@ -0,0 +1,65 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.admission;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class UploadAdmissionTest {
+
+    @Test
+    @DisplayName("Сверх лимита пользователя загрузка отклоняется с 429")
+    void admit_Over_User_Limit() {
+        UploadAdmission admission = new UploadAdmission(10, 0, Duration.ZERO, 2, Duration.ofSeconds(5));
+        UploadAdmission.Permit first = admission.admit("user");
+        admission.admit("user");
+
+        UploadRejectedException exception = Assertions.assertThrows(UploadRejectedException.class,
+                () -> admission.admit("user"));
+
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatus());
+        Assertions.assertEquals(Duration.ofSeconds(5), exception.getRetryAfter());
+        Assertions.assertEquals(1, admission.rejectedUser());
+        Assertions.assertNotNull(admission.admit("other"));
+
+        first.close();
+        first.close();
+        Assertions.assertNotNull(admission.admit("user"));
+        Assertions.assertEquals(3, admission.inFlight());
+    }
+
+    @Test
+    @DisplayName("Сверх общего лимита без места в очереди загрузка отклоняется с 503")
+    void admit_Over_Capacity() {
+        UploadAdmission admission = new UploadAdmission(1, 0, Duration.ofSeconds(1), 5, Duration.ofSeconds(5));
+        admission.admit("user1");
+
+        UploadRejectedException exception = Assertions.assertThrows(UploadRejectedException.class,
+                () -> admission.admit("user2"));
+
+        Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+        Assertions.assertEquals(1, admission.rejectedBusy());
+        Assertions.assertEquals(1, admission.admitted());
+    }
+
+    @Test
+    @DisplayName("Загрузка в очереди допускается, когда освобождается место")
+    void admit_Waits_For_Permit() throws Exception {
+        UploadAdmission admission = new UploadAdmission(1, 1, Duration.ofSeconds(10), 5, Duration.ofSeconds(5));
+        UploadAdmission.Permit first = admission.admit("user1");
+
+        CompletableFuture<UploadAdmission.Permit> second = CompletableFuture.supplyAsync(() -> admission.admit("user2"));
+        while (admission.waiting() == 0)
+            Thread.onSpinWait();
+        first.close();
+
+        Assertions.assertNotNull(second.get(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, admission.admitted());
+        Assertions.assertTrue(admission.waitSeconds() > 0);
+        Assertions.assertEquals(0, admission.waiting());
+    }
+}
@@ -0,0 +1,74 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.cleanup;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.BlobStore;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.InMemoryBlobStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class ImageFileCleanerTest {
+
+    InMemoryBlobStore store = new InMemoryBlobStore();
+
+    ImageFileCleaner imageFileCleaner = new ImageFileCleaner(store, 10, 4, 2, Duration.ofMillis(10));
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        imageFileCleaner.stop();
+    }
+
+    @Test
+    @DisplayName("Файлы из очереди удаляются фоновым потоком")
+    void enqueue() throws IOException, InterruptedException {
+        store.put("1.png", new ByteArrayInputStream(new byte[1]), 1);
+        store.put("2.png", new ByteArrayInputStream(new byte[1]), 1);
+        imageFileCleaner.start();
+
+        imageFileCleaner.enqueue(List.of("1.png", "2.png", "missing.png"));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while ((store.exists("1.png") || store.exists("2.png")) && System.nanoTime() < deadline)
+            Thread.sleep(10);
+        Assertions.assertFalse(store.exists("1.png"));
+        Assertions.assertFalse(store.exists("2.png"));
+    }
+
+    @Test
+    @DisplayName("Неудачное удаление повторяется до исчерпания попыток")
+    void deleteBatch_Retries_Until_Max_Attempts() throws IOException {
+        BlobStore failing = mock(BlobStore.class);
+        doThrow(new IOException("unavailable")).when(failing).delete(anyCollection());
+        ImageFileCleaner imageFileCleaner = new ImageFileCleaner(failing, 10, 4, 2, Duration.ofMillis(10));
+
+        List<ImageFileCleaner.Task> retries = imageFileCleaner.deleteBatch(List.of(new ImageFileCleaner.Task("1.png", 1)));
+
+        Assertions.assertEquals(List.of(new ImageFileCleaner.Task("1.png", 2)), retries);
+        Assertions.assertTrue(imageFileCleaner.deleteBatch(retries).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Файлы сверх ёмкости очереди отбрасываются")
+    void enqueue_If_Queue_Is_Full() {
+        List<String> keys = IntStream.range(0, 15)
+                .mapToObj(i -> i + ".png")
+                .toList();
+
+        imageFileCleaner.enqueue(keys);
+
+        Assertions.assertEquals(10, imageFileCleaner.size());
+    }
+}
@@ -0,0 +1,157 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.content;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.PackagePrivate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.InMemoryBlobStore;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.LocalBlobStore;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ShardedLayout;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class ImageContentWriterTest {
+
+    @TempDir
+    @PackagePrivate
+    Path root;
+
+    LocalBlobStore store;
+
+    ImageFile file;
+
+    ImageContentWriter imageContentWriter = new ImageContentWriter();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new LocalBlobStore(ShardedLayout.forHashes(root));
+        store.put("blob", new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.US_ASCII)), 10);
+        file = new ImageFile(store, "blob", 10, MediaType.IMAGE_PNG);
+    }
+
+    @Test
+    @DisplayName("Файл целиком без заголовка Range")
+    void write() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageContentWriter.write(file, new MockHttpServletRequest(), response);
+
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals("image/png", response.getContentType());
+        Assertions.assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        Assertions.assertEquals(10, response.getContentLengthLong());
+        Assertions.assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Одиночный диапазон с суффиксом")
+    void write_SuffixRange() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageContentWriter.write(file, request, response);
+
+        Assertions.assertEquals(206, response.getStatus());
+        Assertions.assertEquals("bytes 7-9/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        Assertions.assertEquals(3, response.getContentLengthLong());
+        Assertions.assertEquals("789", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Одиночный диапазон отдаётся через sendfile, если контейнер его поддерживает")
+    void write_Sendfile() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-");
+        request.setAttribute(ImageContentWriter.SENDFILE_SUPPORT, Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageContentWriter.write(file, request, response);
+
+        Assertions.assertEquals(206, response.getStatus());
+        Assertions.assertEquals(8, response.getContentLengthLong());
+        Assertions.assertEquals(store.localPath("blob").get().toAbsolutePath().toString(), request.getAttribute(ImageContentWriter.SENDFILE_FILENAME));
+        Assertions.assertEquals(2L, request.getAttribute(ImageContentWriter.SENDFILE_START));
+        Assertions.assertEquals(10L, request.getAttribute(ImageContentWriter.SENDFILE_END));
+        Assertions.assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    @DisplayName("Файл не с локального диска отдаётся потоком даже при поддержке sendfile")
+    void write_If_Store_Is_Not_Local() throws IOException {
+        InMemoryBlobStore memory = new InMemoryBlobStore();
+        memory.put("blob", new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.US_ASCII)), 10);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+        request.setAttribute(ImageContentWriter.SENDFILE_SUPPORT, Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageContentWriter.write(new ImageFile(memory, "blob", 10, MediaType.IMAGE_PNG), request, response);
+
+        Assertions.assertEquals(206, response.getStatus());
+        Assertions.assertNull(request.getAttribute(ImageContentWriter.SENDFILE_FILENAME));
+        Assertions.assertEquals("234", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Несколько диапазонов отдаются как multipart/byteranges")
+    void write_MultipleRanges() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,5-6");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageContentWriter.write(file, request, response);
+
+        String contentType = response.getContentType();
+        String boundary = contentType.substring(contentType.indexOf("boundary=") + "boundary=".length());
+        String expected = "\r\n--" + boundary + "\r\n" +
+                "Content-Type: image/png\r\n" +
+                "Content-Range: bytes 0-1/10\r\n\r\n" +
+                "01" +
+                "\r\n--" + boundary + "\r\n" +
+                "Content-Type: image/png\r\n" +
+                "Content-Range: bytes 5-6/10\r\n\r\n" +
+                "56" +
+                "\r\n--" + boundary + "--\r\n";
+
+        Assertions.assertEquals(206, response.getStatus());
+        Assertions.assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        Assertions.assertEquals(expected, response.getContentAsString(StandardCharsets.US_ASCII));
+        Assertions.assertEquals(expected.length(), response.getContentLengthLong());
+    }
+
+    @Test
+    @DisplayName("Диапазон за концом файла не может быть удовлетворён")
+    void write_If_Range_Is_Not_Satisfiable() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageContentWriter.write(file, request, response);
+
+        Assertions.assertEquals(416, response.getStatus());
+        Assertions.assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    @DisplayName("Перекрывающиеся диапазоны длиннее файла отклоняются")
+    void ranges_If_Ranges_Are_Longer_Than_Content() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ImageContentWriter.ranges("bytes=0-9,0-9", 10));
+        Assertions.assertEquals(List.of(new ImageContentWriter.Range(0, 10)),
+                ImageContentWriter.ranges("bytes=0-", 10));
+    }
+}
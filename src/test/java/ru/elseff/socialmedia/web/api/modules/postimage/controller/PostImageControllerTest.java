@@ -4,11 +4,16 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.PackagePrivate;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.TestExecutionEvent;
 import org.springframework.security.test.context.support.WithUserDetails;
@@ -23,20 +28,25 @@ import ru.elseff.socialmedia.persistense.PostEntity;
 import ru.elseff.socialmedia.persistense.UserEntity;
 import ru.elseff.socialmedia.persistense.dao.UserRepository;
 import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.postimage.dto.PostImageBatchResultDto;
 import ru.elseff.socialmedia.web.api.modules.postimage.dto.PostImageDto;
 import ru.elseff.socialmedia.web.api.modules.postimage.dto.mapper.PostImageDtoMapper;
 import ru.elseff.socialmedia.web.api.modules.postimage.service.PostImageService;
 
-import java.io.IOException;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Base64;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -48,6 +58,13 @@ class PostImageControllerTest {
     @Container
     static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest");
 
+    /**
+     * Все файлы изображений пишутся сюда и удаляются вместе с каталогом после тестов.
+     */
+    @TempDir
+    @PackagePrivate
+    static Path root;
+
     @Autowired
     PostImageDtoMapper postImageDtoMapper;
 
@@ -66,6 +83,9 @@ class PostImageControllerTest {
     @Autowired
     MockMvc mockMvc;
 
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
     final String endpoint = "/api/v1/posts/%s/images/";
 
     @DynamicPropertySource
@@ -73,6 +93,10 @@ class PostImageControllerTest {
         registry.add("spring.datasource.username", postgres::getUsername);
         registry.add("spring.datasource.password", postgres::getPassword);
         registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("post.images.legacy-root", () -> root.resolve("legacy").toString());
+        registry.add("post.images.blobs.root", () -> root.resolve("blobs").toString());
+        registry.add("post.images.blobs.staging", () -> root.resolve("staging").toString());
+        registry.add("post.images.blobs.pack.root", () -> root.resolve("pack").toString());
     }
 
     @Test
@@ -90,22 +114,6 @@ class PostImageControllerTest {
         userRepository.save(getUser1());
     }
 
-    @AfterEach
-    @DisplayName("Очистка тестовых изображений")
-    void tearDown() {
-        Path path = postImageService.getRoot();
-        try {
-            String encodedFilename = Base64.getEncoder().encodeToString("test".getBytes()) + ".test";
-            if (Files.exists(path.resolve(encodedFilename)))
-                Files.delete(postImageService.getRoot().resolve(encodedFilename));
-            encodedFilename = Base64.getEncoder().encodeToString("test2".getBytes()) + ".test";
-            if (Files.exists(path.resolve(encodedFilename)))
-                Files.delete(postImageService.getRoot().resolve(encodedFilename));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
     @Test
     @DisplayName("Найти все изображения поста")
     @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
@@ -175,6 +183,87 @@ class PostImageControllerTest {
         Assertions.assertEquals(expectedFilename,actualFilename);
     }
 
+    @Test
+    @DisplayName("Загрузить несколько изображений одним запросом")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void uploadImages() throws Exception {
+        PostEntity post = postService.addPost(getPost1());
+        String endpoint = String.format(this.endpoint + "/batch", post.getId());
+
+        MockHttpServletRequestBuilder request = multipart(endpoint)
+                .file(new MockMultipartFile("images", "test.test", MediaType.IMAGE_PNG_VALUE,
+                        "test".getBytes(StandardCharsets.UTF_8)))
+                .file(new MockMultipartFile("images", "test2.test", MediaType.IMAGE_PNG_VALUE,
+                        "test2".getBytes(StandardCharsets.UTF_8)))
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .characterEncoding(StandardCharsets.UTF_8);
+
+        String response = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<PostImageBatchResultDto> results = objectMapper.readValue(response, new TypeReference<>() {
+        });
+
+        Assertions.assertEquals(List.of("test.test", "test2.test"), results.stream()
+                .map(result -> result.getImage().getFilename())
+                .toList());
+        Assertions.assertTrue(results.stream()
+                .allMatch(result -> result.getStatus() == PostImageBatchResultDto.Status.UPLOADED));
+        Assertions.assertEquals(2, postImageService.findAllByPostId(post.getId()).size());
+    }
+
+    @Test
+    @DisplayName("Загрузить изображение потоком")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void streamImage() throws Exception {
+        PostEntity post = postService.addPost(getPost1());
+        String endpoint = String.format(this.endpoint + "/stream", post.getId());
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), "png", png);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("--b0undary\r\nContent-Disposition: form-data; name=\"image\"; filename=\"stream.png\"\r\n" +
+                "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(png.toByteArray());
+        body.writeBytes("\r\n--b0undary--\r\n".getBytes(StandardCharsets.UTF_8));
+
+        String response = mockMvc.perform(post(endpoint)
+                        .contentType("multipart/form-data; boundary=b0undary")
+                        .content(body.toByteArray()))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        PostImageDto imageDto = objectMapper.readValue(response, PostImageDto.class);
+        Assertions.assertEquals("stream.png", imageDto.getFilename());
+
+        mockMvc.perform(get(String.format(this.endpoint + "%d/content", post.getId(), imageDto.getId())))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, png.size()));
+    }
+
+    @Test
+    @DisplayName("Одинаковое содержимое хранится одним блобом")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void uploadImage_Deduplicates_Content() {
+        PostEntity post1 = postService.addPost(getPost1());
+        PostEntity post2 = postService.addPost(getPost2());
+
+        String hash1 = postImageService.uploadPostImage(getMultipartFile1(), post1.getId()).getBlobHash();
+        int refCount = refCount(hash1);
+        String hash2 = postImageService.uploadPostImage(getMultipartFile1(), post2.getId()).getBlobHash();
+
+        Assertions.assertEquals(hash1, hash2);
+        Assertions.assertEquals(refCount + 1, refCount(hash1));
+
+        postService.deletePost(post1.getId());
+
+        Assertions.assertEquals(refCount, refCount(hash1));
+    }
+
+    private int refCount(String hash) {
+        return jdbcTemplate.queryForObject("select ref_count from image_blob where hash = ?", Integer.class, hash);
+    }
+
     @Test
     @DisplayName("Загрузить изображение, если пост не найден")
     @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
@@ -190,6 +279,109 @@ class PostImageControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @DisplayName("Скачать изображение целиком")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void downloadImage() throws Exception {
+        PostEntity post = postService.addPost(getPost1());
+        Long imageId = postImageService.uploadPostImage(getMultipartFile1(), post.getId()).getId();
+        String endpoint = String.format(this.endpoint + "%d/content", post.getId(), imageId);
+
+        MockHttpServletResponse response = mockMvc.perform(get(endpoint))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andReturn().getResponse();
+
+        Assertions.assertEquals("test", response.getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Скачать диапазон байтов изображения")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void downloadImage_Range() throws Exception {
+        PostEntity post = postService.addPost(getPost1());
+        Long imageId = postImageService.uploadPostImage(getMultipartFile1(), post.getId()).getId();
+        String endpoint = String.format(this.endpoint + "%d/content", post.getId(), imageId);
+
+        MockHttpServletResponse response = mockMvc.perform(get(endpoint).header(HttpHeaders.RANGE, "bytes=1-2"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1-2/4"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 2))
+                .andReturn().getResponse();
+
+        Assertions.assertEquals("es", response.getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Скачать несколько диапазонов байтов изображения")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void downloadImage_MultipleRanges() throws Exception {
+        PostEntity post = postService.addPost(getPost1());
+        Long imageId = postImageService.uploadPostImage(getMultipartFile1(), post.getId()).getId();
+        String endpoint = String.format(this.endpoint + "%d/content", post.getId(), imageId);
+
+        MockHttpServletResponse response = mockMvc.perform(get(endpoint).header(HttpHeaders.RANGE, "bytes=0-0,-1"))
+                .andExpect(status().isPartialContent())
+                .andReturn().getResponse();
+
+        String body = response.getContentAsString(StandardCharsets.UTF_8);
+        Assertions.assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        Assertions.assertEquals(body.length(), response.getContentLengthLong());
+        Assertions.assertTrue(body.contains("Content-Range: bytes 0-0/4\r\n\r\nt\r\n"));
+        Assertions.assertTrue(body.contains("Content-Range: bytes 3-3/4\r\n\r\nt\r\n"));
+    }
+
+    @Test
+    @DisplayName("Скачать изображение с недопустимым диапазоном")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void downloadImage_If_Range_Is_Not_Satisfiable() throws Exception {
+        PostEntity post = postService.addPost(getPost1());
+        Long imageId = postImageService.uploadPostImage(getMultipartFile1(), post.getId()).getId();
+        String endpoint = String.format(this.endpoint + "%d/content", post.getId(), imageId);
+
+        mockMvc.perform(get(endpoint).header(HttpHeaders.RANGE, "bytes=10-20"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */4"));
+    }
+
+    @Test
+    @DisplayName("Скачать уменьшенную копию изображения")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void downloadImage_Variant() throws Exception {
+        PostEntity post = postService.addPost(getPost1());
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB), "png", png);
+        MockMultipartFile file = new MockMultipartFile("image", "variant.png", MediaType.IMAGE_PNG_VALUE, png.toByteArray());
+        Long imageId = postImageService.uploadPostImage(file, post.getId()).getId();
+        String endpoint = String.format(this.endpoint + "%d/content", post.getId(), imageId);
+
+        MockHttpServletResponse response = mockMvc.perform(get(endpoint).param("w", "100"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_JPEG_VALUE))
+                .andReturn().getResponse();
+
+        BufferedImage variant = ImageIO.read(new ByteArrayInputStream(response.getContentAsByteArray()));
+        Assertions.assertEquals(128, variant.getWidth());
+        Assertions.assertEquals(64, variant.getHeight());
+
+        mockMvc.perform(get(endpoint).param("w", "2000"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_PNG_VALUE))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, png.size()));
+    }
+
+    @Test
+    @DisplayName("Скачать изображение, если оно не найдено")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void downloadImage_If_Image_Is_Not_Found() throws Exception {
+        PostEntity post = postService.addPost(getPost1());
+        String endpoint = String.format(this.endpoint + "%d/content", post.getId(), 0);
+
+        mockMvc.perform(get(endpoint))
+                .andExpect(status().isBadRequest());
+    }
+
     private UserEntity getUser1() {
         return UserEntity.builder()
                 .email("test@test.com")
@@ -6,24 +6,42 @@ import org.junit.jupiter.api.*;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 import ru.elseff.socialmedia.persistense.PostEntity;
 import ru.elseff.socialmedia.persistense.PostImageEntity;
 import ru.elseff.socialmedia.persistense.dao.PostImageRepository;
+import ru.elseff.socialmedia.persistense.projection.PostImageFileRow;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostDeletedEvent;
 import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.postimage.cleanup.ImageFileCleaner;
+import ru.elseff.socialmedia.web.api.modules.postimage.content.ImageFile;
+import ru.elseff.socialmedia.web.api.modules.postimage.event.PostImageUploadedEvent;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.BlobStore;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.InMemoryBlobStore;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage.StagedBlob;
+import ru.elseff.socialmedia.web.api.modules.postimage.service.PostImageService.UploadResult;
+import ru.elseff.socialmedia.web.api.modules.postimage.variant.ImageVariantService;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 
@@ -38,24 +56,29 @@ class PostImageServiceTest {
     @Mock
     PostImageRepository postImageRepository;
 
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    ImageFileCleaner imageFileCleaner;
+
+    @Mock
+    ContentAddressedStorage imageBlobStorage;
+
+    @Mock
+    ImageVariantService imageVariantService;
+
+    @Mock
+    BlobStore legacyImageStore;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
     }
 
-    @AfterEach
-    @DisplayName("Очистка тестовых изображений")
-    void tearDown() {
-        Path path = postImageService.getRoot();
-        try {
-            String encodedFilename = Base64.getEncoder().encodeToString("test".getBytes()) + ".test";
-            if (Files.exists(path.resolve(encodedFilename)))
-                Files.delete(postImageService.getRoot().resolve(encodedFilename));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
     @Test
     @DisplayName("Найти все изображения поста")
     void findAllByPostId() {
@@ -91,13 +114,35 @@ class PostImageServiceTest {
 
     @Test
     @DisplayName("Загрузить изображение")
-    void uploadPostImage() {
+    void uploadPostImage() throws IOException {
         MultipartFile file = getMultipartFile();
+        StagedBlob blob = new StagedBlob("0".repeat(64), Files.createTempFile("upload-", ".part"));
         given(postService.findById(anyLong())).willReturn(getPostEntity1());
-        given(postImageRepository.save(any(PostImageEntity.class))).willReturn(getPostImageEntity1());
+        given(imageBlobStorage.stage(any())).willReturn(blob);
+        given(postImageRepository.saveAndFlush(any(PostImageEntity.class))).willReturn(getPostImageEntity1());
 
         postImageService.uploadPostImage(file, 1L);
 
+        verify(postImageRepository, times(1)).saveAndFlush(argThat(image -> blob.hash().equals(image.getBlobHash())));
+        verify(imageBlobStorage, times(1)).publish(blob);
+        verify(eventPublisher, times(1)).publishEvent(any(PostImageUploadedEvent.class));
+        Assertions.assertFalse(Files.exists(blob.temp()));
+    }
+
+    @Test
+    @DisplayName("Загрузить изображение, если файл не удалось перенести в хранилище")
+    void uploadPostImage_If_Publish_Fails() throws IOException {
+        MultipartFile file = getMultipartFile();
+        StagedBlob blob = new StagedBlob("0".repeat(64), Files.createTempFile("upload-", ".part"));
+        given(postService.findById(anyLong())).willReturn(getPostEntity1());
+        given(imageBlobStorage.stage(any())).willReturn(blob);
+        given(postImageRepository.saveAndFlush(any(PostImageEntity.class))).willReturn(getPostImageEntity1());
+        given(imageBlobStorage.publish(blob)).willThrow(new IOException("disk full"));
+
+        Assertions.assertThrows(UncheckedIOException.class, () -> postImageService.uploadPostImage(file, 1L));
+
+        verifyNoInteractions(eventPublisher);
+        Assertions.assertFalse(Files.exists(blob.temp()));
     }
 
     @Test
@@ -118,6 +163,118 @@ class PostImageServiceTest {
         verifyNoInteractions(postImageRepository);
     }
 
+    @Test
+    @DisplayName("Сохранить несколько изображений: строки вставляются одним пакетом, пропавший блоб не сохраняется")
+    @SuppressWarnings("unchecked")
+    void addPostImages() throws IOException {
+        given(postService.findById(anyLong())).willReturn(getPostEntity1());
+        given(imageBlobStorage.exists("1".repeat(64))).willReturn(true);
+        given(imageBlobStorage.exists("3".repeat(64))).willReturn(false);
+        given(jdbcTemplate.execute(any(ConnectionCallback.class))).willReturn(List.of(10L, 30L));
+
+        List<UploadResult> results = postImageService.addPostImages(1L, List.of("test1.png", "test3.png"),
+                List.of("1".repeat(64), "3".repeat(64)));
+
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals(10L, results.get(0).image().getId());
+        Assertions.assertEquals("1".repeat(64), results.get(0).image().getBlobHash());
+        Assertions.assertEquals("test3.png", results.get(1).filename());
+        Assertions.assertNull(results.get(1).image());
+        verify(jdbcTemplate, times(1)).execute(any(ConnectionCallback.class));
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), eq(List.of(30L)), anyInt(), any());
+        verify(eventPublisher, times(1)).publishEvent(any(PostImageUploadedEvent.class));
+        verify(imageBlobStorage, never()).publish(any());
+        verifyNoInteractions(postImageRepository);
+    }
+
+    @Test
+    @DisplayName("Одинаковые файлы пакета проверяются в хранилище один раз")
+    @SuppressWarnings("unchecked")
+    void addPostImages_Same_Content() throws IOException {
+        given(postService.findById(anyLong())).willReturn(getPostEntity1());
+        given(imageBlobStorage.exists(anyString())).willReturn(true);
+        given(jdbcTemplate.execute(any(ConnectionCallback.class))).willReturn(List.of(10L, 20L));
+
+        List<UploadResult> results = postImageService.addPostImages(1L, List.of("a.png", "b.png"),
+                List.of("1".repeat(64), "1".repeat(64)));
+
+        Assertions.assertEquals(20L, results.get(1).image().getId());
+        Assertions.assertEquals("1".repeat(64), results.get(1).image().getBlobHash());
+        verify(imageBlobStorage, times(1)).exists(anyString());
+        verify(eventPublisher, times(2)).publishEvent(any(PostImageUploadedEvent.class));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Найти файл изображения, если изображение не найдено")
+    void findImageFile_If_Image_Is_Not_Found() {
+        given(postImageRepository.findFileByIdAndPostId(anyLong(), anyLong())).willReturn(Optional.empty());
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> postImageService.findImageFile(1L, 1L, null));
+
+        Assertions.assertEquals("image not found", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Найти файл изображения, если файла нет на диске")
+    void findImageFile_If_File_Is_Missing() {
+        given(imageBlobStorage.getStore()).willReturn(new InMemoryBlobStore());
+        PostImageFileRow row = mock(PostImageFileRow.class);
+        given(row.getFilename()).willReturn("missing.png");
+        given(row.getBlobHash()).willReturn("0".repeat(64));
+        given(postImageRepository.findFileByIdAndPostId(anyLong(), anyLong())).willReturn(Optional.of(row));
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> postImageService.findImageFile(1L, 1L, null));
+
+        Assertions.assertEquals("image file not found", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Найти файл изображения заданной ширины")
+    void findImageFile_With_Width() throws IOException {
+        PostImageFileRow row = mock(PostImageFileRow.class);
+        given(row.getFilename()).willReturn("test.png");
+        given(row.getBlobHash()).willReturn("0".repeat(64));
+        ImageFile variant = new ImageFile(new InMemoryBlobStore(), "0".repeat(64) + ".w128", 7, MediaType.IMAGE_JPEG);
+        given(imageVariantService.findVariant("0".repeat(64), 100)).willReturn(Optional.of(variant));
+        given(postImageRepository.findFileByIdAndPostId(anyLong(), anyLong())).willReturn(Optional.of(row));
+
+        ImageFile actual = postImageService.findImageFile(1L, 1L, 100);
+
+        Assertions.assertEquals(variant, actual);
+        verify(imageVariantService, times(1)).findVariant("0".repeat(64), 100);
+        verifyNoInteractions(imageBlobStorage);
+    }
+
+    @Test
+    @DisplayName("Найти файл изображения, загруженного до хранения по хешу")
+    void findImageFile_If_Image_Is_Legacy() throws IOException {
+        PostImageFileRow row = mock(PostImageFileRow.class);
+        given(row.getFilename()).willReturn("test.png");
+        String encodedFilename = Base64.getEncoder().encodeToString("test".getBytes()) + ".png";
+        given(legacyImageStore.size(encodedFilename)).willReturn(OptionalLong.of(4));
+        given(postImageRepository.findFileByIdAndPostId(anyLong(), anyLong())).willReturn(Optional.of(row));
+
+        ImageFile actual = postImageService.findImageFile(1L, 1L, 128);
+
+        Assertions.assertEquals(new ImageFile(legacyImageStore, encodedFilename, 4, MediaType.IMAGE_PNG), actual);
+        verifyNoInteractions(imageVariantService);
+        verifyNoInteractions(imageBlobStorage);
+    }
+
+    @Test
+    @DisplayName("Файлы изображений удалённого поста ставятся в очередь на удаление")
+    void onPostDeleted() {
+        postImageService.onPostDeleted(new PostDeletedEvent(1L, 1L, List.of("test.test", "testfilename2.png")));
+
+        String encodedFilename1 = Base64.getEncoder().encodeToString("test".getBytes()) + ".test";
+        String encodedFilename2 = Base64.getEncoder().encodeToString("testfilename2".getBytes()) + ".png";
+        verify(imageFileCleaner, times(1)).enqueue(List.of(encodedFilename1, encodedFilename2));
+        verifyNoInteractions(postImageRepository);
+    }
+
     private MultipartFile getMultipartFile() {
         return new MockMultipartFile("test",
                 "test.test",
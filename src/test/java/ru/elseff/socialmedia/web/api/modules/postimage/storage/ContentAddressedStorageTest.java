@@ -0,0 +1,87 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.PackagePrivate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage.StagedBlob;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class ContentAddressedStorageTest {
+
+    static final String TEST_SHA256 = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @TempDir
+    @PackagePrivate
+    Path root;
+
+    LocalBlobStore store;
+
+    ContentAddressedStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalBlobStore(ShardedLayout.forHashes(root.resolve("blobs")));
+        storage = new ContentAddressedStorage(store, root.resolve("staging"));
+    }
+
+    @Test
+    @DisplayName("Хеш считается при записи, блоб публикуется под своим хешем")
+    void stageAndPublish() throws IOException {
+        try (StagedBlob blob = storage.stage(content("test"))) {
+            Assertions.assertEquals(TEST_SHA256, blob.hash());
+            Assertions.assertTrue(storage.publish(blob));
+        }
+
+        Assertions.assertEquals("test", new String(storage.open(TEST_SHA256).readAllBytes(), StandardCharsets.UTF_8));
+        Assertions.assertEquals(store.getLayout().path(TEST_SHA256), store.localPath(TEST_SHA256).get());
+    }
+
+    @Test
+    @DisplayName("Повторное содержимое не перезаписывается, временный файл удаляется")
+    void publish_If_Blob_Exists() throws IOException {
+        try (StagedBlob blob = storage.stage(content("test"))) {
+            storage.publish(blob);
+        }
+
+        StagedBlob duplicate = storage.stage(content("test"));
+        try (duplicate) {
+            Assertions.assertFalse(storage.publish(duplicate));
+        }
+
+        Assertions.assertFalse(Files.exists(duplicate.temp()));
+        Assertions.assertTrue(store.exists(TEST_SHA256));
+    }
+
+    @Test
+    @DisplayName("Удаление блоба вместе с вариантами")
+    void delete() throws IOException {
+        try (StagedBlob blob = storage.stage(content("test"))) {
+            storage.publish(blob);
+        }
+        storage.publishVariant(Files.writeString(storage.createTemp(), "variant"), TEST_SHA256, 128);
+        Assertions.assertTrue(store.exists(ContentAddressedStorage.variantKey(TEST_SHA256, 128)));
+
+        storage.delete(Map.of(TEST_SHA256, List.of(128)));
+        storage.delete(Map.of(TEST_SHA256, List.of(128)));
+
+        Assertions.assertFalse(store.exists(TEST_SHA256));
+        Assertions.assertFalse(store.exists(ContentAddressedStorage.variantKey(TEST_SHA256, 128)));
+    }
+
+    private static ByteArrayInputStream content(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
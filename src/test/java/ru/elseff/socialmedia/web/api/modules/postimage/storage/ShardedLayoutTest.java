@@ -0,0 +1,85 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.PackagePrivate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class ShardedLayoutTest {
+
+    static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @TempDir
+    @PackagePrivate
+    Path root;
+
+    @Test
+    @DisplayName("Файл раскладывается по префиксу хеша или хеша имени")
+    void path() {
+        Assertions.assertEquals(root.resolve("9f/86/" + HASH), ShardedLayout.forHashes(root).path(HASH));
+        Assertions.assertEquals(root.resolve("9f/86/" + HASH + ".w128"), ShardedLayout.forHashes(root).path(HASH + ".w128"));
+        Assertions.assertEquals(root.resolve("9f/86/test"), ShardedLayout.forNames(root).path("test"));
+    }
+
+    @Test
+    @DisplayName("До переноса файл читается из плоского каталога, после — из шарда")
+    void resolve() throws IOException {
+        ShardedLayout layout = ShardedLayout.forNames(root);
+        Files.writeString(root.resolve("test"), "test");
+
+        Assertions.assertEquals(root.resolve("test"), layout.resolve("test"));
+        Assertions.assertEquals(1, layout.migrateBatch(10));
+        Assertions.assertEquals(layout.path("test"), layout.resolve("test"));
+        Assertions.assertEquals("test", Files.readString(layout.resolve("test")));
+        Assertions.assertEquals(layout.path("missing"), layout.resolve("missing"));
+    }
+
+    @Test
+    @DisplayName("Перенос идёт пачками и не трогает каталоги")
+    void migrateBatch() throws IOException {
+        ShardedLayout layout = ShardedLayout.forHashes(root);
+        Files.createDirectories(root.resolve("tmp"));
+        Files.writeString(root.resolve(HASH), "test");
+        Files.writeString(root.resolve(HASH + ".w128"), "variant");
+        Files.writeString(root.resolve("0".repeat(64)), "other");
+
+        Assertions.assertEquals(2, layout.migrateBatch(2));
+        Assertions.assertEquals(1, layout.migrateBatch(2));
+        Assertions.assertEquals(0, layout.migrateBatch(2));
+
+        Assertions.assertTrue(Files.isDirectory(root.resolve("tmp")));
+        Assertions.assertTrue(Files.isRegularFile(layout.path(HASH)));
+        Assertions.assertTrue(Files.isRegularFile(layout.path(HASH + ".w128")));
+        Assertions.assertTrue(Files.isRegularFile(layout.path("0".repeat(64))));
+    }
+
+    @Test
+    @DisplayName("Миграция переносит все файлы всех раскладок")
+    void migration() throws Exception {
+        ShardedLayout blobs = ShardedLayout.forHashes(root.resolve("blobs"));
+        ShardedLayout legacy = ShardedLayout.forNames(root);
+        Files.createDirectories(root.resolve("blobs"));
+        Files.writeString(root.resolve("blobs").resolve(HASH), "test");
+        for (int i = 0; i < 5; i++)
+            Files.writeString(root.resolve("legacy" + i + ".png"), "legacy");
+
+        ImageLayoutMigration migration = new ImageLayoutMigration(List.of(blobs, legacy), 2, Duration.ZERO);
+        migration.migrate(blobs);
+        migration.migrate(legacy);
+
+        Assertions.assertEquals(6, migration.migrated());
+        Assertions.assertTrue(Files.isRegularFile(blobs.path(HASH)));
+        for (int i = 0; i < 5; i++)
+            Assertions.assertFalse(Files.exists(root.resolve("legacy" + i + ".png")));
+    }
+}
@@ -0,0 +1,188 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage.pack;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.PackagePrivate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class PackBlobStoreTest {
+
+    static final long SEGMENT_SIZE = 256;
+
+    @TempDir
+    @PackagePrivate
+    Path root;
+
+    PackBlobStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = PackBlobStore.open(root, SEGMENT_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Запись, чтение, размер и диапазон блоба")
+    void putAndGet() throws IOException {
+        put("a", "0123456789");
+
+        Assertions.assertEquals("0123456789", get("a"));
+        Assertions.assertEquals(OptionalLong.of(10), store.size("a"));
+        Assertions.assertEquals(OptionalLong.empty(), store.size("b"));
+        Assertions.assertThrows(NoSuchFileException.class, () -> store.get("b"));
+
+        ByteArrayOutputStream range = new ByteArrayOutputStream();
+        store.transferTo("a", 3, 4, range);
+        Assertions.assertEquals("3456", range.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    @DisplayName("Блоб активного сегмента читается, пока в сегмент дописываются другие")
+    void get_From_Active_Segment() throws IOException {
+        put("a", "first");
+
+        try (InputStream content = store.get("a")) {
+            put("b", "second");
+            store.delete(List.of("b"));
+
+            Assertions.assertEquals("first", new String(content.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        Assertions.assertEquals(1, segments().size());
+    }
+
+    @Test
+    @DisplayName("Заполненный сегмент запечатывается, блобы из него читаются")
+    void put_Rolls_Segments() throws IOException {
+        for (int i = 0; i < 10; i++)
+            put("key" + i, "x".repeat(60) + i);
+
+        Assertions.assertTrue(segments().size() > 1);
+        for (int i = 0; i < 10; i++)
+            Assertions.assertEquals("x".repeat(60) + i, get("key" + i));
+    }
+
+    @Test
+    @DisplayName("Поток короче заявленной длины не оставляет записи")
+    void put_If_Content_Is_Short() throws IOException {
+        put("a", "first");
+
+        Assertions.assertThrows(IOException.class,
+                () -> store.put("b", new ByteArrayInputStream(bytes("abc")), 10));
+
+        Assertions.assertEquals(OptionalLong.empty(), store.size("b"));
+        put("c", "third");
+        Assertions.assertEquals("third", get("c"));
+    }
+
+    @Test
+    @DisplayName("После рестарта индекс читается из файла и дополняется хвостами сегментов")
+    void open_Restores_Index() throws IOException {
+        put("a", "first");
+        put("b", "second");
+        store.checkpoint();
+        put("c", "third");
+        store.delete(List.of("a"));
+        store.put("b", new ByteArrayInputStream(bytes("changed")), 7);
+
+        PackBlobStore reopened = reopenWithoutCheckpoint();
+
+        Assertions.assertEquals(OptionalLong.empty(), reopened.size("a"));
+        Assertions.assertEquals("changed", new String(reopened.get("b").readAllBytes(), StandardCharsets.UTF_8));
+        Assertions.assertEquals("third", new String(reopened.get("c").readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Без файла индекса сегменты просматриваются целиком, недописанная запись отрезается")
+    void open_Without_Index() throws IOException {
+        for (int i = 0; i < 10; i++)
+            put("key" + i, "x".repeat(60) + i);
+        store.delete(List.of("key3"));
+        store.close();
+        Files.delete(root.resolve(PackBlobStore.INDEX));
+        Path last = segments().get(segments().size() - 1);
+        long size = Files.size(last);
+        Files.write(last, new byte[]{0x50, 0x49, 0x4d}, StandardOpenOption.APPEND);
+
+        store = PackBlobStore.open(root, SEGMENT_SIZE);
+
+        Assertions.assertEquals(size, Files.size(last));
+        Assertions.assertEquals(OptionalLong.empty(), store.size("key3"));
+        Assertions.assertEquals("x".repeat(60) + 9, get("key9"));
+        put("after", "restart");
+        Assertions.assertEquals("restart", get("after"));
+    }
+
+    @Test
+    @DisplayName("Сжатие переносит живые блобы и удаляет сегменты с мусором")
+    void compact() throws IOException {
+        for (int i = 0; i < 10; i++)
+            put("key" + i, "x".repeat(60) + i);
+        store.delete(List.of("key0", "key1", "key2", "key3", "key4"));
+        List<Path> before = segments();
+        long garbage = store.garbage();
+
+        long reclaimed = store.compact(0.5);
+
+        Assertions.assertTrue(reclaimed > 0);
+        Assertions.assertTrue(store.garbage() < garbage);
+        Assertions.assertFalse(Files.exists(before.get(0)));
+        for (int i = 5; i < 10; i++)
+            Assertions.assertEquals("x".repeat(60) + i, get("key" + i));
+
+        PackBlobStore reopened = reopenWithoutCheckpoint();
+        for (int i = 0; i < 5; i++)
+            Assertions.assertEquals(OptionalLong.empty(), reopened.size("key" + i));
+        for (int i = 5; i < 10; i++)
+            Assertions.assertEquals(OptionalLong.of(61), reopened.size("key" + i));
+    }
+
+    private PackBlobStore reopenWithoutCheckpoint() throws IOException {
+        return PackBlobStore.open(root, SEGMENT_SIZE);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(root)) {
+            return files.filter(file -> file.toString().endsWith(PackBlobStore.SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void put(String key, String content) throws IOException {
+        byte[] bytes = bytes(content);
+        store.put(key, new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    private String get(String key) throws IOException {
+        try (InputStream content = store.get(key)) {
+            return new String(content.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
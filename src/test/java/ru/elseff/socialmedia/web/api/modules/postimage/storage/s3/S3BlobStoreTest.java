@@ -0,0 +1,173 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.storage.s3;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * S3BlobStore против минимальной замены S3 на com.sun.net.httpserver: объекты хранятся в
+ * памяти, а каждый запрос обязан нести подпись SigV4.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class S3BlobStoreTest {
+
+    static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    static final Pattern KEY = Pattern.compile("<Key>([^<]*)</Key>");
+
+    Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+    List<Integer> deleteBatchSizes = new ArrayList<>();
+
+    HttpServer server;
+
+    S3BlobStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+
+        store = new S3BlobStore(HttpClient.newHttpClient(),
+                URI.create("http://127.0.0.1:" + server.getAddress().getPort()), "images",
+                new SigV4Signer("access", "secret", "us-east-1", "s3"), Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Запись, чтение, размер и диапазон объекта")
+    void putAndGet() throws IOException {
+        store.put("ab/cd+ef.png", new ByteArrayInputStream(bytes("0123456789")), 10);
+
+        Assertions.assertArrayEquals(bytes("0123456789"), objects.get("ab/cd+ef.png"));
+        Assertions.assertEquals(OptionalLong.of(10), store.size("ab/cd+ef.png"));
+        try (InputStream content = store.get("ab/cd+ef.png")) {
+            Assertions.assertArrayEquals(bytes("0123456789"), content.readAllBytes());
+        }
+
+        ByteArrayOutputStream range = new ByteArrayOutputStream();
+        store.transferTo("ab/cd+ef.png", 3, 4, range);
+        Assertions.assertEquals("3456", range.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    @DisplayName("Отсутствующий объект")
+    void get_If_Object_Is_Missing() throws IOException {
+        Assertions.assertEquals(OptionalLong.empty(), store.size("missing"));
+        Assertions.assertFalse(store.exists("missing"));
+        Assertions.assertThrows(NoSuchFileException.class, () -> store.get("missing"));
+    }
+
+    @Test
+    @DisplayName("Удаление идёт пачками по 1000 ключей")
+    void delete() throws IOException {
+        List<String> keys = IntStream.range(0, 1500)
+                .mapToObj(i -> "key" + i)
+                .toList();
+        keys.forEach(key -> objects.put(key, bytes(key)));
+        objects.put("kept", bytes("kept"));
+
+        store.delete(keys);
+
+        Assertions.assertEquals(List.of(1000, 500), deleteBatchSizes);
+        Assertions.assertEquals(List.of("kept"), List.copyOf(objects.keySet()));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("AWS4-HMAC-SHA256 Credential=access/")
+                || exchange.getRequestHeaders().getFirst("x-amz-date") == null) {
+            respond(exchange, 403, new byte[0]);
+            return;
+        }
+
+        String path = exchange.getRequestURI().getRawPath();
+        if (exchange.getRequestMethod().equals("POST") && "delete".equals(exchange.getRequestURI().getRawQuery())) {
+            Matcher matcher = KEY.matcher(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            int count = 0;
+            while (matcher.find()) {
+                objects.remove(matcher.group(1));
+                count++;
+            }
+            deleteBatchSizes.add(count);
+            respond(exchange, 200, bytes("<DeleteResult></DeleteResult>"));
+            return;
+        }
+
+        String key = URLDecoder.decode(path.substring("/images/".length()).replace("+", "%2B"), StandardCharsets.UTF_8);
+        byte[] object = objects.get(key);
+        switch (exchange.getRequestMethod()) {
+            case "PUT" -> {
+                objects.put(key, exchange.getRequestBody().readAllBytes());
+                respond(exchange, 200, new byte[0]);
+            }
+            case "HEAD" -> {
+                if (object != null)
+                    exchange.getResponseHeaders().add("Content-Length", String.valueOf(object.length));
+                exchange.sendResponseHeaders(object != null ? 200 : 404, -1);
+                exchange.close();
+            }
+            case "GET" -> {
+                if (object == null) {
+                    respond(exchange, 404, new byte[0]);
+                    return;
+                }
+                String range = exchange.getRequestHeaders().getFirst("range");
+                if (range == null) {
+                    respond(exchange, 200, object);
+                    return;
+                }
+                Matcher matcher = RANGE.matcher(range);
+                Assertions.assertTrue(matcher.matches());
+                int start = Integer.parseInt(matcher.group(1));
+                int end = Integer.parseInt(matcher.group(2));
+                byte[] part = new byte[end - start + 1];
+                System.arraycopy(object, start, part, 0, part.length);
+                respond(exchange, 206, part);
+            }
+            default -> respond(exchange, 405, new byte[0]);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+        if (body.length > 0)
+            exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,129 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.upload;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.PostImageEntity;
+import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.postimage.service.PostImageService;
+import ru.elseff.socialmedia.web.api.modules.postimage.service.PostImageService.UploadResult;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage.StagedBlob;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class BatchImageUploadTest {
+
+    @Mock
+    PostService postService;
+
+    @Mock
+    ContentAddressedStorage imageBlobStorage;
+
+    @Mock
+    PostImageService postImageService;
+
+    BatchImageUpload batchImageUpload;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        batchImageUpload = new BatchImageUpload(postService, imageBlobStorage, postImageService, Runnable::run);
+    }
+
+    @Test
+    @DisplayName("Файлы копируются и переносятся до транзакции, сохраняются только перенесённые")
+    void upload() throws IOException {
+        MultipartFile file1 = new MockMultipartFile("images", "test1.png", MediaType.IMAGE_PNG_VALUE, new byte[]{1});
+        MultipartFile file2 = new MockMultipartFile("images", "test2.png", MediaType.IMAGE_PNG_VALUE, new byte[]{2});
+        MultipartFile file3 = new MockMultipartFile("images", "test3.png", MediaType.IMAGE_PNG_VALUE, new byte[]{3});
+        MultipartFile file4 = new MockMultipartFile("images", "test4.png", MediaType.IMAGE_PNG_VALUE, new byte[]{4});
+        StagedBlob blob1 = new StagedBlob("1".repeat(64), Files.createTempFile("upload-", ".part"));
+        StagedBlob blob3 = new StagedBlob("3".repeat(64), Files.createTempFile("upload-", ".part"));
+        StagedBlob blob4 = new StagedBlob("4".repeat(64), Files.createTempFile("upload-", ".part"));
+        given(postService.findById(anyLong())).willReturn(getPostEntity());
+        given(postService.isCurrentUserOwnPost(any(PostEntity.class))).willReturn(true);
+        given(imageBlobStorage.stage(any())).willReturn(blob1).willThrow(new IOException("disk full"))
+                .willReturn(blob3).willReturn(blob4);
+        given(imageBlobStorage.publish(blob4)).willThrow(new IOException("disk full"));
+        PostImageEntity image1 = PostImageEntity.builder().id(10L).filename("test1.png").blobHash(blob1.hash()).build();
+        PostImageEntity image3 = PostImageEntity.builder().id(30L).filename("test3.png").blobHash(blob3.hash()).build();
+        given(postImageService.addPostImages(1L, List.of("test1.png", "test3.png"), List.of(blob1.hash(), blob3.hash())))
+                .willReturn(List.of(UploadResult.uploaded(image1), UploadResult.uploaded(image3)));
+
+        List<UploadResult> results = batchImageUpload.upload(List.of(file1, file2, file3, file4), 1L);
+
+        Assertions.assertEquals(4, results.size());
+        Assertions.assertEquals(image1, results.get(0).image());
+        Assertions.assertEquals("test2.png", results.get(1).filename());
+        Assertions.assertNull(results.get(1).image());
+        Assertions.assertEquals(image3, results.get(2).image());
+        Assertions.assertEquals("test4.png", results.get(3).filename());
+        Assertions.assertNull(results.get(3).image());
+        verify(postService, times(1)).findById(1L);
+        verify(imageBlobStorage, times(3)).publish(any());
+        Assertions.assertFalse(Files.exists(blob1.temp()));
+        Assertions.assertFalse(Files.exists(blob3.temp()));
+        Assertions.assertFalse(Files.exists(blob4.temp()));
+    }
+
+    @Test
+    @DisplayName("Одинаковые файлы пакета переносятся в хранилище один раз")
+    void upload_Same_Content() throws IOException {
+        MultipartFile file1 = new MockMultipartFile("images", "a.png", MediaType.IMAGE_PNG_VALUE, new byte[]{1});
+        MultipartFile file2 = new MockMultipartFile("images", "b.png", MediaType.IMAGE_PNG_VALUE, new byte[]{1});
+        StagedBlob blob1 = new StagedBlob("1".repeat(64), Files.createTempFile("upload-", ".part"));
+        StagedBlob blob2 = new StagedBlob("1".repeat(64), Files.createTempFile("upload-", ".part"));
+        given(postService.findById(anyLong())).willReturn(getPostEntity());
+        given(postService.isCurrentUserOwnPost(any(PostEntity.class))).willReturn(true);
+        given(imageBlobStorage.stage(any())).willReturn(blob1).willReturn(blob2);
+        PostImageEntity image1 = PostImageEntity.builder().id(10L).filename("a.png").blobHash(blob1.hash()).build();
+        PostImageEntity image2 = PostImageEntity.builder().id(20L).filename("b.png").blobHash(blob2.hash()).build();
+        given(postImageService.addPostImages(1L, List.of("a.png", "b.png"), List.of(blob1.hash(), blob2.hash())))
+                .willReturn(List.of(UploadResult.uploaded(image1), UploadResult.uploaded(image2)));
+
+        List<UploadResult> results = batchImageUpload.upload(List.of(file1, file2), 1L);
+
+        Assertions.assertEquals(List.of(image1, image2), results.stream().map(UploadResult::image).toList());
+        verify(imageBlobStorage, times(1)).publish(any());
+    }
+
+    @Test
+    @DisplayName("Загрузить несколько изображений в чужой пост")
+    void upload_If_Post_Is_Someone_Elses() {
+        given(postService.findById(anyLong())).willReturn(getPostEntity());
+        given(postService.isCurrentUserOwnPost(any(PostEntity.class))).willReturn(false);
+        MultipartFile file = new MockMultipartFile("images", "test.png", MediaType.IMAGE_PNG_VALUE, new byte[]{1});
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> batchImageUpload.upload(List.of(file), 1L));
+
+        Assertions.assertEquals("someone else's post", exception.getMessage());
+        verifyNoInteractions(imageBlobStorage);
+        verifyNoInteractions(postImageService);
+    }
+
+    private PostEntity getPostEntity() {
+        return PostEntity.builder()
+                .id(1L)
+                .title("test title 1")
+                .text("test text 1")
+                .build();
+    }
+}
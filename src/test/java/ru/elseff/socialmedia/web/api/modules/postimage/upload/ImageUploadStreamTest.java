@@ -0,0 +1,78 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.upload;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+class ImageUploadStreamTest {
+
+    @Test
+    @DisplayName("Тип определяется по сигнатуре файла")
+    void contentType() throws IOException {
+        Assertions.assertEquals(Optional.of(MediaType.IMAGE_JPEG), sniff(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0}));
+        Assertions.assertEquals(Optional.of(MediaType.IMAGE_PNG), sniff(new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0}));
+        Assertions.assertEquals(Optional.of(MediaType.IMAGE_GIF), sniff("GIF87a...".getBytes(StandardCharsets.US_ASCII)));
+        Assertions.assertEquals(Optional.of(MediaType.parseMediaType("image/webp")),
+                sniff("RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.US_ASCII)));
+        Assertions.assertEquals(Optional.empty(), sniff("<svg></svg>".getBytes(StandardCharsets.US_ASCII)));
+        Assertions.assertEquals(Optional.empty(), sniff(new byte[]{(byte) 0xFF}));
+    }
+
+    @Test
+    @DisplayName("Сигнатура запоминается при чтении по одному байту")
+    void contentType_Single_Bytes() throws IOException {
+        ImageUploadStream stream = new ImageUploadStream(new ByteArrayInputStream("GIF89a".getBytes(StandardCharsets.US_ASCII)), 100);
+
+        while (stream.read() >= 0) {
+        }
+
+        Assertions.assertEquals(Optional.of(MediaType.IMAGE_GIF), stream.contentType());
+        Assertions.assertEquals(6, stream.size());
+    }
+
+    @Test
+    @DisplayName("Загрузка больше лимита обрывается")
+    void read_Over_Limit() {
+        ImageUploadStream stream = new ImageUploadStream(new ByteArrayInputStream(new byte[101]), 100);
+
+        Assertions.assertThrows(IllegalArgumentException.class, stream::readAllBytes);
+    }
+
+    @Test
+    @DisplayName("Загрузка не изображения обрывается сразу после сигнатуры")
+    void read_Not_An_Image() throws IOException {
+        ImageUploadStream stream = new ImageUploadStream(new ByteArrayInputStream(new byte[1000]), 2000);
+        byte[] buffer = new byte[8];
+
+        Assertions.assertEquals(8, stream.read(buffer));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> stream.read(buffer));
+        Assertions.assertEquals(16, stream.size());
+    }
+
+    @Test
+    @DisplayName("Пропущенные байты учитываются в размере и сигнатуре")
+    void skip() throws IOException {
+        byte[] content = "GIF89a".getBytes(StandardCharsets.US_ASCII);
+        ImageUploadStream stream = new ImageUploadStream(new ByteArrayInputStream(content), 100);
+
+        Assertions.assertEquals(6, stream.skip(10));
+        Assertions.assertEquals(0, stream.skip(10));
+
+        Assertions.assertEquals(Optional.of(MediaType.IMAGE_GIF), stream.contentType());
+        Assertions.assertEquals(6, stream.size());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ImageUploadStream(new ByteArrayInputStream(new byte[101]), 100).skip(101));
+    }
+
+    private static Optional<MediaType> sniff(byte[] content) throws IOException {
+        ImageUploadStream stream = new ImageUploadStream(new ByteArrayInputStream(content), 100);
+        Assertions.assertArrayEquals(content, stream.readAllBytes());
+        return stream.contentType();
+    }
+}
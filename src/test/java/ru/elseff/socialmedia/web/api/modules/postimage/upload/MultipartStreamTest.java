@@ -0,0 +1,125 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.upload;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+class MultipartStreamTest {
+
+    static final String BOUNDARY = "----boundary7MA4YWxk";
+
+    @Test
+    @DisplayName("Части читаются по очереди вместе с заголовками, преамбула пропускается")
+    void nextPart() throws Exception {
+        byte[] image = new byte[200_000];
+        new Random(1).nextBytes(image);
+        byte[] body = body("preamble\r\n",
+                part("form-data; name=\"title\"", null, "hello".getBytes(StandardCharsets.UTF_8)),
+                part("form-data; name=\"image\"; filename=\"cat.png\"", "image/png", image));
+
+        MultipartStream multipart = new MultipartStream(new ByteArrayInputStream(body), BOUNDARY);
+
+        MultipartStream.Part title = multipart.nextPart();
+        Assertions.assertEquals("title", title.getName());
+        Assertions.assertNull(title.getFilename());
+        Assertions.assertEquals("hello", new String(title.getBody().readAllBytes(), StandardCharsets.UTF_8));
+
+        MultipartStream.Part file = multipart.nextPart();
+        Assertions.assertEquals("image", file.getName());
+        Assertions.assertEquals("cat.png", file.getFilename());
+        Assertions.assertEquals("image/png", file.getContentType());
+        Assertions.assertArrayEquals(image, file.getBody().readAllBytes());
+
+        Assertions.assertNull(multipart.nextPart());
+        Assertions.assertNull(multipart.nextPart());
+    }
+
+    @Test
+    @DisplayName("Разделитель находится, даже если приходит по одному байту")
+    void nextPart_Byte_By_Byte() throws Exception {
+        byte[] data = ("\r\n--" + BOUNDARY.substring(0, 10) + "\r\n-").getBytes(StandardCharsets.US_ASCII);
+        byte[] body = body("",
+                part("form-data; name=\"a\"", null, data),
+                part("form-data; name=\"b\"", null, new byte[0]));
+
+        MultipartStream multipart = new MultipartStream(trickle(body), BOUNDARY);
+
+        MultipartStream.Part first = multipart.nextPart();
+        Assertions.assertArrayEquals(data, first.getBody().readAllBytes());
+        Assertions.assertArrayEquals(new byte[0], multipart.nextPart().getBody().readAllBytes());
+        Assertions.assertNull(multipart.nextPart());
+    }
+
+    @Test
+    @DisplayName("Непрочитанное тело части пропускается при переходе к следующей")
+    void nextPart_Skips_Unread_Body() throws Exception {
+        byte[] body = body("",
+                part("form-data; name=\"skipped\"", null, new byte[100_000]),
+                part("form-data; name=\"image\"; filename=\"a.gif\"", null, "GIF89a".getBytes(StandardCharsets.UTF_8)));
+
+        MultipartStream multipart = new MultipartStream(new ByteArrayInputStream(body), BOUNDARY);
+        multipart.nextPart();
+
+        Assertions.assertEquals("GIF89a", new String(multipart.nextPart().getBody().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Оборванное тело приводит к EOFException")
+    void nextPart_Truncated() throws Exception {
+        byte[] body = body("", part("form-data; name=\"image\"; filename=\"a.png\"", null, new byte[1000]));
+        byte[] truncated = Arrays.copyOf(body, body.length - BOUNDARY.length() - 8);
+
+        MultipartStream multipart = new MultipartStream(new ByteArrayInputStream(truncated), BOUNDARY);
+        InputStream part = multipart.nextPart().getBody();
+
+        Assertions.assertThrows(EOFException.class, part::readAllBytes);
+    }
+
+    @Test
+    @DisplayName("Граница берётся из Content-Type запроса")
+    void boundary() {
+        Assertions.assertEquals("abc", MultipartStream.boundary("multipart/form-data; boundary=abc"));
+        Assertions.assertEquals("a b", MultipartStream.boundary("multipart/form-data; boundary=\"a b\""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MultipartStream.boundary("multipart/form-data"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MultipartStream.boundary("application/json"));
+    }
+
+    private static byte[] part(String disposition, String contentType, byte[] content) {
+        ByteArrayOutputStream part = new ByteArrayOutputStream();
+        part.writeBytes(("--" + BOUNDARY + "\r\nContent-Disposition: " + disposition + "\r\n").getBytes(StandardCharsets.UTF_8));
+        if (contentType != null)
+            part.writeBytes(("Content-Type: " + contentType + "\r\n").getBytes(StandardCharsets.UTF_8));
+        part.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        part.writeBytes(content);
+        part.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        return part.toByteArray();
+    }
+
+    private static byte[] body(String preamble, byte[]... parts) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(preamble.getBytes(StandardCharsets.UTF_8));
+        for (byte[] part : parts)
+            body.writeBytes(part);
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    private static InputStream trickle(byte[] body) {
+        return new FilterInputStream(new ByteArrayInputStream(body)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.upload;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.postimage.service.PostImageService;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage;
+
+import java.io.InputStream;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class StreamingImageUploadTest {
+
+    @Mock
+    PostService postService;
+
+    @Mock
+    ContentAddressedStorage imageBlobStorage;
+
+    @Mock
+    PostImageService postImageService;
+
+    @Mock
+    InputStream body;
+
+    StreamingImageUpload streamingImageUpload;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        streamingImageUpload = new StreamingImageUpload(postService, imageBlobStorage, postImageService, 100);
+    }
+
+    @Test
+    @DisplayName("Загрузить изображение в чужой пост")
+    void upload_If_Post_Is_Someone_Elses() {
+        given(postService.findById(anyLong())).willReturn(PostEntity.builder().id(1L).build());
+        given(postService.isCurrentUserOwnPost(any(PostEntity.class))).willReturn(false);
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> streamingImageUpload.upload("multipart/form-data; boundary=abc", body, 1L));
+
+        Assertions.assertEquals("someone else's post", exception.getMessage());
+        verifyNoInteractions(body);
+        verifyNoInteractions(imageBlobStorage);
+        verifyNoInteractions(postImageService);
+    }
+}
@@ -0,0 +1,90 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.variant;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.PackagePrivate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import ru.elseff.socialmedia.web.api.modules.postimage.variant.ImageResizer.ImageSize;
+import ru.elseff.socialmedia.web.api.modules.postimage.variant.ImageResizer.ResizedImage;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class ImageResizerTest {
+
+    @TempDir
+    @PackagePrivate
+    Path root;
+
+    ImageResizer imageResizer = new ImageResizer(1_000_000);
+
+    @Test
+    @DisplayName("Изображение без прозрачности уменьшается пропорционально в JPEG")
+    void resize() throws IOException {
+        Path source = image(800, 400, BufferedImage.TYPE_INT_RGB);
+        Path target = root.resolve("target");
+
+        ResizedImage resized = resizeFile(source, 128, target);
+
+        BufferedImage actual = ImageIO.read(target.toFile());
+        Assertions.assertEquals(new ResizedImage(128, 64, MediaType.IMAGE_JPEG, Files.size(target)), resized);
+        Assertions.assertEquals(128, actual.getWidth());
+        Assertions.assertEquals(64, actual.getHeight());
+    }
+
+    @Test
+    @DisplayName("Изображение с прозрачностью уменьшается в PNG")
+    void resize_With_Alpha() throws IOException {
+        Path source = image(300, 300, BufferedImage.TYPE_INT_ARGB);
+
+        ResizedImage resized = resizeFile(source, 128, root.resolve("target"));
+
+        Assertions.assertEquals(MediaType.IMAGE_PNG, resized.contentType());
+        Assertions.assertEquals(128, resized.height());
+    }
+
+    @Test
+    @DisplayName("Размеры читаются без декодирования, слишком большие изображения отклоняются")
+    void size() throws IOException {
+        Assertions.assertEquals(new ImageSize(800, 400), sizeOf(image(800, 400, BufferedImage.TYPE_INT_RGB)));
+
+        Path large = image(2000, 1000, BufferedImage.TYPE_INT_RGB);
+        Assertions.assertThrows(IOException.class, () -> sizeOf(large));
+        Assertions.assertThrows(IOException.class, () -> resizeFile(large, 128, root.resolve("target")));
+    }
+
+    @Test
+    @DisplayName("Файл, не являющийся изображением, отклоняется")
+    void size_If_File_Is_Not_An_Image() throws IOException {
+        Path source = Files.writeString(root.resolve("source"), "not an image");
+
+        Assertions.assertThrows(IOException.class, () -> sizeOf(source));
+    }
+
+    private ImageSize sizeOf(Path source) throws IOException {
+        try (InputStream input = Files.newInputStream(source)) {
+            return imageResizer.size(input);
+        }
+    }
+
+    private ResizedImage resizeFile(Path source, int width, Path target) throws IOException {
+        try (InputStream input = Files.newInputStream(source)) {
+            return imageResizer.resize(input, width, target);
+        }
+    }
+
+    private Path image(int width, int height, int type) throws IOException {
+        Path path = root.resolve("source-" + width + "x" + height + "-" + type);
+        ImageIO.write(new BufferedImage(width, height, type), "png", path.toFile());
+        return path;
+    }
+}
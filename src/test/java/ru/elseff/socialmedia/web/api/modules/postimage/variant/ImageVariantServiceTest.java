@@ -0,0 +1,167 @@
+package ru.elseff.socialmedia.web.api.modules.postimage.variant;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.PackagePrivate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.elseff.socialmedia.web.api.modules.postimage.content.ImageFile;
+import ru.elseff.socialmedia.web.api.modules.postimage.event.PostImageUploadedEvent;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.ContentAddressedStorage;
+import ru.elseff.socialmedia.web.api.modules.postimage.storage.InMemoryBlobStore;
+import ru.elseff.socialmedia.web.api.modules.postimage.variant.ImageResizer.ImageSize;
+import ru.elseff.socialmedia.web.api.modules.postimage.variant.ImageResizer.ResizedImage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class ImageVariantServiceTest {
+
+    static final String HASH = "0".repeat(64);
+
+    @TempDir
+    @PackagePrivate
+    Path root;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    ImageResizer imageResizer;
+
+    InMemoryBlobStore store = new InMemoryBlobStore();
+
+    ContentAddressedStorage storage;
+
+    List<Runnable> tasks = new ArrayList<>();
+
+    ImageVariantService imageVariantService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        storage = new ContentAddressedStorage(store, root);
+        imageVariantService = new ImageVariantService(jdbcTemplate, storage, imageResizer, tasks::add,
+                List.of(128, 512), Duration.ZERO);
+
+        given(jdbcTemplate.queryForList(anyString(), eq(String.class), any(), any())).willReturn(List.of());
+        store.put(HASH, new ByteArrayInputStream(new byte[1]), 1);
+        given(imageResizer.size(any())).willReturn(new ImageSize(1000, 500));
+        given(imageResizer.resize(any(), anyInt(), any())).willAnswer(invocation -> {
+            Path target = invocation.getArgument(2);
+            Files.writeString(target, "variant");
+            return new ResizedImage(invocation.getArgument(1), 64, MediaType.IMAGE_JPEG, 7);
+        });
+    }
+
+    @Test
+    @DisplayName("После загрузки строится вариант каждой ширины")
+    void onImageUploaded() throws IOException {
+        imageVariantService.onImageUploaded(new PostImageUploadedEvent(1L, 1L, HASH));
+        imageVariantService.onImageUploaded(new PostImageUploadedEvent(1L, 2L, null));
+
+        Assertions.assertEquals(2, tasks.size());
+        tasks.forEach(Runnable::run);
+
+        Assertions.assertTrue(store.exists(HASH + ".w128"));
+        Assertions.assertTrue(store.exists(HASH + ".w512"));
+        verify(jdbcTemplate, times(1)).update(ImageVariantService.INSERT_VARIANT, HASH, 128, 64, "image/jpeg", 7L);
+        verify(jdbcTemplate, times(1)).update(ImageVariantService.INSERT_VARIANT, HASH, 512, 64, "image/jpeg", 7L);
+    }
+
+    @Test
+    @DisplayName("Одновременные запросы одного варианта ждут одну задачу")
+    void generate_If_Already_Running() throws Exception {
+        CompletableFuture<Optional<ImageFile>> first = imageVariantService.generate(HASH, 128);
+        CompletableFuture<Optional<ImageFile>> second = imageVariantService.generate(HASH, 128);
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+
+        Assertions.assertEquals(Optional.of(new ImageFile(store, HASH + ".w128", 7, MediaType.IMAGE_JPEG)),
+                first.get());
+        Assertions.assertEquals(0, imageVariantService.inFlight());
+        verify(imageResizer, times(1)).resize(any(), eq(128), any());
+    }
+
+    @Test
+    @DisplayName("Уже построенный вариант отдаётся без пересборки")
+    void findVariant_If_Stored() throws IOException {
+        store.put(HASH + ".w512", new ByteArrayInputStream(new byte[7]), 7);
+        given(jdbcTemplate.queryForList(ImageVariantService.SELECT_VARIANT, String.class, HASH, 512))
+                .willReturn(List.of("image/png"));
+
+        Optional<ImageFile> actual = imageVariantService.findVariant(HASH, 200);
+
+        Assertions.assertEquals(Optional.of(new ImageFile(store, HASH + ".w512", 7, MediaType.IMAGE_PNG)), actual);
+        Assertions.assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Оригинал отдаётся, если он не шире варианта или вариант ещё не готов")
+    void findVariant_If_Original_Should_Be_Served() throws IOException {
+        given(jdbcTemplate.queryForList(ImageVariantService.SELECT_BLOB_WIDTH, Integer.class, HASH))
+                .willReturn(List.of(100));
+        Assertions.assertEquals(Optional.empty(), imageVariantService.findVariant(HASH, 128));
+        Assertions.assertEquals(Optional.empty(), imageVariantService.findVariant(HASH, 1080));
+        Assertions.assertTrue(tasks.isEmpty());
+
+        given(jdbcTemplate.queryForList(ImageVariantService.SELECT_BLOB_WIDTH, Integer.class, HASH))
+                .willReturn(List.of());
+        Assertions.assertEquals(Optional.empty(), imageVariantService.findVariant(HASH, 128));
+        Assertions.assertEquals(1, tasks.size());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> imageVariantService.findVariant(HASH, 0));
+    }
+
+    @Test
+    @DisplayName("Переполненный пул не мешает построить вариант позже")
+    void generate_If_Pool_Is_Full() {
+        imageVariantService = new ImageVariantService(jdbcTemplate, storage, imageResizer,
+                task -> {
+                    throw new RejectedExecutionException();
+                },
+                List.of(128), Duration.ZERO);
+
+        Assertions.assertTrue(imageVariantService.generate(HASH, 128).isCompletedExceptionally());
+        Assertions.assertEquals(0, imageVariantService.inFlight());
+    }
+
+    @Test
+    @DisplayName("При переполненном пуле вариант строится в потоке запроса")
+    void findVariant_If_Pool_Is_Full() throws IOException {
+        imageVariantService = new ImageVariantService(jdbcTemplate, storage, imageResizer,
+                task -> {
+                    throw new RejectedExecutionException();
+                },
+                List.of(128), Duration.ZERO);
+
+        Optional<ImageFile> actual = imageVariantService.findVariant(HASH, 100);
+
+        Assertions.assertEquals(Optional.of(new ImageFile(store, HASH + ".w128", 7, MediaType.IMAGE_JPEG)), actual);
+        Assertions.assertEquals(0, imageVariantService.inFlight());
+        verify(jdbcTemplate, times(1)).update(ImageVariantService.INSERT_VARIANT, HASH, 128, 64, "image/jpeg", 7L);
+    }
+}
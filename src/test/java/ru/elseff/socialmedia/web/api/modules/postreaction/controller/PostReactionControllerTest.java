@@ -0,0 +1,162 @@
+package ru.elseff.socialmedia.web.api.modules.postreaction.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.TestExecutionEvent;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.elseff.socialmedia.persistense.PostEntity;
+import ru.elseff.socialmedia.persistense.UserEntity;
+import ru.elseff.socialmedia.persistense.dao.UserRepository;
+import ru.elseff.socialmedia.web.api.modules.post.service.PostService;
+import ru.elseff.socialmedia.web.api.modules.postreaction.service.PostReactionService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Testcontainers
+@SpringBootTest
+@AutoConfigureMockMvc
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class PostReactionControllerTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest");
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    PostService postService;
+
+    @Autowired
+    PostReactionService postReactionService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    final String endpoint = "/api/v1/posts/{postId}/reactions";
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("post.reactions.flush-delay", () -> "1h");
+    }
+
+    @BeforeEach
+    void setUp() {
+        postReactionService.flush();
+        userRepository.deleteAll();
+        userRepository.save(getUser());
+    }
+
+    @Test
+    @DisplayName("Поставить и заменить реакцию")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void react() throws Exception {
+        Long postId = postService.addPost(getPost()).getId();
+
+        mockMvc.perform(put(endpoint, postId).param("type", "LIKE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.counts.LIKE").value(1))
+                .andExpect(jsonPath("$.reaction").value("LIKE"));
+        mockMvc.perform(put(endpoint, postId).param("type", "LIKE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.counts.LIKE").value(1));
+        mockMvc.perform(put(endpoint, postId).param("type", "LOVE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.counts.LIKE").doesNotExist())
+                .andExpect(jsonPath("$.counts.LOVE").value(1))
+                .andExpect(jsonPath("$.reaction").value("LOVE"));
+
+        Integer rows = jdbcTemplate.queryForObject(
+                "select count(*) from post_reaction where post_id = ?", Integer.class, postId);
+        Assertions.assertEquals(1, rows);
+    }
+
+    @Test
+    @DisplayName("Счётчики сохраняются в базу и попадают в пост")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void flush() throws Exception {
+        Long postId = postService.addPost(getPost()).getId();
+        mockMvc.perform(put(endpoint, postId).param("type", "WOW"))
+                .andExpect(status().isOk());
+
+        postReactionService.flush();
+
+        Long persisted = jdbcTemplate.queryForObject(
+                "select count from post_reaction_count where post_id = ? and type = 'WOW'", Long.class, postId);
+        Assertions.assertEquals(1L, persisted);
+
+        String response = mockMvc.perform(get("/api/v1/posts/{id}", postId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        Assertions.assertEquals(1, (int) JsonPath.parse(response).read("$.reactions.WOW"));
+
+        mockMvc.perform(delete(endpoint, postId))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get(endpoint, postId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.counts.WOW").doesNotExist())
+                .andExpect(jsonPath("$.reaction").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Поставить реакцию, если пост не найден")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void react_If_Post_Is_Not_Found() throws Exception {
+        mockMvc.perform(put(endpoint, 0L).param("type", "LIKE"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Убрать реакцию, если её нет")
+    @WithUserDetails(value = "test@test.com", setupBefore = TestExecutionEvent.TEST_EXECUTION)
+    void removeReaction_If_Reaction_Is_Not_Found() throws Exception {
+        Long postId = postService.addPost(getPost()).getId();
+
+        mockMvc.perform(delete(endpoint, postId))
+                .andExpect(status().isBadRequest());
+    }
+
+    private UserEntity getUser() {
+        return UserEntity.builder()
+                .email("test@test.com")
+                .username("test_username")
+                .password("test_password")
+                .build();
+    }
+
+    private PostEntity getPost() {
+        return PostEntity.builder()
+                .title("test title")
+                .text("test text")
+                .images(new HashSet<>())
+                .build();
+    }
+}
@@ -0,0 +1,121 @@
+package ru.elseff.socialmedia.web.api.modules.postreaction.counter;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.elseff.socialmedia.persistense.ReactionType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class ReactionCountersTest {
+
+    ReactionCounters reactionCounters;
+
+    @BeforeEach
+    void setUp() {
+        reactionCounters = new ReactionCounters();
+    }
+
+    @Test
+    @DisplayName("Прирост складывается со сброшенными счётчиками")
+    void withPending() {
+        reactionCounters.add(1L, ReactionType.LIKE, 2);
+        reactionCounters.add(1L, ReactionType.SAD, -1);
+        reactionCounters.add(2L, ReactionType.LIKE, 7);
+
+        Map<ReactionType, Long> counts = reactionCounters.withPending(1L,
+                Map.of(ReactionType.LIKE, 3L, ReactionType.SAD, 1L, ReactionType.WOW, 4L));
+
+        Assertions.assertEquals(Map.of(ReactionType.LIKE, 5L, ReactionType.WOW, 4L), counts);
+    }
+
+    @Test
+    @DisplayName("Сброс забирает прирост и обнуляет счётчики")
+    void drain() {
+        reactionCounters.add(2L, ReactionType.LIKE, 1);
+        reactionCounters.add(1L, ReactionType.LOVE, 1);
+        reactionCounters.add(1L, ReactionType.LIKE, 1);
+        reactionCounters.add(1L, ReactionType.LIKE, 1);
+
+        List<ReactionCounters.Delta> deltas = reactionCounters.drain();
+
+        Assertions.assertEquals(3, deltas.size());
+        Assertions.assertEquals(1L, deltas.get(0).getPostId());
+        Assertions.assertEquals(ReactionType.LIKE, deltas.get(0).getType());
+        Assertions.assertEquals(2, deltas.get(0).getDelta());
+        Assertions.assertEquals(ReactionType.LOVE, deltas.get(1).getType());
+        Assertions.assertEquals(2L, deltas.get(2).getPostId());
+        Assertions.assertEquals(0, reactionCounters.get(1L, ReactionType.LIKE));
+        Assertions.assertTrue(reactionCounters.drain().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Счётчик, не менявшийся между сбросами, удаляется")
+    void drain_If_Counter_Is_Idle() {
+        reactionCounters.add(1L, ReactionType.LIKE, 1);
+
+        reactionCounters.drain();
+        Assertions.assertEquals(1, reactionCounters.size());
+        reactionCounters.drain();
+        Assertions.assertEquals(0, reactionCounters.size());
+    }
+
+    @Test
+    @DisplayName("Удаление поста отбрасывает его прирост")
+    void remove() {
+        reactionCounters.add(1L, ReactionType.LIKE, 1);
+        reactionCounters.add(1L, ReactionType.ANGRY, 1);
+        reactionCounters.add(2L, ReactionType.LIKE, 1);
+
+        reactionCounters.remove(1L);
+
+        Assertions.assertEquals(1, reactionCounters.size());
+        Assertions.assertEquals(1, reactionCounters.get(2L, ReactionType.LIKE));
+    }
+
+    @Test
+    @DisplayName("Одновременные реакции и сбросы не теряют и не удваивают прирост")
+    void add_While_Draining() throws Exception {
+        int threads = 4;
+        int reactionsPerThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<ReactionCounters.Delta> flushed = new ConcurrentLinkedQueue<>();
+
+        List<Future<?>> writers = new ArrayList<>();
+        for (int i = 0; i < threads; i++)
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < reactionsPerThread; j++)
+                    reactionCounters.add((long) (j % 3), ReactionType.LIKE, 1);
+                return null;
+            }));
+        Future<?> flusher = executor.submit(() -> {
+            start.await();
+            while (running.get())
+                flushed.addAll(reactionCounters.drain());
+            return null;
+        });
+
+        start.countDown();
+        for (Future<?> writer : writers)
+            writer.get(30, TimeUnit.SECONDS);
+        running.set(false);
+        flusher.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+        flushed.addAll(reactionCounters.drain());
+
+        long total = flushed.stream().mapToLong(ReactionCounters.Delta::getDelta).sum();
+
+        Assertions.assertEquals((long) threads * reactionsPerThread, total);
+    }
+}
@@ -0,0 +1,271 @@
+package ru.elseff.socialmedia.web.api.modules.postreaction.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.elseff.socialmedia.persistense.PostReactionEntity;
+import ru.elseff.socialmedia.persistense.PostReactionID;
+import ru.elseff.socialmedia.persistense.ReactionType;
+import ru.elseff.socialmedia.persistense.UserEntity;
+import ru.elseff.socialmedia.persistense.dao.PostReactionRepository;
+import ru.elseff.socialmedia.persistense.dao.PostRepository;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostDeletedEvent;
+import ru.elseff.socialmedia.web.api.modules.postreaction.counter.ReactionCounters;
+import ru.elseff.socialmedia.web.api.modules.postreaction.event.PostReactionChangedEvent;
+import ru.elseff.socialmedia.web.api.modules.postreaction.event.PostReactionsFlushedEvent;
+import ru.elseff.socialmedia.web.api.modules.user.service.UserService;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.*;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class PostReactionServiceTest {
+
+    @InjectMocks
+    PostReactionService postReactionService;
+
+    @Mock
+    PostReactionRepository postReactionRepository;
+
+    @Mock
+    PostRepository postRepository;
+
+    @Mock
+    UserService userService;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    ReactionCounters reactionCounters = new ReactionCounters();
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    @DisplayName("Поставить реакцию")
+    void react() {
+        given(postRepository.existsById(anyLong())).willReturn(true);
+        given(userService.getCurrentAuthUser()).willReturn(getUser());
+        given(postReactionRepository.insertIfAbsent(anyLong(), anyLong(), anyString())).willReturn(1);
+
+        postReactionService.react(1L, ReactionType.LIKE);
+
+        verify(postReactionRepository, times(1)).insertIfAbsent(1L, 7L, "LIKE");
+        verify(postReactionRepository, never()).findByIdForUpdate(any());
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof PostReactionChangedEvent changed
+                        && changed.getRemoved() == null
+                        && changed.getAdded() == ReactionType.LIKE));
+    }
+
+    @Test
+    @DisplayName("Поставить ту же реакцию повторно")
+    void react_If_Same_Reaction_Exists() {
+        given(postRepository.existsById(anyLong())).willReturn(true);
+        given(userService.getCurrentAuthUser()).willReturn(getUser());
+        given(postReactionRepository.insertIfAbsent(anyLong(), anyLong(), anyString())).willReturn(0);
+        given(postReactionRepository.findByIdForUpdate(any())).willReturn(Optional.of(getReaction(ReactionType.LIKE)));
+
+        postReactionService.react(1L, ReactionType.LIKE);
+
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Заменить реакцию")
+    void react_If_Other_Reaction_Exists() {
+        PostReactionEntity reaction = getReaction(ReactionType.LIKE);
+        given(postRepository.existsById(anyLong())).willReturn(true);
+        given(userService.getCurrentAuthUser()).willReturn(getUser());
+        given(postReactionRepository.insertIfAbsent(anyLong(), anyLong(), anyString())).willReturn(0);
+        given(postReactionRepository.findByIdForUpdate(any())).willReturn(Optional.of(reaction));
+
+        postReactionService.react(1L, ReactionType.WOW);
+
+        Assertions.assertEquals(ReactionType.WOW, reaction.getType());
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof PostReactionChangedEvent changed
+                        && changed.getRemoved() == ReactionType.LIKE
+                        && changed.getAdded() == ReactionType.WOW));
+    }
+
+    @Test
+    @DisplayName("Поставить реакцию, если пост не найден")
+    void react_If_Post_Is_Not_Found() {
+        given(postRepository.existsById(anyLong())).willReturn(false);
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> postReactionService.react(0L, ReactionType.LIKE));
+
+        Assertions.assertEquals("post not found", exception.getMessage());
+        verifyNoInteractions(postReactionRepository);
+    }
+
+    @Test
+    @DisplayName("Убрать реакцию")
+    void removeReaction() {
+        PostReactionEntity reaction = getReaction(ReactionType.SAD);
+        given(userService.getCurrentAuthUser()).willReturn(getUser());
+        given(postReactionRepository.findByIdForUpdate(any())).willReturn(Optional.of(reaction));
+
+        postReactionService.removeReaction(1L);
+
+        verify(postReactionRepository, times(1)).delete(reaction);
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof PostReactionChangedEvent changed
+                        && changed.getRemoved() == ReactionType.SAD
+                        && changed.getAdded() == null));
+    }
+
+    @Test
+    @DisplayName("Убрать реакцию, если её нет")
+    void removeReaction_If_Reaction_Is_Not_Found() {
+        given(userService.getCurrentAuthUser()).willReturn(getUser());
+        given(postReactionRepository.findByIdForUpdate(any())).willReturn(Optional.empty());
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> postReactionService.removeReaction(1L));
+
+        Assertions.assertEquals("reaction not found", exception.getMessage());
+        verify(postReactionRepository, never()).delete(any());
+    }
+
+    @Test
+    @DisplayName("Счётчики после коммита учитывают смену реакции")
+    void onReactionChanged() {
+        postReactionService.onReactionChanged(new PostReactionChangedEvent(1L, null, ReactionType.LIKE));
+        postReactionService.onReactionChanged(new PostReactionChangedEvent(1L, null, ReactionType.LIKE));
+        postReactionService.onReactionChanged(new PostReactionChangedEvent(1L, ReactionType.LIKE, ReactionType.LOVE));
+
+        Assertions.assertEquals(1, reactionCounters.get(1L, ReactionType.LIKE));
+        Assertions.assertEquals(1, reactionCounters.get(1L, ReactionType.LOVE));
+    }
+
+    @Test
+    @DisplayName("Найти счётчики реакций с учётом несброшенного прироста")
+    void findCounts() throws SQLException {
+        given(postRepository.existsById(anyLong())).willReturn(true);
+        List<ResultSet> rows = List.of(getCountRow(1L, "LIKE", 10L), getCountRow(1L, "WOW", 2L));
+        willAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (ResultSet row : rows)
+                handler.processRow(row);
+            return null;
+        }).given(jdbcTemplate).query(eq(PostReactionService.SELECT_COUNTS), any(RowCallbackHandler.class), any(long[].class));
+        reactionCounters.add(1L, ReactionType.LIKE, 3);
+
+        Map<ReactionType, Long> counts = postReactionService.findCounts(1L);
+
+        Assertions.assertEquals(Map.of(ReactionType.LIKE, 13L, ReactionType.WOW, 2L), counts);
+    }
+
+    @Test
+    @DisplayName("Сбросить счётчики в базу одной пачкой")
+    @SuppressWarnings("unchecked")
+    void flush() {
+        reactionCounters.add(1L, ReactionType.LIKE, 2);
+        reactionCounters.add(2L, ReactionType.LOVE, 1);
+
+        postReactionService.flush();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(PostReactionService.UPSERT_COUNT),
+                argThat((Collection<ReactionCounters.Delta> deltas) -> deltas.size() == 2),
+                eq(2),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof PostReactionsFlushedEvent flushed
+                        && flushed.getDeltas().equals(Map.of(
+                        1L, Map.of(ReactionType.LIKE, 2L),
+                        2L, Map.of(ReactionType.LOVE, 1L)))));
+        Assertions.assertEquals(0, reactionCounters.get(1L, ReactionType.LIKE));
+    }
+
+    @Test
+    @DisplayName("Несброшенный из-за ошибки прирост возвращается в счётчики")
+    @SuppressWarnings("unchecked")
+    void flush_If_Database_Is_Unavailable() {
+        reactionCounters.add(1L, ReactionType.LIKE, 2);
+        given(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .willThrow(new DataAccessResourceFailureException("connection refused"));
+
+        postReactionService.flush();
+
+        Assertions.assertEquals(2, reactionCounters.get(1L, ReactionType.LIKE));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Сбросить нечего")
+    void flush_If_Nothing_Pending() {
+        postReactionService.flush();
+
+        verifyNoInteractions(jdbcTemplate);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Удаление поста отбрасывает его прирост")
+    void onPostDeleted() {
+        reactionCounters.add(1L, ReactionType.LIKE, 2);
+
+        postReactionService.onPostDeleted(new PostDeletedEvent(1L, 7L, List.of()));
+
+        Assertions.assertEquals(0, reactionCounters.size());
+    }
+
+    private UserEntity getUser() {
+        return UserEntity.builder()
+                .id(7L)
+                .username("test_username")
+                .email("test@test.com")
+                .build();
+    }
+
+    private PostReactionEntity getReaction(ReactionType type) {
+        return PostReactionEntity.builder()
+                .id(new PostReactionID(1L, 7L))
+                .type(type)
+                .build();
+    }
+
+    private ResultSet getCountRow(Long postId, String type, Long count) throws SQLException {
+        ResultSet row = mock(ResultSet.class);
+        given(row.getLong("post_id")).willReturn(postId);
+        given(row.getString("type")).willReturn(type);
+        given(row.getLong("count")).willReturn(count);
+        return row;
+    }
+}
@@ -0,0 +1,160 @@
+package ru.elseff.socialmedia.web.api.modules.postview.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.elseff.socialmedia.web.api.modules.post.event.PostDeletedEvent;
+import ru.elseff.socialmedia.web.api.modules.postview.event.PostViewsFlushedEvent;
+import ru.elseff.socialmedia.web.api.modules.postview.sketch.HyperLogLog;
+import ru.elseff.socialmedia.web.api.modules.postview.sketch.PostViewSketches;
+
+import java.security.Principal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.*;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class PostViewServiceTest {
+
+    @InjectMocks
+    PostViewService postViewService;
+
+    @Spy
+    PostViewSketches postViewSketches = new PostViewSketches();
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    @DisplayName("Учесть просмотр")
+    void recordView() {
+        Principal viewer = () -> "test_username";
+
+        postViewService.recordView(1L, viewer);
+        postViewService.recordView(1L, viewer);
+        postViewService.recordView(2L, null);
+
+        Assertions.assertEquals(1, postViewSketches.size());
+        Assertions.assertEquals(1, postViewSketches.drain().get(1L).estimate());
+    }
+
+    @Test
+    @DisplayName("Найти число просмотров по слитому скетчу")
+    void findCount() throws SQLException {
+        givenSketches(getSketchRow(1L, 5));
+
+        Assertions.assertEquals(5, postViewService.findCount(1L));
+        Assertions.assertEquals(0, postViewService.findCount(2L));
+    }
+
+    @Test
+    @DisplayName("Найти число просмотров страницы постов одним запросом")
+    void findCounts() throws SQLException {
+        givenSketches(getSketchRow(1L, 5), getSketchRow(3L, 2));
+
+        Map<Long, Long> counts = postViewService.findCounts(List.of(1L, 2L, 3L));
+
+        Assertions.assertEquals(Map.of(1L, 5L, 3L, 2L), counts);
+        verify(jdbcTemplate, times(1)).query(eq(PostViewService.SELECT_SKETCHES), any(RowCallbackHandler.class),
+                eq(new long[]{1L, 2L, 3L}));
+        Assertions.assertEquals(Map.of(), postViewService.findCounts(List.of()));
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Слить скетчи с базой одной пачкой")
+    @SuppressWarnings("unchecked")
+    void flush() {
+        postViewService.recordView(1L, () -> "test_username");
+        postViewService.recordView(2L, () -> "test_username");
+
+        postViewService.flush();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(PostViewService.MERGE_SKETCH),
+                argThat((Collection<?> sketches) -> sketches.size() == 2),
+                eq(2),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof PostViewsFlushedEvent flushed
+                        && flushed.getPostIds().equals(Set.of(1L, 2L))));
+        Assertions.assertEquals(0, postViewSketches.size());
+    }
+
+    @Test
+    @DisplayName("Не слитые из-за ошибки скетчи возвращаются в память")
+    @SuppressWarnings("unchecked")
+    void flush_If_Database_Is_Unavailable() {
+        postViewService.recordView(1L, () -> "test_username");
+        given(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .willThrow(new DataAccessResourceFailureException("connection refused"));
+
+        postViewService.flush();
+
+        Assertions.assertEquals(1, postViewSketches.size());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Удаление поста отбрасывает его просмотры")
+    void onPostDeleted() {
+        postViewService.recordView(1L, () -> "test_username");
+
+        postViewService.onPostDeleted(new PostDeletedEvent(1L, 1L, List.of()));
+
+        Assertions.assertEquals(0, postViewSketches.size());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private void givenSketches(ResultSet... rows) {
+        willAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (ResultSet row : rows)
+                handler.processRow(row);
+            return null;
+        }).given(jdbcTemplate).query(eq(PostViewService.SELECT_SKETCHES), any(RowCallbackHandler.class), any(long[].class));
+    }
+
+    private ResultSet getSketchRow(Long postId, int viewers) throws SQLException {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < viewers; i++)
+            sketch.add(HyperLogLog.hash("user" + i));
+
+        ResultSet row = mock(ResultSet.class);
+        given(row.getLong("post_id")).willReturn(postId);
+        given(row.getBytes("sketch")).willReturn(sketch.toByteArray());
+        return row;
+    }
+}
@@ -0,0 +1,66 @@
+package ru.elseff.socialmedia.web.api.modules.postview.sketch;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+    @Test
+    @DisplayName("Пустой скетч")
+    void estimate_If_Empty() {
+        Assertions.assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    @DisplayName("Повторные просмотры не увеличивают оценку")
+    void add_Same_Viewer() {
+        HyperLogLog sketch = new HyperLogLog();
+
+        for (int i = 0; i < 1000; i++)
+            sketch.add(HyperLogLog.hash("user" + (i % 10)));
+
+        Assertions.assertEquals(10, sketch.estimate());
+    }
+
+    @Test
+    @DisplayName("Оценка большого числа зрителей в пределах погрешности")
+    void estimate() {
+        HyperLogLog sketch = new HyperLogLog();
+        int viewers = 100_000;
+
+        for (int i = 0; i < viewers; i++)
+            sketch.add(HyperLogLog.hash("user" + i));
+
+        Assertions.assertEquals(viewers, sketch.estimate(), viewers * 0.1);
+    }
+
+    @Test
+    @DisplayName("Слияние скетчей — оценка объединения")
+    void merge() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (int i = 0; i < 20_000; i++)
+            first.add(HyperLogLog.hash("user" + i));
+        for (int i = 10_000; i < 30_000; i++)
+            second.add(HyperLogLog.hash("user" + i));
+
+        first.merge(second);
+
+        Assertions.assertEquals(30_000, first.estimate(), 30_000 * 0.1);
+    }
+
+    @Test
+    @DisplayName("Скетч занимает фиксированные 1024 байта и восстанавливается из них")
+    void toByteArray() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 500; i++)
+            sketch.add(HyperLogLog.hash("user" + i));
+
+        byte[] bytes = sketch.toByteArray();
+
+        Assertions.assertEquals(HyperLogLog.REGISTERS, bytes.length);
+        Assertions.assertEquals(sketch.estimate(), HyperLogLog.fromByteArray(bytes).estimate());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromByteArray(new byte[16]));
+    }
+}
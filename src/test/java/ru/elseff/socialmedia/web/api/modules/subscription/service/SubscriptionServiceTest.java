@@ -8,11 +8,14 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import ru.elseff.socialmedia.persistense.SubscriptionEntity;
 import ru.elseff.socialmedia.persistense.SubscriptionID;
 import ru.elseff.socialmedia.persistense.UserEntity;
 import ru.elseff.socialmedia.persistense.dao.SubscriptionRepository;
+import ru.elseff.socialmedia.web.api.modules.subscription.event.SubscriptionChangedEvent;
 import ru.elseff.socialmedia.web.api.modules.user.service.UserService;
 
 import java.util.Optional;
@@ -35,6 +38,9 @@ class SubscriptionServiceTest {
     @Mock
     SubscriptionRepository subscriptionRepository;
 
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -58,6 +64,7 @@ class SubscriptionServiceTest {
         verify(subscriptionRepository, times(1)).save(any(SubscriptionEntity.class));
         verifyNoMoreInteractions(userService);
         verifyNoMoreInteractions(subscriptionRepository);
+        verifySubscriptionChanged(true);
     }
 
     @Test
@@ -112,6 +119,7 @@ class SubscriptionServiceTest {
         verify(userService, times(1)).getCurrentAuthUser();
         verifyNoMoreInteractions(subscriptionRepository);
         verifyNoMoreInteractions(userService);
+        verifySubscriptionChanged(false);
     }
 
     @Test
@@ -158,6 +166,15 @@ class SubscriptionServiceTest {
         verify(userService, times(1)).getCurrentAuthUser();
         verifyNoMoreInteractions(subscriptionRepository);
         verifyNoMoreInteractions(userService);
+        verifySubscriptionChanged(true);
+    }
+
+    private void verifySubscriptionChanged(boolean subscribed) {
+        ArgumentCaptor<SubscriptionChangedEvent> event = ArgumentCaptor.forClass(SubscriptionChangedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        Assertions.assertEquals(getUser2().getId(), event.getValue().getUserId());
+        Assertions.assertEquals(getUser1().getId(), event.getValue().getSubscriberId());
+        Assertions.assertEquals(subscribed, event.getValue().isSubscribed());
     }
 
     private SubscriptionEntity getInversedSubscriptionEntity(){
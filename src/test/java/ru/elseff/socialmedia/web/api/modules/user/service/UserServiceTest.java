@@ -123,6 +123,31 @@ class UserServiceTest {
         verifyNoInteractions(subscriptionRepository);
     }
 
+    @Test
+    @DisplayName("Найти id пользователя по username")
+    void findIdByUsername() {
+        given(userRepository.findIdByUsername(anyString())).willReturn(Optional.of(1L));
+
+        Long actualId = userService.findIdByUsername("test_username");
+
+        Assertions.assertEquals(1L, actualId);
+
+        verify(userRepository, times(1)).findIdByUsername("test_username");
+        verifyNoMoreInteractions(userRepository);
+        verifyNoInteractions(subscriptionRepository);
+    }
+
+    @Test
+    @DisplayName("Найти id пользователя по username, если он не найден")
+    void findIdByUsername_If_Not_Found() {
+        given(userRepository.findIdByUsername(anyString())).willReturn(Optional.empty());
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> userService.findIdByUsername("test_username"));
+
+        Assertions.assertEquals("user not found", exception.getMessage());
+    }
+
     @Test
     @DisplayName("Получить текущего пользователя")
     void getCurrentAuthUser() {